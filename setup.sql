@@ -21,6 +21,11 @@ DROP TABLE IF EXISTS doctors CASCADE;
 DROP TABLE IF EXISTS employees CASCADE;
 DROP TABLE IF EXISTS config_bed_types CASCADE;
 DROP TABLE IF EXISTS config_illnesses CASCADE;
+DROP TABLE IF EXISTS dashboard_counters CASCADE;
+DROP TABLE IF EXISTS dashboard_counter_deltas CASCADE;
+DROP TABLE IF EXISTS appointments_archive CASCADE;
+DROP TABLE IF EXISTS patients_archive CASCADE;
+DROP TABLE IF EXISTS schema_migrations CASCADE;
 
 ---
 --- ========== STEP 4: CREATE FRESH TABLES ==========
@@ -85,16 +90,24 @@ CREATE TABLE beds (
     FOREIGN KEY (bed_type_id) REFERENCES config_bed_types(bed_type_id)
 );
 
+-- Billing is range-partitioned by bill_date, one partition per year (see
+-- create_billing_partition below), so history reads bounded by bill_date only
+-- touch the years they need. The patient's name is copied onto the bill when it
+-- is written; bills outlive the patient row, which moves to patients_archive,
+-- so there is no foreign key to patients.
 CREATE TABLE billing (
-    bill_id SERIAL PRIMARY KEY, -- Auto-incrementing
+    bill_id SERIAL, -- Auto-incrementing
     patient_id INT NOT NULL,
+    patient_name VARCHAR(100) NOT NULL,
     bed_charge NUMERIC(10, 2),
     service_charge NUMERIC(10, 2),
     doctor_fee NUMERIC(10, 2),
     total NUMERIC(10, 2) NOT NULL,
     bill_date DATE NOT NULL,
-    FOREIGN KEY (patient_id) REFERENCES patients(patient_id)
-);
+    PRIMARY KEY (bill_id, bill_date) -- Must include the partition key
+) PARTITION BY RANGE (bill_date);
+-- Catches bills dated outside every yearly partition, e.g. backdated ones
+CREATE TABLE billing_default PARTITION OF billing DEFAULT;
 
 CREATE TABLE appointments (
     appointment_id SERIAL PRIMARY KEY,
@@ -107,6 +120,187 @@ CREATE TABLE appointments (
     FOREIGN KEY (doctor_id) REFERENCES doctors(doctor_id)
 );
 
+-- Indexes
+-- Trigram indexes for patient search (DoctorPortalPanel, BillingPanel, PatientPanel); needs the pg_trgm contrib extension
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX idx_patients_name_trgm ON patients USING GIN (name gin_trgm_ops);
+CREATE INDEX idx_patients_other_illness_trgm ON patients USING GIN (other_illness_text gin_trgm_ops);
+CREATE INDEX idx_billing_patient_id ON billing (patient_id);
+CREATE INDEX idx_billing_patient_name_trgm ON billing USING GIN (patient_name gin_trgm_ops);
+-- Newest-first billing history, streamed and paged by (bill_date, bill_id) (BillingPanel)
+CREATE INDEX idx_billing_date_id ON billing (bill_date DESC, bill_id DESC);
+-- Keyset paging of the admitted patient list by name (PatientPanel); ID order uses the primary key
+CREATE INDEX idx_patients_admitted_name ON patients (name, patient_id) WHERE discharged_date IS NULL;
+CREATE INDEX idx_patients_admitted_id ON patients (patient_id) WHERE discharged_date IS NULL;
+
+-- Archive for discharged patients, and their appointments, moved out of the hot
+-- tables by archive_discharged_patients() below. Same columns plus archived_at.
+CREATE TABLE patients_archive (
+    LIKE patients,
+    archived_at TIMESTAMP NOT NULL DEFAULT now(),
+    PRIMARY KEY (patient_id)
+);
+CREATE TABLE appointments_archive (
+    LIKE appointments,
+    archived_at TIMESTAMP NOT NULL DEFAULT now(),
+    PRIMARY KEY (appointment_id)
+);
+CREATE INDEX idx_appointments_archive_patient_id ON appointments_archive (patient_id);
+
+-- Creates the billing partition for one calendar year, unless it exists or the
+-- default partition already holds bills for that year (attaching would fail;
+-- those bills simply stay in the default partition).
+CREATE OR REPLACE FUNCTION create_billing_partition(part_year INT) RETURNS BOOLEAN AS $$
+DECLARE
+    part_name TEXT := 'billing_y' || part_year;
+    start_date DATE := make_date(part_year, 1, 1);
+    end_date DATE := make_date(part_year + 1, 1, 1);
+BEGIN
+    IF to_regclass(part_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+    IF EXISTS (SELECT 1 FROM billing_default WHERE bill_date >= start_date AND bill_date < end_date) THEN
+        RAISE NOTICE 'billing_default already has bills for %, not creating %', part_year, part_name;
+        RETURN FALSE;
+    END IF;
+    EXECUTE format('CREATE TABLE %I PARTITION OF billing FOR VALUES FROM (%L) TO (%L)',
+                   part_name, start_date, end_date);
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Makes sure this year's and next year's partitions exist. Run here and daily by
+-- MaintenanceJobs, so a new year's bills never land in the default partition.
+CREATE OR REPLACE FUNCTION ensure_billing_partitions() RETURNS INT AS $$
+DECLARE
+    this_year INT := extract(year FROM CURRENT_DATE);
+    created INT := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('ensure_billing_partitions'));
+    FOR y IN this_year .. this_year + 1 LOOP
+        IF create_billing_partition(y) THEN
+            created := created + 1;
+        END IF;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT ensure_billing_partitions();
+
+-- Moves up to batch_size patients discharged more than keep_days ago, with
+-- their appointments, into the archive tables. Their bills stay in billing.
+-- Returns the number of patients moved; run daily by MaintenanceJobs.
+CREATE OR REPLACE FUNCTION archive_discharged_patients(keep_days INT, batch_size INT) RETURNS INT AS $$
+DECLARE
+    ids INT[];
+BEGIN
+    -- Row locks keep new appointments from being booked for these patients meanwhile
+    SELECT array_agg(patient_id) INTO ids FROM (
+        SELECT p.patient_id FROM patients p
+        WHERE p.discharged_date < CURRENT_DATE - keep_days
+          AND NOT EXISTS (SELECT 1 FROM beds b WHERE b.patient_id = p.patient_id)
+        ORDER BY p.patient_id
+        LIMIT batch_size
+        FOR UPDATE SKIP LOCKED
+    ) candidates;
+    IF ids IS NULL THEN
+        RETURN 0;
+    END IF;
+
+    WITH moved AS (DELETE FROM appointments WHERE patient_id = ANY (ids) RETURNING *)
+    INSERT INTO appointments_archive SELECT * FROM moved;
+    WITH moved AS (DELETE FROM patients WHERE patient_id = ANY (ids) RETURNING *)
+    INSERT INTO patients_archive SELECT * FROM moved;
+    RETURN cardinality(ids);
+END;
+$$ LANGUAGE plpgsql;
+
+-- Dashboard counters, kept current by the triggers below so the Dashboard reads
+-- four rows instead of scanning patients, beds and billing.
+-- DataAccess.reconcileDashboardCounters() checks them against full scans.
+-- Migration V5 changes bump_dashboard_counter to append to an insert-only
+-- delta table, so writers never lock these rows.
+CREATE TABLE dashboard_counters (
+    counter_name VARCHAR(50) PRIMARY KEY,
+    value NUMERIC(14, 2) NOT NULL DEFAULT 0
+);
+INSERT INTO dashboard_counters (counter_name) VALUES
+('active_patients'), ('available_beds'), ('total_revenue'), ('total_doctors');
+
+-- Also announces the change on the hms_dashboard channel. NOTIFY is delivered on
+-- commit and a value computed here cannot include other transactions committing
+-- at the same time, so listeners treat it only as a signal and re-read the
+-- counters; V5 reduces the payload to the counter name.
+CREATE OR REPLACE FUNCTION bump_dashboard_counter(name VARCHAR, delta NUMERIC) RETURNS VOID AS $$
+DECLARE
+    new_value NUMERIC;
+BEGIN
+    IF delta <> 0 THEN
+        UPDATE dashboard_counters SET value = value + delta WHERE counter_name = name
+        RETURNING value INTO new_value;
+        PERFORM pg_notify('hms_dashboard', name || ':' || delta || ':' || new_value);
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION patients_dashboard_trigger() RETURNS TRIGGER AS $$
+DECLARE
+    delta INT := 0;
+BEGIN
+    IF TG_OP <> 'DELETE' THEN
+        IF NEW.discharged_date IS NULL THEN delta := delta + 1; END IF;
+    END IF;
+    IF TG_OP <> 'INSERT' THEN
+        IF OLD.discharged_date IS NULL THEN delta := delta - 1; END IF;
+    END IF;
+    PERFORM bump_dashboard_counter('active_patients', delta);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION beds_dashboard_trigger() RETURNS TRIGGER AS $$
+DECLARE
+    delta INT := 0;
+BEGIN
+    IF TG_OP <> 'DELETE' THEN
+        IF NEW.status = 'Available' THEN delta := delta + 1; END IF;
+    END IF;
+    IF TG_OP <> 'INSERT' THEN
+        IF OLD.status = 'Available' THEN delta := delta - 1; END IF;
+    END IF;
+    PERFORM bump_dashboard_counter('available_beds', delta);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION billing_dashboard_trigger() RETURNS TRIGGER AS $$
+DECLARE
+    delta NUMERIC := 0;
+BEGIN
+    IF TG_OP <> 'DELETE' THEN delta := delta + NEW.total; END IF;
+    IF TG_OP <> 'INSERT' THEN delta := delta - OLD.total; END IF;
+    PERFORM bump_dashboard_counter('total_revenue', delta);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION doctors_dashboard_trigger() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM bump_dashboard_counter('total_doctors', CASE WHEN TG_OP = 'INSERT' THEN 1 ELSE -1 END);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER patients_dashboard AFTER INSERT OR DELETE OR UPDATE OF discharged_date ON patients
+    FOR EACH ROW EXECUTE FUNCTION patients_dashboard_trigger();
+CREATE TRIGGER beds_dashboard AFTER INSERT OR DELETE OR UPDATE OF status ON beds
+    FOR EACH ROW EXECUTE FUNCTION beds_dashboard_trigger();
+CREATE TRIGGER billing_dashboard AFTER INSERT OR DELETE OR UPDATE OF total ON billing
+    FOR EACH ROW EXECUTE FUNCTION billing_dashboard_trigger();
+CREATE TRIGGER doctors_dashboard AFTER INSERT OR DELETE ON doctors
+    FOR EACH ROW EXECUTE FUNCTION doctors_dashboard_trigger();
+
 ---
 --- ========== STEP 5: INSERT DUMMY DATA ==========
 ---
@@ -189,6 +383,22 @@ UPDATE beds SET status = 'Occupied', patient_id = 8 WHERE bed_id = 16; -- Linked
 INSERT INTO appointments (patient_id, doctor_id, appointment_date, appointment_time, status)
 VALUES (6, 2, '2025-11-13', '10:00 AM', 'Scheduled');
 
+---
+--- ========== STEP 8: RECORD THE SCHEMA VERSION ==========
+---
+-- Applied by dal.SchemaMigrator from sql/migrations at application startup.
+-- This script already creates everything up to version 1; the application
+-- applies version 2 onwards the first time it starts.
+CREATE TABLE schema_migrations (
+    version INT PRIMARY KEY,
+    description VARCHAR(200) NOT NULL,
+    checksum VARCHAR(64), -- SHA-256 of the migration file; NULL when recorded by this script
+    applied_at TIMESTAMP NOT NULL DEFAULT now(),
+    execution_ms BIGINT
+);
+INSERT INTO schema_migrations (version, description) VALUES
+(1, 'partition billing and archive patients');
+
 ---
 --- SETUP COMPLETE
 ---
\ No newline at end of file
@@ -0,0 +1,136 @@
+-- Moves a database created before billing was partitioned to the partitioned
+-- billing table and the patient archive tables. setup.sql already creates both
+-- and records this migration as applied, so it only runs on older databases.
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = 'billing'::regclass) THEN
+        RAISE EXCEPTION 'billing is already partitioned; record version 1 in schema_migrations instead of running it';
+    END IF;
+END;
+$$;
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- ========== BILLING: COPY INTO A PARTITIONED TABLE ==========
+
+ALTER TABLE billing RENAME TO billing_unpartitioned;
+DROP TRIGGER IF EXISTS billing_dashboard ON billing_unpartitioned;
+-- Free the names the new table's primary key and indexes will use
+ALTER TABLE billing_unpartitioned RENAME CONSTRAINT billing_pkey TO billing_unpartitioned_pkey;
+DROP INDEX IF EXISTS idx_billing_patient_id;
+DROP INDEX IF EXISTS idx_billing_date_id;
+
+CREATE TABLE billing (
+    bill_id INT NOT NULL DEFAULT nextval('billing_bill_id_seq'), -- Keeps numbering where the old table left off
+    patient_id INT NOT NULL,
+    patient_name VARCHAR(100) NOT NULL,
+    bed_charge NUMERIC(10, 2),
+    service_charge NUMERIC(10, 2),
+    doctor_fee NUMERIC(10, 2),
+    total NUMERIC(10, 2) NOT NULL,
+    bill_date DATE NOT NULL,
+    PRIMARY KEY (bill_id, bill_date)
+) PARTITION BY RANGE (bill_date);
+CREATE TABLE billing_default PARTITION OF billing DEFAULT;
+ALTER SEQUENCE billing_bill_id_seq OWNED BY billing.bill_id;
+
+CREATE OR REPLACE FUNCTION create_billing_partition(part_year INT) RETURNS BOOLEAN AS $$
+DECLARE
+    part_name TEXT := 'billing_y' || part_year;
+    start_date DATE := make_date(part_year, 1, 1);
+    end_date DATE := make_date(part_year + 1, 1, 1);
+BEGIN
+    IF to_regclass(part_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+    IF EXISTS (SELECT 1 FROM billing_default WHERE bill_date >= start_date AND bill_date < end_date) THEN
+        RAISE NOTICE 'billing_default already has bills for %, not creating %', part_year, part_name;
+        RETURN FALSE;
+    END IF;
+    EXECUTE format('CREATE TABLE %I PARTITION OF billing FOR VALUES FROM (%L) TO (%L)',
+                   part_name, start_date, end_date);
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION ensure_billing_partitions() RETURNS INT AS $$
+DECLARE
+    this_year INT := extract(year FROM CURRENT_DATE);
+    created INT := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('ensure_billing_partitions'));
+    FOR y IN this_year .. this_year + 1 LOOP
+        IF create_billing_partition(y) THEN
+            created := created + 1;
+        END IF;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- One partition for every year that already has bills, created before the copy
+SELECT create_billing_partition(y::INT)
+FROM generate_series((SELECT COALESCE(min(extract(year FROM bill_date)), extract(year FROM CURRENT_DATE)) FROM billing_unpartitioned)::INT,
+                     extract(year FROM CURRENT_DATE)::INT) AS y;
+SELECT ensure_billing_partitions();
+
+INSERT INTO billing (bill_id, patient_id, patient_name, bed_charge, service_charge, doctor_fee, total, bill_date)
+SELECT b.bill_id, b.patient_id, p.name, b.bed_charge, b.service_charge, b.doctor_fee, b.total, b.bill_date
+FROM billing_unpartitioned b
+JOIN patients p ON b.patient_id = p.patient_id;
+
+DROP TABLE billing_unpartitioned;
+
+CREATE INDEX idx_billing_patient_id ON billing (patient_id);
+CREATE INDEX idx_billing_patient_name_trgm ON billing USING GIN (patient_name gin_trgm_ops);
+CREATE INDEX idx_billing_date_id ON billing (bill_date DESC, bill_id DESC);
+
+-- Recreated after the copy, so the copied bills are not counted twice in total_revenue.
+-- Databases from before the dashboard counters have no trigger function to attach.
+DO $$
+BEGIN
+    IF to_regproc('billing_dashboard_trigger') IS NOT NULL THEN
+        CREATE TRIGGER billing_dashboard AFTER INSERT OR DELETE OR UPDATE OF total ON billing
+            FOR EACH ROW EXECUTE FUNCTION billing_dashboard_trigger();
+    END IF;
+END;
+$$;
+
+-- ========== PATIENT ARCHIVE ==========
+
+CREATE TABLE patients_archive (
+    LIKE patients,
+    archived_at TIMESTAMP NOT NULL DEFAULT now(),
+    PRIMARY KEY (patient_id)
+);
+CREATE TABLE appointments_archive (
+    LIKE appointments,
+    archived_at TIMESTAMP NOT NULL DEFAULT now(),
+    PRIMARY KEY (appointment_id)
+);
+CREATE INDEX idx_appointments_archive_patient_id ON appointments_archive (patient_id);
+
+CREATE OR REPLACE FUNCTION archive_discharged_patients(keep_days INT, batch_size INT) RETURNS INT AS $$
+DECLARE
+    ids INT[];
+BEGIN
+    SELECT array_agg(patient_id) INTO ids FROM (
+        SELECT p.patient_id FROM patients p
+        WHERE p.discharged_date < CURRENT_DATE - keep_days
+          AND NOT EXISTS (SELECT 1 FROM beds b WHERE b.patient_id = p.patient_id)
+        ORDER BY p.patient_id
+        LIMIT batch_size
+        FOR UPDATE SKIP LOCKED
+    ) candidates;
+    IF ids IS NULL THEN
+        RETURN 0;
+    END IF;
+
+    WITH moved AS (DELETE FROM appointments WHERE patient_id = ANY (ids) RETURNING *)
+    INSERT INTO appointments_archive SELECT * FROM moved;
+    WITH moved AS (DELETE FROM patients WHERE patient_id = ANY (ids) RETURNING *)
+    INSERT INTO patients_archive SELECT * FROM moved;
+    RETURN cardinality(ids);
+END;
+$$ LANGUAGE plpgsql;
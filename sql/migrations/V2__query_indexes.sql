@@ -0,0 +1,35 @@
+-- Secondary indexes matched to the DataAccess queries that filter or sort on
+-- columns setup.sql does not index. Partial indexes cover only the rows the
+-- queries can match (scheduled appointments, free beds, admitted patients).
+-- Check the plans with dal.QueryPlanChecker after loading realistic data.
+
+-- getBookedSlots, getAppointmentBySlot, getAppointmentsByDoctorAndDate
+-- (doctor + day, scheduled only, in time order)
+CREATE INDEX IF NOT EXISTS idx_appointments_doctor_date_time
+    ON appointments (doctor_id, appointment_date, appointment_time)
+    WHERE status = 'Scheduled';
+
+-- getScheduledAppointments (every doctor's appointments for one day, in time order)
+CREATE INDEX IF NOT EXISTS idx_appointments_date_time
+    ON appointments (appointment_date, appointment_time);
+
+-- Patient deletes and archive_discharged_patients() look up appointments by patient
+CREATE INDEX IF NOT EXISTS idx_appointments_patient_id
+    ON appointments (patient_id);
+
+-- allocateBed: lowest-numbered free bed of a type
+CREATE INDEX IF NOT EXISTS idx_beds_available_type
+    ON beds (bed_type_id, bed_id)
+    WHERE status = 'Available';
+
+-- getPatientsByDoctorId and searchPatients with a doctor: admitted patients of one doctor by name
+CREATE INDEX IF NOT EXISTS idx_patients_admitted_doctor_name
+    ON patients (doctor_id, name)
+    WHERE discharged_date IS NULL;
+
+-- archive_discharged_patients(): the discharged patients old enough to archive
+CREATE INDEX IF NOT EXISTS idx_patients_discharged_date
+    ON patients (discharged_date)
+    WHERE discharged_date IS NOT NULL;
+
+-- Billing history is already covered by idx_billing_date_id (bill_date DESC, bill_id DESC)
@@ -0,0 +1,68 @@
+-- Appointment times become minutes after midnight (600 = 10:00 AM) instead of
+-- "10:00 AM" strings, and a partial unique index lets a doctor's slot be
+-- scheduled only once. DataAccess.addAppointment books with
+-- INSERT ... ON CONFLICT DO NOTHING against that index.
+
+ALTER TABLE appointments ADD COLUMN appointment_minute SMALLINT;
+UPDATE appointments
+SET appointment_minute = EXTRACT(EPOCH FROM appointment_time::time)::INT / 60; -- time input accepts '10:00 AM'
+ALTER TABLE appointments
+    ALTER COLUMN appointment_minute SET NOT NULL,
+    ADD CONSTRAINT appointments_minute_of_day CHECK (appointment_minute BETWEEN 0 AND 1439);
+-- Also drops the V2 indexes on appointment_time; replaced below
+ALTER TABLE appointments DROP COLUMN appointment_time;
+
+ALTER TABLE appointments_archive ADD COLUMN appointment_minute SMALLINT;
+UPDATE appointments_archive
+SET appointment_minute = EXTRACT(EPOCH FROM appointment_time::time)::INT / 60; -- time input accepts '10:00 AM'
+ALTER TABLE appointments_archive ALTER COLUMN appointment_minute SET NOT NULL;
+ALTER TABLE appointments_archive DROP COLUMN appointment_time;
+
+-- The old check-then-insert could double-book a slot. Keep the earliest
+-- booking of each slot and cancel the later ones, or the index cannot be built.
+UPDATE appointments a
+SET status = 'Cancelled'
+WHERE a.status = 'Scheduled'
+  AND EXISTS (SELECT 1 FROM appointments b
+              WHERE b.status = 'Scheduled'
+                AND b.doctor_id = a.doctor_id
+                AND b.appointment_date = a.appointment_date
+                AND b.appointment_minute = a.appointment_minute
+                AND b.appointment_id < a.appointment_id);
+
+-- One scheduled appointment per doctor and slot. Also serves getBookedSlots and
+-- getAppointmentsByDoctorAndDate (doctor + day, in time order).
+CREATE UNIQUE INDEX idx_appointments_doctor_slot
+    ON appointments (doctor_id, appointment_date, appointment_minute)
+    WHERE status = 'Scheduled';
+
+-- getScheduledAppointments (every doctor's appointments for one day, in time order)
+CREATE INDEX idx_appointments_date_minute
+    ON appointments (appointment_date, appointment_minute);
+
+-- The archive columns are no longer in the same order as appointments, so
+-- the appointments are copied with an explicit column list
+CREATE OR REPLACE FUNCTION archive_discharged_patients(keep_days INT, batch_size INT) RETURNS INT AS $$
+DECLARE
+    ids INT[];
+BEGIN
+    SELECT array_agg(patient_id) INTO ids FROM (
+        SELECT p.patient_id FROM patients p
+        WHERE p.discharged_date < CURRENT_DATE - keep_days
+          AND NOT EXISTS (SELECT 1 FROM beds b WHERE b.patient_id = p.patient_id)
+        ORDER BY p.patient_id
+        LIMIT batch_size
+        FOR UPDATE SKIP LOCKED
+    ) candidates;
+    IF ids IS NULL THEN
+        RETURN 0;
+    END IF;
+
+    WITH moved AS (DELETE FROM appointments WHERE patient_id = ANY (ids) RETURNING *)
+    INSERT INTO appointments_archive (appointment_id, patient_id, doctor_id, appointment_date, appointment_minute, status)
+    SELECT appointment_id, patient_id, doctor_id, appointment_date, appointment_minute, status FROM moved;
+    WITH moved AS (DELETE FROM patients WHERE patient_id = ANY (ids) RETURNING *)
+    INSERT INTO patients_archive SELECT * FROM moved;
+    RETURN cardinality(ids);
+END;
+$$ LANGUAGE plpgsql;
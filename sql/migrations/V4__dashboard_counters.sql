@@ -0,0 +1,93 @@
+-- Creates the dashboard counters and their triggers on a database set up before
+-- them; setup.sql creates both, so on such a database this changes nothing.
+-- Counters missing here are seeded from full counts of the underlying tables.
+-- V5 then moves the triggers onto an insert-only delta table.
+
+CREATE TABLE IF NOT EXISTS dashboard_counters (
+    counter_name VARCHAR(50) PRIMARY KEY,
+    value NUMERIC(14, 2) NOT NULL DEFAULT 0
+);
+
+CREATE OR REPLACE FUNCTION bump_dashboard_counter(name VARCHAR, delta NUMERIC) RETURNS VOID AS $$
+DECLARE
+    new_value NUMERIC;
+BEGIN
+    IF delta <> 0 THEN
+        UPDATE dashboard_counters SET value = value + delta WHERE counter_name = name
+        RETURNING value INTO new_value;
+        PERFORM pg_notify('hms_dashboard', name || ':' || delta || ':' || new_value);
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION patients_dashboard_trigger() RETURNS TRIGGER AS $$
+DECLARE
+    delta INT := 0;
+BEGIN
+    IF TG_OP <> 'DELETE' THEN
+        IF NEW.discharged_date IS NULL THEN delta := delta + 1; END IF;
+    END IF;
+    IF TG_OP <> 'INSERT' THEN
+        IF OLD.discharged_date IS NULL THEN delta := delta - 1; END IF;
+    END IF;
+    PERFORM bump_dashboard_counter('active_patients', delta);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION beds_dashboard_trigger() RETURNS TRIGGER AS $$
+DECLARE
+    delta INT := 0;
+BEGIN
+    IF TG_OP <> 'DELETE' THEN
+        IF NEW.status = 'Available' THEN delta := delta + 1; END IF;
+    END IF;
+    IF TG_OP <> 'INSERT' THEN
+        IF OLD.status = 'Available' THEN delta := delta - 1; END IF;
+    END IF;
+    PERFORM bump_dashboard_counter('available_beds', delta);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION billing_dashboard_trigger() RETURNS TRIGGER AS $$
+DECLARE
+    delta NUMERIC := 0;
+BEGIN
+    IF TG_OP <> 'DELETE' THEN delta := delta + NEW.total; END IF;
+    IF TG_OP <> 'INSERT' THEN delta := delta - OLD.total; END IF;
+    PERFORM bump_dashboard_counter('total_revenue', delta);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION doctors_dashboard_trigger() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM bump_dashboard_counter('total_doctors', CASE WHEN TG_OP = 'INSERT' THEN 1 ELSE -1 END);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- The triggers go on before the counts are taken: creating a trigger waits for
+-- open writes to the table and blocks new ones until this migration commits,
+-- so no change is missed or counted twice.
+DROP TRIGGER IF EXISTS patients_dashboard ON patients;
+CREATE TRIGGER patients_dashboard AFTER INSERT OR DELETE OR UPDATE OF discharged_date ON patients
+    FOR EACH ROW EXECUTE FUNCTION patients_dashboard_trigger();
+DROP TRIGGER IF EXISTS beds_dashboard ON beds;
+CREATE TRIGGER beds_dashboard AFTER INSERT OR DELETE OR UPDATE OF status ON beds
+    FOR EACH ROW EXECUTE FUNCTION beds_dashboard_trigger();
+DROP TRIGGER IF EXISTS billing_dashboard ON billing;
+CREATE TRIGGER billing_dashboard AFTER INSERT OR DELETE OR UPDATE OF total ON billing
+    FOR EACH ROW EXECUTE FUNCTION billing_dashboard_trigger();
+DROP TRIGGER IF EXISTS doctors_dashboard ON doctors;
+CREATE TRIGGER doctors_dashboard AFTER INSERT OR DELETE ON doctors
+    FOR EACH ROW EXECUTE FUNCTION doctors_dashboard_trigger();
+
+-- Same counts as DataAccess.reconcileDashboardCounters() checks against
+INSERT INTO dashboard_counters (counter_name, value)
+SELECT 'active_patients', COUNT(*) FROM patients WHERE discharged_date IS NULL
+UNION ALL SELECT 'available_beds', COUNT(*) FROM beds WHERE status = 'Available'
+UNION ALL SELECT 'total_revenue', COALESCE(SUM(total), 0) FROM billing
+UNION ALL SELECT 'total_doctors', COUNT(*) FROM doctors
+ON CONFLICT (counter_name) DO NOTHING;
@@ -0,0 +1,58 @@
+-- Dashboard counter triggers no longer update the shared dashboard_counters
+-- rows. Each change is appended to dashboard_counter_deltas instead, so writers
+-- take no locks on the counters. Before this, an admission and a concurrent
+-- discharge could lock the same counters in opposite orders and deadlock, and
+-- every admission queued on the active_patients row until commit.
+--
+-- A counter's value is its dashboard_counters row plus its pending deltas
+-- (the dashboard_counter_totals view). compact_dashboard_counters(), run
+-- periodically by MaintenanceJobs, folds the deltas into the counter rows.
+
+CREATE TABLE IF NOT EXISTS dashboard_counter_deltas (
+    delta_id BIGSERIAL PRIMARY KEY,
+    counter_name VARCHAR(50) NOT NULL,
+    delta NUMERIC(14, 2) NOT NULL
+);
+
+CREATE OR REPLACE VIEW dashboard_counter_totals AS
+SELECT c.counter_name, c.value + COALESCE(d.pending, 0) AS value
+FROM dashboard_counters c
+LEFT JOIN (SELECT counter_name, SUM(delta) AS pending
+           FROM dashboard_counter_deltas
+           GROUP BY counter_name) d USING (counter_name);
+
+-- Same signature, so the existing triggers keep calling it. The NOTIFY payload
+-- is only the counter name: a value computed here could not include other
+-- transactions committing at the same time, so listeners re-read the totals.
+CREATE OR REPLACE FUNCTION bump_dashboard_counter(name VARCHAR, delta NUMERIC) RETURNS VOID AS $$
+BEGIN
+    IF delta <> 0 THEN
+        INSERT INTO dashboard_counter_deltas (counter_name, delta) VALUES (name, delta);
+        PERFORM pg_notify('hms_dashboard', name);
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Moves the committed deltas into dashboard_counters in one statement, so
+-- readers of dashboard_counter_totals see either the deltas or their sum,
+-- never both. Deltas of transactions still open are left for the next run.
+-- Returns the number of deltas folded; 0 if another session is compacting.
+CREATE OR REPLACE FUNCTION compact_dashboard_counters() RETURNS BIGINT AS $$
+DECLARE
+    folded BIGINT;
+BEGIN
+    IF NOT pg_try_advisory_xact_lock(x'484d5302'::BIGINT) THEN
+        RETURN 0;
+    END IF;
+    WITH moved AS (
+        DELETE FROM dashboard_counter_deltas RETURNING counter_name, delta
+    ), applied AS (
+        INSERT INTO dashboard_counters (counter_name, value)
+        SELECT counter_name, SUM(delta) FROM moved GROUP BY counter_name
+        ON CONFLICT (counter_name) DO UPDATE SET value = dashboard_counters.value + EXCLUDED.value
+        RETURNING 1
+    )
+    SELECT COUNT(*) INTO folded FROM moved;
+    RETURN folded;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,18 @@
+-- Patient indexes that setup.sql has but no earlier migration creates, so a
+-- migrated database matches a freshly set up one. Without them searchPatients
+-- scans patients for its trigram match and getPatientsPage's keyset paging
+-- is not indexed. On a database from setup.sql this changes nothing.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- searchPatients (name or other illness text, trigram similarity)
+CREATE INDEX IF NOT EXISTS idx_patients_name_trgm
+    ON patients USING GIN (name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_patients_other_illness_trgm
+    ON patients USING GIN (other_illness_text gin_trgm_ops);
+
+-- getPatientsPage (admitted patients by name or ID, paged by key)
+CREATE INDEX IF NOT EXISTS idx_patients_admitted_name
+    ON patients (name, patient_id) WHERE discharged_date IS NULL;
+CREATE INDEX IF NOT EXISTS idx_patients_admitted_id
+    ON patients (patient_id) WHERE discharged_date IS NULL;
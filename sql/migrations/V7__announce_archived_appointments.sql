@@ -0,0 +1,40 @@
+-- archive_discharged_patients() deleted scheduled appointments without telling
+-- anyone, so every workstation's AppointmentSlotCache kept those minutes booked
+-- and refused the free slots. It now sends 'reload' on hms_appointments
+-- (AppointmentSlotCache.RELOAD) when it moves any scheduled appointment.
+-- Delivered on commit, like the notifications DataAccess sends.
+
+CREATE OR REPLACE FUNCTION archive_discharged_patients(keep_days INT, batch_size INT) RETURNS INT AS $$
+DECLARE
+    ids INT[];
+    scheduled BIGINT;
+BEGIN
+    SELECT array_agg(patient_id) INTO ids FROM (
+        SELECT p.patient_id FROM patients p
+        WHERE p.discharged_date < CURRENT_DATE - keep_days
+          AND NOT EXISTS (SELECT 1 FROM beds b WHERE b.patient_id = p.patient_id)
+        ORDER BY p.patient_id
+        LIMIT batch_size
+        FOR UPDATE SKIP LOCKED
+    ) candidates;
+    IF ids IS NULL THEN
+        RETURN 0;
+    END IF;
+
+    WITH moved AS (
+        DELETE FROM appointments WHERE patient_id = ANY (ids) RETURNING *
+    ), archived AS (
+        INSERT INTO appointments_archive (appointment_id, patient_id, doctor_id, appointment_date, appointment_minute, status)
+        SELECT appointment_id, patient_id, doctor_id, appointment_date, appointment_minute, status FROM moved
+        RETURNING status
+    )
+    SELECT COUNT(*) INTO scheduled FROM archived WHERE status = 'Scheduled';
+    IF scheduled > 0 THEN
+        PERFORM pg_notify('hms_appointments', 'reload');
+    END IF;
+
+    WITH moved AS (DELETE FROM patients WHERE patient_id = ANY (ids) RETURNING *)
+    INSERT INTO patients_archive SELECT * FROM moved;
+    RETURN cardinality(ids);
+END;
+$$ LANGUAGE plpgsql;
@@ -1,8 +1,35 @@
+import dal.MaintenanceJobs;
+import dal.QueryMetrics;
+import dal.SchemaMigrator;
 import ui.MainFrame;
+import util.PdfJobQueue;
+import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
+import java.sql.SQLException;
 
 public class Main {
     public static void main(String[] args) {
+        // Per-method query latency, slow query log and the periodic metrics file (-Dhms.metrics=false to turn off)
+        QueryMetrics.start();
+
+        // Apply any pending schema migrations before anything queries the database;
+        // the application cannot run against a schema it does not match
+        try {
+            SchemaMigrator.migrate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(null, "Could not update the database schema: " + e.getMessage()
+                            + "\nThe application will now close.",
+                    "Database Error", JOptionPane.ERROR_MESSAGE);
+            System.exit(1);
+        }
+
+        // Background checks such as dashboard counter reconciliation
+        MaintenanceJobs.start();
+
+        // Invoice PDFs are rendered in the background; also resumes any left from the last run
+        PdfJobQueue.start();
+
         // Run the GUI on the Event Dispatch Thread (EDT)
         SwingUtilities.invokeLater(() -> {
             new MainFrame().setVisible(true);
@@ -0,0 +1,162 @@
+package bench;
+
+import dal.DataAccess;
+import dal.DatabaseConnection;
+import model.Patient;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fires many concurrent admissions at a single bed type and checks that every
+ * free bed is handed out exactly once.
+ *
+ * Usage: java -cp out:lib/* bench.AdmissionBenchmark [admissions] [beds] [threads]
+ *
+ * It creates its own bed type, beds and patients and deletes them afterwards,
+ * so it can be run against the normal development database.
+ */
+public class AdmissionBenchmark {
+
+    private static final String BED_TYPE_NAME = "Benchmark-Contention";
+
+    public static void main(String[] args) throws Exception {
+        int admissions = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int beds = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        int doctorId;
+        int illnessId;
+        int bedTypeId;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            doctorId = firstId(conn, "SELECT doctor_id FROM doctors ORDER BY doctor_id LIMIT 1");
+            illnessId = firstId(conn, "SELECT illness_id FROM config_illnesses ORDER BY illness_id LIMIT 1");
+            bedTypeId = createBeds(conn, beds);
+        }
+
+        DataAccess dataAccess = new DataAccess();
+        AtomicInteger admitted = new AtomicInteger();
+        AtomicInteger noBed = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        for (int i = 0; i < admissions; i++) {
+            final int n = i;
+            pool.execute(() -> {
+                Patient patient = new Patient();
+                patient.setName("Benchmark Patient " + n);
+                patient.setAge(40);
+                patient.setGender("Other");
+                patient.setAdmittedDate(new Date());
+                patient.setDoctorId(doctorId);
+                patient.setDiseaseSeverity("Moderate");
+                patient.setRequestedBedTypeId(bedTypeId);
+                patient.setIllnessId(illnessId);
+                try {
+                    start.await();
+                    if (dataAccess.addPatient(patient)) {
+                        admitted.incrementAndGet();
+                    } else {
+                        noBed.incrementAndGet();
+                    }
+                } catch (SQLException e) {
+                    errors.incrementAndGet();
+                    System.err.println("Admission " + n + " failed: " + e.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - began) / 1e9;
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            int occupied = count(conn, "SELECT COUNT(*) FROM beds WHERE bed_type_id = ? AND status = 'Occupied'", bedTypeId);
+            int distinctPatients = count(conn, "SELECT COUNT(DISTINCT patient_id) FROM beds WHERE bed_type_id = ?", bedTypeId);
+
+            System.out.printf("Admissions attempted : %d (%d threads, %d beds)%n", admissions, threads, beds);
+            System.out.printf("Admitted with bed    : %d%n", admitted.get());
+            System.out.printf("Rejected, no bed     : %d%n", noBed.get());
+            System.out.printf("Errors               : %d%n", errors.get());
+            System.out.printf("Elapsed              : %.2f s (%.0f admissions/s)%n", seconds, admissions / seconds);
+            System.out.printf("Beds occupied        : %d, distinct patients in beds: %d%n", occupied, distinctPatients);
+
+            boolean ok = errors.get() == 0
+                    && admitted.get() == Math.min(admissions, beds)
+                    && occupied == admitted.get()
+                    && distinctPatients == admitted.get();
+            System.out.println(ok ? "RESULT: OK" : "RESULT: FAILED");
+
+            cleanUp(conn, bedTypeId);
+        }
+        DatabaseConnection.getPool().shutdown();
+    }
+
+    private static int createBeds(Connection conn, int beds) throws SQLException {
+        int bedTypeId;
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO config_bed_types (bed_type_name, price_per_day) VALUES (?, 0) RETURNING bed_type_id")) {
+            pstmt.setString(1, BED_TYPE_NAME);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                bedTypeId = rs.getInt(1);
+            }
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO beds (ward, floor, bed_type_id) SELECT 'Benchmark', 99, ? FROM generate_series(1, ?)")) {
+            pstmt.setInt(1, bedTypeId);
+            pstmt.setInt(2, beds);
+            pstmt.executeUpdate();
+        }
+        return bedTypeId;
+    }
+
+    private static void cleanUp(Connection conn, int bedTypeId) throws SQLException {
+        List<String> statements = new ArrayList<>();
+        statements.add("UPDATE beds SET patient_id = NULL WHERE bed_type_id = " + bedTypeId);
+        statements.add("DELETE FROM beds WHERE bed_type_id = " + bedTypeId);
+        statements.add("DELETE FROM patients WHERE requested_bed_type_id = " + bedTypeId);
+        statements.add("DELETE FROM config_bed_types WHERE bed_type_id = " + bedTypeId);
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                stmt.executeUpdate(sql);
+            }
+        }
+    }
+
+    private static int firstId(Connection conn, String sql) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next()) {
+                throw new SQLException("Benchmark needs seed data: " + sql);
+            }
+            return rs.getInt(1);
+        }
+    }
+
+    private static int count(Connection conn, String sql, int param) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, param);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
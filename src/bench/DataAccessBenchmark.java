@@ -0,0 +1,205 @@
+package bench;
+
+import dal.DataAccess;
+import dal.DatabaseConnection;
+import dal.PatientSort;
+import dal.QueryMetrics;
+import model.Bill;
+import model.Doctor;
+import model.PanelSnapshot;
+import model.Patient;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Throughput, latency percentiles and allocation for the DataAccess reads
+ * the panels call, one method at a time on one thread.
+ *
+ * Usage: java -cp out:lib/* bench.DataAccessBenchmark [seconds per method] [name filter] [results.csv]
+ *
+ * Each method is warmed up for half the measuring time, then called
+ * repeatedly for the full time. Reported per method: calls per second,
+ * p50/p99/max latency, KB allocated per call (by this thread, which includes
+ * the driver's row decoding) and rows returned per call. Row counts of the
+ * main tables are printed first, since the numbers only mean something
+ * next to the data size; load databases at several sizes with
+ * {@link DataGenerator} (scale 1, 10 and 100) to see how each method
+ * scales. With a CSV file the results are appended, one line per method,
+ * for comparing runs.
+ *
+ * Query metrics are recorded as in the application; run once more with
+ * -Dhms.metrics=false to see what recording them costs.
+ *
+ * Reads only. Methods answered from in-memory caches (getBookedSlots,
+ * getBedAvailability) are left out.
+ */
+public class DataAccessBenchmark {
+
+    /**
+     * One call of the method under test. Returns the number of rows it produced.
+     */
+    interface Op {
+        int run(DataAccess dataAccess) throws SQLException;
+    }
+
+    private static final int MAX_SAMPLES = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 5;
+        String filter = args.length > 1 ? args[1] : "";
+        String csv = args.length > 2 ? args[2] : null;
+
+        QueryMetrics.start();
+        DataAccess dataAccess = new DataAccess();
+        Map<String, Long> tableRows = tableRows();
+        System.out.println("Rows: " + tableRows);
+
+        // Sample arguments from the data itself
+        List<Doctor> doctors = dataAccess.getAllDoctors();
+        List<Patient> firstPatients = dataAccess.getPatientsPage(PatientSort.ID, false, null, null, 1);
+        int doctorId = doctors.isEmpty() ? 1 : doctors.get(0).getDoctorId();
+        int patientId = firstPatients.isEmpty() ? 1 : firstPatients.get(0).getPatientId();
+        String name = firstPatients.isEmpty() ? "a" : firstPatients.get(0).getName();
+        String namePart = name.length() > 3 ? name.substring(0, 3) : name;
+        Bill newest = new Bill();
+        newest.setBillId(Integer.MAX_VALUE);
+        newest.setBillDate(java.sql.Date.valueOf("9999-12-31")); // Past every real bill
+        Date today = new Date();
+
+        Map<String, Op> ops = new LinkedHashMap<>();
+        ops.put("getAllPatients", d -> d.getAllPatients().size());
+        ops.put("getPatientsPage", d -> d.getPatientsPage(PatientSort.ID, false, null, null, 200).size());
+        ops.put("getPatientsPage(name)", d -> d.getPatientsPage(PatientSort.NAME, false, namePart, null, 200).size());
+        ops.put("countAdmittedPatients", d -> { d.countAdmittedPatients(null); return 1; });
+        ops.put("getAdmittedPatients", d -> d.getAdmittedPatients().size());
+        ops.put("getPatientById", d -> d.getPatientById(patientId) != null ? 1 : 0);
+        ops.put("getPatientsByDoctorId", d -> d.getPatientsByDoctorId(doctorId).size());
+        ops.put("searchPatients", d -> d.searchPatients(namePart, 0, 50).size());
+        ops.put("getAllDoctors", d -> d.getAllDoctors().size());
+        ops.put("getAllBeds", d -> d.getAllBeds().size());
+        ops.put("getBedsGroupedByFloor", d -> d.getBedsGroupedByFloor().values().stream().mapToInt(List::size).sum());
+        ops.put("getBedByPatientId", d -> d.getBedByPatientId(patientId) != null ? 1 : 0);
+        ops.put("getBillingHistory", d -> d.getBillingHistory().size());
+        ops.put("streamBillingHistory", d -> {
+            int[] rows = {0};
+            d.streamBillingHistory(null, bill -> { rows[0]++; return true; });
+            return rows[0];
+        });
+        ops.put("getBillingHistoryPage", d -> d.getBillingHistoryPage(newest, 500).size());
+        ops.put("searchBills", d -> d.searchBills(namePart, 50).size());
+        ops.put("getDashboardStats", d -> d.getDashboardStats().size());
+        ops.put("getPatientPanelSnapshot", d -> {
+            PanelSnapshot s = d.getPatientPanelSnapshot(200);
+            return s.getPatients().size() + s.getDoctors().size() + s.getBedTypes().size() + s.getIllnesses().size();
+        });
+        ops.put("getBillingPanelSnapshot", d -> d.getBillingPanelSnapshot(500).getBills().size());
+        ops.put("getScheduledAppointments", d -> d.getScheduledAppointments(today).size());
+        ops.put("getAppointmentsByDoctorAndDate", d -> d.getAppointmentsByDoctorAndDate(doctorId, today).size());
+
+        System.out.printf("%-32s %10s %10s %10s %10s %12s %10s%n",
+                "Method", "ops/s", "p50 ms", "p99 ms", "max ms", "alloc KB/op", "rows/op");
+        try (PrintWriter out = csv != null ? new PrintWriter(new FileWriter(csv, true)) : null) {
+            for (Map.Entry<String, Op> op : ops.entrySet()) {
+                if (!op.getKey().toLowerCase().contains(filter.toLowerCase())) {
+                    continue;
+                }
+                Result result = measure(dataAccess, op.getValue(), seconds);
+                System.out.printf("%-32s %10.1f %10.3f %10.3f %10.3f %12.1f %10.0f%n", op.getKey(),
+                        result.opsPerSecond, result.percentileMillis(50), result.percentileMillis(99),
+                        result.percentileMillis(100), result.allocatedKbPerOp, result.rowsPerOp);
+                if (out != null) {
+                    out.printf("%tF %<tT,%s,%d,%d,%.1f,%.3f,%.3f,%.3f,%.1f,%.0f%n", new Date(), op.getKey(),
+                            tableRows.getOrDefault("patients", 0L), tableRows.getOrDefault("billing", 0L),
+                            result.opsPerSecond, result.percentileMillis(50), result.percentileMillis(99),
+                            result.percentileMillis(100), result.allocatedKbPerOp, result.rowsPerOp);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write " + csv + ": " + e.getMessage());
+        }
+        DatabaseConnection.getPool().shutdown();
+    }
+
+    private static class Result {
+        long[] latencies; // Nanoseconds, sorted
+        double opsPerSecond;
+        double allocatedKbPerOp;
+        double rowsPerOp;
+
+        double percentileMillis(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / 1e6;
+        }
+    }
+
+    private static Result measure(DataAccess dataAccess, Op op, double seconds) throws SQLException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocation = threads instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) threads : null;
+        long threadId = Thread.currentThread().getId();
+
+        // Warm-up: JIT, statement cache and the database's own caches; always at least one call
+        long warmupEnd = System.nanoTime() + (long) (seconds / 2 * 1e9);
+        do {
+            op.run(dataAccess);
+        } while (System.nanoTime() < warmupEnd);
+
+        long[] samples = new long[1024];
+        int count = 0;
+        long rows = 0;
+        long allocatedBefore = allocation != null ? allocation.getThreadAllocatedBytes(threadId) : 0;
+        long began = System.nanoTime();
+        long end = began + (long) (seconds * 1e9);
+        long now;
+        do {
+            long start = System.nanoTime();
+            rows += op.run(dataAccess);
+            now = System.nanoTime();
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, Math.min(samples.length * 2, MAX_SAMPLES));
+            }
+            if (count < samples.length) {
+                samples[count++] = now - start;
+            }
+        } while (now < end && count < MAX_SAMPLES);
+
+        Result result = new Result();
+        result.latencies = Arrays.copyOf(samples, count);
+        Arrays.sort(result.latencies);
+        result.opsPerSecond = count / ((now - began) / 1e9);
+        result.allocatedKbPerOp = allocation != null
+                ? (allocation.getThreadAllocatedBytes(threadId) - allocatedBefore) / 1024.0 / count : Double.NaN;
+        result.rowsPerOp = (double) rows / count;
+        return result;
+    }
+
+    private static Map<String, Long> tableRows() throws SQLException {
+        Map<String, Long> rows = new LinkedHashMap<>();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (String table : new String[] {"patients", "beds", "billing", "appointments", "doctors"}) {
+                try (PreparedStatement pstmt = conn.prepareStatement("SELECT COUNT(*) FROM " + table);
+                     ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    rows.put(table, rs.getLong(1));
+                }
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,645 @@
+package bench;
+
+import dal.DataAccess;
+import dal.DatabaseConnection;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Adds a synthetic hospital to the database for scale testing: doctors, beds
+ * in wards across floors, patients with illnesses and severities, their bills
+ * over several years, and appointments up to two months ahead.
+ *
+ * Usage: java -cp out:lib/* bench.DataGenerator [scale] [seed] [years of history] [end date]
+ *
+ * Scale 1 is about our own volume: 40 doctors, 300 beds, 25,000 patients with
+ * one bill per discharge and 60,000 appointments. Scale 10 and 100 multiply
+ * every count; 100 gives a few million rows in total. The same scale, seed,
+ * years and end date (default today) always produce the same rows, offset by
+ * whatever ids the database already uses, so runs can be compared.
+ *
+ * Everything is added in one transaction with COPY, next to the existing data
+ * (the seed data of setup.sql stays). Bed types and illnesses are taken from
+ * the config tables. Patients discharged more than hms.archive.afterDays ago
+ * go straight to patients_archive with their appointments, as the daily
+ * archive job would have done. Billing partitions are created for every year
+ * of history. The dashboard triggers are switched off during the load and
+ * the counters are corrected from full scans afterwards.
+ *
+ * Run it with the application closed; the load holds table locks until it commits.
+ */
+public class DataGenerator {
+
+    // Volumes at scale 1
+    private static final int DOCTORS = 40;
+    private static final int BEDS = 300;
+    private static final int PATIENTS = 25_000;
+    private static final int APPOINTMENTS = 60_000;
+
+    private static final double OCCUPANCY = 0.85;      // Share of beds with an admitted patient
+    private static final double ADMITTED_MILD = 0.05;  // Admitted patients without a bed, per bed
+    private static final int WARD_SIZE = 25;
+    private static final int MAX_FLOORS = 20;
+    private static final int FIRST_MINUTE = 9 * 60;    // Appointment slots 9:00 to 17:00, every 15 minutes
+    private static final int SLOT_MINUTES = 15;
+    private static final int SLOTS_PER_DAY = 32;
+    private static final int FUTURE_DAYS = 60;
+    private static final double CANCELLED = 0.08;
+    private static final int ARCHIVE_AFTER_DAYS = Integer.getInteger("hms.archive.afterDays", 90);
+    private static final int COPY_BUFFER = 1 << 16;
+
+    // Independent random streams, so each kind of row can be regenerated on its own
+    private static final int DOCTOR_STREAM = 1;
+    private static final int WARD_STREAM = 2;
+    private static final int BED_STREAM = 3;
+    private static final int PATIENT_STREAM = 4;
+    private static final int APPOINTMENT_STREAM = 5;
+
+    private static final String[] FIRST_NAMES = {
+            "Aarav", "Vivaan", "Aditya", "Arjun", "Sai", "Reyansh", "Krishna", "Ishaan", "Rohan", "Kabir",
+            "Ananya", "Diya", "Saanvi", "Myra", "Aadhya", "Kiara", "Priya", "Meera", "Nisha", "Pooja",
+            "James", "Maria", "David", "Sarah", "Michael", "Laura", "Daniel", "Emma", "Omar", "Fatima",
+            "Wei", "Mei", "Kenji", "Yuki", "Carlos", "Sofia", "Lucas", "Elena", "Ahmed", "Leila"};
+    private static final String[] LAST_NAMES = {
+            "Kumar", "Sharma", "Patel", "Singh", "Reddy", "Iyer", "Gupta", "Desai", "Joshi", "Khan",
+            "Nair", "Menon", "Rao", "Chopra", "Mehta", "Bose", "Das", "Verma", "Pillai", "Shah",
+            "Smith", "Johnson", "Garcia", "Martinez", "Brown", "Wilson", "Chen", "Wang", "Tanaka", "Silva"};
+    private static final String[] SPECIALIZATIONS = {
+            "Cardiology", "Pediatrics", "Neurology", "Orthopedics", "General Medicine", "Oncology",
+            "Dermatology", "Gastroenterology", "Pulmonology", "Nephrology", "Psychiatry", "ENT"};
+    private static final String[] OTHER_ILLNESSES = {
+            "Migraine", "Fractured wrist", "Dengue fever", "Food poisoning", "Asthma attack", "Dehydration"};
+    private static final String[] WEEKDAYS = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+
+    private final double scale;
+    private final long seed;
+    private final long startDay; // Epoch days
+    private final long endDay;   // Exclusive: today, unless given
+
+    private final int doctors;
+    private final int beds;
+    private final int patients;
+    private final int appointments;
+
+    // Read from the database
+    private final List<Integer> bedTypeIds = new ArrayList<>();
+    private final List<String> bedTypeNames = new ArrayList<>();
+    private final List<Long> bedTypeCents = new ArrayList<>();
+    private final List<Integer> illnessIds = new ArrayList<>();
+    private int otherIllnessId = -1;
+    private int firstDoctorId;
+    private int firstBedId;
+    private int firstPatientId;
+    private int firstBillId;
+    private int firstAppointmentId;
+    private int firstFloor;
+
+    // Planned before writing
+    private int[] bedTypeOfBed;
+    private int[] occupiedBeds;   // Bed indexes in admission order
+    private int[] doctorWeekdays; // Bit per DayOfWeek, Monday = bit 0
+    private long[] doctorFeeCents;
+    private BitSet archived;
+    private int admittedPatients;
+    private int nextAppointmentId;
+
+    public DataGenerator(double scale, long seed, int years, LocalDate end) {
+        this.scale = scale;
+        this.seed = seed;
+        this.endDay = end.toEpochDay();
+        this.startDay = end.minusYears(years).toEpochDay();
+        this.doctors = scaled(DOCTORS);
+        this.beds = scaled(BEDS);
+        this.patients = scaled(PATIENTS);
+        this.appointments = scaled(APPOINTMENTS);
+    }
+
+    public static void main(String[] args) throws Exception {
+        double scale = args.length > 0 ? Double.parseDouble(args[0]) : 1;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+        int years = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        LocalDate end = args.length > 3 ? LocalDate.parse(args[3]) : LocalDate.now();
+
+        DataGenerator generator = new DataGenerator(scale, seed, years, end);
+        System.out.printf("Scale %s, seed %d, %d years of history up to %s%n", scale, seed, years, end);
+        long began = System.nanoTime();
+
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+            generator.generate(conn);
+            conn.commit();
+
+        } catch (SQLException | IOException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close(); // Returns the connection to the pool
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        Map<String, BigDecimal> corrections = new DataAccess().reconcileDashboardCounters();
+        System.out.println("Dashboard counters corrected by: " + corrections);
+        System.out.printf("Done in %.1f s%n", (System.nanoTime() - began) / 1e9);
+        DatabaseConnection.getPool().shutdown();
+    }
+
+    /**
+     * Writes every table in the caller's transaction.
+     */
+    public void generate(Connection conn) throws SQLException, IOException {
+        readReferenceData(conn);
+        plan();
+
+        try (Statement stmt = conn.createStatement()) {
+            // Per-row counter updates would rewrite the same four rows millions of times
+            for (String table : new String[] {"doctors", "beds", "patients", "billing"}) {
+                stmt.execute("ALTER TABLE " + table + " DISABLE TRIGGER USER");
+            }
+        }
+        createBillingPartitions(conn);
+
+        copy(conn, "doctors", "doctor_id, name, specialization, phone, email, consultation_fee, available_days",
+                this::writeDoctors);
+        // Before beds, which point at the admitted patients
+        copy(conn, "patients", "patient_id, name, age, gender, admitted_date, discharged_date, doctor_id, " +
+                "disease_severity, requested_bed_type_id, illness_id, other_illness_text", rows -> writePatients(rows, false));
+        copy(conn, "patients_archive", "patient_id, name, age, gender, admitted_date, discharged_date, doctor_id, " +
+                "disease_severity, requested_bed_type_id, illness_id, other_illness_text, archived_at", rows -> writePatients(rows, true));
+        copy(conn, "beds", "bed_id, ward, status, patient_id, floor, bed_type_id", this::writeBeds);
+        copy(conn, "billing", "bill_id, patient_id, patient_name, bed_charge, service_charge, doctor_fee, total, bill_date",
+                this::writeBills);
+        String appointmentColumns = "appointment_id, patient_id, doctor_id, appointment_date, appointment_minute, status";
+        copy(conn, "appointments", appointmentColumns, rows -> writeAppointments(rows, false));
+        copy(conn, "appointments_archive", appointmentColumns + ", archived_at", rows -> writeAppointments(rows, true));
+
+        try (Statement stmt = conn.createStatement()) {
+            for (String table : new String[] {"doctors", "beds", "patients", "billing"}) {
+                stmt.execute("ALTER TABLE " + table + " ENABLE TRIGGER USER");
+            }
+        }
+        advanceSequence(conn, "doctors", "doctor_id", firstDoctorId + doctors - 1);
+        advanceSequence(conn, "beds", "bed_id", firstBedId + beds - 1);
+        advanceSequence(conn, "patients", "patient_id", firstPatientId + patients - 1);
+        advanceSequence(conn, "billing", "bill_id", firstBillId + (patients - admittedPatients) - 1);
+        advanceSequence(conn, "appointments", "appointment_id", nextAppointmentId - 1);
+    }
+
+    // ========== PLANNING ==========
+
+    private void readReferenceData(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT bed_type_id, bed_type_name, price_per_day FROM config_bed_types ORDER BY price_per_day");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                bedTypeIds.add(rs.getInt(1));
+                bedTypeNames.add(rs.getString(2));
+                bedTypeCents.add(rs.getBigDecimal(3).movePointRight(2).longValue());
+            }
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT illness_id, illness_name FROM config_illnesses ORDER BY illness_id");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                if (rs.getString(2).startsWith("Other")) {
+                    otherIllnessId = rs.getInt(1);
+                } else {
+                    illnessIds.add(rs.getInt(1));
+                }
+            }
+        }
+        if (bedTypeIds.isEmpty() || illnessIds.isEmpty()) {
+            throw new SQLException("config_bed_types and config_illnesses must not be empty; run setup.sql first");
+        }
+        firstDoctorId = nextId(conn, "SELECT MAX(doctor_id) FROM doctors");
+        firstBedId = nextId(conn, "SELECT MAX(bed_id) FROM beds");
+        firstPatientId = nextId(conn, "SELECT GREATEST((SELECT MAX(patient_id) FROM patients), " +
+                "(SELECT MAX(patient_id) FROM patients_archive))");
+        firstBillId = nextId(conn, "SELECT MAX(bill_id) FROM billing");
+        firstAppointmentId = nextId(conn, "SELECT GREATEST((SELECT MAX(appointment_id) FROM appointments), " +
+                "(SELECT MAX(appointment_id) FROM appointments_archive))");
+        firstFloor = nextId(conn, "SELECT MAX(floor) FROM beds");
+    }
+
+    private static int nextId(Connection conn, String sql) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) + 1 : 1; // MAX of nothing is NULL, read as 0
+        }
+    }
+
+    private void plan() {
+        // Wards of WARD_SIZE beds of one type, spread over at most MAX_FLOORS floors
+        int wards = (beds + WARD_SIZE - 1) / WARD_SIZE;
+        bedTypeOfBed = new int[beds];
+        for (int bed = 0; bed < beds; bed++) {
+            bedTypeOfBed[bed] = pickBedType(random(WARD_STREAM, bed / WARD_SIZE));
+        }
+        int[] occupied = new int[beds];
+        int count = 0;
+        for (int bed = 0; bed < beds; bed++) {
+            if (random(BED_STREAM, bed).nextDouble() < OCCUPANCY) {
+                occupied[count++] = bed;
+            }
+        }
+        occupiedBeds = Arrays.copyOf(occupied, count);
+        admittedPatients = Math.min(patients, count + (int) Math.round(beds * ADMITTED_MILD));
+        System.out.printf("%d doctors, %d beds in %d wards, %d patients (%d admitted), ~%d appointments%n",
+                doctors, beds, wards, patients, admittedPatients, appointments);
+
+        doctorWeekdays = new int[doctors];
+        doctorFeeCents = new long[doctors];
+        for (int d = 0; d < doctors; d++) {
+            Doctor doctor = doctor(d);
+            doctorWeekdays[d] = doctor.weekdays;
+            doctorFeeCents[d] = doctor.feeCents;
+        }
+
+        archived = new BitSet(patients);
+        for (int i = 0; i < patients; i++) {
+            if (patient(i).archived) {
+                archived.set(i);
+            }
+        }
+    }
+
+    private int pickBedType(SplittableRandom random) {
+        // The cheapest type is the most common: weights 50, 25, 15, 10, then 10 each
+        int[] weights = new int[bedTypeIds.size()];
+        int total = 0;
+        for (int t = 0; t < weights.length; t++) {
+            weights[t] = t == 0 ? 50 : t == 1 ? 25 : t == 2 ? 15 : 10;
+            total += weights[t];
+        }
+        int pick = random.nextInt(total);
+        for (int t = 0; t < weights.length; t++) {
+            pick -= weights[t];
+            if (pick < 0) {
+                return t;
+            }
+        }
+        return 0;
+    }
+
+    private void createBillingPartitions(Connection conn) throws SQLException {
+        int firstYear = LocalDate.ofEpochDay(startDay).getYear();
+        int lastYear = LocalDate.ofEpochDay(endDay).getYear();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT create_billing_partition(?)")) {
+            for (int year = firstYear; year <= lastYear; year++) {
+                pstmt.setInt(1, year);
+                pstmt.executeQuery().close();
+            }
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT ensure_billing_partitions()")) {
+            pstmt.executeQuery().close();
+        }
+    }
+
+    /**
+     * COPY with explicit ids bypasses the sequences; move them past the new rows.
+     */
+    private static void advanceSequence(Connection conn, String table, String column, long lastId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT setval(pg_get_serial_sequence(?, ?), ?)")) {
+            pstmt.setString(1, table);
+            pstmt.setString(2, column);
+            pstmt.setLong(3, lastId);
+            pstmt.executeQuery().close();
+        }
+    }
+
+    // ========== ROWS ==========
+
+    private static class Doctor {
+        String name;
+        String specialization;
+        String phone;
+        String email;
+        long feeCents;
+        int weekdays;
+    }
+
+    private Doctor doctor(int d) {
+        SplittableRandom random = random(DOCTOR_STREAM, d);
+        Doctor doctor = new Doctor();
+        String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        doctor.name = "Dr. " + first + " " + last;
+        doctor.specialization = SPECIALIZATIONS[random.nextInt(SPECIALIZATIONS.length)];
+        doctor.phone = "98" + (10_000_000 + random.nextInt(90_000_000));
+        doctor.email = first.toLowerCase() + "." + last.toLowerCase() + "." + (firstDoctorId + d) + "@hospital.com";
+        doctor.feeCents = (800 + 100 * random.nextInt(23)) * 100L;
+        for (int day = 0; day < 6; day++) { // Nobody sees patients on Sundays
+            if (random.nextDouble() < 0.6) {
+                doctor.weekdays |= 1 << day;
+            }
+        }
+        if (doctor.weekdays == 0) {
+            doctor.weekdays = 1 << random.nextInt(5);
+        }
+        return doctor;
+    }
+
+    private static class PatientRow {
+        String name;
+        int age;
+        String gender;
+        long admittedDay;
+        long dischargedDay = -1; // -1 while admitted
+        boolean archived;
+        int doctor;
+        String severity;
+        int bedType = -1;        // Index into bedTypeIds; -1 for no bed
+        int illnessId;
+        String otherIllness;
+    }
+
+    /**
+     * Patient i, the same on every call. Patients are numbered in order of
+     * admission; the last admittedPatients are still in hospital, the first of
+     * them in the occupied beds.
+     */
+    private PatientRow patient(int i) {
+        SplittableRandom random = random(PATIENT_STREAM, i);
+        PatientRow patient = new PatientRow();
+        patient.name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        patient.age = 1 + random.nextInt(90);
+        double g = random.nextDouble();
+        patient.gender = g < 0.49 ? "Male" : g < 0.98 ? "Female" : "Other";
+        patient.doctor = random.nextInt(doctors);
+        if (otherIllnessId > 0 && random.nextDouble() < 0.03) {
+            patient.illnessId = otherIllnessId;
+            patient.otherIllness = OTHER_ILLNESSES[random.nextInt(OTHER_ILLNESSES.length)];
+        } else {
+            patient.illnessId = illnessIds.get(random.nextInt(illnessIds.size()));
+        }
+
+        int admitted = i - (patients - admittedPatients);
+        if (admitted >= 0) {
+            patient.admittedDay = endDay - 1 - random.nextInt(14);
+            if (admitted < occupiedBeds.length) {
+                patient.bedType = bedTypeOfBed[occupiedBeds[admitted]];
+                patient.severity = random.nextDouble() < 0.7 ? "Moderate" : "Severe";
+            } else {
+                patient.severity = "Mild";
+            }
+            return patient;
+        }
+
+        double s = random.nextDouble();
+        patient.severity = s < 0.3 ? "Mild" : s < 0.8 ? "Moderate" : "Severe";
+        int stay;
+        if ("Mild".equals(patient.severity)) {
+            stay = random.nextInt(3);
+        } else {
+            patient.bedType = pickBedType(random);
+            stay = "Moderate".equals(patient.severity) ? 2 + random.nextInt(9) : 5 + random.nextInt(17);
+        }
+        int discharged = patients - admittedPatients;
+        long span = endDay - startDay;
+        patient.admittedDay = Math.min(endDay - 1, startDay + i * span / discharged + random.nextInt(3));
+        patient.dischargedDay = Math.min(endDay - 1, patient.admittedDay + stay);
+        patient.archived = ARCHIVE_AFTER_DAYS > 0 && patient.dischargedDay < endDay - ARCHIVE_AFTER_DAYS;
+        return patient;
+    }
+
+    private void writeDoctors(Rows rows) throws IOException {
+        for (int d = 0; d < doctors; d++) {
+            Doctor doctor = doctor(d);
+            StringBuilder days = new StringBuilder();
+            for (int day = 0; day < 7; day++) {
+                if ((doctor.weekdays & 1 << day) != 0) {
+                    days.append(days.length() > 0 ? "," : "").append(WEEKDAYS[day]);
+                }
+            }
+            rows.add(firstDoctorId + d).add(doctor.name).add(doctor.specialization).add(doctor.phone)
+                    .add(doctor.email).add(money(doctor.feeCents)).add(days).end();
+        }
+    }
+
+    private void writePatients(Rows rows, boolean archive) throws IOException {
+        for (int i = 0; i < patients; i++) {
+            if (archived.get(i) != archive) {
+                continue;
+            }
+            PatientRow patient = patient(i);
+            rows.add(firstPatientId + i).add(patient.name).add(patient.age).add(patient.gender)
+                    .add(date(patient.admittedDay))
+                    .add(patient.dischargedDay >= 0 ? date(patient.dischargedDay) : null)
+                    .add(firstDoctorId + patient.doctor).add(patient.severity)
+                    .add(patient.bedType >= 0 ? bedTypeIds.get(patient.bedType) : null)
+                    .add(patient.illnessId).add(patient.otherIllness);
+            if (archive) {
+                rows.add(date(patient.dischargedDay + ARCHIVE_AFTER_DAYS));
+            }
+            rows.end();
+        }
+    }
+
+    private void writeBeds(Rows rows) throws IOException {
+        int wards = (beds + WARD_SIZE - 1) / WARD_SIZE;
+        int wardsPerFloor = Math.max(2, (wards + MAX_FLOORS - 1) / MAX_FLOORS);
+        int[] occupant = new int[beds];
+        Arrays.fill(occupant, -1);
+        for (int k = 0; k < occupiedBeds.length && k < admittedPatients; k++) {
+            occupant[occupiedBeds[k]] = patients - admittedPatients + k;
+        }
+        for (int bed = 0; bed < beds; bed++) {
+            int ward = bed / WARD_SIZE;
+            int floor = firstFloor + ward / wardsPerFloor;
+            int type = bedTypeOfBed[bed];
+            boolean isOccupied = occupant[bed] >= 0;
+            rows.add(firstBedId + bed)
+                    .add(bedTypeNames.get(type) + "-" + floor + "-" + (ward % wardsPerFloor + 1))
+                    .add(isOccupied ? "Occupied" : "Available")
+                    .add(isOccupied ? firstPatientId + occupant[bed] : null)
+                    .add(floor).add(bedTypeIds.get(type)).end();
+        }
+    }
+
+    /**
+     * One bill per discharged patient, dated on the day of discharge.
+     */
+    private void writeBills(Rows rows) throws IOException {
+        int billId = firstBillId;
+        for (int i = 0; i < patients - admittedPatients; i++) {
+            PatientRow patient = patient(i);
+            SplittableRandom random = random(PATIENT_STREAM, -1 - i);
+            long days = Math.max(1, patient.dischargedDay - patient.admittedDay);
+            long bedCents = patient.bedType >= 0 ? days * bedTypeCents.get(patient.bedType) : 0;
+            long serviceCents = (500 + 100 * random.nextInt(16)) * 100L;
+            long feeCents = doctorFeeCents[patient.doctor];
+            rows.add(billId++).add(firstPatientId + i).add(patient.name).add(money(bedCents))
+                    .add(money(serviceCents)).add(money(feeCents))
+                    .add(money(bedCents + serviceCents + feeCents)).add(date(patient.dischargedDay)).end();
+        }
+    }
+
+    /**
+     * Walks every doctor's working days from the start of history to
+     * FUTURE_DAYS ahead, booking distinct slots, and writes the appointments
+     * that belong in the table: those of archived patients, or all others.
+     * Both passes draw the same appointments from the same stream.
+     */
+    private void writeAppointments(Rows rows, boolean archive) throws IOException {
+        long lastDay = endDay + FUTURE_DAYS;
+        long doctorDays = 0;
+        for (long day = startDay; day < lastDay; day++) {
+            int weekday = LocalDate.ofEpochDay(day).getDayOfWeek().getValue() - 1;
+            for (int d = 0; d < doctors; d++) {
+                if ((doctorWeekdays[d] & 1 << weekday) != 0) {
+                    doctorDays++;
+                }
+            }
+        }
+        double perDoctorDay = doctorDays > 0 ? Math.min(SLOTS_PER_DAY, (double) appointments / doctorDays) : 0;
+
+        SplittableRandom random = random(APPOINTMENT_STREAM, 0);
+        int[] slots = new int[SLOTS_PER_DAY];
+        nextAppointmentId = firstAppointmentId;
+        for (long day = startDay; day < lastDay; day++) {
+            int weekday = LocalDate.ofEpochDay(day).getDayOfWeek().getValue() - 1;
+            String date = date(day);
+            for (int d = 0; d < doctors; d++) {
+                if ((doctorWeekdays[d] & 1 << weekday) == 0) {
+                    continue;
+                }
+                int count = (int) perDoctorDay + (random.nextDouble() < perDoctorDay % 1 ? 1 : 0);
+                for (int s = 0; s < SLOTS_PER_DAY; s++) {
+                    slots[s] = s;
+                }
+                for (int n = 0; n < count; n++) {
+                    // Partial shuffle: the first count slots are distinct, so the slot index never conflicts
+                    int pick = n + random.nextInt(SLOTS_PER_DAY - n);
+                    int slot = slots[pick];
+                    slots[pick] = slots[n];
+                    slots[n] = slot;
+
+                    int patient = appointmentPatient(random, day);
+                    boolean cancelled = day < endDay && random.nextDouble() < CANCELLED;
+                    int id = nextAppointmentId++;
+                    if (archived.get(patient) != archive) {
+                        continue;
+                    }
+                    rows.add(id).add(firstPatientId + patient).add(firstDoctorId + d).add(date)
+                            .add(FIRST_MINUTE + slot * SLOT_MINUTES).add(cancelled ? "Cancelled" : "Scheduled");
+                    if (archive) {
+                        rows.add(date(endDay));
+                    }
+                    rows.end();
+                }
+            }
+        }
+    }
+
+    /**
+     * Any patient for a past appointment; for an upcoming one, a patient who has not been archived.
+     */
+    private int appointmentPatient(SplittableRandom random, long day) {
+        int patient = random.nextInt(patients);
+        for (int tries = 0; day >= endDay && archived.get(patient) && tries < 20; tries++) {
+            patient = random.nextInt(patients);
+        }
+        if (day >= endDay && archived.get(patient)) {
+            patient = patients - 1 - random.nextInt(Math.max(1, admittedPatients));
+        }
+        return patient;
+    }
+
+    // ========== COPY ==========
+
+    /**
+     * Appends tab-separated values to COPY's text format. Generated values
+     * never contain tabs, newlines or backslashes, so nothing is escaped.
+     */
+    private static class Rows {
+        private final Writer out;
+        private boolean first = true;
+        long count;
+
+        Rows(Writer out) {
+            this.out = out;
+        }
+
+        Rows add(Object value) throws IOException {
+            if (!first) {
+                out.write('\t');
+            }
+            out.write(value == null ? "\\N" : value.toString());
+            first = false;
+            return this;
+        }
+
+        void end() throws IOException {
+            out.write('\n');
+            first = true;
+            count++;
+        }
+    }
+
+    private interface RowSource {
+        void write(Rows rows) throws IOException;
+    }
+
+    private static void copy(Connection conn, String table, String columns, RowSource source)
+            throws SQLException, IOException {
+        long began = System.nanoTime();
+        String sql = "COPY " + table + " (" + columns + ") FROM STDIN";
+        Rows rows;
+        PGCopyOutputStream stream = new PGCopyOutputStream(conn.unwrap(PGConnection.class), sql, COPY_BUFFER);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), COPY_BUFFER)) {
+            rows = new Rows(out);
+            source.write(rows);
+        } // Closing ends the COPY
+        System.out.printf("%-22s %,12d rows %8.1f s%n", table, rows.count, (System.nanoTime() - began) / 1e9);
+    }
+
+    // ========== HELPERS ==========
+
+    private int scaled(int count) {
+        return Math.max(1, (int) Math.round(count * scale));
+    }
+
+    private SplittableRandom random(int stream, long index) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + stream * 0xC2B2AE3D27D4EB4FL + index);
+    }
+
+    private static String date(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).toString();
+    }
+
+    private static String money(long cents) {
+        return cents / 100 + "." + (cents % 100 < 10 ? "0" : "") + cents % 100;
+    }
+}
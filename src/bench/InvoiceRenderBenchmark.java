@@ -0,0 +1,89 @@
+package bench;
+
+import model.Bill;
+import model.Patient;
+import util.PdfGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Date;
+
+/**
+ * Measures the CPU time and memory allocated per rendered invoice, with the
+ * cached invoice template and without it (every element drawn per bill).
+ *
+ * Usage: java -cp out:lib/* bench.InvoiceRenderBenchmark [invoices] [warmup invoices]
+ *
+ * Renders in memory on one thread; no database is needed. Each mode is warmed
+ * up first so both are measured with JIT-compiled code.
+ */
+public class InvoiceRenderBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int invoices = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int warmup = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocation = threads instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) threads : null;
+
+        System.out.printf("%-12s %12s %14s %14s %12s%n", "Mode", "Invoices/s", "CPU us/inv", "Alloc KB/inv", "PDF bytes");
+        for (boolean template : new boolean[] {false, true}) {
+            PdfGenerator.setTemplateEnabled(template);
+            render(warmup);
+
+            long threadId = Thread.currentThread().getId();
+            long allocatedBefore = allocation != null ? allocation.getThreadAllocatedBytes(threadId) : 0;
+            long cpuBefore = threads.getCurrentThreadCpuTime();
+            long began = System.nanoTime();
+
+            long bytes = render(invoices);
+
+            double seconds = (System.nanoTime() - began) / 1e9;
+            double cpuMicros = (threads.getCurrentThreadCpuTime() - cpuBefore) / 1e3 / invoices;
+            double allocKb = allocation != null
+                    ? (allocation.getThreadAllocatedBytes(threadId) - allocatedBefore) / 1024.0 / invoices : Double.NaN;
+
+            System.out.printf("%-12s %12.0f %14.1f %14.1f %12d%n", template ? "template" : "no template",
+                    invoices / seconds, cpuMicros, allocKb, bytes / invoices);
+        }
+        PdfGenerator.setTemplateEnabled(true);
+    }
+
+    /**
+     * Renders n invoices and returns the total PDF size, so the work cannot be optimised away.
+     */
+    private static long render(int n) throws IOException {
+        long bytes = 0;
+        for (int i = 0; i < n; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+            PdfGenerator.writeBillPdf(sampleBill(i), samplePatient(i), out);
+            bytes += out.size();
+        }
+        return bytes;
+    }
+
+    private static Bill sampleBill(int i) {
+        Bill bill = new Bill();
+        bill.setBillId(1000 + i);
+        bill.setPatientId(500 + i);
+        bill.setPatientName("Benchmark Patient " + i);
+        bill.setBedCharge(1500.0 * (1 + i % 7));
+        bill.setServiceCharge(500.0);
+        bill.setDoctorFee(800.0 + i % 5 * 100);
+        bill.setTotal(bill.getBedCharge() + bill.getServiceCharge() + bill.getDoctorFee());
+        bill.setBillDate(new Date());
+        return bill;
+    }
+
+    private static Patient samplePatient(int i) {
+        Patient patient = new Patient();
+        patient.setPatientId(500 + i);
+        patient.setName("Benchmark Patient " + i);
+        patient.setAdmittedDate(i % 10 == 0 ? null : new Date()); // Both template variants
+        patient.setIllnessName("Pneumonia");
+        return patient;
+    }
+}
@@ -0,0 +1,484 @@
+package bench;
+
+import dal.AsyncDataAccess;
+import dal.DataAccess;
+import dal.DatabaseConnection;
+import dal.LatencyHistogram;
+import dal.PatientSort;
+import model.Appointment;
+import model.Bill;
+import model.ConfigBedType;
+import model.ConfigIllness;
+import model.Doctor;
+import model.Patient;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replays a hospital day against DataAccess with no UI: simulated front desk,
+ * nurse, billing and doctor users, each doing the mix of calls their
+ * MainFrame tabs make, all at once.
+ *
+ * Usage: java -cp out:lib/* bench.LoadSimulator [seconds] [role=users:actions per minute,...] [histograms.csv]
+ *
+ * The default is 20 front desk, 15 nurse, 8 billing and 7 doctor users, as
+ * "frontdesk=20:6,nurse=15:4,billing=8:3,doctor=7:8"; roles left out keep
+ * their defaults and 0 users switches a role off. Every user runs on its own
+ * thread (virtual where the JVM has them, like AsyncDataAccess) and waits a
+ * random, exponentially distributed time between actions, so each role's
+ * actions arrive at about users x rate per minute while responses are quick.
+ *
+ * Reported per DataAccess method: calls, calls per second, errors
+ * (exceptions), conflicts (a false result: no free bed, slot already taken,
+ * patient already gone) and latency percentiles. With a CSV file the full
+ * latency histogram of every method is written too.
+ *
+ * It writes: admits "Load Patient" patients, books and cancels appointments
+ * and discharges patients. Run it against a test database, e.g. one filled
+ * by {@link DataGenerator}.
+ */
+public class LoadSimulator {
+
+    enum Role {
+        FRONT_DESK("frontdesk", 20, 6),
+        NURSE("nurse", 15, 4),
+        BILLING("billing", 8, 3),
+        DOCTOR("doctor", 7, 8);
+
+        final String key;
+        int users;
+        double actionsPerMinute;
+
+        Role(String key, int users, double actionsPerMinute) {
+            this.key = key;
+            this.users = users;
+            this.actionsPerMinute = actionsPerMinute;
+        }
+    }
+
+    /**
+     * A DataAccess call; the same shape as AsyncDataAccess.SqlCall.
+     */
+    interface Call<T> {
+        T call() throws SQLException;
+    }
+
+    private static class OpStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        final LongAdder conflicts = new LongAdder();
+        final AtomicInteger reportedErrors = new AtomicInteger();
+    }
+
+    private static final int MAX_REPORTED_ERRORS = 5; // Per method; the rest are only counted
+    private static final int PAGE_SIZE = 200;
+    private static final int SEARCH_LIMIT = 50;
+    private static final double BASE_SERVICE_CHARGE = 500.0;
+    private static final int FIRST_MINUTE = 9 * 60;
+    private static final int SLOTS_PER_DAY = 32;
+    private static final int SLOT_MINUTES = 15;
+
+    private final DataAccess dataAccess = new DataAccess();
+    private final Map<String, OpStats> stats = new ConcurrentHashMap<>();
+    private final AtomicInteger admissions = new AtomicInteger();
+
+    // What the users pick from; shared, and changed by their admissions, bookings and discharges
+    private final List<Doctor> doctors;
+    private final List<ConfigBedType> bedTypes;
+    private final List<ConfigIllness> illnesses;
+    private final List<Integer> admitted = new ArrayList<>();
+    private final List<Integer> booked = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+
+    private volatile long deadline;
+
+    public LoadSimulator() throws SQLException {
+        doctors = dataAccess.getAllDoctors();
+        bedTypes = dataAccess.getAllBedTypes();
+        illnesses = dataAccess.getAllIllnesses();
+        for (Patient patient : dataAccess.getAdmittedPatients()) {
+            admitted.add(patient.getPatientId());
+            if (names.size() < 1000) {
+                names.add(patient.getName());
+            }
+        }
+        if (doctors.isEmpty() || bedTypes.isEmpty() || illnesses.isEmpty()) {
+            throw new SQLException("Doctors, bed types and illnesses are needed; run setup.sql first");
+        }
+        if (names.isEmpty()) {
+            names.add("Patient");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+        if (args.length > 1) {
+            parseRoles(args[1]);
+        }
+        String csv = args.length > 2 ? args[2] : null;
+
+        LoadSimulator simulator = new LoadSimulator();
+        for (Role role : Role.values()) {
+            System.out.printf("%-10s %3d users, %.1f actions per minute each%n", role.key, role.users, role.actionsPerMinute);
+        }
+        simulator.run(seconds);
+        simulator.printReport(seconds);
+        if (csv != null) {
+            simulator.writeHistograms(csv);
+        }
+        DatabaseConnection.getPool().shutdown();
+    }
+
+    private static void parseRoles(String spec) {
+        for (String part : spec.split(",")) {
+            String[] keyValue = part.trim().split("=");
+            String[] usersRate = keyValue.length == 2 ? keyValue[1].split(":") : new String[0];
+            Role role = null;
+            for (Role r : Role.values()) {
+                if (r.key.equalsIgnoreCase(keyValue[0].trim())) {
+                    role = r;
+                }
+            }
+            if (role == null || usersRate.length == 0) {
+                throw new IllegalArgumentException("Expected role=users[:actions per minute], got '" + part + "'");
+            }
+            role.users = Integer.parseInt(usersRate[0]);
+            if (usersRate.length > 1) {
+                role.actionsPerMinute = Double.parseDouble(usersRate[1]);
+            }
+        }
+    }
+
+    /**
+     * Starts every user, prints progress every 10 seconds and returns when all have finished.
+     */
+    public void run(int seconds) throws InterruptedException {
+        int users = 0;
+        for (Role role : Role.values()) {
+            users += role.users;
+        }
+        CountDownLatch done = new CountDownLatch(users);
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        int n = 0;
+        for (Role role : Role.values()) {
+            for (int i = 0; i < role.users; i++) {
+                int user = n++;
+                AsyncDataAccess.executor().execute(() -> {
+                    try {
+                        runUser(role, user);
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+        }
+
+        long began = System.nanoTime();
+        long lastCalls = 0;
+        while (!done.await(10, TimeUnit.SECONDS)) {
+            long calls = 0;
+            long errors = 0;
+            for (OpStats op : stats.values()) {
+                calls += op.latency.count();
+                errors += op.errors.sum();
+            }
+            System.out.printf("%4.0f s: %,d calls (%.0f/s), %,d errors%n", (System.nanoTime() - began) / 1e9,
+                    calls, (calls - lastCalls) / 10.0, errors);
+            lastCalls = calls;
+        }
+    }
+
+    private void runUser(Role role, int user) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Doctor me = doctors.get(user % doctors.size()); // For doctor users
+        double meanPauseMillis = 60_000.0 / role.actionsPerMinute;
+        while (true) {
+            long pause = (long) (-Math.log(1 - random.nextDouble()) * meanPauseMillis);
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (pause >= remaining) {
+                return;
+            }
+            try {
+                Thread.sleep(pause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                switch (role) {
+                    case FRONT_DESK:
+                        frontDeskAction(random);
+                        break;
+                    case NURSE:
+                        nurseAction(random);
+                        break;
+                    case BILLING:
+                        billingAction(random);
+                        break;
+                    case DOCTOR:
+                        doctorAction(random, me);
+                        break;
+                }
+            } catch (SQLException e) {
+                // Already counted by timed(); the user carries on with the next action
+            }
+        }
+    }
+
+    // ========== ROLE ACTIONS ==========
+
+    // Receptionist: Patient Management and Appointments tabs
+    private void frontDeskAction(ThreadLocalRandom random) throws SQLException {
+        int action = random.nextInt(14);
+        if (action < 3) {
+            timed("getPatientPanelSnapshot", () -> dataAccess.getPatientPanelSnapshot(PAGE_SIZE));
+        } else if (action < 6) {
+            String filter = namePart(random);
+            timed("getPatientsPage", () -> dataAccess.getPatientsPage(PatientSort.NAME, false, filter, null, PAGE_SIZE));
+            timed("countAdmittedPatients", () -> dataAccess.countAdmittedPatients(filter));
+        } else if (action < 8) {
+            admit(random);
+        } else if (action < 10) {
+            Date day = daysFromToday(random.nextInt(14));
+            timed("getScheduledAppointments", () -> dataAccess.getScheduledAppointments(day));
+            timed("getAllDoctors", dataAccess::getAllDoctors);
+        } else if (action < 13) {
+            book(random);
+        } else {
+            Integer appointmentId = takeRandom(booked, random);
+            if (appointmentId != null) {
+                conflictIfFalse("cancelAppointment", () -> dataAccess.cancelAppointment(appointmentId));
+            }
+        }
+    }
+
+    private void admit(ThreadLocalRandom random) throws SQLException {
+        Patient patient = new Patient();
+        patient.setName("Load Patient " + admissions.incrementAndGet());
+        patient.setAge(1 + random.nextInt(90));
+        patient.setGender(random.nextBoolean() ? "Male" : "Female");
+        patient.setAdmittedDate(new Date());
+        patient.setDoctorId(doctors.get(random.nextInt(doctors.size())).getDoctorId());
+        double s = random.nextDouble();
+        patient.setDiseaseSeverity(s < 0.2 ? "Mild" : s < 0.8 ? "Moderate" : "Severe");
+        if (!"Mild".equals(patient.getDiseaseSeverity())) {
+            patient.setRequestedBedTypeId(bedTypes.get(random.nextInt(bedTypes.size())).getBedTypeId());
+        }
+        patient.setIllnessId(illnesses.get(random.nextInt(illnesses.size())).getIllnessId());
+        if (conflictIfFalse("addPatient", () -> dataAccess.addPatient(patient))) { // False: no free bed
+            synchronized (admitted) {
+                admitted.add(patient.getPatientId());
+            }
+        }
+    }
+
+    private void book(ThreadLocalRandom random) throws SQLException {
+        Integer patientId = pickRandom(admitted, random);
+        if (patientId == null) {
+            return;
+        }
+        Appointment appt = new Appointment();
+        appt.setPatientId(patientId);
+        appt.setDoctorId(doctors.get(random.nextInt(doctors.size())).getDoctorId());
+        appt.setAppointmentDate(daysFromToday(random.nextInt(14)));
+        // Like AppointmentPanel: offer only the slots that look free, then book one
+        List<Integer> taken = timed("getBookedSlots",
+                () -> dataAccess.getBookedSlots(appt.getDoctorId(), appt.getAppointmentDate()));
+        int minute = FIRST_MINUTE + random.nextInt(SLOTS_PER_DAY) * SLOT_MINUTES;
+        for (int tries = 0; taken.contains(minute) && tries < SLOTS_PER_DAY; tries++) {
+            minute = FIRST_MINUTE + random.nextInt(SLOTS_PER_DAY) * SLOT_MINUTES;
+        }
+        appt.setAppointmentMinute(minute);
+        if (conflictIfFalse("addAppointment", () -> dataAccess.addAppointment(appt))) { // False: slot taken meanwhile
+            synchronized (booked) {
+                booked.add(appt.getAppointmentId());
+            }
+        }
+    }
+
+    // Nurse: Patient Management and Bed Management tabs
+    private void nurseAction(ThreadLocalRandom random) throws SQLException {
+        int action = random.nextInt(9);
+        if (action < 4) {
+            timed("getBedsGroupedByFloor", dataAccess::getBedsGroupedByFloor);
+            timed("getBedAvailability", dataAccess::getBedAvailability);
+        } else if (action < 6) {
+            timed("getPatientsPage", () -> dataAccess.getPatientsPage(PatientSort.ID, false, null, null, PAGE_SIZE));
+        } else {
+            openPatient(random);
+        }
+    }
+
+    private void openPatient(ThreadLocalRandom random) throws SQLException {
+        Integer patientId = pickRandom(admitted, random);
+        if (patientId != null) {
+            timed("getPatientById", () -> dataAccess.getPatientById(patientId));
+            timed("getBedByPatientId", () -> dataAccess.getBedByPatientId(patientId));
+        }
+    }
+
+    // Billing Staff: Billing & Discharge tab
+    private void billingAction(ThreadLocalRandom random) throws SQLException {
+        int action = random.nextInt(7);
+        if (action < 2) {
+            timed("getBillingPanelSnapshot", () -> dataAccess.getBillingPanelSnapshot(500));
+        } else if (action < 4) {
+            String text = namePart(random);
+            timed("searchBills", () -> dataAccess.searchBills(text, SEARCH_LIMIT));
+        } else if (action < 6) {
+            discharge(random);
+        } else {
+            timed("getAdmittedPatients", dataAccess::getAdmittedPatients);
+        }
+    }
+
+    /**
+     * Preview and generate a bill, as BillingPanel does.
+     */
+    private void discharge(ThreadLocalRandom random) throws SQLException {
+        Integer patientId = takeRandom(admitted, random);
+        if (patientId == null) {
+            return;
+        }
+        Patient details = timed("getPatientById", () -> dataAccess.getPatientById(patientId));
+        if (details == null || details.getAdmittedDate() == null) {
+            conflict("dischargePatient"); // Deleted or archived meanwhile
+            return;
+        }
+        Doctor doctor = details.getDoctorId() == 0 ? null
+                : timed("getDoctorById", () -> dataAccess.getDoctorById(details.getDoctorId()));
+        long days = Math.max(1, TimeUnit.MILLISECONDS.toDays(new Date().getTime() - details.getAdmittedDate().getTime()));
+        Bill bill = new Bill();
+        bill.setPatientId(patientId);
+        bill.setBedCharge(days * details.getPricePerDay());
+        bill.setServiceCharge(BASE_SERVICE_CHARGE);
+        bill.setDoctorFee(doctor != null ? doctor.getConsultationFee() : 0);
+        bill.setTotal(bill.getBedCharge() + bill.getServiceCharge() + bill.getDoctorFee());
+        bill.setBillDate(new Date());
+        conflictIfFalse("dischargePatient", () -> dataAccess.dischargePatient(patientId, bill));
+    }
+
+    // Doctor: DoctorPortalPanel
+    private void doctorAction(ThreadLocalRandom random, Doctor me) throws SQLException {
+        int action = random.nextInt(10);
+        if (action < 5) {
+            timed("getPatientsByDoctorId", () -> dataAccess.getPatientsByDoctorId(me.getDoctorId()));
+            timed("getAppointmentsByDoctorAndDate", () -> dataAccess.getAppointmentsByDoctorAndDate(me.getDoctorId(), new Date()));
+        } else if (action < 8) {
+            openPatient(random);
+        } else {
+            String text = namePart(random);
+            timed("searchPatients", () -> dataAccess.searchPatients(text, me.getDoctorId(), SEARCH_LIMIT));
+        }
+    }
+
+    // ========== MEASURING ==========
+
+    private <T> T timed(String method, Call<T> call) throws SQLException {
+        OpStats op = stats.computeIfAbsent(method, m -> new OpStats());
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } catch (SQLException | RuntimeException e) {
+            op.errors.increment();
+            if (op.reportedErrors.incrementAndGet() <= MAX_REPORTED_ERRORS) {
+                System.err.println(method + " failed: " + e.getMessage());
+            }
+            throw e;
+        } finally {
+            op.latency.recordSince(start);
+        }
+    }
+
+    /**
+     * Runs a write that reports a lost race by returning false, and counts that as a conflict.
+     */
+    private boolean conflictIfFalse(String method, Call<Boolean> call) throws SQLException {
+        boolean done = timed(method, call);
+        if (!done) {
+            conflict(method);
+        }
+        return done;
+    }
+
+    private void conflict(String method) {
+        stats.computeIfAbsent(method, m -> new OpStats()).conflicts.increment();
+    }
+
+    public void printReport(int seconds) {
+        System.out.printf("%n%-32s %9s %8s %7s %9s %9s %9s %9s %9s %9s%n", "Method", "calls", "calls/s",
+                "errors", "conflicts", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<String, OpStats> entry : new TreeMap<>(stats).entrySet()) {
+            OpStats op = entry.getValue();
+            long calls = op.latency.count();
+            System.out.printf("%-32s %9d %8.1f %6.2f%% %8.2f%% %9.2f %9.2f %9.2f %9.2f %9.2f%n", entry.getKey(), calls,
+                    (double) calls / seconds, percent(op.errors.sum(), calls), percent(op.conflicts.sum(), calls),
+                    op.latency.percentileMillis(50), op.latency.percentileMillis(90),
+                    op.latency.percentileMillis(99), op.latency.percentileMillis(99.9),
+                    op.latency.maxNanos() / 1e6);
+        }
+    }
+
+    /**
+     * One line per method and non-empty bucket: method, bucket upper bound in ms, count.
+     */
+    public void writeHistograms(String file) {
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.println("method,upper_ms,count");
+            for (Map.Entry<String, OpStats> entry : new TreeMap<>(stats).entrySet()) {
+                entry.getValue().latency.forEachBucket((upperNanos, count) ->
+                        out.printf("%s,%.3f,%d%n", entry.getKey(), upperNanos / 1e6, count));
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write " + file + ": " + e.getMessage());
+        }
+    }
+
+    // ========== HELPERS ==========
+
+    private static double percent(long part, long whole) {
+        return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+
+    private String namePart(ThreadLocalRandom random) {
+        String name = pickRandom(names, random);
+        return name.length() > 3 ? name.substring(0, 3) : name;
+    }
+
+    private static <T> T pickRandom(List<T> list, ThreadLocalRandom random) {
+        synchronized (list) {
+            return list.isEmpty() ? null : list.get(random.nextInt(list.size()));
+        }
+    }
+
+    // Removed so no other user picks it; swapped with the last element to keep removal cheap
+    private static <T> T takeRandom(List<T> list, ThreadLocalRandom random) {
+        synchronized (list) {
+            if (list.isEmpty()) {
+                return null;
+            }
+            int i = random.nextInt(list.size());
+            T item = list.get(i);
+            list.set(i, list.get(list.size() - 1));
+            list.remove(list.size() - 1);
+            return item;
+        }
+    }
+
+    private static Date daysFromToday(int days) {
+        return new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(days));
+    }
+}
@@ -0,0 +1,179 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Booked appointment times per (doctor, day), as a bitmap of the day's 1440
+ * minutes. Loaded with one indexed query the first time a doctor-day is asked
+ * for, then answered from memory.
+ *
+ * The bitmap is only a fast first answer for the UI. The partial unique index
+ * on appointments (doctor_id, appointment_date, appointment_minute) is what
+ * actually prevents double booking.
+ *
+ * Kept current by DataAccess writes on this workstation and by NOTIFY events
+ * on {@link #CHANNEL} from the others. archive_discharged_patients() sends
+ * {@link #RELOAD} there when it moves scheduled appointments out.
+ */
+class AppointmentSlotCache {
+
+    static final String CHANNEL = "hms_appointments";
+
+    // Payloads sent on CHANNEL are "<event>:<doctor_id>:<yyyy-mm-dd>:<minute>", or RELOAD to drop everything
+    static final String BOOKED = "booked";
+    static final String FREED = "freed";
+    static final String RELOAD = "reload";
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int MAX_DAYS = 512; // Doctor-days kept; least recently used are dropped
+
+    private static AppointmentSlotCache instance;
+
+    private final Map<String, long[]> days = new LinkedHashMap<String, long[]>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+            return size() > MAX_DAYS;
+        }
+    };
+    private long changeCount; // Bumped on every change, so a load that raced with one is not stored
+
+    static AppointmentSlotCache get() {
+        synchronized (AppointmentSlotCache.class) {
+            if (instance == null) {
+                instance = new AppointmentSlotCache();
+                DatabaseEvents.subscribe(CHANNEL, instance::onNotification);
+            }
+            return instance;
+        }
+    }
+
+    private static String key(int doctorId, java.sql.Date date) {
+        return doctorId + ":" + date;
+    }
+
+    /**
+     * Whether the doctor has a scheduled appointment starting at this minute of the day.
+     */
+    boolean isBooked(int doctorId, java.sql.Date date, int minuteOfDay) throws SQLException {
+        long[] bits = load(doctorId, date);
+        return (bits[minuteOfDay >>> 6] & (1L << minuteOfDay)) != 0;
+    }
+
+    /**
+     * The booked minutes of the day, in order.
+     */
+    List<Integer> bookedMinutes(int doctorId, java.sql.Date date) throws SQLException {
+        long[] bits = load(doctorId, date);
+        List<Integer> minutes = new ArrayList<>();
+        for (int word = 0; word < bits.length; word++) {
+            long w = bits[word];
+            while (w != 0) {
+                minutes.add((word << 6) + Long.numberOfTrailingZeros(w));
+                w &= w - 1;
+            }
+        }
+        return minutes;
+    }
+
+    private long[] load(int doctorId, java.sql.Date date) throws SQLException {
+        String key = key(doctorId, date);
+        long startCount;
+        synchronized (this) {
+            long[] cached = days.get(key);
+            if (cached != null) {
+                return cached.clone();
+            }
+            startCount = changeCount;
+        }
+
+        long[] bits = new long[(MINUTES_PER_DAY + 63) / 64];
+        String sql = "SELECT appointment_minute FROM appointments " +
+                     "WHERE doctor_id = ? AND appointment_date = ? AND status = 'Scheduled'";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, doctorId);
+            pstmt.setDate(2, date);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int minute = rs.getInt(1);
+                    bits[minute >>> 6] |= 1L << minute;
+                }
+            }
+        }
+
+        synchronized (this) {
+            if (changeCount == startCount) {
+                days.put(key, bits.clone());
+            }
+        }
+        return bits;
+    }
+
+    // ========== UPDATES ==========
+
+    private synchronized void set(String key, int minuteOfDay, boolean booked) {
+        changeCount++;
+        long[] bits = days.get(key);
+        if (bits == null || minuteOfDay < 0 || minuteOfDay >= MINUTES_PER_DAY) {
+            return; // Not cached; the next read loads it fresh
+        }
+        if (booked) {
+            bits[minuteOfDay >>> 6] |= 1L << minuteOfDay;
+        } else {
+            bits[minuteOfDay >>> 6] &= ~(1L << minuteOfDay);
+        }
+    }
+
+    private synchronized void clear() {
+        changeCount++;
+        days.clear();
+    }
+
+    /**
+     * Applies a committed booking or cancellation made on this workstation.
+     */
+    static void slotChanged(int doctorId, java.sql.Date date, int minuteOfDay, boolean booked) {
+        AppointmentSlotCache cache;
+        synchronized (AppointmentSlotCache.class) {
+            cache = instance;
+        }
+        if (cache != null) {
+            cache.set(key(doctorId, date), minuteOfDay, booked);
+        }
+    }
+
+    /**
+     * The NOTIFY payload announcing the same change to the other workstations.
+     */
+    static String payload(int doctorId, java.sql.Date date, int minuteOfDay, boolean booked) {
+        return (booked ? BOOKED : FREED) + ":" + key(doctorId, date) + ":" + minuteOfDay;
+    }
+
+    private void onNotification(String payload) {
+        String[] parts = payload == null ? new String[0] : payload.split(":");
+        if (parts.length != 4) {
+            clear();
+            return;
+        }
+        try {
+            int minute = Integer.parseInt(parts[3]);
+            String key = parts[1] + ":" + parts[2];
+            if (BOOKED.equals(parts[0])) {
+                set(key, minute, true);
+            } else if (FREED.equals(parts[0])) {
+                set(key, minute, false);
+            } else {
+                clear();
+            }
+        } catch (NumberFormatException e) {
+            clear();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package dal;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs DataAccess calls off the calling thread and returns CompletableFutures,
+ * so Swing panels never block the EDT on a database round trip.
+ *
+ * Calls run on virtual threads when the JVM has them (Java 21+), and on a
+ * cached pool of daemon threads otherwise. Either way the connection pool is
+ * what bounds how many queries actually run at once.
+ *
+ * Usage: {@code async.call(dataAccess::getAllDoctors)} or
+ * {@code async.call(() -> dataAccess.getPatientById(id))}.
+ */
+public class AsyncDataAccess {
+
+    /**
+     * A DataAccess call; the same shape as the DataAccess methods themselves.
+     */
+    public interface SqlCall<T> {
+        T call() throws SQLException;
+    }
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private static ExecutorService createExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "hms-db-async-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Starts the call and returns immediately. A SQLException completes the future exceptionally.
+     */
+    public <T> CompletableFuture<T> call(SqlCall<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, EXECUTOR);
+    }
+
+    /**
+     * Returns the executor used for database calls, for callers that need to chain their own work on it.
+     */
+    public static ExecutorService executor() {
+        return EXECUTOR;
+    }
+
+    /**
+     * Unwraps the CompletionException layers a failed future adds around the original error.
+     */
+    public static Throwable rootCause(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
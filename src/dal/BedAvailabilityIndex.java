@@ -0,0 +1,326 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * In-memory occupancy index over the beds table.
+ *
+ * Each bed_type_id and each floor has a bitset of its free beds, indexed by
+ * bed_id, plus a running count. Totals are O(1); "free beds of type X on
+ * floor Y" and first-free lookups AND two bitsets word by word, without
+ * touching the database.
+ *
+ * The index is loaded once, then kept current by DataAccess writes on this
+ * workstation and by NOTIFY events on {@link #CHANNEL} from the others.
+ */
+public class BedAvailabilityIndex {
+
+    static final String CHANNEL = "hms_beds";
+
+    // Payloads sent on CHANNEL are "<event>:<bed_id>", or RELOAD to rebuild from scratch
+    static final String OCCUPIED = "occupied";
+    static final String AVAILABLE = "available";
+    static final String RELOAD = "reload";
+
+    private static BedAvailabilityIndex instance;
+
+    private final Map<Integer, Bits> freeByType = new HashMap<>();
+    private final Map<Integer, Bits> freeByFloor = new HashMap<>();
+    private final Map<Integer, Integer> freeCountByType = new HashMap<>();
+    private final Map<Integer, Integer> freeCountByFloor = new HashMap<>();
+    private final Map<Integer, Integer> totalByType = new HashMap<>();
+    private final Map<Integer, Integer> totalByFloor = new HashMap<>();
+    private int[] typeOfBed = new int[0];  // bed_id -> bed_type_id, 0 = no such bed
+    private int[] floorOfBed = new int[0]; // bed_id -> floor
+    private boolean[] free = new boolean[0];
+    private int totalBeds;
+    private int totalFree;
+    private boolean stale = true;
+    private boolean missedUpdates; // A change arrived while a load was in flight
+
+    /**
+     * Returns the shared index, loading it from the database on first use.
+     */
+    static BedAvailabilityIndex get() throws SQLException {
+        BedAvailabilityIndex index;
+        synchronized (BedAvailabilityIndex.class) {
+            if (instance == null) {
+                instance = new BedAvailabilityIndex();
+                DatabaseEvents.subscribe(CHANNEL, instance::onNotification);
+            }
+            index = instance;
+        }
+        index.loadIfStale();
+        return index;
+    }
+
+    private void loadIfStale() throws SQLException {
+        synchronized (this) {
+            if (!stale) {
+                return;
+            }
+            missedUpdates = false;
+        }
+        String sql = "SELECT bed_id, floor, bed_type_id, status FROM beds";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            synchronized (this) {
+                clear();
+                while (rs.next()) {
+                    addBed(rs.getInt(1), rs.getInt(2), rs.getInt(3), "Available".equalsIgnoreCase(rs.getString(4)));
+                }
+                stale = missedUpdates;
+            }
+        }
+    }
+
+    private void clear() {
+        freeByType.clear();
+        freeByFloor.clear();
+        freeCountByType.clear();
+        freeCountByFloor.clear();
+        totalByType.clear();
+        totalByFloor.clear();
+        typeOfBed = new int[0];
+        floorOfBed = new int[0];
+        free = new boolean[0];
+        totalBeds = 0;
+        totalFree = 0;
+    }
+
+    private void addBed(int bedId, int floor, int bedTypeId, boolean isFree) {
+        if (bedId >= typeOfBed.length) {
+            int size = Math.max(bedId + 1, typeOfBed.length * 2);
+            typeOfBed = Arrays.copyOf(typeOfBed, size);
+            floorOfBed = Arrays.copyOf(floorOfBed, size);
+            free = Arrays.copyOf(free, size);
+        }
+        typeOfBed[bedId] = bedTypeId;
+        floorOfBed[bedId] = floor;
+        totalBeds++;
+        totalByType.merge(bedTypeId, 1, Integer::sum);
+        totalByFloor.merge(floor, 1, Integer::sum);
+        freeByType.computeIfAbsent(bedTypeId, k -> new Bits());
+        freeByFloor.computeIfAbsent(floor, k -> new Bits());
+        if (isFree) {
+            setFree(bedId, true);
+        }
+    }
+
+    private void setFree(int bedId, boolean isFree) {
+        if (bedId <= 0 || bedId >= typeOfBed.length || typeOfBed[bedId] == 0 || free[bedId] == isFree) {
+            return;
+        }
+        int bedTypeId = typeOfBed[bedId];
+        int floor = floorOfBed[bedId];
+        int delta = isFree ? 1 : -1;
+        free[bedId] = isFree;
+        totalFree += delta;
+        freeCountByType.merge(bedTypeId, delta, Integer::sum);
+        freeCountByFloor.merge(floor, delta, Integer::sum);
+        freeByType.get(bedTypeId).set(bedId, isFree);
+        freeByFloor.get(floor).set(bedId, isFree);
+    }
+
+    // ========== UPDATES ==========
+
+    synchronized void markOccupied(int bedId) {
+        if (stale) {
+            missedUpdates = true;
+        } else {
+            if (bedId >= typeOfBed.length || typeOfBed[bedId] == 0) {
+                stale = true; // A bed we have never seen, rebuild on next read
+            } else {
+                setFree(bedId, false);
+            }
+        }
+    }
+
+    synchronized void markAvailable(int bedId) {
+        if (stale) {
+            missedUpdates = true;
+        } else {
+            if (bedId >= typeOfBed.length || typeOfBed[bedId] == 0) {
+                stale = true;
+            } else {
+                setFree(bedId, true);
+            }
+        }
+    }
+
+    synchronized void invalidate() {
+        stale = true;
+        missedUpdates = true;
+    }
+
+    /**
+     * Applies a committed change to the index if it has been loaded; otherwise the next load will see it.
+     */
+    static void bedChanged(int bedId, boolean nowFree) {
+        BedAvailabilityIndex index;
+        synchronized (BedAvailabilityIndex.class) {
+            index = instance;
+        }
+        if (index != null) {
+            if (nowFree) {
+                index.markAvailable(bedId);
+            } else {
+                index.markOccupied(bedId);
+            }
+        }
+    }
+
+    private void onNotification(String payload) {
+        int colon = payload == null ? -1 : payload.indexOf(':');
+        if (colon < 0) {
+            invalidate();
+            return;
+        }
+        try {
+            int bedId = Integer.parseInt(payload.substring(colon + 1));
+            String event = payload.substring(0, colon);
+            if (OCCUPIED.equals(event)) {
+                markOccupied(bedId);
+            } else if (AVAILABLE.equals(event)) {
+                markAvailable(bedId);
+            } else {
+                invalidate();
+            }
+        } catch (NumberFormatException e) {
+            invalidate();
+        }
+    }
+
+    // ========== QUERIES ==========
+
+    public synchronized int getTotalBeds() { return totalBeds; }
+    public synchronized int getTotalFree() { return totalFree; }
+    public synchronized int getTotalOccupied() { return totalBeds - totalFree; }
+
+    public synchronized int countFreeOfType(int bedTypeId) {
+        return freeCountByType.getOrDefault(bedTypeId, 0);
+    }
+
+    public synchronized int countFreeOnFloor(int floor) {
+        return freeCountByFloor.getOrDefault(floor, 0);
+    }
+
+    public synchronized int countBedsOfType(int bedTypeId) {
+        return totalByType.getOrDefault(bedTypeId, 0);
+    }
+
+    public synchronized int countBedsOnFloor(int floor) {
+        return totalByFloor.getOrDefault(floor, 0);
+    }
+
+    /**
+     * Free beds of the given type on the given floor.
+     */
+    public synchronized int countFree(int bedTypeId, int floor) {
+        Bits byType = freeByType.get(bedTypeId);
+        Bits byFloor = freeByFloor.get(floor);
+        if (byType == null || byFloor == null) {
+            return 0;
+        }
+        return byType.andCardinality(byFloor);
+    }
+
+    /**
+     * Lowest free bed id of the given type, or -1.
+     */
+    public synchronized int firstFreeOfType(int bedTypeId) {
+        Bits byType = freeByType.get(bedTypeId);
+        return byType == null ? -1 : byType.nextSetBit(0);
+    }
+
+    /**
+     * Lowest free bed id of the given type on the given floor, or -1.
+     */
+    public synchronized int firstFree(int bedTypeId, int floor) {
+        Bits byType = freeByType.get(bedTypeId);
+        Bits byFloor = freeByFloor.get(floor);
+        if (byType == null || byFloor == null) {
+            return -1;
+        }
+        return byType.firstCommonBit(byFloor);
+    }
+
+    public synchronized boolean isFree(int bedId) {
+        return bedId > 0 && bedId < free.length && free[bedId];
+    }
+
+    public synchronized SortedSet<Integer> getFloors() {
+        return new TreeSet<>(totalByFloor.keySet());
+    }
+
+    // ========== BITSET ==========
+
+    /**
+     * Minimal growable bitset; unlike java.util.BitSet it can AND two sets
+     * without allocating a third.
+     */
+    private static class Bits {
+        private long[] words = new long[1];
+
+        void set(int bit, boolean value) {
+            int word = bit >>> 6;
+            if (word >= words.length) {
+                if (!value) {
+                    return;
+                }
+                words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+            }
+            if (value) {
+                words[word] |= 1L << bit;
+            } else {
+                words[word] &= ~(1L << bit);
+            }
+        }
+
+        int nextSetBit(int from) {
+            int word = from >>> 6;
+            if (word >= words.length) {
+                return -1;
+            }
+            long bits = words[word] & (-1L << from);
+            while (true) {
+                if (bits != 0) {
+                    return (word << 6) + Long.numberOfTrailingZeros(bits);
+                }
+                if (++word >= words.length) {
+                    return -1;
+                }
+                bits = words[word];
+            }
+        }
+
+        int andCardinality(Bits other) {
+            int n = Math.min(words.length, other.words.length);
+            int count = 0;
+            for (int i = 0; i < n; i++) {
+                count += Long.bitCount(words[i] & other.words[i]);
+            }
+            return count;
+        }
+
+        int firstCommonBit(Bits other) {
+            int n = Math.min(words.length, other.words.length);
+            for (int i = 0; i < n; i++) {
+                long common = words[i] & other.words[i];
+                if (common != 0) {
+                    return (i << 6) + Long.numberOfTrailingZeros(common);
+                }
+            }
+            return -1;
+        }
+    }
+}
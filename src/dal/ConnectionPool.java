@@ -0,0 +1,414 @@
+package dal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A small bounded JDBC connection pool.
+ * Connections handed out are proxies: calling close() returns the physical
+ * connection to the pool instead of closing it, so DataAccess keeps its
+ * try-with-resources style unchanged.
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final String user;
+    private final String password;
+
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final long validationIntervalMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition connectionReturned = lock.newCondition();
+    private final ArrayDeque<PooledEntry> idle = new ArrayDeque<>(); // Most recently returned first
+    private int totalConnections = 0; // Open physical connections, including ones being created
+    private int activeConnections = 0;
+    private int waitingThreads = 0;
+    private boolean shutdown = false;
+
+    private final ScheduledExecutorService housekeeper;
+
+    private static volatile StatementObserver[] statementObservers = new StatementObserver[0];
+
+    /**
+     * Installs an observer that sees every statement run on pooled connections
+     * borrowed from now on. Connections already borrowed are not affected.
+     */
+    static synchronized void addStatementObserver(StatementObserver observer) {
+        StatementObserver[] observers = Arrays.copyOf(statementObservers, statementObservers.length + 1);
+        observers[observers.length - 1] = observer;
+        statementObservers = observers;
+    }
+
+    /**
+     * Removes an observer installed with {@link #addStatementObserver}, leaving any others in place.
+     */
+    static synchronized void removeStatementObserver(StatementObserver observer) {
+        List<StatementObserver> observers = new ArrayList<>(Arrays.asList(statementObservers));
+        observers.remove(observer);
+        statementObservers = observers.toArray(new StatementObserver[0]);
+    }
+
+    public ConnectionPool(String url, String user, String password, int maxSize, long acquireTimeoutMillis,
+                          long idleTimeoutMillis, long maxLifetimeMillis, long validationIntervalMillis,
+                          int statementCacheSize) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.validationTimeoutSeconds = 2;
+        this.statementCacheSize = statementCacheSize;
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "hms-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, maxLifetimeMillis) / 2);
+        housekeeper.scheduleWithFixedDelay(this::evictExpired, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the acquire timeout if the pool is exhausted.
+     */
+    public Connection getConnection() throws SQLException {
+        long began = System.nanoTime();
+        long deadline = began + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+
+        while (true) {
+            PooledEntry entry = null;
+            boolean create = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (shutdown) {
+                        throw new SQLException("Connection pool has been shut down.");
+                    }
+                    entry = idle.pollFirst();
+                    if (entry != null) {
+                        break;
+                    }
+                    if (totalConnections < maxSize) {
+                        totalConnections++;
+                        create = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new SQLException("Timed out after " + acquireTimeoutMillis
+                                + " ms waiting for a database connection (pool size " + maxSize + ").");
+                    }
+                    waitingThreads++;
+                    try {
+                        connectionReturned.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection.", e);
+                    } finally {
+                        waitingThreads--;
+                    }
+                }
+                activeConnections++;
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                try {
+                    entry = new PooledEntry(DriverManager.getConnection(url, user, password), statementCacheSize);
+                } catch (SQLException e) {
+                    discard(null);
+                    throw e;
+                }
+            } else if (!isUsable(entry)) {
+                discard(entry);
+                continue;
+            }
+            StatementObserver[] observers = statementObservers;
+            return entry.lease(this, observers.length == 0 ? null
+                    : ObservedStatement.Observers.acquired(observers, System.nanoTime() - began));
+        }
+    }
+
+    private boolean isUsable(PooledEntry entry) {
+        long now = System.currentTimeMillis();
+        if (now - entry.createdAt > maxLifetimeMillis) {
+            return false;
+        }
+        if (now - entry.lastReturnedAt > validationIntervalMillis) {
+            try {
+                return entry.physical.isValid(validationTimeoutSeconds);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Called by the connection proxy when the caller closes it.
+     */
+    void release(PooledEntry entry) {
+        entry.statementCache.releaseAll();
+        boolean healthy = !shutdown && System.currentTimeMillis() - entry.createdAt <= maxLifetimeMillis;
+        if (healthy) {
+            try {
+                if (entry.physical.isClosed()) {
+                    healthy = false;
+                } else if (!entry.physical.getAutoCommit()) {
+                    // Never hand an open transaction to the next borrower
+                    entry.physical.rollback();
+                    entry.physical.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                healthy = false;
+            }
+        }
+
+        if (!healthy) {
+            discard(entry);
+            return;
+        }
+
+        lock.lock();
+        try {
+            activeConnections--;
+            entry.lastReturnedAt = System.currentTimeMillis();
+            idle.addFirst(entry);
+            connectionReturned.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops a borrowed entry (or a failed creation when entry is null) and frees its slot.
+     */
+    private void discard(PooledEntry entry) {
+        lock.lock();
+        try {
+            totalConnections--;
+            activeConnections--;
+            connectionReturned.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (entry != null) {
+            entry.closeQuietly();
+        }
+    }
+
+    private void evictExpired() {
+        List<PooledEntry> evicted = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        lock.lock();
+        try {
+            Iterator<PooledEntry> it = idle.descendingIterator(); // Oldest returned first
+            while (it.hasNext()) {
+                PooledEntry entry = it.next();
+                if (now - entry.lastReturnedAt > idleTimeoutMillis || now - entry.createdAt > maxLifetimeMillis) {
+                    it.remove();
+                    totalConnections--;
+                    evicted.add(entry);
+                }
+            }
+            if (!evicted.isEmpty()) {
+                connectionReturned.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (PooledEntry entry : evicted) {
+            entry.closeQuietly();
+        }
+    }
+
+    /**
+     * Closes all idle connections and refuses new borrows. Borrowed connections are closed as they come back.
+     */
+    public void shutdown() {
+        List<PooledEntry> toClose;
+        lock.lock();
+        try {
+            shutdown = true;
+            toClose = new ArrayList<>(idle);
+            totalConnections -= idle.size();
+            idle.clear();
+            connectionReturned.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        housekeeper.shutdownNow();
+        for (PooledEntry entry : toClose) {
+            entry.closeQuietly();
+        }
+    }
+
+    // ========== POOL GAUGES ==========
+
+    public int getActiveConnections() {
+        lock.lock();
+        try { return activeConnections; } finally { lock.unlock(); }
+    }
+
+    public int getIdleConnections() {
+        lock.lock();
+        try { return idle.size(); } finally { lock.unlock(); }
+    }
+
+    public int getWaitingThreads() {
+        lock.lock();
+        try { return waitingThreads; } finally { lock.unlock(); }
+    }
+
+    public int getTotalConnections() {
+        lock.lock();
+        try { return totalConnections; } finally { lock.unlock(); }
+    }
+
+    public int getMaxSize() { return maxSize; }
+
+    public long getStatementCacheHits() { return StatementCache.getHits(); }
+    public long getStatementCacheMisses() { return StatementCache.getMisses(); }
+    public long getStatementCacheEvictions() { return StatementCache.getEvictions(); }
+    public double getStatementCacheHitRatio() { return StatementCache.getHitRatio(); }
+
+    @Override
+    public String toString() {
+        return String.format("ConnectionPool[active=%d, idle=%d, waiting=%d, max=%d, stmtCacheHitRatio=%.2f]",
+                getActiveConnections(), getIdleConnections(), getWaitingThreads(), maxSize,
+                getStatementCacheHitRatio());
+    }
+
+    // ========== POOLED CONNECTION ==========
+
+    static class PooledEntry {
+        final Connection physical;
+        final StatementCache statementCache;
+        final long createdAt;
+        volatile long lastReturnedAt;
+
+        PooledEntry(Connection physical, int statementCacheSize) {
+            this.physical = physical;
+            this.statementCache = new StatementCache(physical, statementCacheSize);
+            this.createdAt = System.currentTimeMillis();
+            this.lastReturnedAt = createdAt;
+        }
+
+        Connection lease(ConnectionPool pool, ObservedStatement.Observers observers) {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new LeasedConnectionHandler(pool, this, observers));
+        }
+
+        void closeQuietly() {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                // Already broken, nothing more to do
+            }
+        }
+    }
+
+    /**
+     * Forwards every call to the physical connection, except close(), which hands it back to the pool,
+     * and the common prepareStatement() overloads, which go through the connection's statement cache.
+     * A lease is single-use: once closed, it cannot touch the physical connection again.
+     */
+    private static class LeasedConnectionHandler implements InvocationHandler {
+        private final ConnectionPool pool;
+        private final PooledEntry entry;
+        private final ObservedStatement.Observers observers; // Null when none were installed at borrow time
+        private boolean closed = false;
+
+        LeasedConnectionHandler(ConnectionPool pool, PooledEntry entry, ObservedStatement.Observers observers) {
+            this.pool = pool;
+            this.entry = entry;
+            this.observers = observers;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        pool.release(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || entry.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + entry.physical + (closed ? ", closed]" : "]");
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool.");
+            }
+            Object result = null;
+            boolean handled = false;
+            if ("prepareStatement".equals(method.getName())) {
+                if (args.length == 1) {
+                    result = entry.statementCache.prepare((String) args[0], Statement.NO_GENERATED_KEYS);
+                    handled = true;
+                } else if (args.length == 2 && args[1] instanceof Integer) {
+                    result = entry.statementCache.prepare((String) args[0], (Integer) args[1]);
+                    handled = true;
+                }
+            }
+            if (!handled) {
+                try {
+                    result = method.invoke(entry.physical, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+            return observers == null ? result : observe(result, method, args);
+        }
+
+        private Object observe(Object result, Method method, Object[] args) {
+            if (result instanceof PreparedStatement && "prepareStatement".equals(method.getName())) {
+                return ObservedStatement.wrap((PreparedStatement) result, entry.physical, (String) args[0], observers);
+            }
+            if (result instanceof Statement && "createStatement".equals(method.getName())) {
+                return ObservedStatement.wrap((Statement) result, entry.physical, observers);
+            }
+            return result;
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package dal;
 
 import model.*; // Import all models
+import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.Date; // Import java.util.Date
 
@@ -14,7 +17,7 @@ public class DataAccess {
     // ========== EMPLOYEE/LOGIN METHODS ==========
     
     public Employee authenticateEmployee(String employeeNumber, String password) throws SQLException {
-        String sql = "SELECT * FROM employees WHERE employee_number = ? AND password = ? AND active = true";
+        String sql = "SELECT employee_id, employee_number, name, role, department FROM employees WHERE employee_number = ? AND password = ? AND active = true";
 
         try (Connection conn = DatabaseConnection.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -56,11 +59,11 @@ public class DataAccess {
 
     public List<Employee> getAllEmployees() throws SQLException {
         List<Employee> employees = new ArrayList<>();
-        String sql = "SELECT * FROM employees WHERE active = true ORDER BY name";
+        String sql = "SELECT employee_id, employee_number, name, role, department FROM employees WHERE active = true ORDER BY name";
 
         try (Connection conn = DatabaseConnection.getConnection();
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery(sql)) {
+                PreparedStatement pstmt = conn.prepareStatement(sql);
+                ResultSet rs = pstmt.executeQuery()) {
 
             while (rs.next()) {
                 Employee employee = new Employee();
@@ -78,48 +81,90 @@ public class DataAccess {
     // ========== PATIENT METHODS ==========
 
     // [START] UPDATED/FIXED: addPatient
+    /**
+     * Inserts the patient and, unless the case is Mild, allocates a bed of the requested type
+     * in the same transaction. If no bed is free, nothing is saved and false is returned.
+     */
     public boolean addPatient(Patient patient) throws SQLException {
         // SQL now has 9 '?' placeholders
         String sql = "INSERT INTO patients (name, age, gender, admitted_date, doctor_id, disease_severity, requested_bed_type_id, illness_id, other_illness_text) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DatabaseConnection.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
 
-            pstmt.setString(1, patient.getName());
-            pstmt.setInt(2, patient.getAge());
-            pstmt.setString(3, patient.getGender());
-            
-            // [THE FIX] Parameter 4 is now correctly set
-            if (patient.getAdmittedDate() != null) {
-                pstmt.setDate(4, new java.sql.Date(patient.getAdmittedDate().getTime()));
-            } else {
-                pstmt.setNull(4, Types.DATE);
-            }
-            
-            pstmt.setInt(5, patient.getDoctorId());
-            pstmt.setString(6, patient.getDiseaseSeverity());
-            
-            if (patient.getRequestedBedTypeId() == 0) {
-                 pstmt.setNull(7, Types.INTEGER);
-            } else {
-                 pstmt.setInt(7, patient.getRequestedBedTypeId());
-            }
-            
-            pstmt.setInt(8, patient.getIllnessId());
-            pstmt.setString(9, patient.getOtherIllnessText()); 
+            int patientId = -1;
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setString(1, patient.getName());
+                pstmt.setInt(2, patient.getAge());
+                pstmt.setString(3, patient.getGender());
+
+                // [THE FIX] Parameter 4 is now correctly set
+                if (patient.getAdmittedDate() != null) {
+                    pstmt.setDate(4, new java.sql.Date(patient.getAdmittedDate().getTime()));
+                } else {
+                    pstmt.setNull(4, Types.DATE);
+                }
 
-            int affectedRows = pstmt.executeUpdate();
+                pstmt.setInt(5, patient.getDoctorId());
+                pstmt.setString(6, patient.getDiseaseSeverity());
 
-            if (affectedRows > 0) {
-                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        int patientId = generatedKeys.getInt(1);
-                        if (!"Mild".equals(patient.getDiseaseSeverity())) {
-                            assignAvailableBed(patientId, patient.getRequestedBedTypeId());
+                if (patient.getRequestedBedTypeId() == 0) {
+                     pstmt.setNull(7, Types.INTEGER);
+                } else {
+                     pstmt.setInt(7, patient.getRequestedBedTypeId());
+                }
+
+                pstmt.setInt(8, patient.getIllnessId());
+                pstmt.setString(9, patient.getOtherIllnessText());
+
+                if (pstmt.executeUpdate() > 0) {
+                    try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            patientId = generatedKeys.getInt(1);
                         }
                     }
                 }
             }
-            return affectedRows > 0;
+
+            if (patientId == -1) {
+                conn.rollback();
+                return false;
+            }
+            int bedId = -1;
+            if (!"Mild".equals(patient.getDiseaseSeverity())) {
+                bedId = allocateBed(conn, patientId, patient.getRequestedBedTypeId());
+                if (bedId == -1) {
+                    conn.rollback(); // No free bed of this type
+                    return false;
+                }
+            }
+
+            conn.commit();
+            if (bedId != -1) {
+                BedAvailabilityIndex.bedChanged(bedId, false);
+            }
+            patient.setPatientId(patientId);
+            return true;
+
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close(); // Returns the connection to the pool
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
         }
     }
     // [END] UPDATED/FIXED: addPatient
@@ -156,11 +201,7 @@ public class DataAccess {
             conn = DatabaseConnection.getConnection();
             conn.setAutoCommit(false); 
 
-            String bedSql = "UPDATE beds SET status = 'Available', patient_id = NULL WHERE patient_id = ?";
-            try (PreparedStatement pstmtBed = conn.prepareStatement(bedSql)) {
-                pstmtBed.setInt(1, patientId);
-                pstmtBed.executeUpdate();
-            }
+            List<Integer> freedBeds = releaseBeds(conn, patientId);
             
             String patientSql = "DELETE FROM patients WHERE patient_id = ?";
             try (PreparedStatement pstmtPatient = conn.prepareStatement(patientSql)) {
@@ -168,6 +209,7 @@ public class DataAccess {
                 int affectedRows = pstmtPatient.executeUpdate();
                 
                 conn.commit(); 
+                freedBeds.forEach(bedId -> BedAvailabilityIndex.bedChanged(bedId, true));
                 return affectedRows > 0;
             }
 
@@ -179,56 +221,165 @@ public class DataAccess {
         } finally {
             if (conn != null) {
                 conn.setAutoCommit(true);
+                conn.close(); // Returns the connection to the pool
             }
         }
     }
 
+    // The patient columns the panels read; discharged_date is only ever filtered on
+    private static final String PATIENT_COLUMNS =
+            "p.patient_id, p.name, p.age, p.gender, p.admitted_date, p.doctor_id, p.disease_severity, " +
+            "p.illness_id, p.other_illness_text, p.requested_bed_type_id";
+
+    private static final String ALL_PATIENTS_SELECT =
+            "SELECT " + PATIENT_COLUMNS + ", d.name as doctor_name, b.bed_id, " +
+            "ci.illness_name, cbt.bed_type_name " +
+            "FROM patients p " +
+            "LEFT JOIN doctors d ON p.doctor_id = d.doctor_id " +
+            "LEFT JOIN beds b ON p.patient_id = b.patient_id " +
+            "LEFT JOIN config_illnesses ci ON p.illness_id = ci.illness_id " +
+            "LEFT JOIN config_bed_types cbt ON p.requested_bed_type_id = cbt.bed_type_id ";
+
+    private static final String ALL_PATIENTS_SQL = ALL_PATIENTS_SELECT +
+            "WHERE p.discharged_date IS NULL " +
+            "ORDER BY p.patient_id";
+
     public List<Patient> getAllPatients() throws SQLException {
-        List<Patient> patients = new ArrayList<>();
-        String sql = "SELECT p.*, d.name as doctor_name, b.bed_id, " +
-                     "ci.illness_name, cbt.bed_type_name " +
-                     "FROM patients p " +
-                     "LEFT JOIN doctors d ON p.doctor_id = d.doctor_id " +
-                     "LEFT JOIN beds b ON p.patient_id = b.patient_id " +
-                     "LEFT JOIN config_illnesses ci ON p.illness_id = ci.illness_id " +
-                     "LEFT JOIN config_bed_types cbt ON p.requested_bed_type_id = cbt.bed_type_id " +
-                     "WHERE p.discharged_date IS NULL " +
-                     "ORDER BY p.patient_id";
+        return queryList(ALL_PATIENTS_SQL, DataAccess::patientRowMapper);
+    }
 
-        try (Connection conn = DatabaseConnection.getConnection();
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery(sql)) {
+    /**
+     * One page of admitted patients, using a keyset cursor instead of OFFSET so
+     * that page N costs the same as page 1.
+     *
+     * @param sort       sort order; ties are broken by patient_id
+     * @param descending whether to sort in reverse
+     * @param nameFilter case-insensitive substring of the name, or null/empty for all
+     * @param after      last patient of the previous page, or null for the first page
+     * @param limit      maximum number of rows to return
+     */
+    public List<Patient> getPatientsPage(PatientSort sort, boolean descending, String nameFilter,
+                                         Patient after, int limit) throws SQLException {
+        String direction = descending ? "DESC" : "ASC";
+        String comparison = descending ? "<" : ">";
+        boolean filtered = nameFilter != null && !nameFilter.trim().isEmpty();
+
+        StringBuilder sql = new StringBuilder(ALL_PATIENTS_SELECT).append("WHERE p.discharged_date IS NULL ");
+        if (filtered) {
+            sql.append("AND p.name ILIKE ? ");
+        }
+        if (after != null) {
+            if (sort.column() == null) {
+                sql.append("AND p.patient_id ").append(comparison).append(" ? ");
+            } else {
+                sql.append("AND (").append(sort.column()).append(", p.patient_id) ").append(comparison).append(" (?, ?) ");
+            }
+        }
+        sql.append("ORDER BY ");
+        if (sort.column() != null) {
+            sql.append(sort.column()).append(' ').append(direction).append(", ");
+        }
+        sql.append("p.patient_id ").append(direction).append(" LIMIT ?");
 
-            while (rs.next()) {
-                Patient patient = new Patient();
-                patient.setPatientId(rs.getInt("patient_id"));
-                patient.setName(rs.getString("name"));
-                patient.setAge(rs.getInt("age"));
-                patient.setGender(rs.getString("gender"));
-                patient.setAdmittedDate(rs.getDate("admitted_date"));
-                patient.setDoctorId(rs.getInt("doctor_id"));
-                patient.setDiseaseSeverity(rs.getString("disease_severity"));
-                patient.setBedId(rs.getInt("bed_id"));
-                
-                patient.setIllnessId(rs.getInt("illness_id"));
-                patient.setOtherIllnessText(rs.getString("other_illness_text"));
-                patient.setRequestedBedTypeId(rs.getInt("requested_bed_type_id"));
-                
-                // Joined fields
-                patient.setAssignedDoctorName(rs.getString("doctor_name"));
-                patient.setIllnessName(rs.getString("illness_name"));
-                patient.setRequestedBedTypeName(rs.getString("bed_type_name"));
-                
-                patients.add(patient);
+        List<Patient> patients = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int i = 1;
+            if (filtered) {
+                pstmt.setString(i++, "%" + escapeLike(nameFilter.trim()) + "%");
+            }
+            if (after != null) {
+                if (sort == PatientSort.NAME) {
+                    pstmt.setString(i++, after.getName());
+                }
+                pstmt.setInt(i++, after.getPatientId());
+            }
+            pstmt.setInt(i, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper<Patient> mapper = patientRowMapper(rs);
+                while (rs.next()) {
+                    patients.add(mapper.map(rs));
+                }
             }
         }
         return patients;
     }
 
+    /**
+     * Number of admitted patients matching the same filter as {@link #getPatientsPage}.
+     */
+    public int countAdmittedPatients(String nameFilter) throws SQLException {
+        boolean filtered = nameFilter != null && !nameFilter.trim().isEmpty();
+        String sql = "SELECT COUNT(*) FROM patients p WHERE p.discharged_date IS NULL" +
+                     (filtered ? " AND p.name ILIKE ?" : "");
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            if (filtered) {
+                pstmt.setString(1, "%" + escapeLike(nameFilter.trim()) + "%");
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    // Backslash is the default LIKE escape character in PostgreSQL
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    // For ALL_PATIENTS_SELECT rows
+    private static RowMapper<Patient> patientRowMapper(ResultSet rs) throws SQLException {
+        int patientId = rs.findColumn("patient_id");
+        int name = rs.findColumn("name");
+        int age = rs.findColumn("age");
+        int gender = rs.findColumn("gender");
+        int admittedDate = rs.findColumn("admitted_date");
+        int doctorId = rs.findColumn("doctor_id");
+        int diseaseSeverity = rs.findColumn("disease_severity");
+        int bedId = rs.findColumn("bed_id");
+        int illnessId = rs.findColumn("illness_id");
+        int otherIllnessText = rs.findColumn("other_illness_text");
+        int requestedBedTypeId = rs.findColumn("requested_bed_type_id");
+        int doctorName = rs.findColumn("doctor_name");
+        int illnessName = rs.findColumn("illness_name");
+        int bedTypeName = rs.findColumn("bed_type_name");
+        return row -> {
+            Patient patient = new Patient();
+            patient.setPatientId(row.getInt(patientId));
+            patient.setName(row.getString(name));
+            patient.setAge(row.getInt(age));
+            patient.setGender(row.getString(gender));
+            patient.setAdmittedDate(row.getDate(admittedDate));
+            patient.setDoctorId(row.getInt(doctorId));
+            patient.setDiseaseSeverity(row.getString(diseaseSeverity));
+            patient.setBedId(row.getInt(bedId));
+
+            patient.setIllnessId(row.getInt(illnessId));
+            patient.setOtherIllnessText(row.getString(otherIllnessText));
+            patient.setRequestedBedTypeId(row.getInt(requestedBedTypeId));
+
+            // Joined fields
+            patient.setAssignedDoctorName(row.getString(doctorName));
+            patient.setIllnessName(row.getString(illnessName));
+            patient.setRequestedBedTypeName(row.getString(bedTypeName));
+            return patient;
+        };
+    }
+
+    /**
+     * Looks in patients first, then in patients_archive, so bills and
+     * appointments of archived patients can still be opened.
+     */
     public Patient getPatientById(int patientId) throws SQLException {
+        Patient patient = getPatientById(patientId, "patients");
+        return patient != null ? patient : getPatientById(patientId, "patients_archive");
+    }
+
+    private Patient getPatientById(int patientId, String table) throws SQLException {
         Patient patient = null;
-        String sql = "SELECT p.*, cbt.price_per_day, ci.illness_name " +
-                     "FROM patients p " +
+        String sql = "SELECT " + PATIENT_COLUMNS + ", cbt.price_per_day, ci.illness_name " +
+                     "FROM " + table + " p " +
                      "LEFT JOIN beds b ON p.patient_id = b.patient_id " +
                      "LEFT JOIN config_bed_types cbt ON b.bed_type_id = cbt.bed_type_id " +
                      "LEFT JOIN config_illnesses ci ON p.illness_id = ci.illness_id " +
@@ -262,21 +413,21 @@ public class DataAccess {
         return patient;
     }
     
+    private static final String ADMITTED_PATIENTS_SQL = "SELECT patient_id, name FROM patients WHERE discharged_date IS NULL";
+
     public List<Patient> getAdmittedPatients() throws SQLException {
-        List<Patient> patients = new ArrayList<>();
-        String sql = "SELECT * FROM patients WHERE discharged_date IS NULL";
-        try (Connection conn = DatabaseConnection.getConnection();
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery(sql)) {
+        return queryList(ADMITTED_PATIENTS_SQL, DataAccess::admittedPatientMapper);
+    }
 
-            while (rs.next()) {
-                Patient patient = new Patient();
-                patient.setPatientId(rs.getInt("patient_id"));
-                patient.setName(rs.getString("name"));
-                patients.add(patient);
-            }
-        }
-        return patients;
+    private static RowMapper<Patient> admittedPatientMapper(ResultSet rs) throws SQLException {
+        int patientId = rs.findColumn("patient_id");
+        int name = rs.findColumn("name");
+        return row -> {
+            Patient patient = new Patient();
+            patient.setPatientId(row.getInt(patientId));
+            patient.setName(row.getString(name));
+            return patient;
+        };
     }
 
 
@@ -294,22 +445,36 @@ public class DataAccess {
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, doctorId);
             try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper<Patient> mapper = patientSummaryMapper(rs);
                 while (rs.next()) {
-                    Patient patient = new Patient();
-                    patient.setPatientId(rs.getInt("patient_id"));
-                    patient.setName(rs.getString("name"));
-                    patient.setAge(rs.getInt("age"));
-                    patient.setDiseaseSeverity(rs.getString("disease_severity"));
-                    patient.setBedId(rs.getInt("bed_id"));
-                    patient.setIllnessName(rs.getString("illness_name"));
-                    patient.setOtherIllnessText(rs.getString("other_illness_text"));
-                    patients.add(patient);
+                    patients.add(mapper.map(rs));
                 }
             }
         }
         return patients;
     }
 
+    private static RowMapper<Patient> patientSummaryMapper(ResultSet rs) throws SQLException {
+        int patientId = rs.findColumn("patient_id");
+        int name = rs.findColumn("name");
+        int age = rs.findColumn("age");
+        int diseaseSeverity = rs.findColumn("disease_severity");
+        int bedId = rs.findColumn("bed_id");
+        int illnessName = rs.findColumn("illness_name");
+        int otherIllnessText = rs.findColumn("other_illness_text");
+        return row -> {
+            Patient patient = new Patient();
+            patient.setPatientId(row.getInt(patientId));
+            patient.setName(row.getString(name));
+            patient.setAge(row.getInt(age));
+            patient.setDiseaseSeverity(row.getString(diseaseSeverity));
+            patient.setBedId(row.getInt(bedId));
+            patient.setIllnessName(row.getString(illnessName));
+            patient.setOtherIllnessText(row.getString(otherIllnessText));
+            return patient;
+        };
+    }
+
     // ========== DOCTOR METHODS ==========
 
     public boolean addDoctor(Doctor doctor) throws SQLException {
@@ -325,6 +490,9 @@ public class DataAccess {
             pstmt.setString(6, doctor.getAvailableDays());
 
             int affectedRows = pstmt.executeUpdate();
+            if (affectedRows > 0) {
+                referenceDataChanged(conn, ReferenceDataCache.DOCTORS);
+            }
             return affectedRows > 0;
         }
     }
@@ -343,6 +511,9 @@ public class DataAccess {
             pstmt.setInt(7, doctor.getDoctorId());
 
             int affectedRows = pstmt.executeUpdate();
+            if (affectedRows > 0) {
+                referenceDataChanged(conn, ReferenceDataCache.DOCTORS);
+            }
             return affectedRows > 0;
         }
     }
@@ -353,35 +524,42 @@ public class DataAccess {
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, doctorId);
             int affectedRows = pstmt.executeUpdate();
+            if (affectedRows > 0) {
+                referenceDataChanged(conn, ReferenceDataCache.DOCTORS);
+            }
             return affectedRows > 0;
         }
     }
 
+    /**
+     * Served from ReferenceDataCache; the database is only queried after a change.
+     */
     public List<Doctor> getAllDoctors() throws SQLException {
-        List<Doctor> doctors = new ArrayList<>();
-        String sql = "SELECT * FROM doctors ORDER BY name";
+        return ReferenceDataCache.doctors.get(this::loadAllDoctors);
+    }
 
-        try (Connection conn = DatabaseConnection.getConnection();
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery(sql)) {
+    private static final String ALL_DOCTORS_SQL = "SELECT doctor_id, name, specialization, phone, email, consultation_fee, available_days " +
+            "FROM doctors ORDER BY name";
 
-            while (rs.next()) {
-                Doctor doctor = new Doctor();
-                doctor.setDoctorId(rs.getInt("doctor_id"));
-                doctor.setName(rs.getString("name"));
-                doctor.setSpecialization(rs.getString("specialization"));
-                doctor.setPhone(rs.getString("phone"));
-                doctor.setEmail(rs.getString("email"));
-                doctor.setConsultationFee(rs.getDouble("consultation_fee"));
-                doctor.setAvailableDays(rs.getString("available_days"));
-                doctors.add(doctor);
-            }
-        }
-        return doctors;
+    private List<Doctor> loadAllDoctors() throws SQLException {
+        return queryList(ALL_DOCTORS_SQL, byLabel(this::mapDoctor));
+    }
+
+    private Doctor mapDoctor(ResultSet rs) throws SQLException {
+        Doctor doctor = new Doctor();
+        doctor.setDoctorId(rs.getInt("doctor_id"));
+        doctor.setName(rs.getString("name"));
+        doctor.setSpecialization(rs.getString("specialization"));
+        doctor.setPhone(rs.getString("phone"));
+        doctor.setEmail(rs.getString("email"));
+        doctor.setConsultationFee(rs.getDouble("consultation_fee"));
+        doctor.setAvailableDays(rs.getString("available_days"));
+        return doctor;
     }
     
     public Doctor getDoctorById(int doctorId) throws SQLException {
-        String sql = "SELECT * FROM doctors WHERE doctor_id = ?";
+        String sql = "SELECT doctor_id, name, specialization, phone, email, consultation_fee, available_days " +
+                     "FROM doctors WHERE doctor_id = ?";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
@@ -406,34 +584,44 @@ public class DataAccess {
 
     // ========== BED METHODS ==========
 
+    private static final String BED_COLUMNS = "b.bed_id, b.ward, b.status, b.patient_id, b.floor, b.bed_type_id";
+
+    private static final String ALL_BEDS_SQL =
+            "SELECT " + BED_COLUMNS + ", p.name as patient_name, cbt.bed_type_name, cbt.price_per_day " +
+            "FROM beds b " +
+            "LEFT JOIN patients p ON b.patient_id = p.patient_id " +
+            "JOIN config_bed_types cbt ON b.bed_type_id = cbt.bed_type_id " +
+            "ORDER BY b.bed_id";
+
     public List<Bed> getAllBeds() throws SQLException {
-        List<Bed> beds = new ArrayList<>();
-        String sql = "SELECT b.*, p.name as patient_name, cbt.bed_type_name, cbt.price_per_day " +
-                "FROM beds b " +
-                "LEFT JOIN patients p ON b.patient_id = p.patient_id " +
-                "JOIN config_bed_types cbt ON b.bed_type_id = cbt.bed_type_id " +
-                "ORDER BY b.bed_id";
-        try (Connection conn = DatabaseConnection.getConnection();
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                Bed bed = new Bed();
-                bed.setBedId(rs.getInt("bed_id"));
-                bed.setWard(rs.getString("ward"));
-                bed.setStatus(rs.getString("status"));
-                bed.setPatientId(rs.getInt("patient_id"));
-                bed.setPatientName(rs.getString("patient_name"));
-                bed.setFloor(rs.getInt("floor"));
-                bed.setBedTypeId(rs.getInt("bed_type_id"));
-                
-                // Joined fields
-                bed.setBedTypeName(rs.getString("bed_type_name"));
-                bed.setPricePerDay(rs.getDouble("price_per_day"));
-                
-                beds.add(bed);
-            }
-        }
-        return beds;
+        return queryList(ALL_BEDS_SQL, DataAccess::bedMapper);
+    }
+
+    private static RowMapper<Bed> bedMapper(ResultSet rs) throws SQLException {
+        int bedId = rs.findColumn("bed_id");
+        int ward = rs.findColumn("ward");
+        int status = rs.findColumn("status");
+        int patientId = rs.findColumn("patient_id");
+        int patientName = rs.findColumn("patient_name");
+        int floor = rs.findColumn("floor");
+        int bedTypeId = rs.findColumn("bed_type_id");
+        int bedTypeName = rs.findColumn("bed_type_name");
+        int pricePerDay = rs.findColumn("price_per_day");
+        return row -> {
+            Bed bed = new Bed();
+            bed.setBedId(row.getInt(bedId));
+            bed.setWard(row.getString(ward));
+            bed.setStatus(row.getString(status));
+            bed.setPatientId(row.getInt(patientId));
+            bed.setPatientName(row.getString(patientName));
+            bed.setFloor(row.getInt(floor));
+            bed.setBedTypeId(row.getInt(bedTypeId));
+
+            // Joined fields
+            bed.setBedTypeName(row.getString(bedTypeName));
+            bed.setPricePerDay(row.getDouble(pricePerDay));
+            return bed;
+        };
     }
     
     public Map<Integer, List<Bed>> getBedsGroupedByFloor() throws SQLException {
@@ -441,59 +629,87 @@ public class DataAccess {
         List<Bed> allBeds = getAllBeds(); 
         
         for (Bed bed : allBeds) {
-            int floor = bed.getFloor();
-            floorMap.putIfAbsent(floor, new ArrayList<>());
-            floorMap.get(floor).add(bed);
+            floorMap.computeIfAbsent(bed.getFloor(), floor -> new ArrayList<>()).add(bed);
         }
         return floorMap;
     }
 
-    private boolean assignAvailableBed(int patientId, int bedTypeId) throws SQLException {
-        String findBedSql = "SELECT bed_id FROM beds WHERE status = 'Available' AND bed_type_id = ? LIMIT 1";
-        String assignBedSql = "UPDATE beds SET status = 'Occupied', patient_id = ? WHERE bed_id = ?";
-
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            int bedId = -1;
-            try (PreparedStatement findStmt = conn.prepareStatement(findBedSql)) {
-                findStmt.setInt(1, bedTypeId);
-                try (ResultSet rs = findStmt.executeQuery()) {
-                    if (rs.next()) {
-                        bedId = rs.getInt("bed_id");
-                    }
+    /**
+     * Claims the lowest-numbered free bed of the given type for a patient, using the caller's
+     * transaction. SKIP LOCKED makes concurrent admissions pick different beds instead of
+     * queueing on (or colliding over) the same row. Returns the bed id, or -1 if none is free.
+     */
+    private int allocateBed(Connection conn, int patientId, int bedTypeId) throws SQLException {
+        String sql = "UPDATE beds SET status = 'Occupied', patient_id = ? " +
+                     "WHERE bed_id = (SELECT bed_id FROM beds " +
+                     "                WHERE status = 'Available' AND bed_type_id = ? " +
+                     "                ORDER BY bed_id LIMIT 1 " +
+                     "                FOR UPDATE SKIP LOCKED) " +
+                     "RETURNING bed_id";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, patientId);
+            pstmt.setInt(2, bedTypeId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    int bedId = rs.getInt("bed_id");
+                    DatabaseEvents.publish(conn, BedAvailabilityIndex.CHANNEL, BedAvailabilityIndex.OCCUPIED + ":" + bedId);
+                    return bedId;
                 }
             }
+        }
+        return -1;
+    }
 
-            if (bedId != -1) {
-                try (PreparedStatement assignStmt = conn.prepareStatement(assignBedSql)) {
-                    assignStmt.setInt(1, patientId);
-                    assignStmt.setInt(2, bedId);
-                    assignStmt.executeUpdate();
-                    return true;
+    /**
+     * Frees whatever bed the patient holds, in the caller's transaction, and returns the freed bed ids.
+     */
+    private List<Integer> releaseBeds(Connection conn, int patientId) throws SQLException {
+        List<Integer> freed = new ArrayList<>();
+        String sql = "UPDATE beds SET status = 'Available', patient_id = NULL WHERE patient_id = ? RETURNING bed_id";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, patientId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    freed.add(rs.getInt("bed_id"));
                 }
             }
         }
-        return false;
+        for (int bedId : freed) {
+            DatabaseEvents.publish(conn, BedAvailabilityIndex.CHANNEL, BedAvailabilityIndex.AVAILABLE + ":" + bedId);
+        }
+        return freed;
+    }
+
+    /**
+     * Occupancy counts served from memory. Loaded on first call, then kept in sync by writes and notifications.
+     */
+    public BedAvailabilityIndex getBedAvailability() throws SQLException {
+        return BedAvailabilityIndex.get();
     }
 
+    /**
+     * Served from ReferenceDataCache; the database is only queried after a change.
+     */
     public List<ConfigBedType> getAllBedTypes() throws SQLException {
-        List<ConfigBedType> bedTypes = new ArrayList<>();
-        String sql = "SELECT * FROM config_bed_types ORDER BY price_per_day";
-        try (Connection conn = DatabaseConnection.getConnection();
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                ConfigBedType bed = new ConfigBedType();
-                bed.setBedTypeId(rs.getInt("bed_type_id"));
-                bed.setBedTypeName(rs.getString("bed_type_name"));
-                bed.setPricePerDay(rs.getDouble("price_per_day"));
-                bedTypes.add(bed);
-            }
-        }
-        return bedTypes;
+        return ReferenceDataCache.bedTypes.get(this::loadAllBedTypes);
+    }
+
+    private static final String ALL_BED_TYPES_SQL = "SELECT bed_type_id, bed_type_name, price_per_day FROM config_bed_types ORDER BY price_per_day";
+
+    private List<ConfigBedType> loadAllBedTypes() throws SQLException {
+        return queryList(ALL_BED_TYPES_SQL, byLabel(this::mapBedType));
+    }
+
+    private ConfigBedType mapBedType(ResultSet rs) throws SQLException {
+        ConfigBedType bed = new ConfigBedType();
+        bed.setBedTypeId(rs.getInt("bed_type_id"));
+        bed.setBedTypeName(rs.getString("bed_type_name"));
+        bed.setPricePerDay(rs.getDouble("price_per_day"));
+        return bed;
     }
 
     public Bed getBedByPatientId(int patientId) throws SQLException {
-        String sql = "SELECT b.*, cbt.bed_type_name, cbt.price_per_day " +
+        String sql = "SELECT " + BED_COLUMNS + ", cbt.bed_type_name, cbt.price_per_day " +
                      "FROM beds b " +
                      "JOIN config_bed_types cbt ON b.bed_type_id = cbt.bed_type_id " +
                      "WHERE b.patient_id = ?";
@@ -530,22 +746,22 @@ public class DataAccess {
             conn = DatabaseConnection.getConnection();
             conn.setAutoCommit(false);
 
-            String billSql = "INSERT INTO billing (patient_id, bed_charge, service_charge, doctor_fee, total, bill_date) VALUES (?, ?, ?, ?, ?, ?)";
+            // The bill keeps its own copy of the name; the patient row is archived later
+            String billSql = "INSERT INTO billing (patient_id, patient_name, bed_charge, service_charge, doctor_fee, total, bill_date) " +
+                             "SELECT patient_id, name, ?, ?, ?, ?, ? FROM patients WHERE patient_id = ?";
             try (PreparedStatement pstmtBill = conn.prepareStatement(billSql)) {
-                pstmtBill.setInt(1, bill.getPatientId());
-                pstmtBill.setDouble(2, bill.getBedCharge());
-                pstmtBill.setDouble(3, bill.getServiceCharge());
-                pstmtBill.setDouble(4, bill.getDoctorFee());
-                pstmtBill.setDouble(5, bill.getTotal());
-                pstmtBill.setDate(6, new java.sql.Date(bill.getBillDate().getTime()));
-                pstmtBill.executeUpdate();
+                pstmtBill.setDouble(1, bill.getBedCharge());
+                pstmtBill.setDouble(2, bill.getServiceCharge());
+                pstmtBill.setDouble(3, bill.getDoctorFee());
+                pstmtBill.setDouble(4, bill.getTotal());
+                pstmtBill.setDate(5, new java.sql.Date(bill.getBillDate().getTime()));
+                pstmtBill.setInt(6, bill.getPatientId());
+                if (pstmtBill.executeUpdate() == 0) {
+                    throw new SQLException("Patient " + bill.getPatientId() + " not found");
+                }
             }
 
-            String bedSql = "UPDATE beds SET status = 'Available', patient_id = NULL WHERE patient_id = ?";
-            try (PreparedStatement pstmtBed = conn.prepareStatement(bedSql)) {
-                pstmtBed.setInt(1, patientId);
-                pstmtBed.executeUpdate();
-            }
+            List<Integer> freedBeds = releaseBeds(conn, patientId);
 
             String patientSql = "UPDATE patients SET discharged_date = ? WHERE patient_id = ?";
             try (PreparedStatement pstmtPatient = conn.prepareStatement(patientSql)) {
@@ -555,6 +771,7 @@ public class DataAccess {
             }
 
             conn.commit();
+            freedBeds.forEach(bedId -> BedAvailabilityIndex.bedChanged(bedId, true));
             return true;
 
         } catch (SQLException e) {
@@ -570,6 +787,7 @@ public class DataAccess {
             if (conn != null) {
                 try {
                     conn.setAutoCommit(true);
+                    conn.close(); // Returns the connection to the pool
                 } catch (SQLException e) {
                     e.printStackTrace();
                 }
@@ -577,104 +795,510 @@ public class DataAccess {
         }
     }
     
+    // billing carries patient_name itself, so history reads touch only billing's partitions
+    private static final String BILL_COLUMNS =
+            "b.bill_id, b.patient_id, b.patient_name, b.bed_charge, b.service_charge, b.doctor_fee, b.total, b.bill_date";
+    private static final String BILLING_HISTORY_SELECT = "SELECT " + BILL_COLUMNS + " FROM billing b ";
+    private static final String BILLING_HISTORY_ORDER = "ORDER BY b.bill_date DESC, b.bill_id DESC";
+    private static final String BILLING_HISTORY_SQL = BILLING_HISTORY_SELECT + BILLING_HISTORY_ORDER;
+
+    // Rows per network round trip when streaming billing history
+    public static final int BILLING_FETCH_SIZE = 500;
+
+    /**
+     * Receives rows from a streamed read. Return false to stop reading early.
+     */
+    public interface RowConsumer<T> {
+        boolean accept(T row);
+    }
+
+    /**
+     * Loads the entire billing history into memory. Prefer
+     * {@link #streamBillingHistory} or {@link #getBillingHistoryPage} for screens.
+     */
     public List<Bill> getBillingHistory() throws SQLException {
-        List<Bill> billingHistory = new ArrayList<>();
-        String sql = "SELECT b.*, p.name as patient_name FROM billing b " +
-                "JOIN patients p ON b.patient_id = p.patient_id " +
-                "ORDER BY b.bill_date DESC, b.bill_id DESC";
+        return queryList(BILLING_HISTORY_SQL, DataAccess::billMapper);
+    }
 
-        try (Connection conn = DatabaseConnection.getConnection();
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery(sql)) {
+    /**
+     * Reads the billing history newest first through a server-side cursor,
+     * BILLING_FETCH_SIZE rows per round trip, handing each bill to the consumer
+     * as it arrives. Only one fetch of rows is held in memory at a time.
+     *
+     * @param after continue after this bill (exclusive), or null to start from the newest
+     */
+    public void streamBillingHistory(Bill after, RowConsumer<Bill> consumer) throws SQLException {
+        String sql = BILLING_HISTORY_SELECT +
+                     // The plain bill_date bound lets the planner skip the newer partitions; the row comparison alone does not
+                     (after != null ? "WHERE b.bill_date <= ? AND (b.bill_date, b.bill_id) < (?, ?) " : "") +
+                     BILLING_HISTORY_ORDER;
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false); // pgjdbc only uses a cursor for setFetchSize inside a transaction
+
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setFetchSize(BILLING_FETCH_SIZE);
+                if (after != null) {
+                    java.sql.Date afterDate = new java.sql.Date(after.getBillDate().getTime());
+                    pstmt.setDate(1, afterDate);
+                    pstmt.setDate(2, afterDate);
+                    pstmt.setInt(3, after.getBillId());
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    RowMapper<Bill> mapper = billMapper(rs);
+                    while (rs.next()) {
+                        if (!consumer.accept(mapper.map(rs))) {
+                            break;
+                        }
+                    }
+                }
+            }
+            conn.commit();
 
-            while (rs.next()) {
-                Bill bill = new Bill();
-                bill.setBillId(rs.getInt("bill_id"));
-                bill.setPatientId(rs.getInt("patient_id"));
-                bill.setPatientName(rs.getString("patient_name"));
-                bill.setBedCharge(rs.getDouble("bed_charge"));
-                bill.setServiceCharge(rs.getDouble("service_charge"));
-                bill.setDoctorFee(rs.getDouble("doctor_fee"));
-                bill.setTotal(rs.getDouble("total"));
-                bill.setBillDate(rs.getDate("bill_date"));
-                billingHistory.add(bill);
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close(); // Returns the connection to the pool
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
             }
         }
-        return billingHistory;
     }
 
-
-    // ========== DASHBOARD METHODS ==========
-
-    public Map<String, Long> getDashboardStats() throws SQLException {
-        Map<String, Long> stats = new HashMap<>();
-        String sql = "SELECT " +
-                     "  (SELECT COUNT(*) FROM patients WHERE discharged_date IS NULL) AS active_patients, " +
-                     "  (SELECT COUNT(*) FROM beds WHERE status = 'Available') AS available_beds, " +
-                     "  (SELECT COALESCE(SUM(total), 0) FROM billing) AS total_revenue, " +
-                     "  (SELECT COUNT(*) FROM doctors) AS total_doctors";
-        
+    /**
+     * Up to limit bills newest first, starting at the given bill (inclusive).
+     * Used to re-read a page of history that has been dropped from memory.
+     */
+    public List<Bill> getBillingHistoryPage(Bill from, int limit) throws SQLException {
+        List<Bill> bills = new ArrayList<>();
+        String sql = BILLING_HISTORY_SELECT +
+                     "WHERE b.bill_date <= ? AND (b.bill_date, b.bill_id) <= (?, ?) " +
+                     BILLING_HISTORY_ORDER + " LIMIT ?";
         try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            if (rs.next()) {
-                stats.put("active_patients", rs.getLong("active_patients"));
-                stats.put("available_beds", rs.getLong("available_beds"));
-                stats.put("total_revenue", rs.getLong("total_revenue"));
-                stats.put("total_doctors", rs.getLong("total_doctors"));
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            java.sql.Date fromDate = new java.sql.Date(from.getBillDate().getTime());
+            pstmt.setDate(1, fromDate);
+            pstmt.setDate(2, fromDate);
+            pstmt.setInt(3, from.getBillId());
+            pstmt.setInt(4, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper<Bill> mapper = billMapper(rs);
+                while (rs.next()) {
+                    bills.add(mapper.map(rs));
+                }
             }
         }
-        return stats;
+        return bills;
     }
-    
-    
-    // ========== CONFIGURATION PANEL METHODS ==========
 
-    public boolean addBedType(ConfigBedType bedType) throws SQLException {
-        String sql = "INSERT INTO config_bed_types (bed_type_name, price_per_day) VALUES (?, ?)";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, bedType.getBedTypeName());
-            pstmt.setDouble(2, bedType.getPricePerDay());
-            return pstmt.executeUpdate() > 0;
-        }
+    private static RowMapper<Bill> billMapper(ResultSet rs) throws SQLException {
+        int billId = rs.findColumn("bill_id");
+        int patientId = rs.findColumn("patient_id");
+        int patientName = rs.findColumn("patient_name");
+        int bedCharge = rs.findColumn("bed_charge");
+        int serviceCharge = rs.findColumn("service_charge");
+        int doctorFee = rs.findColumn("doctor_fee");
+        int total = rs.findColumn("total");
+        int billDate = rs.findColumn("bill_date");
+        return row -> {
+            Bill bill = new Bill();
+            bill.setBillId(row.getInt(billId));
+            bill.setPatientId(row.getInt(patientId));
+            bill.setPatientName(row.getString(patientName));
+            bill.setBedCharge(row.getDouble(bedCharge));
+            bill.setServiceCharge(row.getDouble(serviceCharge));
+            bill.setDoctorFee(row.getDouble(doctorFee));
+            bill.setTotal(row.getDouble(total));
+            bill.setBillDate(row.getDate(billDate));
+            return bill;
+        };
     }
-    
-    public boolean updateBedType(ConfigBedType bedType) throws SQLException {
-        String sql = "UPDATE config_bed_types SET bed_type_name = ?, price_per_day = ? WHERE bed_type_id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, bedType.getBedTypeName());
-            pstmt.setDouble(2, bedType.getPricePerDay());
-            pstmt.setInt(3, bedType.getBedTypeId());
-            return pstmt.executeUpdate() > 0;
-        }
+
+
+    // ========== INVOICE EXPORT METHODS ==========
+
+    /**
+     * Receives one bill with the patient details printed on its invoice.
+     * Return false to stop reading early.
+     */
+    public interface InvoiceConsumer {
+        boolean accept(Bill bill, Patient patient);
     }
 
-    public boolean deleteBedType(int bedTypeId) throws SQLException {
-        String sql = "DELETE FROM config_bed_types WHERE bed_type_id = ?";
+    // The patient may have been archived since the bill was made; fall back to patients_archive
+    private static final String INVOICE_SELECT =
+            "SELECT " + BILL_COLUMNS + ", p.admitted_date, p.other_illness_text, ci.illness_name " +
+            "FROM billing b " +
+            "LEFT JOIN LATERAL (" +
+            "    SELECT admitted_date, illness_id, other_illness_text FROM patients WHERE patient_id = b.patient_id " +
+            "    UNION ALL " +
+            "    SELECT admitted_date, illness_id, other_illness_text FROM patients_archive WHERE patient_id = b.patient_id " +
+            "    LIMIT 1) p ON true " +
+            "LEFT JOIN config_illnesses ci ON ci.illness_id = p.illness_id ";
+
+    /**
+     * Number of bills in the range, for progress reporting.
+     */
+    public int countBills(BillRange range) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM billing b" + billRangeWhere(range, params);
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, bedTypeId);
-            return pstmt.executeUpdate() > 0;
+            setParams(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
         }
     }
-    
-    public List<ConfigIllness> getAllIllnesses() throws SQLException {
-        List<ConfigIllness> illnesses = new ArrayList<>();
-        String sql = "SELECT * FROM config_illnesses ORDER BY illness_name";
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                ConfigIllness illness = new ConfigIllness();
-                illness.setIllnessId(rs.getInt("illness_id"));
-                illness.setIllnessName(rs.getString("illness_name"));
-                illnesses.add(illness);
+
+    /**
+     * Reads the bills in the range oldest first through a server-side cursor,
+     * with what the invoice needs of each patient. Like
+     * {@link #streamBillingHistory}, only one fetch of rows is in memory at a
+     * time, and a slow consumer simply holds the cursor open.
+     */
+    public void streamInvoices(BillRange range, InvoiceConsumer consumer) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String sql = INVOICE_SELECT + billRangeWhere(range, params) + " ORDER BY b.bill_date, b.bill_id";
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false); // pgjdbc only uses a cursor for setFetchSize inside a transaction
+
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setFetchSize(BILLING_FETCH_SIZE);
+                setParams(pstmt, params);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    RowMapper<Bill> mapper = billMapper(rs);
+                    int admittedDate = rs.findColumn("admitted_date");
+                    int otherIllnessText = rs.findColumn("other_illness_text");
+                    int illnessName = rs.findColumn("illness_name");
+                    while (rs.next()) {
+                        Bill bill = mapper.map(rs);
+                        Patient patient = new Patient();
+                        patient.setPatientId(bill.getPatientId());
+                        patient.setName(bill.getPatientName());
+                        patient.setAdmittedDate(rs.getDate(admittedDate));
+                        patient.setOtherIllnessText(rs.getString(otherIllnessText));
+                        patient.setIllnessName(rs.getString(illnessName));
+                        if (!consumer.accept(bill, patient)) {
+                            break;
+                        }
+                    }
+                }
+            }
+            conn.commit();
+
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close(); // Returns the connection to the pool
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
             }
         }
-        return illnesses;
+    }
+
+    /**
+     * The WHERE clause for a bill range, adding its parameters in order.
+     */
+    private static String billRangeWhere(BillRange range, List<Object> params) {
+        List<String> conditions = new ArrayList<>();
+        if (range.getFromBillId() != null) {
+            conditions.add("b.bill_id >= ?");
+            params.add(range.getFromBillId());
+        }
+        if (range.getToBillId() != null) {
+            conditions.add("b.bill_id <= ?");
+            params.add(range.getToBillId());
+        }
+        // Plain bill_date bounds, so only the partitions for those years are read
+        if (range.getFromDate() != null) {
+            conditions.add("b.bill_date >= ?");
+            params.add(new java.sql.Date(range.getFromDate().getTime()));
+        }
+        if (range.getToDate() != null) {
+            conditions.add("b.bill_date <= ?");
+            params.add(new java.sql.Date(range.getToDate().getTime()));
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private static void setParams(PreparedStatement pstmt, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            pstmt.setObject(i + 1, params.get(i));
+        }
+    }
+
+
+    // ========== PARTITION & ARCHIVE METHODS ==========
+
+    /**
+     * Creates this year's and next year's billing partitions if they are missing.
+     * Returns how many were created.
+     */
+    public int ensureBillingPartitions() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT ensure_billing_partitions()");
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Moves up to batchSize patients discharged more than keepDays ago, with their
+     * appointments, to the archive tables. Returns how many were moved; call again
+     * until it returns less than batchSize.
+     */
+    public int archiveDischargedPatients(int keepDays, int batchSize) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT archive_discharged_patients(?, ?)")) {
+            pstmt.setInt(1, keepDays);
+            pstmt.setInt(2, batchSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+
+    // ========== DASHBOARD METHODS ==========
+
+    /**
+     * Channel on which dashboard counter changes are announced. The payload is
+     * the counter name only; listeners re-read {@link #getDashboardStats()}.
+     * Sent by the counter triggers and by {@link #reconcileDashboardCounters()}.
+     */
+    public static final String DASHBOARD_CHANNEL = "hms_dashboard";
+
+    /**
+     * Reads the trigger-maintained counters: four rows plus the deltas not yet
+     * compacted, however large patients, beds and billing grow.
+     *
+     * @return counter name -> value; total_revenue is a BigDecimal with its paise,
+     *         the counts are Longs
+     */
+    public Map<String, Number> getDashboardStats() throws SQLException {
+        Map<String, Number> stats = new HashMap<>();
+        String sql = "SELECT counter_name, value FROM dashboard_counter_totals";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            
+            while (rs.next()) {
+                String name = rs.getString("counter_name");
+                BigDecimal value = rs.getBigDecimal("value");
+                stats.put(name, "total_revenue".equals(name) ? value : value.longValue());
+            }
+        }
+        return stats;
+    }
+
+    private static final String DASHBOARD_COUNTERS_ACTUAL_SQL =
+            "SELECT 'active_patients', COUNT(*)::numeric FROM patients WHERE discharged_date IS NULL " +
+            "UNION ALL SELECT 'available_beds', COUNT(*) FROM beds WHERE status = 'Available' " +
+            "UNION ALL SELECT 'total_revenue', COALESCE(SUM(total), 0) FROM billing " +
+            "UNION ALL SELECT 'total_doctors', COUNT(*) FROM doctors";
+
+    // Actual value, stored total and pending deltas per counter, all from one snapshot
+    private static final String DASHBOARD_COUNTERS_CHECK_SQL =
+            "SELECT a.counter_name, a.actual, COALESCE(t.value, 0), COALESCE(p.pending, 0) " +
+            "FROM (" + DASHBOARD_COUNTERS_ACTUAL_SQL + ") a (counter_name, actual) " +
+            "LEFT JOIN dashboard_counter_totals t USING (counter_name) " +
+            "LEFT JOIN (SELECT counter_name, SUM(delta) AS pending FROM dashboard_counter_deltas " +
+            "           GROUP BY counter_name) p USING (counter_name)";
+
+    // Key for pg_try_advisory_xact_lock so only one workstation reconciles at a time
+    private static final long RECONCILE_LOCK_KEY = 0x484d5301L;
+
+    /**
+     * Compares the dashboard counters with full scans of the underlying tables
+     * and corrects any counter that has drifted (e.g. after a bulk load with
+     * triggers disabled, or a TRUNCATE).
+     *
+     * The counter rows are locked first so compaction cannot move deltas
+     * meanwhile. The scans and the pending deltas are read in one statement,
+     * and a drifted counter row is set to the scanned value minus its pending
+     * deltas. Writers committing later only add deltas, which stay valid.
+     *
+     * @return counter name -> (actual - stored) for every corrected counter;
+     *         empty if all matched or another workstation is already reconciling
+     */
+    public Map<String, BigDecimal> reconcileDashboardCounters() throws SQLException {
+        Map<String, BigDecimal> corrections = new TreeMap<>();
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT pg_try_advisory_xact_lock(?)")) {
+                pstmt.setLong(1, RECONCILE_LOCK_KEY);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next() || !rs.getBoolean(1)) {
+                        conn.rollback();
+                        return corrections;
+                    }
+                }
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT 1 FROM dashboard_counters FOR UPDATE")) {
+                pstmt.execute(); // Locking only; the values are read with the scans below
+            }
+
+            Map<String, BigDecimal> rowValues = new HashMap<>(); // What each drifted counter row must hold
+            try (PreparedStatement pstmt = conn.prepareStatement(DASHBOARD_COUNTERS_CHECK_SQL);
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    BigDecimal actual = rs.getBigDecimal(2);
+                    BigDecimal stored = rs.getBigDecimal(3);
+                    if (actual.compareTo(stored) != 0) {
+                        corrections.put(rs.getString(1), actual.subtract(stored));
+                        rowValues.put(rs.getString(1), actual.subtract(rs.getBigDecimal(4)));
+                    }
+                }
+            }
+
+            String upsertSql = "INSERT INTO dashboard_counters (counter_name, value) VALUES (?, ?) " +
+                               "ON CONFLICT (counter_name) DO UPDATE SET value = EXCLUDED.value";
+            try (PreparedStatement pstmt = conn.prepareStatement(upsertSql)) {
+                for (Map.Entry<String, BigDecimal> entry : rowValues.entrySet()) {
+                    pstmt.setString(1, entry.getKey());
+                    pstmt.setBigDecimal(2, entry.getValue());
+                    pstmt.addBatch();
+                }
+                if (!rowValues.isEmpty()) {
+                    pstmt.executeBatch();
+                }
+            }
+            for (String counter : corrections.keySet()) {
+                DatabaseEvents.publish(conn, DASHBOARD_CHANNEL, counter);
+            }
+
+            conn.commit();
+            return corrections;
+
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close(); // Returns the connection to the pool
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Folds the committed counter deltas into dashboard_counters, keeping the
+     * delta table small so reading the totals stays cheap.
+     *
+     * @return the number of deltas folded; 0 if another workstation is compacting
+     */
+    public long compactDashboardCounters() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT compact_dashboard_counters()");
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }    
+    
+    // ========== CONFIGURATION PANEL METHODS ==========
+
+    public boolean addBedType(ConfigBedType bedType) throws SQLException {
+        String sql = "INSERT INTO config_bed_types (bed_type_name, price_per_day) VALUES (?, ?)";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, bedType.getBedTypeName());
+            pstmt.setDouble(2, bedType.getPricePerDay());
+            boolean changed = pstmt.executeUpdate() > 0;
+            if (changed) {
+                referenceDataChanged(conn, ReferenceDataCache.BED_TYPES);
+            }
+            return changed;
+        }
+    }
+    
+    public boolean updateBedType(ConfigBedType bedType) throws SQLException {
+        String sql = "UPDATE config_bed_types SET bed_type_name = ?, price_per_day = ? WHERE bed_type_id = ?";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, bedType.getBedTypeName());
+            pstmt.setDouble(2, bedType.getPricePerDay());
+            pstmt.setInt(3, bedType.getBedTypeId());
+            boolean changed = pstmt.executeUpdate() > 0;
+            if (changed) {
+                referenceDataChanged(conn, ReferenceDataCache.BED_TYPES);
+            }
+            return changed;
+        }
+    }
+
+    public boolean deleteBedType(int bedTypeId) throws SQLException {
+        String sql = "DELETE FROM config_bed_types WHERE bed_type_id = ?";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, bedTypeId);
+            boolean changed = pstmt.executeUpdate() > 0;
+            if (changed) {
+                referenceDataChanged(conn, ReferenceDataCache.BED_TYPES);
+            }
+            return changed;
+        }
+    }
+    
+    /**
+     * Served from ReferenceDataCache; the database is only queried after a change.
+     */
+    public List<ConfigIllness> getAllIllnesses() throws SQLException {
+        return ReferenceDataCache.illnesses.get(this::loadAllIllnesses);
+    }
+
+    private static final String ALL_ILLNESSES_SQL = "SELECT illness_id, illness_name FROM config_illnesses ORDER BY illness_name";
+
+    private List<ConfigIllness> loadAllIllnesses() throws SQLException {
+        return queryList(ALL_ILLNESSES_SQL, byLabel(this::mapIllness));
+    }
+
+    private ConfigIllness mapIllness(ResultSet rs) throws SQLException {
+        ConfigIllness illness = new ConfigIllness();
+        illness.setIllnessId(rs.getInt("illness_id"));
+        illness.setIllnessName(rs.getString("illness_name"));
+        return illness;
     }
     
     public boolean addIllness(ConfigIllness illness) throws SQLException {
@@ -682,7 +1306,11 @@ public class DataAccess {
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, illness.getIllnessName());
-            return pstmt.executeUpdate() > 0;
+            boolean changed = pstmt.executeUpdate() > 0;
+            if (changed) {
+                referenceDataChanged(conn, ReferenceDataCache.ILLNESSES);
+            }
+            return changed;
         }
     }
     
@@ -692,7 +1320,11 @@ public class DataAccess {
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, illness.getIllnessName());
             pstmt.setInt(2, illness.getIllnessId());
-            return pstmt.executeUpdate() > 0;
+            boolean changed = pstmt.executeUpdate() > 0;
+            if (changed) {
+                referenceDataChanged(conn, ReferenceDataCache.ILLNESSES);
+            }
+            return changed;
         }
     }
     
@@ -701,14 +1333,274 @@ public class DataAccess {
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, illnessId);
-            return pstmt.executeUpdate() > 0;
+            boolean changed = pstmt.executeUpdate() > 0;
+            if (changed) {
+                referenceDataChanged(conn, ReferenceDataCache.ILLNESSES);
+            }
+            return changed;
         }
     }
     
+    /**
+     * Drops the cached list here and tells the other workstations to do the same.
+     */
+    private void referenceDataChanged(Connection conn, String cacheName) {
+        ReferenceDataCache.invalidate(cacheName);
+        try {
+            DatabaseEvents.publish(conn, ReferenceDataCache.CHANNEL, cacheName);
+        } catch (SQLException e) {
+            // The write itself has succeeded; other workstations will catch up on their next reconnect
+            e.printStackTrace();
+        }
+    }
+
+    // ========== SEARCH METHODS ==========
+
+    /**
+     * Admitted patients whose name or illness matches the search text, best
+     * match first. Substring matches and close misspellings (trigram word
+     * similarity) both count; the pg_trgm GIN indexes from setup.sql keep this
+     * an index lookup rather than a table scan.
+     *
+     * @param doctorId only this doctor's patients, or 0 for all
+     * @param limit    maximum number of results
+     */
+    public List<Patient> searchPatients(String text, int doctorId, int limit) throws SQLException {
+        List<Patient> patients = new ArrayList<>();
+        String term = text == null ? "" : text.trim();
+        if (term.isEmpty()) {
+            return patients;
+        }
+        String sql = "SELECT p.patient_id, p.name, p.age, p.disease_severity, b.bed_id, " +
+                     "ci.illness_name, p.other_illness_text " +
+                     "FROM patients p " +
+                     "LEFT JOIN beds b ON p.patient_id = b.patient_id " +
+                     "LEFT JOIN config_illnesses ci ON p.illness_id = ci.illness_id " +
+                     "WHERE p.discharged_date IS NULL " +
+                     (doctorId > 0 ? "AND p.doctor_id = ? " : "") +
+                     "AND (p.name ILIKE ? OR ? <% p.name " +
+                     "     OR p.other_illness_text ILIKE ? " +
+                     "     OR p.illness_id IN (SELECT illness_id FROM config_illnesses WHERE illness_name ILIKE ?)) " +
+                     "ORDER BY GREATEST(word_similarity(?, p.name), " +
+                     "                  word_similarity(?, COALESCE(p.other_illness_text, ci.illness_name, ''))) DESC, " +
+                     "         p.name, p.patient_id " +
+                     "LIMIT ?";
+        String pattern = "%" + escapeLike(term) + "%";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            if (doctorId > 0) {
+                pstmt.setInt(i++, doctorId);
+            }
+            pstmt.setString(i++, pattern);
+            pstmt.setString(i++, term);
+            pstmt.setString(i++, pattern);
+            pstmt.setString(i++, pattern);
+            pstmt.setString(i++, term);
+            pstmt.setString(i++, term);
+            pstmt.setInt(i, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper<Patient> mapper = patientSummaryMapper(rs);
+                while (rs.next()) {
+                    patients.add(mapper.map(rs));
+                }
+            }
+        }
+        return patients;
+    }
+
+    /**
+     * Bills whose patient name matches the search text, best match first and
+     * newest first among equal matches. Matches the name stored on the bill,
+     * through its own trigram index, so archived patients' bills are found too.
+     */
+    public List<Bill> searchBills(String text, int limit) throws SQLException {
+        List<Bill> bills = new ArrayList<>();
+        String term = text == null ? "" : text.trim();
+        if (term.isEmpty()) {
+            return bills;
+        }
+        String sql = BILLING_HISTORY_SELECT +
+                     "WHERE b.patient_name ILIKE ? OR ? <% b.patient_name " +
+                     "ORDER BY word_similarity(?, b.patient_name) DESC, b.bill_date DESC, b.bill_id DESC " +
+                     "LIMIT ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, "%" + escapeLike(term) + "%");
+            pstmt.setString(2, term);
+            pstmt.setString(3, term);
+            pstmt.setInt(4, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper<Bill> mapper = billMapper(rs);
+                while (rs.next()) {
+                    bills.add(mapper.map(rs));
+                }
+            }
+        }
+        return bills;
+    }
+
+    // ========== PANEL SNAPSHOT METHODS ==========
+
+    /**
+     * Everything PatientPanel shows (doctors, bed types, illnesses, the first
+     * page of admitted patients and their total count) in one round trip.
+     * Reference lists still held by ReferenceDataCache are served from it and
+     * left out of the batch.
+     */
+    public PanelSnapshot getPatientPanelSnapshot(int firstPageSize) throws SQLException {
+        QueryBatch batch = new QueryBatch();
+        PanelSnapshot snapshot = new PanelSnapshot();
+        snapshot.setDoctors(addReferenceQuery(batch, ReferenceDataCache.doctors, ALL_DOCTORS_SQL, byLabel(this::mapDoctor)));
+        snapshot.setBedTypes(addReferenceQuery(batch, ReferenceDataCache.bedTypes, ALL_BED_TYPES_SQL, byLabel(this::mapBedType)));
+        snapshot.setIllnesses(addReferenceQuery(batch, ReferenceDataCache.illnesses, ALL_ILLNESSES_SQL, byLabel(this::mapIllness)));
+        // Same rows as getPatientsPage(PatientSort.ID, false, null, null, firstPageSize)
+        snapshot.setPatients(batch.add(ALL_PATIENTS_SQL + " LIMIT " + firstPageSize, DataAccess::patientRowMapper));
+        List<Integer> count = batch.add("SELECT COUNT(*) FROM patients WHERE discharged_date IS NULL",
+                byLabel(rs -> rs.getInt(1)));
+        batch.execute();
+        snapshot.setPatientCount(count.get(0));
+        return snapshot;
+    }
+
+    /**
+     * What BillingPanel shows first (admitted patients and the newest bills) in
+     * one round trip. The rest of the history is streamed afterwards.
+     */
+    public PanelSnapshot getBillingPanelSnapshot(int firstPageSize) throws SQLException {
+        QueryBatch batch = new QueryBatch();
+        PanelSnapshot snapshot = new PanelSnapshot();
+        snapshot.setPatients(batch.add(ADMITTED_PATIENTS_SQL, DataAccess::admittedPatientMapper));
+        snapshot.setBills(batch.add(BILLING_HISTORY_SQL + " LIMIT " + firstPageSize, DataAccess::billMapper));
+        batch.execute();
+        return snapshot;
+    }
+
+    private <T> List<T> addReferenceQuery(QueryBatch batch, ReferenceDataCache.Entry<T> entry,
+                                          String sql, MapperFactory<T> factory) {
+        List<T> cached = entry.peek();
+        if (cached != null) {
+            return cached;
+        }
+        long generation = entry.generation();
+        List<T> rows = batch.add(sql, factory);
+        batch.afterExecute(() -> entry.offer(rows, generation));
+        return rows;
+    }
+
+    // ========== ROW MAPPING ==========
+
+    private interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Makes the RowMapper for one result set. The mappers of the long lists
+     * look up their column ordinals here, once, and then read every row by
+     * index instead of searching the column labels for every value.
+     */
+    private interface MapperFactory<T> {
+        RowMapper<T> forResultSet(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * For short results (reference tables, counts), where reading by label costs nothing worth saving.
+     */
+    private static <T> MapperFactory<T> byLabel(RowMapper<T> mapper) {
+        return rs -> mapper;
+    }
+
+    private <T> List<T> queryList(String sql, MapperFactory<T> factory) throws SQLException {
+        List<T> rows = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            RowMapper<T> mapper = factory.forResultSet(rs);
+            while (rs.next()) {
+                rows.add(mapper.map(rs));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Several parameterless SELECTs sent as one multi-statement string, so the
+     * server answers them all in a single round trip with one result set each.
+     * Only constant SQL may be added; there are no bind parameters.
+     */
+    private static class QueryBatch {
+        private final List<Part<?>> parts = new ArrayList<>();
+        private final List<Runnable> afterExecute = new ArrayList<>();
+
+        private static class Part<T> {
+            final String sql;
+            final MapperFactory<T> factory;
+            final List<T> rows = new ArrayList<>();
+
+            Part(String sql, MapperFactory<T> factory) {
+                this.sql = sql;
+                this.factory = factory;
+            }
+
+            void read(ResultSet rs) throws SQLException {
+                RowMapper<T> mapper = factory.forResultSet(rs);
+                while (rs.next()) {
+                    rows.add(mapper.map(rs));
+                }
+            }
+        }
+
+        /**
+         * Queues a query; the returned list is filled in by {@link #execute()}.
+         */
+        <T> List<T> add(String sql, MapperFactory<T> factory) {
+            Part<T> part = new Part<>(sql, factory);
+            parts.add(part);
+            return part.rows;
+        }
+
+        void afterExecute(Runnable action) {
+            afterExecute.add(action);
+        }
+
+        void execute() throws SQLException {
+            if (parts.isEmpty()) {
+                return;
+            }
+            StringBuilder sql = new StringBuilder();
+            for (Part<?> part : parts) {
+                sql.append(part.sql).append(";\n");
+            }
+
+            try (Connection conn = DatabaseConnection.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                boolean isResultSet = stmt.execute(sql.toString());
+                for (Part<?> part : parts) {
+                    if (!isResultSet) {
+                        throw new SQLException("Batched query returned fewer result sets than queries");
+                    }
+                    try (ResultSet rs = stmt.getResultSet()) {
+                        part.read(rs);
+                    }
+                    isResultSet = stmt.getMoreResults();
+                }
+            }
+            afterExecute.forEach(Runnable::run);
+        }
+    }
+
     // ========== APPOINTMENT METHODS ==========
 
+    // The partial unique index that makes a doctor's slot bookable only once (see V3 migration)
+    private static final String APPOINTMENT_SLOT_CONFLICT =
+            "ON CONFLICT (doctor_id, appointment_date, appointment_minute) WHERE status = 'Scheduled' DO NOTHING";
+    private static final String UNIQUE_VIOLATION = "23505";
+
     public Appointment getAppointmentById(int appointmentId) throws SQLException {
-        String sql = "SELECT * FROM appointments WHERE appointment_id = ?";
+        String sql = "SELECT appointment_id, patient_id, doctor_id, appointment_date, appointment_minute, status " +
+                     "FROM appointments WHERE appointment_id = ?";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
@@ -720,7 +1612,7 @@ public class DataAccess {
                     appt.setPatientId(rs.getInt("patient_id"));
                     appt.setDoctorId(rs.getInt("doctor_id"));
                     appt.setAppointmentDate(rs.getDate("appointment_date"));
-                    appt.setAppointmentTime(rs.getString("appointment_time"));
+                    appt.setAppointmentMinute(rs.getInt("appointment_minute"));
                     appt.setStatus(rs.getString("status"));
                     return appt;
                 }
@@ -731,12 +1623,12 @@ public class DataAccess {
     
     public List<Appointment> getScheduledAppointments(Date date) throws SQLException {
         List<Appointment> appointments = new ArrayList<>();
-        String sql = "SELECT a.*, p.name as patient_name, d.name as doctor_name " +
+        String sql = "SELECT a.appointment_id, a.appointment_minute, a.status, p.name as patient_name, d.name as doctor_name " +
                      "FROM appointments a " +
                      "JOIN patients p ON a.patient_id = p.patient_id " +
                      "JOIN doctors d ON a.doctor_id = d.doctor_id " +
                      "WHERE a.appointment_date = ? " +
-                     "ORDER BY a.appointment_time";
+                     "ORDER BY a.appointment_minute";
         
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -747,7 +1639,7 @@ public class DataAccess {
                 while (rs.next()) {
                     Appointment appt = new Appointment();
                     appt.setAppointmentId(rs.getInt("appointment_id"));
-                    appt.setAppointmentTime(rs.getString("appointment_time"));
+                    appt.setAppointmentMinute(rs.getInt("appointment_minute"));
                     appt.setPatientName(rs.getString("patient_name"));
                     appt.setDoctorName(rs.getString("doctor_name"));
                     appt.setStatus(rs.getString("status"));
@@ -758,92 +1650,162 @@ public class DataAccess {
         return appointments;
     }
 
-    public List<String> getBookedSlots(int doctorId, Date date) throws SQLException {
-        List<String> slots = new ArrayList<>();
-        String sql = "SELECT appointment_time FROM appointments " +
-                     "WHERE doctor_id = ? AND appointment_date = ? AND status = 'Scheduled'";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, doctorId);
-            pstmt.setDate(2, new java.sql.Date(date.getTime()));
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    slots.add(rs.getString("appointment_time"));
-                }
-            }
-        }
-        return slots;
+    /**
+     * The doctor's booked minutes of the day, in order. Served from
+     * AppointmentSlotCache; only the first call for a doctor-day queries the database.
+     */
+    public List<Integer> getBookedSlots(int doctorId, Date date) throws SQLException {
+        return AppointmentSlotCache.get().bookedMinutes(doctorId, new java.sql.Date(date.getTime()));
     }
-    
-    public int getAppointmentBySlot(int doctorId, Date date, String time) throws SQLException {
-        String sql = "SELECT appointment_id FROM appointments " +
-                     "WHERE doctor_id = ? AND appointment_date = ? AND appointment_time = ? AND status = 'Scheduled'";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, doctorId);
-            pstmt.setDate(2, new java.sql.Date(date.getTime()));
-            pstmt.setString(3, time);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt("appointment_id");
-                }
-            }
-        }
-        return -1; // No appointment found
+
+    /**
+     * Whether the doctor already has an appointment at this minute of the day,
+     * from the in-memory slot bitmap. A quick check for the UI only; booking
+     * itself is decided by {@link #addAppointment} / {@link #updateAppointment}.
+     */
+    public boolean isSlotBooked(int doctorId, Date date, int minuteOfDay) throws SQLException {
+        return AppointmentSlotCache.get().isBooked(doctorId, new java.sql.Date(date.getTime()), minuteOfDay);
     }
 
+    /**
+     * Books the appointment in one statement. Returns false, without booking,
+     * if the doctor's slot was already taken; the unique index decides, so two
+     * workstations cannot both get the same slot.
+     */
     public boolean addAppointment(Appointment appt) throws SQLException {
-        String sql = "INSERT INTO appointments (patient_id, doctor_id, appointment_date, appointment_time) VALUES (?, ?, ?, ?)";
+        String sql = "INSERT INTO appointments (patient_id, doctor_id, appointment_date, appointment_minute) VALUES (?, ?, ?, ?) " +
+                     APPOINTMENT_SLOT_CONFLICT + " RETURNING appointment_id";
+        java.sql.Date date = new java.sql.Date(appt.getAppointmentDate().getTime());
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, appt.getPatientId());
             pstmt.setInt(2, appt.getDoctorId());
-            pstmt.setDate(3, new java.sql.Date(appt.getAppointmentDate().getTime()));
-            pstmt.setString(4, appt.getAppointmentTime());
+            pstmt.setDate(3, date);
+            pstmt.setInt(4, appt.getAppointmentMinute());
             
-            return pstmt.executeUpdate() > 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return false; // Slot taken
+                }
+                appt.setAppointmentId(rs.getInt(1));
+            }
+            DatabaseEvents.publish(conn, AppointmentSlotCache.CHANNEL,
+                    AppointmentSlotCache.payload(appt.getDoctorId(), date, appt.getAppointmentMinute(), true));
         }
+        AppointmentSlotCache.slotChanged(appt.getDoctorId(), date, appt.getAppointmentMinute(), true);
+        return true;
     }
 
+    /**
+     * Moves an appointment to a new doctor, day or time (and reschedules it if it
+     * was cancelled). Returns false, leaving it unchanged, if the new slot is taken.
+     */
     public boolean updateAppointment(Appointment appt) throws SQLException {
-        String sql = "UPDATE appointments SET patient_id = ?, doctor_id = ?, appointment_date = ?, appointment_time = ?, status = 'Scheduled' WHERE appointment_id = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, appt.getPatientId());
-            pstmt.setInt(2, appt.getDoctorId());
-            pstmt.setDate(3, new java.sql.Date(appt.getAppointmentDate().getTime()));
-            pstmt.setString(4, appt.getAppointmentTime());
-            pstmt.setInt(5, appt.getAppointmentId());
-            
-            return pstmt.executeUpdate() > 0;
+        java.sql.Date date = new java.sql.Date(appt.getAppointmentDate().getTime());
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+
+            // The old slot, to free it in the caches
+            int oldDoctorId;
+            java.sql.Date oldDate;
+            int oldMinute;
+            boolean wasScheduled;
+            String oldSql = "SELECT doctor_id, appointment_date, appointment_minute, status FROM appointments " +
+                            "WHERE appointment_id = ? FOR UPDATE";
+            try (PreparedStatement pstmt = conn.prepareStatement(oldSql)) {
+                pstmt.setInt(1, appt.getAppointmentId());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("Appointment " + appt.getAppointmentId() + " no longer exists.");
+                    }
+                    oldDoctorId = rs.getInt("doctor_id");
+                    oldDate = rs.getDate("appointment_date");
+                    oldMinute = rs.getInt("appointment_minute");
+                    wasScheduled = "Scheduled".equals(rs.getString("status"));
+                }
+            }
+
+            String sql = "UPDATE appointments SET patient_id = ?, doctor_id = ?, appointment_date = ?, appointment_minute = ?, status = 'Scheduled' WHERE appointment_id = ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, appt.getPatientId());
+                pstmt.setInt(2, appt.getDoctorId());
+                pstmt.setDate(3, date);
+                pstmt.setInt(4, appt.getAppointmentMinute());
+                pstmt.setInt(5, appt.getAppointmentId());
+                pstmt.executeUpdate();
+            } catch (SQLException e) {
+                if (UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                    conn.rollback();
+                    return false; // Slot taken
+                }
+                throw e;
+            }
+
+            if (wasScheduled) {
+                DatabaseEvents.publish(conn, AppointmentSlotCache.CHANNEL,
+                        AppointmentSlotCache.payload(oldDoctorId, oldDate, oldMinute, false));
+            }
+            DatabaseEvents.publish(conn, AppointmentSlotCache.CHANNEL,
+                    AppointmentSlotCache.payload(appt.getDoctorId(), date, appt.getAppointmentMinute(), true));
+            conn.commit();
+            if (wasScheduled) {
+                AppointmentSlotCache.slotChanged(oldDoctorId, oldDate, oldMinute, false);
+            }
+            AppointmentSlotCache.slotChanged(appt.getDoctorId(), date, appt.getAppointmentMinute(), true);
+            return true;
+
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close(); // Returns the connection to the pool
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
         }
     }
 
     public boolean cancelAppointment(int appointmentId) throws SQLException {
-        String sql = "UPDATE appointments SET status = 'Cancelled' WHERE appointment_id = ?";
+        String sql = "UPDATE appointments SET status = 'Cancelled' WHERE appointment_id = ? AND status = 'Scheduled' " +
+                     "RETURNING doctor_id, appointment_date, appointment_minute";
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, appointmentId);
-            return pstmt.executeUpdate() > 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                int doctorId = rs.getInt("doctor_id");
+                java.sql.Date date = rs.getDate("appointment_date");
+                int minute = rs.getInt("appointment_minute");
+                DatabaseEvents.publish(conn, AppointmentSlotCache.CHANNEL, AppointmentSlotCache.payload(doctorId, date, minute, false));
+                AppointmentSlotCache.slotChanged(doctorId, date, minute, false);
+                return true;
+            }
         }
     }
     
     public List<Appointment> getAppointmentsByDoctorAndDate(int doctorId, Date date) throws SQLException {
         List<Appointment> appointments = new ArrayList<>();
-        String sql = "SELECT a.*, p.name as patient_name " +
+        String sql = "SELECT a.appointment_id, a.appointment_minute, a.status, p.name as patient_name " +
                      "FROM appointments a " +
                      "JOIN patients p ON a.patient_id = p.patient_id " +
                      "WHERE a.doctor_id = ? AND a.appointment_date = ? AND a.status = 'Scheduled' " +
-                     "ORDER BY a.appointment_time";
+                     "ORDER BY a.appointment_minute";
         
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -855,7 +1817,7 @@ public class DataAccess {
                 while (rs.next()) {
                     Appointment appt = new Appointment();
                     appt.setAppointmentId(rs.getInt("appointment_id"));
-                    appt.setAppointmentTime(rs.getString("appointment_time"));
+                    appt.setAppointmentMinute(rs.getInt("appointment_minute"));
                     appt.setPatientName(rs.getString("patient_name"));
                     appt.setStatus(rs.getString("status"));
                     appointments.add(appt);
@@ -864,4 +1826,189 @@ public class DataAccess {
         }
         return appointments;
     }
-}
\ No newline at end of file
+
+
+    // ========== BULK APPOINTMENT METHODS ==========
+
+    // Requests validated and inserted per statement; each chunk is a few array parameters
+    private static final int BULK_APPOINTMENT_CHUNK = 5000;
+
+    /**
+     * Books many appointments at once, e.g. a weekly follow-up series or an
+     * imported clinic roster. Every request is checked against the doctor's
+     * available_days and the existing bookings in one query per chunk, and the
+     * valid ones are inserted with one INSERT ... SELECT FROM unnest(...) per
+     * chunk, all in one transaction.
+     *
+     * Valid requests are booked even if others are not; booked ones get their
+     * appointment id set. Returns the requests that were not booked, in request
+     * order, each with the reason.
+     */
+    public List<AppointmentConflict> scheduleAppointments(List<Appointment> requests) throws SQLException {
+        List<AppointmentConflict> conflicts = new ArrayList<>();
+        List<Integer> candidates = new ArrayList<>();
+        Set<String> slots = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            Appointment appt = requests.get(i);
+            String slot = appt.getDoctorId() + ":" + new java.sql.Date(appt.getAppointmentDate().getTime()) + ":" + appt.getAppointmentMinute();
+            if (slots.add(slot)) {
+                candidates.add(i);
+            } else {
+                conflicts.add(new AppointmentConflict(i, appt, AppointmentConflict.Reason.DUPLICATE_IN_REQUEST));
+            }
+        }
+
+        List<Appointment> booked = new ArrayList<>();
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+
+            for (int from = 0; from < candidates.size(); from += BULK_APPOINTMENT_CHUNK) {
+                List<Integer> chunk = candidates.subList(from, Math.min(from + BULK_APPOINTMENT_CHUNK, candidates.size()));
+                List<Integer> valid = validateAppointments(conn, requests, chunk, conflicts);
+                insertAppointments(conn, requests, valid, conflicts, booked);
+            }
+            if (!booked.isEmpty()) {
+                // One message instead of one per booking; the other workstations reload their slot caches
+                DatabaseEvents.publish(conn, AppointmentSlotCache.CHANNEL, AppointmentSlotCache.RELOAD);
+            }
+            conn.commit();
+
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close(); // Returns the connection to the pool
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        for (Appointment appt : booked) {
+            AppointmentSlotCache.slotChanged(appt.getDoctorId(), new java.sql.Date(appt.getAppointmentDate().getTime()),
+                    appt.getAppointmentMinute(), true);
+        }
+        conflicts.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+        return conflicts;
+    }
+
+    /**
+     * Checks a chunk of requests in one query and returns the indexes that passed.
+     */
+    private List<Integer> validateAppointments(Connection conn, List<Appointment> requests, List<Integer> chunk,
+                                               List<AppointmentConflict> conflicts) throws SQLException {
+        String sql = "SELECT * FROM (" +
+                     "SELECT r.idx, " +
+                     "d.doctor_id IS NULL AS unknown_doctor, " +
+                     "p.patient_id IS NULL AS unknown_patient, " +
+                     // Same rule as AppointmentPanel: available_days lists day abbreviations such as Mon,Tue
+                     "(d.available_days IS NULL OR strpos(d.available_days, to_char(r.appointment_date, 'Dy')) = 0) AS not_available, " +
+                     "EXISTS (SELECT 1 FROM appointments a WHERE a.doctor_id = r.doctor_id AND a.appointment_date = r.appointment_date " +
+                     "        AND a.appointment_minute = r.appointment_minute AND a.status = 'Scheduled') AS taken " +
+                     "FROM unnest(?::int[], ?::int[], ?::int[], ?::date[], ?::int[]) AS r(idx, patient_id, doctor_id, appointment_date, appointment_minute) " +
+                     "LEFT JOIN doctors d ON d.doctor_id = r.doctor_id " +
+                     "LEFT JOIN patients p ON p.patient_id = r.patient_id" +
+                     ") v WHERE unknown_doctor OR unknown_patient OR not_available OR taken";
+
+        Set<Integer> rejected = new HashSet<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setArray(1, conn.createArrayOf("int4", chunk.toArray(new Integer[0])));
+            setAppointmentArrays(conn, pstmt, 2, requests, chunk);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int index = rs.getInt("idx");
+                    AppointmentConflict.Reason reason;
+                    if (rs.getBoolean("unknown_doctor")) {
+                        reason = AppointmentConflict.Reason.UNKNOWN_DOCTOR;
+                    } else if (rs.getBoolean("unknown_patient")) {
+                        reason = AppointmentConflict.Reason.UNKNOWN_PATIENT;
+                    } else if (rs.getBoolean("not_available")) {
+                        reason = AppointmentConflict.Reason.DOCTOR_NOT_AVAILABLE;
+                    } else {
+                        reason = AppointmentConflict.Reason.SLOT_TAKEN;
+                    }
+                    rejected.add(index);
+                    conflicts.add(new AppointmentConflict(index, requests.get(index), reason));
+                }
+            }
+        }
+
+        List<Integer> valid = new ArrayList<>(chunk.size() - rejected.size());
+        for (int index : chunk) {
+            if (!rejected.contains(index)) {
+                valid.add(index);
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Inserts the validated requests in one statement. A slot booked by someone
+     * else since validation is skipped by ON CONFLICT and reported as taken.
+     */
+    private void insertAppointments(Connection conn, List<Appointment> requests, List<Integer> valid,
+                                    List<AppointmentConflict> conflicts, List<Appointment> booked) throws SQLException {
+        if (valid.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO appointments (patient_id, doctor_id, appointment_date, appointment_minute) " +
+                     "SELECT patient_id, doctor_id, appointment_date, appointment_minute " +
+                     "FROM unnest(?::int[], ?::int[], ?::date[], ?::int[]) AS r(patient_id, doctor_id, appointment_date, appointment_minute) " +
+                     APPOINTMENT_SLOT_CONFLICT + " RETURNING appointment_id, doctor_id, appointment_date, appointment_minute";
+
+        Map<String, Integer> ids = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            setAppointmentArrays(conn, pstmt, 1, requests, valid);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.put(rs.getInt("doctor_id") + ":" + rs.getDate("appointment_date") + ":" + rs.getInt("appointment_minute"),
+                            rs.getInt("appointment_id"));
+                }
+            }
+        }
+
+        for (int index : valid) {
+            Appointment appt = requests.get(index);
+            Integer id = ids.get(appt.getDoctorId() + ":" + new java.sql.Date(appt.getAppointmentDate().getTime()) + ":" + appt.getAppointmentMinute());
+            if (id != null) {
+                appt.setAppointmentId(id);
+                booked.add(appt);
+            } else {
+                conflicts.add(new AppointmentConflict(index, appt, AppointmentConflict.Reason.SLOT_TAKEN));
+            }
+        }
+    }
+
+    /**
+     * Binds patient ids, doctor ids, dates and minutes of the given requests as four array parameters.
+     */
+    private void setAppointmentArrays(Connection conn, PreparedStatement pstmt, int firstParameter,
+                                      List<Appointment> requests, List<Integer> indexes) throws SQLException {
+        Integer[] patientIds = new Integer[indexes.size()];
+        Integer[] doctorIds = new Integer[indexes.size()];
+        java.sql.Date[] dates = new java.sql.Date[indexes.size()];
+        Integer[] minutes = new Integer[indexes.size()];
+        for (int i = 0; i < indexes.size(); i++) {
+            Appointment appt = requests.get(indexes.get(i));
+            patientIds[i] = appt.getPatientId();
+            doctorIds[i] = appt.getDoctorId();
+            dates[i] = new java.sql.Date(appt.getAppointmentDate().getTime());
+            minutes[i] = appt.getAppointmentMinute();
+        }
+        pstmt.setArray(firstParameter, conn.createArrayOf("int4", patientIds));
+        pstmt.setArray(firstParameter + 1, conn.createArrayOf("int4", doctorIds));
+        pstmt.setArray(firstParameter + 2, conn.createArrayOf("date", dates));
+        pstmt.setArray(firstParameter + 3, conn.createArrayOf("int4", minutes));
+    }
+}
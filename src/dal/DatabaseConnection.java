@@ -10,12 +10,56 @@ public class DatabaseConnection {
     private static final String USER = "postgres";
     private static final String PASSWORD = "123456789"; // The password for your PostgreSQL server
 
+    // Pool settings, overridable with -Dhms.pool.<name>=<value>
+    private static final int POOL_MAX_SIZE = Integer.getInteger("hms.pool.maxSize", 10);
+    private static final long POOL_ACQUIRE_TIMEOUT_MS = Long.getLong("hms.pool.acquireTimeoutMs", 10_000L);
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("hms.pool.idleTimeoutMs", 5 * 60_000L);
+    private static final long POOL_MAX_LIFETIME_MS = Long.getLong("hms.pool.maxLifetimeMs", 30 * 60_000L);
+    private static final long POOL_VALIDATION_INTERVAL_MS = Long.getLong("hms.pool.validationIntervalMs", 30_000L);
+    private static final int POOL_STATEMENT_CACHE_SIZE = Integer.getInteger("hms.pool.statementCacheSize", 64);
+
+    private static volatile ConnectionPool pool;
+
+    /**
+     * Returns a pooled connection. Closing it hands it back to the pool.
+     */
     public static Connection getConnection() throws SQLException {
+        return getPool().getConnection();
+    }
+
+    public static ConnectionPool getPool() throws SQLException {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DatabaseConnection.class) {
+                p = pool;
+                if (p == null) {
+                    loadDriver();
+                    p = new ConnectionPool(URL, USER, PASSWORD, POOL_MAX_SIZE, POOL_ACQUIRE_TIMEOUT_MS,
+                            POOL_IDLE_TIMEOUT_MS, POOL_MAX_LIFETIME_MS, POOL_VALIDATION_INTERVAL_MS,
+                            POOL_STATEMENT_CACHE_SIZE);
+                    final ConnectionPool created = p;
+                    Runtime.getRuntime().addShutdownHook(new Thread(created::shutdown, "hms-pool-shutdown"));
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    private static void loadDriver() throws SQLException {
         try {
             Class.forName("org.postgresql.Driver");
         } catch (ClassNotFoundException e) {
             throw new SQLException("PostgreSQL JDBC Driver not found.", e);
         }
+    }
+
+    /**
+     * Opens a dedicated connection outside the pool, for long-lived uses such as LISTEN
+     * that would otherwise pin a pooled connection forever.
+     */
+    public static Connection openUnpooledConnection() throws SQLException {
+        loadDriver();
         return DriverManager.getConnection(URL, USER, PASSWORD);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,124 @@
+package dal;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Relays PostgreSQL LISTEN/NOTIFY events to in-process subscribers, so changes
+ * made on one workstation reach the caches and screens of all the others.
+ *
+ * A single daemon thread holds one unpooled connection for LISTEN. Subscribers
+ * of a channel are called with a null payload, meaning "events may have been
+ * missed, reload everything", as soon as LISTEN on it has run: subscribe()
+ * returns before then, so a change committed in between would otherwise be lost.
+ * The same happens for every channel when the connection drops and is reopened.
+ */
+public class DatabaseEvents {
+
+    private static final int POLL_TIMEOUT_MS = 500;
+    private static final long RECONNECT_DELAY_MS = 5_000L;
+
+    private static final Map<String, List<Consumer<String>>> subscribers = new ConcurrentHashMap<>();
+    private static final Set<String> listening = ConcurrentHashMap.newKeySet();
+    private static Thread listenerThread;
+
+    /**
+     * Registers a handler for a channel and starts the listener thread if needed.
+     * If the channel is not listened to yet, its handlers get a null payload once it is.
+     * Handlers run on the listener thread and must not block; UI code should hop to the EDT.
+     */
+    public static void subscribe(String channel, Consumer<String> handler) {
+        subscribers.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>()).add(handler);
+        startListener();
+    }
+
+    public static void unsubscribe(String channel, Consumer<String> handler) {
+        List<Consumer<String>> handlers = subscribers.get(channel);
+        if (handlers != null) {
+            handlers.remove(handler);
+        }
+    }
+
+    /**
+     * Sends a notification on the given connection. Inside a transaction it is only delivered on commit.
+     */
+    public static void publish(Connection conn, String channel, String payload) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT pg_notify(?, ?)")) {
+            pstmt.setString(1, channel);
+            pstmt.setString(2, payload);
+            pstmt.execute();
+        }
+    }
+
+    private static synchronized void startListener() {
+        if (listenerThread != null) {
+            return;
+        }
+        listenerThread = new Thread(DatabaseEvents::listenLoop, "hms-db-events");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    private static void listenLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try (Connection conn = DatabaseConnection.openUnpooledConnection()) {
+                listening.clear(); // Listened to again below, which tells their subscribers to reload
+                PGConnection pgConn = conn.unwrap(PGConnection.class);
+
+                while (!Thread.currentThread().isInterrupted()) {
+                    listenToNewChannels(conn);
+                    PGNotification[] notifications = pgConn.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getName(), notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Database event listener disconnected: " + e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private static void listenToNewChannels(Connection conn) throws SQLException {
+        for (String channel : subscribers.keySet()) {
+            if (listening.add(channel)) {
+                try (Statement stmt = conn.createStatement()) {
+                    // Channel names are our own constants, never user input
+                    stmt.execute("LISTEN " + channel);
+                }
+                dispatch(channel, null); // Whatever they loaded may predate the LISTEN
+            }
+        }
+    }
+
+    private static void dispatch(String channel, String payload) {
+        List<Consumer<String>> handlers = subscribers.get(channel);
+        if (handlers == null) {
+            return;
+        }
+        for (Consumer<String> handler : handlers) {
+            try {
+                handler.accept(payload);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
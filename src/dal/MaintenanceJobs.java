@@ -0,0 +1,107 @@
+package dal;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background database housekeeping, run on one daemon thread.
+ *
+ * - Dashboard counter compaction: every hms.dashboard.compactIntervalSeconds
+ *   (default 30) the deltas appended by the counter triggers are folded into
+ *   dashboard_counters. 0 disables it.
+ * - Dashboard counter reconciliation: every hms.reconcile.intervalMinutes
+ *   (default 60) the trigger-maintained counters are checked against full
+ *   scans and corrected if they have drifted. 0 disables it.
+ * - Daily, shortly after startup and then every 24 hours: the coming year's
+ *   billing partition is created, and patients discharged more than
+ *   hms.archive.afterDays (default 90) ago are moved to patients_archive.
+ *   An archive age of 0 disables archiving.
+ */
+public class MaintenanceJobs {
+
+    private static final long COMPACT_INTERVAL_SECONDS = Long.getLong("hms.dashboard.compactIntervalSeconds", 30L);
+    private static final long RECONCILE_INTERVAL_MINUTES = Long.getLong("hms.reconcile.intervalMinutes", 60L);
+    private static final int ARCHIVE_AFTER_DAYS = Integer.getInteger("hms.archive.afterDays", 90);
+    private static final int ARCHIVE_BATCH_SIZE = 500; // Patients moved per transaction
+    private static final long INITIAL_DELAY_MINUTES = 1L;
+
+    private static ScheduledExecutorService scheduler;
+
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "hms-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        if (COMPACT_INTERVAL_SECONDS > 0) {
+            scheduler.scheduleWithFixedDelay(MaintenanceJobs::compactDashboardCounters,
+                    COMPACT_INTERVAL_SECONDS, COMPACT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+        if (RECONCILE_INTERVAL_MINUTES > 0) {
+            scheduler.scheduleWithFixedDelay(MaintenanceJobs::reconcileDashboardCounters,
+                    INITIAL_DELAY_MINUTES, RECONCILE_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        }
+        scheduler.scheduleWithFixedDelay(MaintenanceJobs::dailyHousekeeping,
+                INITIAL_DELAY_MINUTES, TimeUnit.DAYS.toMinutes(1), TimeUnit.MINUTES);
+    }
+
+    public static synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    static void compactDashboardCounters() {
+        try {
+            new DataAccess().compactDashboardCounters();
+        } catch (SQLException e) {
+            // Keep the schedule alive; the deltas stay until the next run
+            e.printStackTrace();
+        }
+    }
+
+    static void reconcileDashboardCounters() {
+        try {
+            Map<String, BigDecimal> corrections = new DataAccess().reconcileDashboardCounters();
+            for (Map.Entry<String, BigDecimal> entry : corrections.entrySet()) {
+                System.err.println("Dashboard counter '" + entry.getKey() + "' had drifted by "
+                        + entry.getValue().negate() + "; corrected from a full scan");
+            }
+        } catch (SQLException e) {
+            // Keep the schedule alive; the next run will try again
+            e.printStackTrace();
+        }
+    }
+
+    static void dailyHousekeeping() {
+        DataAccess dataAccess = new DataAccess();
+        try {
+            int created = dataAccess.ensureBillingPartitions();
+            if (created > 0) {
+                System.err.println("Created " + created + " billing partition(s)");
+            }
+            if (ARCHIVE_AFTER_DAYS > 0) {
+                int archived = 0;
+                int moved;
+                // Small batches keep each transaction's row locks short
+                do {
+                    moved = dataAccess.archiveDischargedPatients(ARCHIVE_AFTER_DAYS, ARCHIVE_BATCH_SIZE);
+                    archived += moved;
+                } while (moved == ARCHIVE_BATCH_SIZE);
+                if (archived > 0) {
+                    System.err.println("Archived " + archived + " discharged patient(s)");
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
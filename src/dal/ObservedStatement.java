@@ -0,0 +1,271 @@
+package dal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Wraps a Statement or PreparedStatement so the {@link StatementObserver}s see
+ * each execution with its SQL and bound parameters, how long it took, and how
+ * many rows were read from its ResultSet. Everything else is forwarded
+ * unchanged, including close(), so cached statements still go back to their cache.
+ */
+class ObservedStatement implements InvocationHandler {
+
+    /**
+     * One PreparedStatement setter call, e.g. setInt(2, 42), which can be replayed on another statement.
+     */
+    static class Bind {
+        final Method setter;
+        final Object[] args;
+
+        Bind(Method setter, Object[] args) {
+            this.setter = setter;
+            this.args = args;
+        }
+
+        int index() {
+            return (Integer) args[0];
+        }
+
+        Object value() {
+            return args.length > 1 ? args[1] : null;
+        }
+
+        void applyTo(PreparedStatement statement) throws SQLException {
+            try {
+                setter.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw new SQLException(e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new SQLException(e);
+            }
+        }
+    }
+
+    /**
+     * The observers installed when a connection was borrowed, each with the tag
+     * it returned for that borrow.
+     */
+    static class Observers {
+        private final StatementObserver[] observers;
+        private final Object[] tags;
+
+        private Observers(StatementObserver[] observers, Object[] tags) {
+            this.observers = observers;
+            this.tags = tags;
+        }
+
+        static Observers acquired(StatementObserver[] observers, long waitNanos) {
+            Object[] tags = new Object[observers.length];
+            for (int i = 0; i < observers.length; i++) {
+                tags[i] = observers[i].connectionAcquired(waitNanos);
+            }
+            return new Observers(observers, tags);
+        }
+
+        void beforeExecute(Connection connection, String sql, List<Bind> binds) throws SQLException {
+            for (StatementObserver observer : observers) {
+                observer.beforeExecute(connection, sql, binds);
+            }
+        }
+
+        void afterExecute(String sql, List<Bind> binds, long nanos, SQLException error) {
+            for (int i = 0; i < observers.length; i++) {
+                observers[i].afterExecute(tags[i], sql, binds, nanos, error);
+            }
+        }
+
+        void resultSetClosed(String sql, long rows) {
+            for (int i = 0; i < observers.length; i++) {
+                observers[i].resultSetClosed(tags[i], sql, rows);
+            }
+        }
+    }
+
+    private final Statement target;
+    private final Connection physical;
+    private final String sql; // Null for a plain Statement; its SQL comes with each execute call
+    private final Observers observers;
+    private final List<Bind> binds = new ArrayList<>();
+    private String executedSql;          // SQL of the last execution, for its ResultSet
+    private CountedResultSet openResult; // Reported when closed, re-executed or the statement closes
+
+    private ObservedStatement(Statement target, Connection physical, String sql, Observers observers) {
+        this.target = target;
+        this.physical = physical;
+        this.sql = sql;
+        this.observers = observers;
+    }
+
+    static PreparedStatement wrap(PreparedStatement target, Connection physical, String sql, Observers observers) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new ObservedStatement(target, physical, sql, observers));
+    }
+
+    static Statement wrap(Statement target, Connection physical, Observers observers) {
+        return (Statement) Proxy.newProxyInstance(
+                Statement.class.getClassLoader(),
+                new Class<?>[]{Statement.class},
+                new ObservedStatement(target, physical, null, observers));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        switch (name) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "ObservedStatement[" + target + "]";
+            case "clearParameters":
+                binds.clear();
+                break;
+            case "close":
+                reportOpenResult();
+                break;
+            case "execute":
+            case "executeQuery":
+            case "executeUpdate":
+            case "executeLargeUpdate":
+                if (args != null && args.length > 0 && args[0] instanceof String) {
+                    observers.beforeExecute(physical, (String) args[0], Collections.emptyList());
+                    return execute(method, args, (String) args[0], Collections.emptyList());
+                } else if (sql != null) {
+                    List<Bind> executedBinds = new ArrayList<>(binds);
+                    observers.beforeExecute(physical, sql, executedBinds);
+                    return execute(method, args, sql, executedBinds);
+                }
+                break;
+            case "executeBatch":
+            case "executeLargeBatch":
+                if (sql != null) {
+                    return execute(method, args, sql, Collections.emptyList()); // Timed, but not shown to beforeExecute
+                }
+                break;
+            case "getResultSet":
+                Object current = forward(method, args);
+                if (current instanceof ResultSet && executedSql != null) {
+                    if (openResult != null && openResult.target == current) {
+                        return openResult.proxy;
+                    }
+                    return count((ResultSet) current);
+                }
+                return current;
+            default:
+                // PreparedStatement's own setters (setInt, setString, ...) take the parameter index first
+                if (name.startsWith("set") && method.getDeclaringClass() == PreparedStatement.class
+                        && args != null && args.length > 0 && args[0] instanceof Integer) {
+                    binds.add(new Bind(method, args.clone()));
+                }
+                break;
+        }
+        return forward(method, args);
+    }
+
+    private Object forward(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Object execute(Method method, Object[] args, String executed, List<Bind> executedBinds) throws Throwable {
+        reportOpenResult(); // Executing again closes the previous ResultSet
+        executedSql = executed;
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            observers.afterExecute(executed, executedBinds, System.nanoTime() - start,
+                    cause instanceof SQLException ? (SQLException) cause : new SQLException(cause));
+            throw cause;
+        }
+        observers.afterExecute(executed, executedBinds, System.nanoTime() - start, null);
+        return result instanceof ResultSet ? count((ResultSet) result) : result;
+    }
+
+    private ResultSet count(ResultSet result) {
+        reportOpenResult();
+        openResult = new CountedResultSet(result, executedSql);
+        return openResult.proxy;
+    }
+
+    private void reportOpenResult() {
+        if (openResult != null) {
+            openResult.report();
+            openResult = null;
+        }
+    }
+
+    /**
+     * Counts the rows next() moves onto and tells the observers once, when the ResultSet is done with.
+     */
+    private class CountedResultSet implements InvocationHandler {
+        final ResultSet target;
+        final ResultSet proxy;
+        private final String sql;
+        private long rows;
+        private boolean reported;
+
+        CountedResultSet(ResultSet target, String sql) {
+            this.target = target;
+            this.sql = sql;
+            this.proxy = (ResultSet) Proxy.newProxyInstance(
+                    ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, this);
+        }
+
+        void report() {
+            if (!reported) {
+                reported = true;
+                observers.resultSetClosed(sql, rows);
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CountedResultSet[" + target + "]";
+                case "close":
+                    report();
+                    break;
+                default:
+                    break;
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result == Boolean.TRUE && "next".equals(method.getName())) {
+                rows++;
+            }
+            return result;
+        }
+    }
+}
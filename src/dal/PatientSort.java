@@ -0,0 +1,21 @@
+package dal;
+
+/**
+ * Sort orders supported by {@link DataAccess#getPatientsPage}. Every order ends
+ * in patient_id so that (sort key, patient_id) is unique and can be used as a
+ * keyset cursor.
+ */
+public enum PatientSort {
+    ID(null),
+    NAME("p.name");
+
+    private final String column; // null when patient_id alone is the key
+
+    PatientSort(String column) {
+        this.column = column;
+    }
+
+    String column() {
+        return column;
+    }
+}
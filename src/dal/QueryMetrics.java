@@ -0,0 +1,400 @@
+package dal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency of every statement run on a pooled connection, grouped by the
+ * DataAccess method that borrowed the connection (connections borrowed
+ * elsewhere are grouped by their calling class and method).
+ *
+ * Per method: executions, errors, rows read, a {@link LatencyHistogram} of
+ * execute times and one of connection acquire times. Statements slower than
+ * hms.metrics.slowQueryMs (default 500) are appended to hms.metrics.slowLog
+ * (default logs/slow-queries.log) with their SQL and the position and type of
+ * each parameter, never its value; quoted literals in the SQL are masked too.
+ * Every hms.metrics.dumpIntervalSeconds (default 60, 0 for never) the whole
+ * table is written to hms.metrics.file (default logs/query-metrics.txt).
+ * Files are written on one background thread, never by the thread running the query.
+ *
+ * On by default; -Dhms.metrics=false leaves the pool unobserved.
+ */
+public class QueryMetrics implements StatementObserver {
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("hms.metrics", "true"));
+    private static final long SLOW_QUERY_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("hms.metrics.slowQueryMs", 500L));
+    private static final Path SLOW_LOG = Paths.get(System.getProperty("hms.metrics.slowLog", "logs/slow-queries.log"));
+    private static final Path DUMP_FILE = Paths.get(System.getProperty("hms.metrics.file", "logs/query-metrics.txt"));
+    private static final long DUMP_INTERVAL_SECONDS = Long.getLong("hms.metrics.dumpIntervalSeconds", 60L);
+    private static final int RECENT_SLOW_QUERIES = 50;
+    private static final int MAX_LOGGED_SQL = 2000;
+
+    private static final String DATA_ACCESS = DataAccess.class.getName();
+    private static final String[] INFRASTRUCTURE = {
+            "java.", "javax.", "jdk.", "sun.", "com.sun.", "org.postgresql.",
+            "dal.ConnectionPool", "dal.ObservedStatement", "dal.QueryMetrics",
+            "dal.DatabaseConnection", "dal.StatementCache"
+    };
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    /**
+     * Everything recorded for one method. Live: values keep changing while read.
+     */
+    public static class MethodStats {
+        private final String method;
+        private final LatencyHistogram execute = new LatencyHistogram();
+        private final LatencyHistogram acquire = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder slow = new LongAdder();
+
+        MethodStats(String method) {
+            this.method = method;
+        }
+
+        public String getMethod() { return method; }
+        public LatencyHistogram getExecuteLatency() { return execute; }
+        public LatencyHistogram getAcquireLatency() { return acquire; }
+        public long getExecutions() { return execute.count(); }
+        public long getErrors() { return errors.sum(); }
+        public long getRows() { return rows.sum(); }
+        public long getSlowCount() { return slow.sum(); }
+
+        public double getRowsPerExecution() {
+            long executions = execute.count();
+            return executions == 0 ? 0 : (double) rows.sum() / executions;
+        }
+
+        public double getTotalSeconds() {
+            return execute.meanNanos() * execute.count() / 1e9;
+        }
+    }
+
+    /**
+     * One statement that took longer than the slow-query threshold.
+     */
+    public static class SlowQuery {
+        private final Date time;
+        private final String method;
+        private final double millis;
+        private final String sql;   // Whitespace collapsed, literals masked
+        private final String binds; // Positions and types only
+        private final boolean failed;
+
+        SlowQuery(Date time, String method, double millis, String sql, String binds, boolean failed) {
+            this.time = time;
+            this.method = method;
+            this.millis = millis;
+            this.sql = sql;
+            this.binds = binds;
+            this.failed = failed;
+        }
+
+        public Date getTime() { return time; }
+        public String getMethod() { return method; }
+        public double getMillis() { return millis; }
+        public String getSql() { return sql; }
+        public String getBinds() { return binds; }
+        public boolean isFailed() { return failed; }
+
+        @Override
+        public String toString() {
+            return String.format("%tF %<tT  %-32s %9.1f ms%s  %s  [%s]", time, method, millis,
+                    failed ? " FAILED" : "", sql, binds);
+        }
+    }
+
+    private static final QueryMetrics INSTANCE = new QueryMetrics();
+    private static final Map<String, MethodStats> methods = new ConcurrentHashMap<>();
+    private static final LatencyHistogram acquireAll = new LatencyHistogram();
+    private static final Deque<SlowQuery> recentSlow = new ArrayDeque<>(); // Guarded by itself
+    private static volatile Date since = new Date();
+    private static volatile ScheduledExecutorService writer;
+
+    private QueryMetrics() {
+    }
+
+    /**
+     * Starts observing the pool and the periodic dump, unless hms.metrics is false.
+     */
+    public static synchronized void start() {
+        if (!ENABLED || writer != null) {
+            return;
+        }
+        writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "hms-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        if (DUMP_INTERVAL_SECONDS > 0) {
+            writer.scheduleWithFixedDelay(QueryMetrics::dump, DUMP_INTERVAL_SECONDS, DUMP_INTERVAL_SECONDS,
+                    TimeUnit.SECONDS);
+        }
+        ConnectionPool.addStatementObserver(INSTANCE);
+    }
+
+    public static synchronized void stop() {
+        if (writer != null) {
+            ConnectionPool.removeStatementObserver(INSTANCE);
+            writer.shutdown(); // Lets queued slow-query lines finish
+            writer = null;
+        }
+    }
+
+    public static boolean isRunning() {
+        return writer != null;
+    }
+
+    /**
+     * All methods seen so far, the most total time spent first.
+     */
+    public static List<MethodStats> getMethodStats() {
+        // Totals read once, since they keep moving while the list is sorted
+        Map<MethodStats, Double> totals = new HashMap<>();
+        for (MethodStats stats : methods.values()) {
+            totals.put(stats, stats.getTotalSeconds());
+        }
+        List<MethodStats> stats = new ArrayList<>(totals.keySet());
+        stats.sort(Comparator.comparing(totals::get, Comparator.reverseOrder()));
+        return stats;
+    }
+
+    /**
+     * Connection acquire times over all methods.
+     */
+    public static LatencyHistogram getAcquireLatency() {
+        return acquireAll;
+    }
+
+    /**
+     * The most recent slow queries, newest first.
+     */
+    public static List<SlowQuery> getRecentSlowQueries() {
+        synchronized (recentSlow) {
+            return new ArrayList<>(recentSlow);
+        }
+    }
+
+    public static Date getSince() {
+        return since;
+    }
+
+    public static long getSlowQueryMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(SLOW_QUERY_NANOS);
+    }
+
+    /**
+     * Forgets everything recorded so far. The slow-query log file is kept.
+     */
+    public static void reset() {
+        methods.clear();
+        acquireAll.reset();
+        synchronized (recentSlow) {
+            recentSlow.clear();
+        }
+        since = new Date();
+    }
+
+    // ========== OBSERVER METHODS ==========
+
+    @Override
+    public void beforeExecute(Connection connection, String sql, List<ObservedStatement.Bind> binds) {
+        // Timing starts in ObservedStatement; nothing to do before
+    }
+
+    @Override
+    public void afterExecute(Object tag, String sql, List<ObservedStatement.Bind> binds, long nanos, SQLException error) {
+        String method = (String) tag;
+        MethodStats stats = stats(method);
+        stats.execute.record(nanos);
+        if (error != null) {
+            stats.errors.increment();
+        }
+        if (nanos >= SLOW_QUERY_NANOS) {
+            stats.slow.increment();
+            logSlow(new SlowQuery(new Date(), method, nanos / 1e6, maskSql(sql), describe(binds), error != null));
+        }
+    }
+
+    @Override
+    public void resultSetClosed(Object tag, String sql, long rows) {
+        stats((String) tag).rows.add(rows);
+    }
+
+    /**
+     * Finds the calling method once per borrowed connection; every statement
+     * run on it is counted against that method.
+     */
+    @Override
+    public Object connectionAcquired(long waitNanos) {
+        String method = caller();
+        acquireAll.record(waitNanos);
+        stats(method).acquire.record(waitNanos);
+        return method;
+    }
+
+    private static MethodStats stats(String method) {
+        MethodStats stats = methods.get(method);
+        return stats != null ? stats : methods.computeIfAbsent(method, MethodStats::new);
+    }
+
+    /**
+     * The outermost DataAccess method on the stack, or else the first
+     * application frame as Class.method.
+     */
+    private static String caller() {
+        return WALKER.walk(frames -> {
+            String dataAccessMethod = null;
+            String other = null;
+            Iterator<StackWalker.StackFrame> it = frames.iterator();
+            while (it.hasNext()) {
+                StackWalker.StackFrame frame = it.next();
+                String className = frame.getClassName();
+                if (className.startsWith(DATA_ACCESS)) {
+                    if (className.equals(DATA_ACCESS) && !frame.getMethodName().startsWith("lambda$")) {
+                        dataAccessMethod = frame.getMethodName();
+                    }
+                } else if (dataAccessMethod != null) {
+                    break; // Left DataAccess: the last method seen is the one called from outside
+                } else if (other == null && isApplicationClass(className)) {
+                    other = className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+                }
+            }
+            return dataAccessMethod != null ? dataAccessMethod : other != null ? other : "(unknown)";
+        });
+    }
+
+    private static boolean isApplicationClass(String className) {
+        for (String prefix : INFRASTRUCTURE) {
+            if (className.startsWith(prefix)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ========== SLOW QUERY LOG ==========
+
+    /**
+     * Parameter positions and types, e.g. "$1 Integer, $2 String(12)". Values are never included.
+     */
+    static String describe(List<ObservedStatement.Bind> binds) {
+        StringBuilder sb = new StringBuilder();
+        for (ObservedStatement.Bind bind : binds) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append('$').append(bind.index()).append(' ');
+            Object value = bind.value();
+            if (value == null || "setNull".equals(bind.setter.getName())) {
+                sb.append("null");
+            } else if (value instanceof CharSequence) {
+                sb.append("String(").append(((CharSequence) value).length()).append(')');
+            } else {
+                sb.append(value.getClass().getSimpleName());
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Collapses whitespace and replaces quoted literals with '?', for SQL built by concatenation.
+     */
+    static String maskSql(String sql) {
+        String masked = sql.replaceAll("'(?:[^']|'')*'", "'?'").replaceAll("\\s+", " ").trim();
+        return masked.length() > MAX_LOGGED_SQL ? masked.substring(0, MAX_LOGGED_SQL) + "..." : masked;
+    }
+
+    private static void logSlow(SlowQuery query) {
+        synchronized (recentSlow) {
+            recentSlow.addFirst(query);
+            if (recentSlow.size() > RECENT_SLOW_QUERIES) {
+                recentSlow.removeLast();
+            }
+        }
+        ScheduledExecutorService w = writer;
+        if (w != null) {
+            try {
+                w.execute(() -> appendSlowLog(query));
+            } catch (RejectedExecutionException e) {
+                // Stopping; the query is still in the recent list
+            }
+        }
+    }
+
+    private static void appendSlowLog(SlowQuery query) {
+        try {
+            Path dir = SLOW_LOG.toAbsolutePath().getParent();
+            if (dir != null) {
+                Files.createDirectories(dir);
+            }
+            Files.write(SLOW_LOG, (query + System.lineSeparator()).getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Could not write slow query log " + SLOW_LOG + ": " + e.getMessage());
+        }
+    }
+
+    // ========== METRICS DUMP ==========
+
+    /**
+     * The whole table as text, as written to the dump file.
+     */
+    public static String report() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Query metrics at %s, since %s%n", format.format(new Date()), format.format(since)));
+        sb.append(String.format("Connection acquire: %d, p50 %.3f ms, p99 %.3f ms, max %.3f ms%n%n",
+                acquireAll.count(), acquireAll.percentileMillis(50), acquireAll.percentileMillis(99),
+                acquireAll.maxNanos() / 1e6));
+        sb.append(String.format("%-36s %9s %7s %6s %10s %9s %9s %9s %9s %9s %11s%n", "Method", "calls", "errors",
+                "slow", "rows/call", "p50 ms", "p90 ms", "p99 ms", "max ms", "total s", "acq p99 ms"));
+        for (MethodStats stats : getMethodStats()) {
+            LatencyHistogram execute = stats.getExecuteLatency();
+            sb.append(String.format("%-36s %9d %7d %6d %10.1f %9.3f %9.3f %9.3f %9.3f %9.2f %11.3f%n",
+                    stats.getMethod(), stats.getExecutions(), stats.getErrors(), stats.getSlowCount(),
+                    stats.getRowsPerExecution(), execute.percentileMillis(50), execute.percentileMillis(90),
+                    execute.percentileMillis(99), execute.maxNanos() / 1e6, stats.getTotalSeconds(),
+                    stats.getAcquireLatency().percentileMillis(99)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the report through a temporary file, so readers never see half of it.
+     */
+    private static void dump() {
+        try {
+            Path target = DUMP_FILE.toAbsolutePath();
+            Files.createDirectories(target.getParent());
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            Files.write(temp, report().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not write query metrics to " + DUMP_FILE + ": " + e.getMessage());
+        }
+    }
+}
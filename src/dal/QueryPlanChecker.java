@@ -0,0 +1,191 @@
+package dal;
+
+import model.Bill;
+import model.Doctor;
+import model.Patient;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Flags DataAccess read queries whose plan sequentially scans a large table.
+ *
+ * Runs the read methods the panels call on their hot paths against the
+ * configured database, with sample arguments taken from its own data. A
+ * {@link StatementObserver} catches every statement they send, with its bound
+ * parameters, and runs EXPLAIN for it on the same connection first. Any
+ * "Seq Scan" on a table the planner estimates at hms.planCheck.minRows rows or
+ * more (default 10000) is reported.
+ *
+ * Plans depend on the data, so run it against a database of realistic size
+ * (after ANALYZE). Only reads are exercised; writes would change the data.
+ *
+ * Usage: java -cp out:lib/* dal.QueryPlanChecker
+ * Exits with status 1 if anything was flagged.
+ */
+public class QueryPlanChecker implements StatementObserver {
+
+    private static final long MIN_ROWS = Long.getLong("hms.planCheck.minRows", 10_000L);
+    private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on (\\S+)");
+
+    /**
+     * A DataAccess call to check; its result is ignored.
+     */
+    interface Check {
+        void run(DataAccess dataAccess) throws SQLException;
+    }
+
+    private final Map<String, Long> tableRows = new HashMap<>();
+    private final Map<String, List<String>> findings = new LinkedHashMap<>(); // SQL -> problems
+    private final Map<String, String> sqlOwner = new HashMap<>(); // SQL -> first method that sent it
+    private String currentCheck;
+
+    public static void main(String[] args) {
+        QueryPlanChecker checker = new QueryPlanChecker();
+        try {
+            boolean clean = checker.checkAll();
+            System.exit(clean ? 0 : 1);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Runs every check and prints a report. Returns true if nothing was flagged.
+     */
+    public boolean checkAll() throws SQLException {
+        DataAccess dataAccess = new DataAccess();
+
+        // Sample arguments, read before the observer is installed
+        List<Doctor> doctors = dataAccess.getAllDoctors();
+        List<Patient> firstPatients = dataAccess.getPatientsPage(PatientSort.ID, false, null, null, 1);
+        List<Bill> firstBills = dataAccess.getBillingHistoryPage(newestBillKey(), 1);
+        int doctorId = doctors.isEmpty() ? 1 : doctors.get(0).getDoctorId();
+        int patientId = firstPatients.isEmpty() ? 1 : firstPatients.get(0).getPatientId();
+        Bill bill = firstBills.isEmpty() ? newestBillKey() : firstBills.get(0);
+        String name = firstPatients.isEmpty() ? "a" : firstPatients.get(0).getName();
+        Date today = new Date();
+
+        Map<String, Check> checks = new LinkedHashMap<>();
+        checks.put("getPatientsPage(ID)", d -> d.getPatientsPage(PatientSort.ID, false, null, null, 200));
+        checks.put("getPatientsPage(NAME, filter)", d -> d.getPatientsPage(PatientSort.NAME, false, name, null, 200));
+        checks.put("countAdmittedPatients", d -> d.countAdmittedPatients(name));
+        checks.put("getAdmittedPatients", DataAccess::getAdmittedPatients);
+        checks.put("getPatientById", d -> d.getPatientById(patientId));
+        checks.put("getPatientsByDoctorId", d -> d.getPatientsByDoctorId(doctorId));
+        checks.put("searchPatients", d -> d.searchPatients(name, 0, 50));
+        checks.put("searchPatients(doctor)", d -> d.searchPatients(name, doctorId, 50));
+        checks.put("getBedByPatientId", d -> d.getBedByPatientId(patientId));
+        checks.put("getBillingHistoryPage", d -> d.getBillingHistoryPage(bill, 500));
+        checks.put("streamBillingHistory", d -> d.streamBillingHistory(bill, row -> false));
+        checks.put("searchBills", d -> d.searchBills(name, 50));
+        checks.put("getDashboardStats", DataAccess::getDashboardStats);
+        checks.put("getPatientPanelSnapshot", d -> d.getPatientPanelSnapshot(200));
+        checks.put("getBillingPanelSnapshot", d -> d.getBillingPanelSnapshot(500));
+        checks.put("getScheduledAppointments", d -> d.getScheduledAppointments(today));
+        checks.put("getBookedSlots", d -> d.getBookedSlots(doctorId, today));
+        checks.put("getAppointmentsByDoctorAndDate", d -> d.getAppointmentsByDoctorAndDate(doctorId, today));
+
+        ConnectionPool.addStatementObserver(this);
+        try {
+            for (Map.Entry<String, Check> check : checks.entrySet()) {
+                currentCheck = check.getKey();
+                check.getValue().run(dataAccess);
+            }
+        } finally {
+            ConnectionPool.removeStatementObserver(this);
+        }
+
+        return report();
+    }
+
+    private static Bill newestBillKey() {
+        Bill key = new Bill();
+        key.setBillId(Integer.MAX_VALUE);
+        key.setBillDate(java.sql.Date.valueOf("9999-12-31")); // Past every real bill, so the keyset starts at the newest
+        return key;
+    }
+
+    @Override
+    public void beforeExecute(Connection connection, String sql, List<ObservedStatement.Bind> binds) throws SQLException {
+        // A batch from DataAccess.QueryBatch holds several statements, one per line ending in ';'
+        for (String statement : sql.split(";\n")) {
+            String trimmed = statement.trim();
+            if (trimmed.isEmpty() || sqlOwner.containsKey(trimmed)) {
+                continue;
+            }
+            sqlOwner.put(trimmed, currentCheck);
+            explain(connection, trimmed, statement.equals(sql) ? binds : new ArrayList<>());
+        }
+    }
+
+    private void explain(Connection connection, String sql, List<ObservedStatement.Bind> binds) throws SQLException {
+        List<String> problems = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement("EXPLAIN " + sql)) {
+            for (ObservedStatement.Bind bind : binds) {
+                bind.applyTo(pstmt);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Matcher m = SEQ_SCAN.matcher(rs.getString(1));
+                    if (m.find()) {
+                        String table = m.group(1);
+                        long rows = estimatedRows(connection, table);
+                        if (rows >= MIN_ROWS) {
+                            problems.add("Seq Scan on " + table + " (about " + rows + " rows)");
+                        }
+                    }
+                }
+            }
+        }
+        findings.put(sql, problems);
+    }
+
+    private long estimatedRows(Connection connection, String table) throws SQLException {
+        Long cached = tableRows.get(table);
+        if (cached != null) {
+            return cached;
+        }
+        long rows = 0;
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT GREATEST(reltuples, 0)::bigint FROM pg_class WHERE oid = to_regclass(?)")) {
+            pstmt.setString(1, table);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    rows = rs.getLong(1);
+                }
+            }
+        }
+        tableRows.put(table, rows);
+        return rows;
+    }
+
+    private boolean report() {
+        int flagged = 0;
+        for (Map.Entry<String, List<String>> finding : findings.entrySet()) {
+            String owner = sqlOwner.get(finding.getKey());
+            if (finding.getValue().isEmpty()) {
+                System.out.println("OK    " + owner);
+                continue;
+            }
+            flagged++;
+            System.out.println("SCAN  " + owner + ": " + String.join(", ", finding.getValue()));
+            System.out.println("      " + finding.getKey());
+        }
+        System.out.println();
+        System.out.println(findings.size() + " statements checked, " + flagged + " flagged"
+                + " (tables under " + MIN_ROWS + " estimated rows are ignored)");
+        return flagged == 0;
+    }
+}
@@ -0,0 +1,118 @@
+package dal;
+
+import model.ConfigBedType;
+import model.ConfigIllness;
+import model.Doctor;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Read-through cache for the small lookup lists (bed types, illnesses, doctors)
+ * that every panel loads on each tab switch.
+ *
+ * Entries are dropped by DataAccess writes on this workstation and by
+ * NOTIFY events on the {@link #CHANNEL} channel from the others.
+ */
+class ReferenceDataCache {
+
+    static final String CHANNEL = "hms_reference_data";
+
+    // Payloads sent on CHANNEL, one per cached list
+    static final String BED_TYPES = "bed_types";
+    static final String ILLNESSES = "illnesses";
+    static final String DOCTORS = "doctors";
+
+    interface Loader<T> {
+        List<T> load() throws SQLException;
+    }
+
+    /**
+     * One cached list. The generation counter stops a load that raced with an
+     * invalidation from storing data that is already stale.
+     */
+    static class Entry<T> {
+        private volatile List<T> value;
+        private long generation;
+
+        List<T> get(Loader<T> loader) throws SQLException {
+            List<T> cached = peek();
+            if (cached != null) {
+                return cached;
+            }
+
+            long startGeneration = generation();
+            List<T> loaded = loader.load();
+            offer(loaded, startGeneration);
+            return loaded;
+        }
+
+        /**
+         * Returns a copy of the cached list, or null if it has to be loaded.
+         */
+        List<T> peek() {
+            List<T> cached = value;
+            return cached == null ? null : new ArrayList<>(cached);
+        }
+
+        synchronized long generation() {
+            return generation;
+        }
+
+        /**
+         * Stores a list loaded elsewhere (e.g. in a batched query), unless the
+         * entry was invalidated after startGeneration was read.
+         */
+        synchronized void offer(List<T> loaded, long startGeneration) {
+            if (generation == startGeneration) {
+                value = Collections.unmodifiableList(new ArrayList<>(loaded));
+            }
+        }
+
+        synchronized void invalidate() {
+            generation++;
+            value = null;
+        }
+    }
+
+    static final Entry<ConfigBedType> bedTypes = new Entry<>();
+    static final Entry<ConfigIllness> illnesses = new Entry<>();
+    static final Entry<Doctor> doctors = new Entry<>();
+
+    static {
+        DatabaseEvents.subscribe(CHANNEL, ReferenceDataCache::onNotification);
+    }
+
+    private static void onNotification(String payload) {
+        if (payload == null) {
+            invalidateAll();
+        } else {
+            invalidate(payload);
+        }
+    }
+
+    static void invalidate(String name) {
+        switch (name) {
+            case BED_TYPES:
+                bedTypes.invalidate();
+                break;
+            case ILLNESSES:
+                illnesses.invalidate();
+                break;
+            case DOCTORS:
+                doctors.invalidate();
+                break;
+            default:
+                invalidateAll();
+                break;
+        }
+    }
+
+    static void invalidateAll() {
+        bedTypes.invalidate();
+        illnesses.invalidate();
+        doctors.invalidate();
+    }
+}
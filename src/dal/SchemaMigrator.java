@@ -0,0 +1,185 @@
+package dal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Brings the database schema up to date at startup.
+ *
+ * Migrations are the files V{version}__{description}.sql in hms.migrations.dir
+ * (default sql/migrations). Each one not yet listed in schema_migrations is run
+ * in its own transaction, in version order, and recorded with a checksum of the
+ * file. Running again is a no-op, and an advisory lock keeps two workstations
+ * starting at once from applying the same migration twice.
+ *
+ * A migration file must not be edited once released; a changed checksum is
+ * reported but not re-applied. Add a new version instead.
+ */
+public class SchemaMigrator {
+
+    private static final String MIGRATIONS_DIR = System.getProperty("hms.migrations.dir", "sql/migrations");
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+    private static final long MIGRATION_LOCK_KEY = 0x484D535F4D494752L; // "HMS_MIGR"
+
+    private static final String CREATE_TABLE_SQL =
+            "CREATE TABLE IF NOT EXISTS schema_migrations (" +
+            "version INT PRIMARY KEY, " +
+            "description VARCHAR(200) NOT NULL, " +
+            "checksum VARCHAR(64), " +
+            "applied_at TIMESTAMP NOT NULL DEFAULT now(), " +
+            "execution_ms BIGINT)";
+
+    /**
+     * One migration file.
+     */
+    static class Migration {
+        final int version;
+        final String description;
+        final File file;
+
+        Migration(int version, String description, File file) {
+            this.version = version;
+            this.description = description;
+            this.file = file;
+        }
+    }
+
+    /**
+     * Applies every pending migration. Returns the versions applied, in order.
+     */
+    public static List<Integer> migrate() throws SQLException {
+        List<Migration> migrations = findMigrations(new File(MIGRATIONS_DIR));
+        List<Integer> applied = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SELECT pg_advisory_lock(" + MIGRATION_LOCK_KEY + ")");
+            }
+            try {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(CREATE_TABLE_SQL);
+                }
+                Map<Integer, String> done = appliedChecksums(conn);
+                for (Migration migration : migrations) {
+                    String sql = read(migration.file);
+                    String checksum = sha256(sql);
+                    if (done.containsKey(migration.version)) {
+                        String recorded = done.get(migration.version);
+                        if (recorded != null && !recorded.equals(checksum)) {
+                            System.err.println("Migration " + migration.file.getName()
+                                    + " has changed since it was applied; the change is ignored");
+                        }
+                        continue;
+                    }
+                    apply(conn, migration, sql, checksum);
+                    applied.add(migration.version);
+                }
+            } finally {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("SELECT pg_advisory_unlock(" + MIGRATION_LOCK_KEY + ")");
+                }
+            }
+        }
+        return applied;
+    }
+
+    private static void apply(Connection conn, Migration migration, String sql, String checksum) throws SQLException {
+        long start = System.nanoTime();
+        conn.setAutoCommit(false);
+        try {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(sql);
+            }
+            String insertSql = "INSERT INTO schema_migrations (version, description, checksum, execution_ms) VALUES (?, ?, ?, ?)";
+            try (PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
+                pstmt.setInt(1, migration.version);
+                pstmt.setString(2, migration.description);
+                pstmt.setString(3, checksum);
+                pstmt.setLong(4, (System.nanoTime() - start) / 1_000_000);
+                pstmt.executeUpdate();
+            }
+            conn.commit();
+            System.err.println("Applied migration " + migration.file.getName());
+        } catch (SQLException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+            throw new SQLException("Migration " + migration.file.getName() + " failed: " + e.getMessage(), e.getSQLState(), e);
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static Map<Integer, String> appliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, String> done = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT version, checksum FROM schema_migrations");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                done.put(rs.getInt("version"), rs.getString("checksum"));
+            }
+        }
+        return done;
+    }
+
+    /**
+     * The migration files in dir, sorted by version. Two files with the same version are an error.
+     */
+    static List<Migration> findMigrations(File dir) throws SQLException {
+        List<Migration> migrations = new ArrayList<>();
+        File[] files = dir.listFiles();
+        if (files == null) {
+            throw new SQLException("Migrations folder not found: " + dir.getAbsolutePath());
+        }
+        for (File file : files) {
+            Matcher m = FILE_NAME.matcher(file.getName());
+            if (m.matches()) {
+                migrations.add(new Migration(Integer.parseInt(m.group(1)), m.group(2).replace('_', ' '), file));
+            }
+        }
+        migrations.sort((a, b) -> Integer.compare(a.version, b.version));
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).version == migrations.get(i - 1).version) {
+                throw new SQLException("Two migrations have version " + migrations.get(i).version);
+            }
+        }
+        return migrations;
+    }
+
+    private static String read(File file) throws SQLException {
+        try {
+            return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SQLException("Could not read migration " + file.getName(), e);
+        }
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Every JVM is required to have it
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package dal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of prepared statements for one physical connection, keyed by SQL text.
+ * Reusing the same PreparedStatement lets the PostgreSQL driver switch to a
+ * server-side prepared plan after a few executions (its prepareThreshold).
+ * Statements are handed out as proxies whose close() only returns them to the cache,
+ * with their parameters, fetch size, max rows and query timeout reset.
+ */
+class StatementCache {
+
+    // Counters are shared by all connections so the whole pool can be judged at once
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+
+    private final Connection physical;
+    private final int capacity;
+    private final LinkedHashMap<String, CachedStatement> statements;
+    private final List<CachedStatement> uncached = new ArrayList<>(); // Handed out but not kept, closed on check-in
+
+    StatementCache(Connection physical, int capacity) {
+        this.physical = physical;
+        this.capacity = capacity;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true); // Access order = LRU
+    }
+
+    synchronized PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + sql : "N:" + sql;
+
+        CachedStatement cached = statements.get(key);
+        if (cached != null && !cached.inUse) {
+            hits.incrementAndGet();
+            cached.inUse = true;
+            return cached.proxy;
+        }
+
+        misses.incrementAndGet();
+        PreparedStatement ps = physical.prepareStatement(sql, autoGeneratedKeys);
+        boolean keep = cached == null && capacity > 0;
+        cached = new CachedStatement(this, ps);
+        cached.inUse = true;
+        if (!keep) {
+            // The cached copy is busy (the same SQL is open twice on this connection); use a throwaway one
+            cached.evicted = true;
+            uncached.add(cached);
+            return cached.proxy;
+        }
+
+        statements.put(key, cached);
+        evictIfNeeded();
+        return cached.proxy;
+    }
+
+    private void evictIfNeeded() {
+        Iterator<CachedStatement> it = statements.values().iterator();
+        while (statements.size() > capacity && it.hasNext()) {
+            CachedStatement eldest = it.next();
+            it.remove();
+            evictions.incrementAndGet();
+            eldest.evicted = true;
+            if (eldest.inUse) {
+                uncached.add(eldest); // Closed on check-in, or by releaseAll if the borrower never closes it
+            } else {
+                eldest.closeQuietly();
+            }
+        }
+    }
+
+    synchronized void checkIn(CachedStatement cached) {
+        cached.inUse = false;
+        if (cached.evicted) {
+            uncached.remove(cached);
+            cached.closeQuietly();
+            return;
+        }
+        try {
+            // Settings a borrower changed must not carry over to the next one
+            cached.physical.clearParameters();
+            cached.physical.setFetchSize(cached.defaultFetchSize);
+            cached.physical.setMaxRows(cached.defaultMaxRows);
+            cached.physical.setQueryTimeout(cached.defaultQueryTimeout);
+        } catch (SQLException e) {
+            statements.values().remove(cached);
+            cached.closeQuietly();
+        }
+    }
+
+    /**
+     * Called when the connection goes back to the pool, to reclaim statements the borrower never closed.
+     */
+    synchronized void releaseAll() {
+        List<CachedStatement> open = new ArrayList<>();
+        for (CachedStatement cached : statements.values()) {
+            if (cached.inUse) {
+                open.add(cached);
+            }
+        }
+        open.addAll(uncached);
+        for (CachedStatement cached : open) {
+            checkIn(cached);
+        }
+    }
+
+    // ========== CACHE COUNTERS ==========
+
+    static long getHits() { return hits.get(); }
+    static long getMisses() { return misses.get(); }
+    static long getEvictions() { return evictions.get(); }
+
+    static double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    // ========== CACHED STATEMENT ==========
+
+    static class CachedStatement implements InvocationHandler {
+        private final StatementCache cache;
+        final PreparedStatement physical;
+        final PreparedStatement proxy;
+        final int defaultFetchSize;
+        final int defaultMaxRows;
+        final int defaultQueryTimeout;
+        boolean inUse;
+        boolean evicted; // Not (or no longer) in the cache; closed for real on check-in
+
+        CachedStatement(StatementCache cache, PreparedStatement physical) throws SQLException {
+            this.cache = cache;
+            this.physical = physical;
+            this.defaultFetchSize = physical.getFetchSize();
+            this.defaultMaxRows = physical.getMaxRows();
+            this.defaultQueryTimeout = physical.getQueryTimeout();
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (cache) {
+                        if (inUse) {
+                            cache.checkIn(this);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return !inUse || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + physical + "]";
+                default:
+                    break;
+            }
+            if (!inUse) {
+                throw new SQLException("Statement has already been closed.");
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                // Connection is probably gone already
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package dal;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Sees every statement run on a pooled connection borrowed while it is
+ * installed with {@link ConnectionPool#addStatementObserver}. Several can be
+ * installed at once. Used by diagnostics tools and {@link QueryMetrics};
+ * without one installed statements are not wrapped at all.
+ */
+interface StatementObserver {
+
+    /**
+     * Called just before a statement executes, on the calling thread.
+     *
+     * @param connection the physical connection the statement runs on; an observer
+     *                   may run its own queries on it (they are not observed)
+     * @param sql        the statement text, with ? placeholders
+     * @param binds      the parameters set so far, in the order they were set
+     */
+    void beforeExecute(Connection connection, String sql, List<ObservedStatement.Bind> binds) throws SQLException;
+
+    /**
+     * Called when a connection has been borrowed from the pool, on the
+     * borrowing thread. The returned tag, which may be null, is handed back
+     * with every execution and ResultSet on that connection, so per-caller
+     * work such as finding the calling method is done once per borrow.
+     *
+     * @param waitNanos how long the borrow took
+     */
+    default Object connectionAcquired(long waitNanos) {
+        return null;
+    }
+
+    /**
+     * Called once the statement has executed, or failed, on the calling thread.
+     *
+     * @param tag   what {@link #connectionAcquired} returned for this connection
+     * @param nanos how long execute took, up to the first results
+     * @param error the failure, or null
+     */
+    default void afterExecute(Object tag, String sql, List<ObservedStatement.Bind> binds, long nanos, SQLException error) {
+    }
+
+    /**
+     * Called when a ResultSet from an observed statement is closed, directly or
+     * with its statement, with the number of rows read from it.
+     *
+     * @param tag what {@link #connectionAcquired} returned for this connection
+     */
+    default void resultSetClosed(Object tag, String sql, long rows) {
+    }
+}
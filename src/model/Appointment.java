@@ -7,7 +7,7 @@ public class Appointment {
     private int patientId;
     private int doctorId;
     private Date appointmentDate;
-    private String appointmentTime;
+    private int appointmentMinute = -1; // Minutes after midnight; -1 when no time is set
     private String status;
 
     // Transient fields (for display in tables/lists)
@@ -23,12 +23,44 @@ public class Appointment {
     public void setDoctorId(int doctorId) { this.doctorId = doctorId; }
     public Date getAppointmentDate() { return appointmentDate; }
     public void setAppointmentDate(Date appointmentDate) { this.appointmentDate = appointmentDate; }
-    public String getAppointmentTime() { return appointmentTime; }
-    public void setAppointmentTime(String appointmentTime) { this.appointmentTime = appointmentTime; }
+    public int getAppointmentMinute() { return appointmentMinute; }
+    public void setAppointmentMinute(int appointmentMinute) { this.appointmentMinute = appointmentMinute; }
+
+    /**
+     * The time for display, e.g. "10:00 AM", or null if no time is set.
+     */
+    public String getAppointmentTime() {
+        return appointmentMinute < 0 ? null : formatMinute(appointmentMinute);
+    }
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
     public String getPatientName() { return patientName; }
     public void setPatientName(String patientName) { this.patientName = patientName; }
     public String getDoctorName() { return doctorName; }
     public void setDoctorName(String doctorName) { this.doctorName = doctorName; }
-}
\ No newline at end of file
+
+    /**
+     * Formats minutes after midnight as "hh:mm AM", the form the time slots are shown in.
+     */
+    public static String formatMinute(int minuteOfDay) {
+        int hour = minuteOfDay / 60;
+        int hour12 = hour % 12 == 0 ? 12 : hour % 12;
+        return String.format("%02d:%02d %s", hour12, minuteOfDay % 60, hour < 12 ? "AM" : "PM");
+    }
+
+    /**
+     * Parses "hh:mm AM" / "hh:mm PM" into minutes after midnight.
+     */
+    public static int parseTime(String time) {
+        String[] parts = time.trim().split("[: ]+");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Not a time like 10:00 AM: " + time);
+        }
+        int hour = Integer.parseInt(parts[0]) % 12;
+        int minute = Integer.parseInt(parts[1]);
+        if ("PM".equalsIgnoreCase(parts[2])) {
+            hour += 12;
+        }
+        return hour * 60 + minute;
+    }
+}
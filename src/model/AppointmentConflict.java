@@ -0,0 +1,38 @@
+package model;
+
+/**
+ * One appointment from a bulk scheduling request that was not booked, and why.
+ */
+public class AppointmentConflict {
+
+    public enum Reason {
+        DUPLICATE_IN_REQUEST("Same doctor and slot appears earlier in the request"),
+        UNKNOWN_DOCTOR("No such doctor"),
+        UNKNOWN_PATIENT("No such patient"),
+        DOCTOR_NOT_AVAILABLE("Doctor does not work on that day"),
+        SLOT_TAKEN("Slot already booked");
+
+        private final String description;
+
+        Reason(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() { return description; }
+    }
+
+    private final int index; // Position in the request list
+    private final Appointment appointment;
+    private final Reason reason;
+
+    public AppointmentConflict(int index, Appointment appointment, Reason reason) {
+        this.index = index;
+        this.appointment = appointment;
+        this.reason = reason;
+    }
+
+    // Getters
+    public int getIndex() { return index; }
+    public Appointment getAppointment() { return appointment; }
+    public Reason getReason() { return reason; }
+}
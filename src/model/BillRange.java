@@ -0,0 +1,43 @@
+package model;
+
+import java.util.Date;
+
+/**
+ * Which bills a batch job covers: a bill id range, a bill date range, or both.
+ * Null bounds are open; both ends are inclusive.
+ */
+public class BillRange {
+    private Integer fromBillId;
+    private Integer toBillId;
+    private Date fromDate;
+    private Date toDate;
+
+    public static BillRange byBillId(Integer fromBillId, Integer toBillId) {
+        BillRange range = new BillRange();
+        range.fromBillId = fromBillId;
+        range.toBillId = toBillId;
+        return range;
+    }
+
+    public static BillRange byDate(Date fromDate, Date toDate) {
+        BillRange range = new BillRange();
+        range.fromDate = fromDate;
+        range.toDate = toDate;
+        return range;
+    }
+
+    // Getters
+    public Integer getFromBillId() { return fromBillId; }
+    public Integer getToBillId() { return toBillId; }
+    public Date getFromDate() { return fromDate; }
+    public Date getToDate() { return toDate; }
+
+    @Override
+    public String toString() {
+        if (fromDate != null || toDate != null) {
+            return "bills dated " + (fromDate != null ? new java.sql.Date(fromDate.getTime()) : "any") +
+                   " to " + (toDate != null ? new java.sql.Date(toDate.getTime()) : "any");
+        }
+        return "bills #" + (fromBillId != null ? fromBillId : "first") + " to #" + (toBillId != null ? toBillId : "last");
+    }
+}
@@ -0,0 +1,31 @@
+package model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Everything one panel shows on a tab switch, fetched by DataAccess in a single
+ * round trip. Lists the panel does not use are left empty.
+ */
+public class PanelSnapshot {
+    private List<Doctor> doctors = Collections.emptyList();
+    private List<ConfigBedType> bedTypes = Collections.emptyList();
+    private List<ConfigIllness> illnesses = Collections.emptyList();
+    private List<Patient> patients = Collections.emptyList();
+    private List<Bill> bills = Collections.emptyList();
+    private int patientCount; // Total admitted patients; patients may hold only the first page
+
+    // Getters and Setters
+    public List<Doctor> getDoctors() { return doctors; }
+    public void setDoctors(List<Doctor> doctors) { this.doctors = doctors; }
+    public List<ConfigBedType> getBedTypes() { return bedTypes; }
+    public void setBedTypes(List<ConfigBedType> bedTypes) { this.bedTypes = bedTypes; }
+    public List<ConfigIllness> getIllnesses() { return illnesses; }
+    public void setIllnesses(List<ConfigIllness> illnesses) { this.illnesses = illnesses; }
+    public List<Patient> getPatients() { return patients; }
+    public void setPatients(List<Patient> patients) { this.patients = patients; }
+    public List<Bill> getBills() { return bills; }
+    public void setBills(List<Bill> bills) { this.bills = bills; }
+    public int getPatientCount() { return patientCount; }
+    public void setPatientCount(int patientCount) { this.patientCount = patientCount; }
+}
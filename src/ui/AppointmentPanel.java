@@ -1,7 +1,9 @@
 package ui;
 
+import dal.AsyncDataAccess;
 import dal.DataAccess;
 import model.Appointment;
+import model.AppointmentConflict;
 import model.Doctor;
 import model.Patient;
 
@@ -11,18 +13,21 @@ import javax.swing.table.JTableHeader;
 import java.awt.*;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 
 public class AppointmentPanel extends JPanel {
     private final DataAccess dataAccess = new DataAccess();
+    private final AsyncDataAccess async = new AsyncDataAccess();
 
     // Components for the form
     private JComboBox<Patient> patientComboBox;
     private JComboBox<Doctor> doctorComboBox;
     private JSpinner dateSpinner;
     private JComboBox<String> timeComboBox;
+    private JSpinner repeatWeeksSpinner;
     private JButton saveButton;
     private JButton clearButton;
     private JLabel formTitleLabel;
@@ -37,6 +42,9 @@ public class AppointmentPanel extends JPanel {
 
     // State
     private int selectedAppointmentId = -1;
+    private Appointment appointmentBeingRescheduled; // As loaded, to recognise its own slot
+    private int loadsInFlight = 0;
+    private int patientsSeq = 0, doctorsSeq = 0, appointmentsSeq = 0; // Only the newest load of each may fill it in
 
     private final String[] TIME_SLOTS = {
             "09:00 AM", "09:30 AM", "10:00 AM", "10:30 AM", "11:00 AM", "11:30 AM",
@@ -112,8 +120,15 @@ public class AppointmentPanel extends JPanel {
         timeComboBox.setBackground(Color.WHITE);
         fieldsPanel.add(timeComboBox, gbc);
 
+        // Weekly series, booked in one call
+        gbc.gridx = 0; gbc.gridy = 4;
+        fieldsPanel.add(new JLabel("Repeat Weekly (weeks):"), gbc);
+        gbc.gridx = 1;
+        repeatWeeksSpinner = new JSpinner(new SpinnerNumberModel(1, 1, 52, 1));
+        fieldsPanel.add(repeatWeeksSpinner, gbc);
+
         // Buttons
-        gbc.gridx = 1; gbc.gridy = 4;
+        gbc.gridx = 1; gbc.gridy = 5;
         gbc.fill = GridBagConstraints.NONE;
         gbc.anchor = GridBagConstraints.EAST;
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
@@ -194,34 +209,54 @@ public class AppointmentPanel extends JPanel {
 
     // --- Data Loading Methods ---
 
+    // Reads run in the background; the busy cursor shows while any is in flight
+    private void startLoad() {
+        if (loadsInFlight++ == 0) AsyncUi.setLoading(this, true);
+    }
+
+    private void finishLoad() {
+        if (--loadsInFlight == 0) AsyncUi.setLoading(this, false);
+    }
+
     public void loadAllPatients() {
-        try {
+        int seq = ++patientsSeq;
+        startLoad();
+        AsyncUi.onEdt(async.call(dataAccess::getAllPatients), patients -> {
+            finishLoad();
+            if (seq != patientsSeq) return;
+            Patient selected = (Patient) patientComboBox.getSelectedItem();
             patientComboBox.removeAllItems();
-            List<Patient> patients = dataAccess.getAllPatients();
-            for (Patient p : patients) {
-                patientComboBox.addItem(p);
-            }
-        } catch (SQLException e) {
-            showError("Could not load patients: " + e.getMessage());
-        }
+            patients.forEach(patientComboBox::addItem);
+            if (selected != null) selectPatient(selected.getPatientId());
+        }, error -> {
+            finishLoad();
+            if (seq == patientsSeq) showError("Could not load patients: " + error.getMessage());
+        });
     }
 
     public void loadAllDoctors() {
-        try {
+        int seq = ++doctorsSeq;
+        startLoad();
+        AsyncUi.onEdt(async.call(dataAccess::getAllDoctors), doctors -> {
+            finishLoad();
+            if (seq != doctorsSeq) return;
+            Doctor selected = (Doctor) doctorComboBox.getSelectedItem();
             doctorComboBox.removeAllItems();
-            List<Doctor> doctors = dataAccess.getAllDoctors();
-            for (Doctor d : doctors) {
-                doctorComboBox.addItem(d);
-            }
-        } catch (SQLException e) {
-            showError("Could not load doctors: " + e.getMessage());
-        }
+            doctors.forEach(doctorComboBox::addItem);
+            if (selected != null) selectDoctor(selected.getDoctorId());
+        }, error -> {
+            finishLoad();
+            if (seq == doctorsSeq) showError("Could not load doctors: " + error.getMessage());
+        });
     }
 
     private void loadAppointmentsForDate(Date date) {
-        try {
-            tableModel.setRowCount(0);
-            List<Appointment> appointments = dataAccess.getScheduledAppointments(date);
+        int seq = ++appointmentsSeq;
+        tableModel.setRowCount(0);
+        startLoad();
+        AsyncUi.onEdt(async.call(() -> dataAccess.getScheduledAppointments(date)), appointments -> {
+            finishLoad();
+            if (seq != appointmentsSeq) return;
             for (Appointment appt : appointments) {
                 tableModel.addRow(new Object[]{
                         appt.getAppointmentId(),
@@ -231,8 +266,27 @@ public class AppointmentPanel extends JPanel {
                         appt.getStatus()
                 });
             }
-        } catch (SQLException e) {
-            showError("Could not load appointments: " + e.getMessage());
+        }, error -> {
+            finishLoad();
+            if (seq == appointmentsSeq) showError("Could not load appointments: " + error.getMessage());
+        });
+    }
+
+    private void selectPatient(int patientId) {
+        for (int i = 0; i < patientComboBox.getItemCount(); i++) {
+            if (patientComboBox.getItemAt(i).getPatientId() == patientId) {
+                patientComboBox.setSelectedIndex(i);
+                break;
+            }
+        }
+    }
+
+    private void selectDoctor(int doctorId) {
+        for (int i = 0; i < doctorComboBox.getItemCount(); i++) {
+            if (doctorComboBox.getItemAt(i).getDoctorId() == doctorId) {
+                doctorComboBox.setSelectedIndex(i);
+                break;
+            }
         }
     }
 
@@ -242,58 +296,124 @@ public class AppointmentPanel extends JPanel {
         Patient selectedPatient = (Patient) patientComboBox.getSelectedItem();
         Doctor selectedDoctor = (Doctor) doctorComboBox.getSelectedItem();
         Date selectedDate = (Date) dateSpinner.getValue();
-        String selectedTime = (String) timeComboBox.getSelectedItem();
+        int selectedMinute = Appointment.parseTime((String) timeComboBox.getSelectedItem());
 
         if (selectedPatient == null || selectedDoctor == null) {
             showError("Please select a patient and a doctor.");
             return;
         }
 
-        try {
-            String dayAbbr = new SimpleDateFormat("EEE").format(selectedDate);
-            String availableDays = selectedDoctor.getAvailableDays();
-            if (availableDays == null || !availableDays.contains(dayAbbr)) {
-                showError("Dr. " + selectedDoctor.getName() + " is not available on " + dayAbbr + "s.");
-                return;
-            }
+        String dayAbbr = new SimpleDateFormat("EEE").format(selectedDate);
+        String availableDays = selectedDoctor.getAvailableDays();
+        if (availableDays == null || !availableDays.contains(dayAbbr)) {
+            showError("Dr. " + selectedDoctor.getName() + " is not available on " + dayAbbr + "s.");
+            return;
+        }
 
-            List<String> bookedSlots = dataAccess.getBookedSlots(selectedDoctor.getDoctorId(), selectedDate);
-            if (bookedSlots.contains(selectedTime)) {
-                int conflictingApptId = dataAccess.getAppointmentBySlot(selectedDoctor.getDoctorId(), selectedDate, selectedTime);
-                if (conflictingApptId != selectedAppointmentId) {
-                    showError("This time slot is already booked for Dr. " + selectedDoctor.getName() + ".");
-                    return;
+        int weeks = (Integer) repeatWeeksSpinner.getValue();
+        int appointmentId = selectedAppointmentId;
+        boolean checkSlot = !isOwnSlot(selectedDoctor.getDoctorId(), selectedDate, selectedMinute);
+        String slotTaken = "This time slot is already booked for Dr. " + selectedDoctor.getName() + ".";
+
+        // The slot check and the write run in the background; the button stays off until they finish
+        setSaving(true);
+        if (appointmentId == -1 && weeks > 1) {
+            AsyncUi.onEdt(async.call(() -> isSlotTaken(checkSlot, selectedDoctor, selectedDate, selectedMinute) ? null
+                    : weeklySeries(selectedPatient, selectedDoctor, selectedDate, selectedMinute, weeks)), conflicts -> {
+                setSaving(false);
+                if (conflicts == null) {
+                    showError(slotTaken);
+                } else {
+                    showSeriesResult(weeks, conflicts);
                 }
-            }
+            }, this::saveFailed);
+            return;
+        }
 
-            Appointment appt = new Appointment();
-            appt.setPatientId(selectedPatient.getPatientId());
-            appt.setDoctorId(selectedDoctor.getDoctorId());
-            appt.setAppointmentDate(selectedDate);
-            appt.setAppointmentTime(selectedTime);
-
-            boolean success;
-            if (selectedAppointmentId == -1) {
-                success = dataAccess.addAppointment(appt);
+        Appointment appt = new Appointment();
+        appt.setPatientId(selectedPatient.getPatientId());
+        appt.setDoctorId(selectedDoctor.getDoctorId());
+        appt.setAppointmentDate(selectedDate);
+        appt.setAppointmentMinute(selectedMinute);
+        if (appointmentId != -1) {
+            appt.setAppointmentId(appointmentId);
+        }
+        AsyncUi.onEdt(async.call(() -> !isSlotTaken(checkSlot, selectedDoctor, selectedDate, selectedMinute)
+                && (appointmentId == -1 ? dataAccess.addAppointment(appt) : dataAccess.updateAppointment(appt))), success -> {
+            setSaving(false);
+            if (!success) {
+                showError(slotTaken); // Booked already, or someone else booked it first
             } else {
-                appt.setAppointmentId(selectedAppointmentId);
-                success = dataAccess.updateAppointment(appt);
-            }
-
-            if (success) {
-                String message = (selectedAppointmentId == -1)
+                String message = (appointmentId == -1)
                         ? "Appointment booked successfully!"
                         : "Appointment rescheduled successfully!";
                 JOptionPane.showMessageDialog(this, message, "Success", JOptionPane.INFORMATION_MESSAGE);
                 loadAppointmentsForDate((Date) viewDateSpinner.getValue());
                 clearForm();
-            } else {
-                showError("Failed to save appointment.");
             }
+        }, this::saveFailed);
+    }
+
+    /**
+     * Quick answer from the cached slot bitmap; the insert or update is the real check. Runs off the EDT.
+     */
+    private boolean isSlotTaken(boolean checkSlot, Doctor doctor, Date date, int minuteOfDay) throws SQLException {
+        return checkSlot && dataAccess.isSlotBooked(doctor.getDoctorId(), date, minuteOfDay);
+    }
+
+    private void saveFailed(Throwable error) {
+        setSaving(false);
+        showError("Database error: " + error.getMessage());
+    }
+
+    private void setSaving(boolean saving) {
+        saveButton.setEnabled(!saving);
+        AsyncUi.setLoading(this, saving);
+    }
+
+    /**
+     * Books the same slot on the same weekday for the given number of weeks.
+     * Free weeks are booked even if others are taken; returns the ones that were not.
+     * Runs off the EDT.
+     */
+    private List<AppointmentConflict> weeklySeries(Patient patient, Doctor doctor, Date firstDate, int minuteOfDay, int weeks) throws SQLException {
+        List<Appointment> series = new ArrayList<>();
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(firstDate);
+        for (int i = 0; i < weeks; i++) {
+            Appointment appt = new Appointment();
+            appt.setPatientId(patient.getPatientId());
+            appt.setDoctorId(doctor.getDoctorId());
+            appt.setAppointmentDate(cal.getTime());
+            appt.setAppointmentMinute(minuteOfDay);
+            series.add(appt);
+            cal.add(Calendar.WEEK_OF_YEAR, 1);
+        }
+        return dataAccess.scheduleAppointments(series);
+    }
 
-        } catch (SQLException e) {
-            showError("Database error: " + e.getMessage());
+    private void showSeriesResult(int weeks, List<AppointmentConflict> conflicts) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        StringBuilder message = new StringBuilder("Booked " + (weeks - conflicts.size()) + " of " + weeks + " weekly appointments.");
+        for (AppointmentConflict conflict : conflicts) {
+            message.append("\n").append(dateFormat.format(conflict.getAppointment().getAppointmentDate()))
+                   .append(": ").append(conflict.getReason().getDescription());
         }
+        JOptionPane.showMessageDialog(this, message.toString(), "Weekly Appointments",
+                conflicts.isEmpty() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+        loadAppointmentsForDate((Date) viewDateSpinner.getValue());
+        clearForm();
+    }
+
+    /**
+     * True if this is the slot the appointment being rescheduled already holds.
+     */
+    private boolean isOwnSlot(int doctorId, Date date, int minuteOfDay) {
+        Appointment own = appointmentBeingRescheduled;
+        return own != null && "Scheduled".equals(own.getStatus())
+                && own.getDoctorId() == doctorId
+                && own.getAppointmentMinute() == minuteOfDay
+                && new java.sql.Date(own.getAppointmentDate().getTime()).toString().equals(new java.sql.Date(date.getTime()).toString());
     }
 
     private void populateFormForReschedule() {
@@ -304,39 +424,34 @@ public class AppointmentPanel extends JPanel {
         }
 
         int appointmentId = (int) tableModel.getValueAt(selectedRow, 0);
-        try {
-            Appointment appt = dataAccess.getAppointmentById(appointmentId);
+        rescheduleButton.setEnabled(false);
+        startLoad();
+        AsyncUi.onEdt(async.call(() -> dataAccess.getAppointmentById(appointmentId)), appt -> {
+            finishLoad();
+            rescheduleButton.setEnabled(appointmentTable.getSelectedRow() != -1);
             if (appt == null) {
                 showError("Could not find appointment details.");
                 return;
             }
 
             selectedAppointmentId = appt.getAppointmentId();
+            appointmentBeingRescheduled = appt;
             formTitleLabel.setText("Reschedule Appointment (ID: " + appointmentId + ")");
             saveButton.setText("Save Changes");
             patientComboBox.setEnabled(false);
             doctorComboBox.setEnabled(false);
+            repeatWeeksSpinner.setValue(1);
+            repeatWeeksSpinner.setEnabled(false);
 
-            for (int i = 0; i < patientComboBox.getItemCount(); i++) {
-                if (patientComboBox.getItemAt(i).getPatientId() == appt.getPatientId()) {
-                    patientComboBox.setSelectedIndex(i);
-                    break;
-                }
-            }
-
-            for (int i = 0; i < doctorComboBox.getItemCount(); i++) {
-                if (doctorComboBox.getItemAt(i).getDoctorId() == appt.getDoctorId()) {
-                    doctorComboBox.setSelectedIndex(i);
-                    break;
-                }
-            }
-
+            selectPatient(appt.getPatientId());
+            selectDoctor(appt.getDoctorId());
             dateSpinner.setValue(appt.getAppointmentDate());
             timeComboBox.setSelectedItem(appt.getAppointmentTime());
-
-        } catch (SQLException e) {
-            showError("Error fetching appointment details: " + e.getMessage());
-        }
+        }, error -> {
+            finishLoad();
+            rescheduleButton.setEnabled(appointmentTable.getSelectedRow() != -1);
+            showError("Error fetching appointment details: " + error.getMessage());
+        });
     }
 
     private void cancelAppointment() {
@@ -375,10 +490,13 @@ public class AppointmentPanel extends JPanel {
 
     private void clearForm() {
         selectedAppointmentId = -1;
+        appointmentBeingRescheduled = null;
         formTitleLabel.setText("Book New Appointment");
         saveButton.setText("Save Appointment");
         patientComboBox.setEnabled(true);
         doctorComboBox.setEnabled(true);
+        repeatWeeksSpinner.setEnabled(true);
+        repeatWeeksSpinner.setValue(1);
 
         if (patientComboBox.getItemCount() > 0) patientComboBox.setSelectedIndex(0);
         if (doctorComboBox.getItemCount() > 0) doctorComboBox.setSelectedIndex(0);
@@ -0,0 +1,82 @@
+package ui;
+
+import dal.AsyncDataAccess;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Helpers for handing the result of an async DataAccess call back to the EDT.
+ */
+final class AsyncUi {
+
+    private AsyncUi() {}
+
+    /**
+     * Runs onSuccess or onError on the EDT once the future completes.
+     * onError receives the original exception (usually a SQLException), not the CompletionException.
+     */
+    static <T> void onEdt(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (error == null) {
+                onSuccess.accept(result);
+            } else {
+                onError.accept(AsyncDataAccess.rootCause(error));
+            }
+        }));
+    }
+
+    /**
+     * Calls onChange with the field's text once the user has stopped typing for
+     * delayMillis, instead of on every keystroke. Runs on the EDT.
+     */
+    static void onTextSettled(JTextField field, int delayMillis, Consumer<String> onChange) {
+        Timer timer = new Timer(delayMillis, e -> onChange.accept(field.getText()));
+        timer.setRepeats(false);
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            public void changedUpdate(DocumentEvent e) { timer.restart(); }
+            public void removeUpdate(DocumentEvent e) { timer.restart(); }
+            public void insertUpdate(DocumentEvent e) { timer.restart(); }
+        });
+    }
+
+    /**
+     * Shows or clears the busy cursor on a component while it is waiting for data.
+     */
+    static void setLoading(Component component, boolean loading) {
+        component.setCursor(loading ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : null);
+    }
+
+    /**
+     * Told which rows of a table are in view.
+     */
+    interface RowsShown {
+        void rowsShown(int firstRow, int lastRow);
+    }
+
+    /**
+     * Calls onShown with the first and last row the table shows (both -1 if it
+     * has none) whenever the scroll pane scrolls or resizes, or the rows change.
+     * Paged table models use it to fetch rows, so that painting cells never runs a query.
+     * The tables it is used on have no row sorter, so view and model rows are the same.
+     */
+    static void onRowsShown(JTable table, JScrollPane scrollPane, RowsShown onShown) {
+        scrollPane.getViewport().addChangeListener(e -> {
+            if (table.getRowCount() == 0) {
+                onShown.rowsShown(-1, -1);
+                return;
+            }
+            Rectangle visible = scrollPane.getViewport().getViewRect();
+            int first = Math.max(table.rowAtPoint(visible.getLocation()), 0);
+            int last = table.rowAtPoint(new Point(0, visible.y + visible.height - 1));
+            if (last == -1) {
+                last = table.getRowCount() - 1; // The rows end above the bottom of the viewport
+            }
+            onShown.rowsShown(first, last);
+        });
+    }
+}
@@ -1,15 +1,19 @@
 package ui;
 
+import dal.AsyncDataAccess;
+import dal.BedAvailabilityIndex;
 import dal.DataAccess;
 import model.Bed;
 import javax.swing.*;
 import java.awt.*;
-import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class BedManagementPanel extends JPanel {
     private final DataAccess dataAccess = new DataAccess();
+    private final AsyncDataAccess async = new AsyncDataAccess();
+    private int loadSeq = 0;
     private JLabel countLabel;
     private int totalBeds = 0;
     private JPanel mainContentPanel;
@@ -93,59 +97,67 @@ public class BedManagementPanel extends JPanel {
 
     /**
      * Refreshes the bed layout grouped by floor and updates statistics.
-     * Uses the latest DataAccess.getBedsGroupedByFloor() method.
+     * Uses the latest DataAccess.getBedsGroupedByFloor() method; the counts
+     * come from the in-memory occupancy index. Both are fetched in the
+     * background and the layout is rebuilt once they have arrived.
      */
     public void refreshBedLayout() {
-        mainContentPanel.removeAll();
-        totalBeds = 0;
-        int availableBeds = 0;
-        int occupiedBeds = 0;
-
-        try {
-            Map<Integer, List<Bed>> floorMap = dataAccess.getBedsGroupedByFloor();
-
-            for (Map.Entry<Integer, List<Bed>> entry : floorMap.entrySet()) {
-                int floorNumber = entry.getKey();
-                List<Bed> bedsOnFloor = entry.getValue();
-
-                JPanel floorPanel = new JPanel(new WrapLayout(WrapLayout.LEFT, 10, 10));
-                floorPanel.setBackground(Color.WHITE);
-                floorPanel.setBorder(BorderFactory.createTitledBorder(
-                        BorderFactory.createLineBorder(Color.LIGHT_GRAY),
-                        "Floor " + floorNumber,
-                        javax.swing.border.TitledBorder.LEFT,
-                        javax.swing.border.TitledBorder.TOP,
-                        new Font("Segoe UI", Font.BOLD, 16),
-                        Color.DARK_GRAY
-                ));
-
-                for (Bed bed : bedsOnFloor) {
-                    // Each BedBlock shows joined data: ID, Type, Patient, etc.
-                    floorPanel.add(new BedBlock(bed));
-                    totalBeds++;
-                    if ("Available".equalsIgnoreCase(bed.getStatus())) {
-                        availableBeds++;
-                    } else {
-                        occupiedBeds++;
-                    }
-                }
-
-                mainContentPanel.add(floorPanel);
-                mainContentPanel.add(Box.createRigidArea(new Dimension(0, 10)));
+        CompletableFuture<Map<Integer, List<Bed>>> beds = async.call(dataAccess::getBedsGroupedByFloor);
+        CompletableFuture<BedAvailabilityIndex> index = async.call(dataAccess::getBedAvailability);
+        int seq = ++loadSeq;
+        countLabel.setText("Loading beds...");
+        AsyncUi.setLoading(this, true);
+
+        AsyncUi.onEdt(CompletableFuture.allOf(beds, index), done -> {
+            if (seq == loadSeq) {
+                AsyncUi.setLoading(this, false);
+                showBedLayout(beds.join(), index.join());
+            }
+        }, error -> {
+            if (seq == loadSeq) {
+                AsyncUi.setLoading(this, false);
+                error.printStackTrace();
+                JOptionPane.showMessageDialog(this, "Error loading bed data: " + error.getMessage(),
+                        "Database Error", JOptionPane.ERROR_MESSAGE);
             }
+        });
+    }
 
-            countLabel.setText(String.format(
-                    "Total Beds: %d (Available: %d | Occupied: %d)",
-                    totalBeds, availableBeds, occupiedBeds
+    private void showBedLayout(Map<Integer, List<Bed>> floorMap, BedAvailabilityIndex availability) {
+        mainContentPanel.removeAll();
+
+        for (Map.Entry<Integer, List<Bed>> entry : floorMap.entrySet()) {
+            int floorNumber = entry.getKey();
+            List<Bed> bedsOnFloor = entry.getValue();
+
+            JPanel floorPanel = new JPanel(new WrapLayout(WrapLayout.LEFT, 10, 10));
+            floorPanel.setBackground(Color.WHITE);
+            floorPanel.setBorder(BorderFactory.createTitledBorder(
+                    BorderFactory.createLineBorder(Color.LIGHT_GRAY),
+                    String.format("Floor %d (%d of %d free)", floorNumber,
+                            availability.countFreeOnFloor(floorNumber), availability.countBedsOnFloor(floorNumber)),
+                    javax.swing.border.TitledBorder.LEFT,
+                    javax.swing.border.TitledBorder.TOP,
+                    new Font("Segoe UI", Font.BOLD, 16),
+                    Color.DARK_GRAY
             ));
 
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error loading bed data: " + e.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
+            for (Bed bed : bedsOnFloor) {
+                // Each BedBlock shows joined data: ID, Type, Patient, etc.
+                floorPanel.add(new BedBlock(bed));
+            }
+
+            mainContentPanel.add(floorPanel);
+            mainContentPanel.add(Box.createRigidArea(new Dimension(0, 10)));
         }
 
+        totalBeds = availability.getTotalBeds();
+        countLabel.setText(String.format(
+                "Total Beds: %d (Available: %d | Occupied: %d)",
+                totalBeds, availability.getTotalFree(), availability.getTotalOccupied()
+        ));
+
         mainContentPanel.revalidate();
         mainContentPanel.repaint();
     }
-}
+}
\ No newline at end of file
@@ -1,13 +1,13 @@
 package ui;
 
+import dal.AsyncDataAccess;
 import dal.DataAccess;
 import model.Bill;
 import model.Patient;
-import util.PdfGenerator;
+import util.PdfJobQueue;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.File;
 import java.text.SimpleDateFormat;
 // import java.util.concurrent.TimeUnit;
 
@@ -15,6 +15,7 @@ public class BillDialog extends JDialog {
     private Bill bill;
     private Patient patient;
     private DataAccess dataAccess;
+    private final AsyncDataAccess async = new AsyncDataAccess();
     private JButton downloadPdfButton;
     private JButton closeButton;
 
@@ -27,29 +28,42 @@ public class BillDialog extends JDialog {
         setLocationRelativeTo(owner);
         setLayout(new BorderLayout(10, 10));
 
-        // Fetch full patient details
-        try {
-            // This method now fetches all details needed for the PDF
-            this.patient = dataAccess.getPatientById(bill.getPatientId());
-            
-            if (this.patient == null) {
-                // If patient was deleted, create a placeholder
-                this.patient = new Patient();
-                this.patient.setName(bill.getPatientName());
-                this.patient.setPatientId(bill.getPatientId());
-                // We don't have illness/admitted date, but that's ok
-            }
-            
-        } catch (Exception e) {
-            e.printStackTrace();
-            this.patient = new Patient(); // Failsafe
-            this.patient.setName(bill.getPatientName());
-            this.patient.setPatientId(bill.getPatientId());
-        }
+        // Name and id come from the bill; the full patient record is needed only for the PDF
+        this.patient = placeholderPatient();
 
         add(createHeaderPanel(), BorderLayout.NORTH);
         add(createDetailsPanel(), BorderLayout.CENTER);
         add(createButtonPanel(), BorderLayout.SOUTH);
+
+        loadPatient();
+    }
+
+    // Fetches the full patient details for the PDF; Download PDF stays disabled until they arrive
+    private void loadPatient() {
+        downloadPdfButton.setEnabled(false);
+        AsyncUi.setLoading(this, true);
+        AsyncUi.onEdt(async.call(() -> dataAccess.getPatientById(bill.getPatientId())),
+            loaded -> {
+                // If patient was deleted, keep the placeholder
+                if (loaded != null) {
+                    this.patient = loaded;
+                }
+                AsyncUi.setLoading(this, false);
+                downloadPdfButton.setEnabled(true);
+            },
+            error -> {
+                error.printStackTrace(); // Failsafe: the placeholder still has name and id
+                AsyncUi.setLoading(this, false);
+                downloadPdfButton.setEnabled(true);
+            });
+    }
+
+    private Patient placeholderPatient() {
+        Patient placeholder = new Patient();
+        placeholder.setName(bill.getPatientName());
+        placeholder.setPatientId(bill.getPatientId());
+        // We don't have illness/admitted date, but that's ok
+        return placeholder;
     }
     
     private JPanel createHeaderPanel() {
@@ -159,17 +173,13 @@ public class BillDialog extends JDialog {
     // [START] UPDATED METHOD: downloadPdf
     private void downloadPdf() {
         try {
-            // We use the patient object we fetched in the constructor
-            File pdfFile = PdfGenerator.generateBillPdf(bill, this.patient);
-            
-            // --- UPDATED MESSAGE ---
-            JOptionPane.showMessageDialog(this, 
-                "PDF saved successfully to:\n" + pdfFile.getAbsolutePath(), 
-                "Download Complete", 
+            // Rendered in the background; MainFrame opens the PDF when it is ready
+            boolean queued = PdfJobQueue.submit(bill, this.patient, true);
+            JOptionPane.showMessageDialog(this,
+                (queued ? "The PDF is being generated" : "The PDF for this invoice is already being generated")
+                    + " and will open when it is ready.\nYou can keep working in the meantime.",
+                "Download Started",
                 JOptionPane.INFORMATION_MESSAGE);
-            // --- END UPDATED MESSAGE ---
-                
-            PdfGenerator.openPdf(pdfFile); // Try to open the file
         } catch (Exception e) {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this, "Error generating PDF: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
@@ -0,0 +1,256 @@
+package ui;
+
+import dal.AsyncDataAccess;
+import dal.DataAccess;
+import model.Bill;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Windowed table model for BillingPanel's history table.
+ *
+ * The history is streamed from the database newest first, a page at a time,
+ * and rows appear as soon as each page arrives. Only MAX_CACHED_PAGES pages of
+ * bills are kept; for the rest just the first bill of each page is remembered,
+ * and a page the user scrolls back to is re-read from that key when the panel
+ * reports those rows in view. Memory use is
+ * therefore bounded no matter how long the history is.
+ */
+class BillingHistoryTableModel extends AbstractTableModel {
+
+    static final int PAGE_SIZE = DataAccess.BILLING_FETCH_SIZE;
+    private static final int MAX_CACHED_PAGES = 20;
+    private static final String LOADING = "...";
+
+    private static final String[] COLUMNS = {"Bill ID", "Patient Name", "Total (₹)", "Bill Date"};
+
+    /**
+     * Told about progress on the EDT, so the panel can update its totals label.
+     */
+    interface Listener {
+        void historyProgress(int rows, double revenue, boolean complete);
+        void historyFailed(Throwable error);
+    }
+
+    private final DataAccess dataAccess;
+    private final AsyncDataAccess async = new AsyncDataAccess();
+    private final Listener listener;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+
+    private final List<Bill> pageKeys = new ArrayList<>(); // First bill of every page, in row order
+    private final Map<Integer, List<Bill>> pages = new LinkedHashMap<Integer, List<Bill>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Bill>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> pagesLoading = new HashSet<>();
+    private int rowCount;
+    private double revenue;
+    private volatile int generation; // Bumped on every reload; work for an older generation is dropped
+
+    // Streamed pages waiting for the EDT; the stream blocks rather than queue more than this
+    private static final int MAX_PAGES_IN_FLIGHT = 4;
+    private final Semaphore pagesInFlight = new Semaphore(MAX_PAGES_IN_FLIGHT);
+
+    BillingHistoryTableModel(DataAccess dataAccess, Listener listener) {
+        this.dataAccess = dataAccess;
+        this.listener = listener;
+    }
+
+    /**
+     * Shows a first page fetched elsewhere (the panel snapshot) and, if it was
+     * full, streams the rest of the history after it.
+     */
+    void showFirstPage(List<Bill> firstPage) {
+        int requestGeneration = reset();
+        if (!firstPage.isEmpty()) {
+            addPage(firstPage);
+        }
+        boolean complete = firstPage.size() < PAGE_SIZE;
+        listener.historyProgress(rowCount, revenue, complete);
+        if (!complete) {
+            streamAfter(firstPage.get(firstPage.size() - 1), requestGeneration);
+        }
+    }
+
+    /**
+     * Streams the whole history from the newest bill.
+     */
+    void reload() {
+        int requestGeneration = reset();
+        listener.historyProgress(0, 0, false);
+        streamAfter(null, requestGeneration);
+    }
+
+    /**
+     * Shows a short, already loaded list such as search results; nothing is streamed.
+     */
+    void showBills(List<Bill> bills) {
+        reset();
+        for (int i = 0; i < bills.size(); i += PAGE_SIZE) {
+            addPage(new ArrayList<>(bills.subList(i, Math.min(i + PAGE_SIZE, bills.size()))));
+        }
+        listener.historyProgress(rowCount, revenue, true);
+    }
+
+    private int reset() {
+        generation++;
+        pageKeys.clear();
+        pages.clear();
+        pagesLoading.clear();
+        rowCount = 0;
+        revenue = 0;
+        fireTableDataChanged();
+        return generation;
+    }
+
+    private void addPage(List<Bill> page) {
+        int pageIndex = pageKeys.size();
+        pageKeys.add(page.get(0));
+        // While streaming, only the first pages are kept; the ones the user scrolls to are read back later
+        if (pages.size() < MAX_CACHED_PAGES) {
+            pages.put(pageIndex, page);
+        }
+        for (Bill bill : page) {
+            revenue += bill.getTotal();
+        }
+        int first = rowCount;
+        rowCount += page.size();
+        fireTableRowsInserted(first, rowCount - 1);
+    }
+
+    private void streamAfter(Bill after, int requestGeneration) {
+        async.call(() -> {
+            List<Bill> buffer = new ArrayList<>(PAGE_SIZE);
+            dataAccess.streamBillingHistory(after, bill -> {
+                buffer.add(bill);
+                if (buffer.size() == PAGE_SIZE) {
+                    handOver(new ArrayList<>(buffer), requestGeneration, false);
+                    buffer.clear();
+                }
+                return requestGeneration == generation; // Stop reading once the table has been reloaded
+            });
+            handOver(new ArrayList<>(buffer), requestGeneration, true);
+            return null;
+        }).whenComplete((ignored, error) -> {
+            if (error != null) {
+                SwingUtilities.invokeLater(() -> {
+                    if (requestGeneration == generation) {
+                        listener.historyFailed(AsyncDataAccess.rootCause(error));
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Runs on the streaming thread; passes one page to the EDT.
+     */
+    private void handOver(List<Bill> page, int requestGeneration, boolean complete) {
+        pagesInFlight.acquireUninterruptibly();
+        SwingUtilities.invokeLater(() -> {
+            try {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                if (!page.isEmpty()) {
+                    addPage(page);
+                }
+                listener.historyProgress(rowCount, revenue, complete);
+            } finally {
+                pagesInFlight.release();
+            }
+        });
+    }
+
+    private void loadPage(int pageIndex) {
+        if (!pagesLoading.add(pageIndex)) {
+            return;
+        }
+        int requestGeneration = generation;
+        Bill from = pageKeys.get(pageIndex);
+        AsyncUi.onEdt(async.call(() -> dataAccess.getBillingHistoryPage(from, PAGE_SIZE)), page -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            pagesLoading.remove(pageIndex);
+            pages.put(pageIndex, page);
+            int first = pageIndex * PAGE_SIZE;
+            int last = Math.min(first + PAGE_SIZE, rowCount) - 1;
+            fireTableRowsUpdated(first, last);
+        }, error -> {
+            if (requestGeneration == generation) {
+                pagesLoading.remove(pageIndex);
+                listener.historyFailed(error);
+            }
+        });
+    }
+
+    /**
+     * Reads back any page of the given rows that is not in memory. Called from
+     * the scroll pane's viewport listener, so that painting cells never starts a query.
+     */
+    void loadPagesShown(int firstRow, int lastRow) {
+        if (firstRow < 0) {
+            return;
+        }
+        for (int pageIndex = firstRow / PAGE_SIZE; pageIndex <= lastRow / PAGE_SIZE; pageIndex++) {
+            if (!pages.containsKey(pageIndex)) {
+                loadPage(pageIndex);
+            }
+        }
+    }
+
+    /**
+     * The bill on this row, or null if its page is not in memory right now (it is read back once in view).
+     */
+    Bill getBillAt(int row) {
+        List<Bill> page = pages.get(row / PAGE_SIZE);
+        if (page == null) {
+            return null;
+        }
+        int offset = row % PAGE_SIZE;
+        // A re-read page can be shorter if bills were deleted since the history was streamed
+        return offset < page.size() ? page.get(offset) : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Bill bill = getBillAt(rowIndex);
+        if (bill == null) {
+            return LOADING;
+        }
+        switch (columnIndex) {
+            case 0: return bill.getBillId();
+            case 1: return bill.getPatientName();
+            case 2: return String.format("₹%.2f", bill.getTotal());
+            case 3: return dateFormat.format(bill.getBillDate());
+            default: return null;
+        }
+    }
+}
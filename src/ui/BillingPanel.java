@@ -1,26 +1,28 @@
 package ui;
 
+import dal.AsyncDataAccess;
 import dal.DataAccess;
 import model.Bill;
 import model.Doctor;
 import model.Patient;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
-import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 public class BillingPanel extends JPanel {
     private final DataAccess dataAccess = new DataAccess();
+    private final AsyncDataAccess async = new AsyncDataAccess();
     private static final double BASE_SERVICE_CHARGE = 500.00;
+    private static final int SEARCH_DELAY_MS = 250;
+    private static final int SEARCH_LIMIT = 200;
 
     private JComboBox<Patient> patientComboBox;
     private JTextField bedChargeField, serviceChargeField, doctorFeeField, totalField, daysStayedField;
@@ -28,12 +30,11 @@ public class BillingPanel extends JPanel {
 
     // Components for Billing History
     private JTable historyTable;
-    private DefaultTableModel historyTableModel;
+    private BillingHistoryTableModel historyModel;
     private JTextField searchField;
-    private TableRowSorter<DefaultTableModel> sorter;
     private JLabel totalRevenueLabel;
 
-    private List<Bill> billingHistory; // Stores list of Bill objects
+    private int historySeq = 0; // Only the latest history load or search may fill the table
 
     // [NEW] Reference to PatientPanel for refreshing after discharge
     private PatientPanel patientPanel;
@@ -48,8 +49,7 @@ public class BillingPanel extends JPanel {
         add(createHeaderPanel(), BorderLayout.NORTH);
         add(createSplitPane(), BorderLayout.CENTER);
 
-        loadAdmittedPatients();
-        loadBillingHistory();
+        refreshAll();
     }
 
     private JPanel createHeaderPanel() {
@@ -176,10 +176,7 @@ public class BillingPanel extends JPanel {
         gbc.gridx = 1; gbc.gridy = 7;
         gbc.anchor = GridBagConstraints.EAST;
         JButton refreshButton = createStyledButton("REFRESH LISTS", new Color(148, 0, 211));
-        refreshButton.addActionListener(e -> {
-            loadAdmittedPatients();
-            loadBillingHistory();
-        });
+        refreshButton.addActionListener(e -> refreshAll());
         formPanel.add(refreshButton, gbc);
 
         return formPanel;
@@ -196,13 +193,23 @@ public class BillingPanel extends JPanel {
         searchField = new JTextField(20);
         searchField.setFont(new Font("Segoe UI", Font.PLAIN, 12));
         searchPanel.add(searchField);
+        JButton exportButton = new JButton("Export PDFs...");
+        exportButton.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        exportButton.addActionListener(e -> new InvoiceExportDialog((Frame) SwingUtilities.getWindowAncestor(this), dataAccess).setVisible(true));
+        searchPanel.add(exportButton);
         historyPanel.add(searchPanel, BorderLayout.NORTH);
 
-        String[] columnNames = {"Bill ID", "Patient Name", "Total (₹)", "Bill Date"};
-        historyTableModel = new DefaultTableModel(columnNames, 0) {
-            @Override public boolean isCellEditable(int row, int column) { return false; }
-        };
-        historyTable = new JTable(historyTableModel);
+        // Rows are streamed in newest first; there is no column sorter, as sorting would need every row in memory
+        historyModel = new BillingHistoryTableModel(dataAccess, new BillingHistoryTableModel.Listener() {
+            public void historyProgress(int rows, double revenue, boolean complete) {
+                showHistoryTotals(rows, revenue, complete);
+            }
+            public void historyFailed(Throwable error) {
+                totalRevenueLabel.setText("Total Revenue: -");
+                JOptionPane.showMessageDialog(BillingPanel.this, "Error loading billing history: " + error.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+        historyTable = new JTable(historyModel);
         historyTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         historyTable.setRowHeight(25);
         historyTable.setFont(new Font("Segoe UI", Font.PLAIN, 12));
@@ -212,28 +219,21 @@ public class BillingPanel extends JPanel {
         header.setForeground(Color.WHITE);
         header.setFont(new Font("Segoe UI", Font.BOLD, 12));
 
-        sorter = new TableRowSorter<>(historyTableModel);
-        historyTable.setRowSorter(sorter);
-
         JScrollPane scrollPane = new JScrollPane(historyTable);
         scrollPane.setBorder(BorderFactory.createLineBorder(Color.GRAY));
         historyPanel.add(scrollPane, BorderLayout.CENTER);
 
+        // Pages dropped from memory are read back once the user scrolls to them
+        AsyncUi.onRowsShown(historyTable, scrollPane, historyModel::loadPagesShown);
+
         historyTable.addMouseListener(new MouseAdapter() {
             public void mouseClicked(MouseEvent e) {
                 if (e.getClickCount() == 2) openBillDetails();
             }
         });
 
-        searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
-            public void changedUpdate(javax.swing.event.DocumentEvent e) { filter(); }
-            public void removeUpdate(javax.swing.event.DocumentEvent e) { filter(); }
-            public void insertUpdate(javax.swing.event.DocumentEvent e) { filter(); }
-            private void filter() {
-                String text = searchField.getText();
-                sorter.setRowFilter(text.trim().isEmpty() ? null : RowFilter.regexFilter("(?i)" + text, 1));
-            }
-        });
+        // Searches run in the database once typing pauses; an empty box shows the full history again
+        AsyncUi.onTextSettled(searchField, SEARCH_DELAY_MS, text -> loadBillingHistory());
 
         return historyPanel;
     }
@@ -268,63 +268,98 @@ public class BillingPanel extends JPanel {
         return button;
     }
 
+    /**
+     * Loads the patient dropdown and the billing history in a single round trip.
+     */
+    public void refreshAll() {
+        if (isSearching()) {
+            // The snapshot has the full history, not the search results
+            loadAdmittedPatients();
+            loadBillingHistory();
+            return;
+        }
+        int seq = startHistoryLoad();
+        AsyncUi.onEdt(async.call(() -> dataAccess.getBillingPanelSnapshot(BillingHistoryTableModel.PAGE_SIZE)), snapshot -> {
+            showAdmittedPatients(snapshot.getPatients());
+            if (seq == historySeq) historyModel.showFirstPage(snapshot.getBills());
+        }, error -> {
+            if (seq == historySeq) totalRevenueLabel.setText("Total Revenue: -");
+            JOptionPane.showMessageDialog(this, "Error loading billing data: " + error.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    /**
+     * Streams the full history, or loads the ranked search results if the search box is not empty.
+     */
     public void loadBillingHistory() {
-        try {
-            historyTableModel.setRowCount(0);
-            billingHistory = dataAccess.getBillingHistory();
-            SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd");
-            double totalRevenue = 0;
-            for (Bill bill : billingHistory) {
-                historyTableModel.addRow(new Object[]{
-                        bill.getBillId(),
-                        bill.getPatientName(),
-                        String.format("₹%.2f", bill.getTotal()),
-                        df.format(bill.getBillDate())
+        String text = searchField.getText();
+        int seq = startHistoryLoad();
+        if (!isSearching()) {
+            historyModel.reload();
+            return;
+        }
+        AsyncUi.onEdt(async.call(() -> dataAccess.searchBills(text, SEARCH_LIMIT)),
+                bills -> {
+                    if (seq == historySeq) historyModel.showBills(bills);
+                }, error -> {
+                    if (seq != historySeq) return;
+                    totalRevenueLabel.setText("Total Revenue: -");
+                    JOptionPane.showMessageDialog(this, "Error loading billing history: " + error.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
                 });
-                totalRevenue += bill.getTotal();
-            }
-            totalRevenueLabel.setText(String.format("Total Revenue: ₹%.2f", totalRevenue));
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading billing history: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
+    }
+
+    private boolean isSearching() {
+        return !searchField.getText().trim().isEmpty();
+    }
+
+    private int startHistoryLoad() {
+        totalRevenueLabel.setText("Loading billing history...");
+        return ++historySeq;
+    }
+
+    private void showHistoryTotals(int rows, double revenue, boolean complete) {
+        if (isSearching()) {
+            totalRevenueLabel.setText(String.format("Matching Bills: %d (₹%.2f)", rows, revenue));
+        } else {
+            totalRevenueLabel.setText(String.format("Total Revenue: ₹%.2f", revenue) + (complete ? "" : " (loading...)"));
         }
     }
 
     public void loadAdmittedPatients() {
-        try {
-            Object selectedItem = patientComboBox.getSelectedItem();
-            patientComboBox.removeAllItems();
-            List<Patient> patients = dataAccess.getAdmittedPatients();
-
-            if (patients.isEmpty()) {
-                patientComboBox.addItem(null);
-            } else {
-                for (Patient p : patients) patientComboBox.addItem(p);
-            }
+        AsyncUi.onEdt(async.call(dataAccess::getAdmittedPatients), this::showAdmittedPatients,
+                error -> JOptionPane.showMessageDialog(this, "Error loading patients: " + error.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE));
+    }
 
-            if (selectedItem instanceof Patient) {
-                for (int i = 0; i < patientComboBox.getItemCount(); i++) {
-                    if (patientComboBox.getItemAt(i) != null &&
-                        ((Patient) patientComboBox.getItemAt(i)).getPatientId() == ((Patient) selectedItem).getPatientId()) {
-                        patientComboBox.setSelectedItem(patientComboBox.getItemAt(i));
-                        break;
-                    }
-                }
-            }
+    private void showAdmittedPatients(List<Patient> patients) {
+        Object selectedItem = patientComboBox.getSelectedItem();
+        patientComboBox.removeAllItems();
+
+        if (patients.isEmpty()) {
+            patientComboBox.addItem(null);
+        } else {
+            for (Patient p : patients) patientComboBox.addItem(p);
+        }
 
-            if (patientComboBox.getSelectedIndex() == -1 && patientComboBox.getItemCount() > 0) {
-                patientComboBox.setSelectedIndex(0);
+        if (selectedItem instanceof Patient) {
+            for (int i = 0; i < patientComboBox.getItemCount(); i++) {
+                if (patientComboBox.getItemAt(i) != null &&
+                    ((Patient) patientComboBox.getItemAt(i)).getPatientId() == ((Patient) selectedItem).getPatientId()) {
+                    patientComboBox.setSelectedItem(patientComboBox.getItemAt(i));
+                    break;
+                }
             }
+        }
 
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading patients: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
+        if (patientComboBox.getSelectedIndex() == -1 && patientComboBox.getItemCount() > 0) {
+            patientComboBox.setSelectedIndex(0);
         }
     }
 
     private void openBillDetails() {
         int row = historyTable.getSelectedRow();
         if (row == -1) return;
-        int modelRow = historyTable.convertRowIndexToModel(row);
-        Bill selected = billingHistory.get(modelRow);
+        Bill selected = historyModel.getBillAt(row);
+        if (selected == null) return; // Its page is being read back in; the row fills in shortly
         BillDialog dialog = new BillDialog((Frame) SwingUtilities.getWindowAncestor(this), selected, dataAccess);
         dialog.setVisible(true);
     }
@@ -336,8 +371,17 @@ public class BillingPanel extends JPanel {
             return;
         }
 
-        try {
-            Patient details = dataAccess.getPatientById(selected.getPatientId());
+        // The doctor lookup needs the patient's doctor_id, so the two calls are chained
+        previewBillButton.setEnabled(false);
+        CompletableFuture<Patient> patientFuture = async.call(() -> dataAccess.getPatientById(selected.getPatientId()));
+        CompletableFuture<Doctor> doctorFuture = patientFuture.thenCompose(details ->
+                details == null || details.getDoctorId() == 0
+                        ? CompletableFuture.completedFuture(null)
+                        : async.call(() -> dataAccess.getDoctorById(details.getDoctorId())));
+
+        AsyncUi.onEdt(doctorFuture, doc -> {
+            previewBillButton.setEnabled(true);
+            Patient details = patientFuture.join();
             if (details == null || details.getAdmittedDate() == null) {
                 JOptionPane.showMessageDialog(this, "Could not fetch patient's admission details.", "Error", JOptionPane.ERROR_MESSAGE);
                 return;
@@ -350,20 +394,17 @@ public class BillingPanel extends JPanel {
             double bedCharge = Math.max(0, days * pricePerDay);
 
             double doctorFee = 0.0;
-            if (details.getDoctorId() != 0) {
-                Doctor doc = dataAccess.getDoctorById(details.getDoctorId());
-                if (doc != null) doctorFee = doc.getConsultationFee();
-            }
+            if (doc != null) doctorFee = doc.getConsultationFee();
 
             daysStayedField.setText(String.valueOf(days));
             bedChargeField.setText(String.format("%.2f", bedCharge));
             serviceChargeField.setText(String.format("%.2f", BASE_SERVICE_CHARGE));
             doctorFeeField.setText(String.format("%.2f", doctorFee));
             totalField.setText(String.format("%.2f", bedCharge + BASE_SERVICE_CHARGE + doctorFee));
-
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error fetching patient details: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+        }, error -> {
+            previewBillButton.setEnabled(true);
+            JOptionPane.showMessageDialog(this, "Error fetching patient details: " + error.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
+        });
     }
 
     private void generateBill() {
@@ -395,8 +436,7 @@ public class BillingPanel extends JPanel {
                 if (dataAccess.dischargePatient(selected.getPatientId(), bill)) {
                     JOptionPane.showMessageDialog(this, "Bill generated and patient discharged successfully!");
                     clearFields();
-                    loadAdmittedPatients();
-                    loadBillingHistory();
+                    refreshAll();
 
                     // --- NEW: Refresh the patient list on main panel ---
                     if (patientPanel != null) {
@@ -1,15 +1,17 @@
 package ui;
 
+import dal.AsyncDataAccess;
 import dal.DataAccess;
 import model.ConfigBedType;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.sql.SQLException;
-import java.util.List;
 
 public class ConfigBedPanel extends JPanel {
     private final DataAccess dataAccess = new DataAccess();
+    private final AsyncDataAccess async = new AsyncDataAccess();
+    private int loadSeq = 0; // Only the newest load may fill the table
     private JTable table;
     private DefaultTableModel tableModel;
     private JTextField nameField, priceField;
@@ -110,15 +112,20 @@ public class ConfigBedPanel extends JPanel {
     }
 
     private void loadBedTypes() {
-        try {
-            tableModel.setRowCount(0);
-            List<ConfigBedType> bedTypes = dataAccess.getAllBedTypes();
+        int seq = ++loadSeq;
+        tableModel.setRowCount(0);
+        AsyncUi.setLoading(this, true);
+        AsyncUi.onEdt(async.call(dataAccess::getAllBedTypes), bedTypes -> {
+            if (seq != loadSeq) return;
+            AsyncUi.setLoading(this, false);
             for (ConfigBedType type : bedTypes) {
                 tableModel.addRow(new Object[]{type.getBedTypeId(), type.getBedTypeName(), type.getPricePerDay()});
             }
-        } catch (SQLException e) {
-            showError("Could not load bed types: " + e.getMessage());
-        }
+        }, error -> {
+            if (seq != loadSeq) return;
+            AsyncUi.setLoading(this, false);
+            showError("Could not load bed types: " + error.getMessage());
+        });
     }
 
     private void addBedType() {
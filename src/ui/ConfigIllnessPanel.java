@@ -1,15 +1,17 @@
 package ui;
 
+import dal.AsyncDataAccess;
 import dal.DataAccess;
 import model.ConfigIllness;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.sql.SQLException;
-import java.util.List;
 
 public class ConfigIllnessPanel extends JPanel {
     private final DataAccess dataAccess = new DataAccess();
+    private final AsyncDataAccess async = new AsyncDataAccess();
+    private int loadSeq = 0; // Only the newest load may fill the table
     private JTable table;
     private DefaultTableModel tableModel;
     private JTextField nameField;
@@ -99,15 +101,20 @@ public class ConfigIllnessPanel extends JPanel {
     }
 
     private void loadIllnesses() {
-        try {
-            tableModel.setRowCount(0);
-            List<ConfigIllness> illnesses = dataAccess.getAllIllnesses();
+        int seq = ++loadSeq;
+        tableModel.setRowCount(0);
+        AsyncUi.setLoading(this, true);
+        AsyncUi.onEdt(async.call(dataAccess::getAllIllnesses), illnesses -> {
+            if (seq != loadSeq) return;
+            AsyncUi.setLoading(this, false);
             for (ConfigIllness illness : illnesses) {
                 tableModel.addRow(new Object[]{illness.getIllnessId(), illness.getIllnessName()});
             }
-        } catch (SQLException e) {
-            showError("Could not load illness list: " + e.getMessage());
-        }
+        }, error -> {
+            if (seq != loadSeq) return;
+            AsyncUi.setLoading(this, false);
+            showError("Could not load illness list: " + error.getMessage());
+        });
     }
 
     private void addIllness() {
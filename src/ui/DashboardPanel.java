@@ -1,15 +1,30 @@
 package ui;
 
+import dal.AsyncDataAccess;
 import dal.DataAccess;
+import dal.DatabaseEvents;
 
 import javax.swing.*;
 // import javax.swing.border.Border;
 import java.awt.*;
-import java.sql.SQLException;
-import java.util.Map;
-
+import java.math.BigDecimal;
+import java.util.function.Consumer;
+
+/**
+ * Hospital-wide stat cards. After the initial load the cards are kept live by
+ * dashboard counter NOTIFY events, each burst of which re-reads the four
+ * totals once, so an idle dashboard runs no queries.
+ */
 public class DashboardPanel extends JPanel {
     private DataAccess dataAccess = new DataAccess();
+    private final AsyncDataAccess async = new AsyncDataAccess();
+
+    // Bursts of counter events are folded into one reload, at most once per interval
+    private static final int RELOAD_INTERVAL_MS = 250;
+    private final Timer reloadTimer = new Timer(RELOAD_INTERVAL_MS, e -> reloadForEvents());
+    private final Consumer<String> counterListener = this::onCounterEvent;
+    private boolean loadInFlight;
+    private boolean reloadAfterLoad; // Events arrived while a load was running
 
     // Labels for the stat cards
     private JLabel totalPatientsValue;
@@ -30,10 +45,45 @@ public class DashboardPanel extends JPanel {
         JPanel statsPanel = createStatsGridPanel();
         add(statsPanel, BorderLayout.CENTER);
 
+        reloadTimer.setRepeats(false);
+
         // Initial data load
         refreshStats();
     }
 
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        DatabaseEvents.subscribe(DataAccess.DASHBOARD_CHANNEL, counterListener);
+    }
+
+    @Override
+    public void removeNotify() {
+        DatabaseEvents.unsubscribe(DataAccess.DASHBOARD_CHANNEL, counterListener);
+        super.removeNotify();
+    }
+
+    /**
+     * Runs on the DatabaseEvents thread. The payload names the changed counter;
+     * null means events may have been missed. Either way the totals are re-read,
+     * since only the database knows the value after every committed change.
+     */
+    private void onCounterEvent(String payload) {
+        SwingUtilities.invokeLater(() -> {
+            if (!reloadTimer.isRunning()) {
+                reloadTimer.start(); // Events arriving before it fires are folded into the same reload
+            }
+        });
+    }
+
+    private void reloadForEvents() {
+        if (loadInFlight) {
+            reloadAfterLoad = true; // Its result may predate these events
+        } else {
+            loadStats(false);
+        }
+    }
+
     private JPanel createHeaderPanel() {
         JPanel headerPanel = new JPanel(new BorderLayout());
         headerPanel.setBackground(new Color(245, 245, 245));
@@ -90,19 +140,39 @@ public class DashboardPanel extends JPanel {
     }
 
     public void refreshStats() {
-        try {
-            Map<String, Long> stats = dataAccess.getDashboardStats();
-            
+        loadStats(true);
+    }
+
+    /**
+     * @param showLoading false for event-driven reloads, which should not flash the loading state
+     */
+    private void loadStats(boolean showLoading) {
+        if (showLoading) {
+            AsyncUi.setLoading(this, true);
+        }
+        loadInFlight = true;
+        reloadAfterLoad = false;
+        AsyncUi.onEdt(async.call(dataAccess::getDashboardStats), stats -> {
+            AsyncUi.setLoading(this, false);
+            loadInFlight = false;
+
             totalPatientsValue.setText(String.valueOf(stats.getOrDefault("active_patients", 0L)));
             availableBedsValue.setText(String.valueOf(stats.getOrDefault("available_beds", 0L)));
             totalDoctorsValue.setText(String.valueOf(stats.getOrDefault("total_doctors", 0L)));
             
-            double revenue = stats.getOrDefault("total_revenue", 0L).doubleValue();
+            Number revenue = stats.getOrDefault("total_revenue", BigDecimal.ZERO);
             totalRevenueValue.setText(String.format("Rs. %.2f", revenue));
 
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Could not load dashboard statistics.", "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+            if (reloadAfterLoad) {
+                loadStats(false);
+            }
+        }, error -> {
+            AsyncUi.setLoading(this, false);
+            loadInFlight = false;
+            error.printStackTrace();
+            if (showLoading) {
+                JOptionPane.showMessageDialog(this, "Could not load dashboard statistics.", "Database Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
     }
-}
\ No newline at end of file
+}
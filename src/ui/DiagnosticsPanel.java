@@ -0,0 +1,186 @@
+package ui;
+
+import dal.LatencyHistogram;
+import dal.QueryMetrics;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.JTableHeader;
+import java.awt.*;
+import java.text.SimpleDateFormat;
+
+/**
+ * Query latency per DataAccess method and the latest slow queries, from
+ * {@link QueryMetrics}. Everything shown is already in memory, so refreshing
+ * runs no queries; the table refreshes itself every few seconds while visible.
+ */
+public class DiagnosticsPanel extends JPanel {
+
+    private static final int REFRESH_INTERVAL_MS = 3000;
+
+    private final Timer refreshTimer = new Timer(REFRESH_INTERVAL_MS, e -> {
+        if (isShowing()) {
+            refreshMetrics();
+        }
+    });
+
+    private DefaultTableModel tableModel;
+    private JLabel summaryLabel;
+    private JTextArea slowQueryArea;
+
+    public DiagnosticsPanel() {
+        setLayout(new BorderLayout(15, 15));
+        setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+        setBackground(new Color(245, 245, 245));
+
+        add(createHeaderPanel(), BorderLayout.NORTH);
+
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, createTablePanel(), createSlowQueryPanel());
+        splitPane.setResizeWeight(0.7);
+        splitPane.setBorder(null);
+        add(splitPane, BorderLayout.CENTER);
+
+        refreshMetrics();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        refreshTimer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        refreshTimer.stop();
+        super.removeNotify();
+    }
+
+    private JPanel createHeaderPanel() {
+        JPanel headerPanel = new JPanel(new BorderLayout());
+        headerPanel.setBackground(new Color(245, 245, 245));
+
+        JLabel titleLabel = new JLabel("Query Diagnostics");
+        titleLabel.setFont(new Font("Segoe UI", Font.BOLD, 24));
+        headerPanel.add(titleLabel, BorderLayout.WEST);
+
+        summaryLabel = new JLabel();
+        summaryLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        summaryLabel.setForeground(Color.GRAY);
+        headerPanel.add(summaryLabel, BorderLayout.SOUTH);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
+        buttonPanel.setOpaque(false);
+
+        JButton refreshButton = new JButton("Refresh");
+        refreshButton.setFont(new Font("Segoe UI", Font.BOLD, 12));
+        refreshButton.addActionListener(e -> refreshMetrics());
+        buttonPanel.add(refreshButton);
+
+        JButton resetButton = new JButton("Reset");
+        resetButton.setFont(new Font("Segoe UI", Font.BOLD, 12));
+        resetButton.addActionListener(e -> {
+            int choice = JOptionPane.showConfirmDialog(this,
+                    "Clear all recorded query metrics? The slow query log file is kept.",
+                    "Reset Metrics", JOptionPane.YES_NO_OPTION);
+            if (choice == JOptionPane.YES_OPTION) {
+                QueryMetrics.reset();
+                refreshMetrics();
+            }
+        });
+        buttonPanel.add(resetButton);
+
+        headerPanel.add(buttonPanel, BorderLayout.EAST);
+        return headerPanel;
+    }
+
+    private JPanel createTablePanel() {
+        JPanel tablePanel = new JPanel(new BorderLayout(10, 10));
+        tablePanel.setBorder(BorderFactory.createTitledBorder("Statements by Method (most total time first)"));
+        tablePanel.setBackground(Color.WHITE);
+
+        String[] columnNames = {"Method", "Calls", "Errors", "Slow", "Rows/Call",
+                "p50 ms", "p99 ms", "Max ms", "Total s", "Acquire p99 ms"};
+        tableModel = new DefaultTableModel(columnNames, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+
+            @Override
+            public Class<?> getColumnClass(int column) {
+                return column == 0 ? String.class : column <= 3 ? Long.class : Double.class;
+            }
+        };
+
+        JTable metricsTable = new JTable(tableModel);
+        metricsTable.setRowHeight(25);
+        metricsTable.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        metricsTable.setAutoCreateRowSorter(true);
+        metricsTable.getColumnModel().getColumn(0).setPreferredWidth(260);
+
+        JTableHeader header = metricsTable.getTableHeader();
+        header.setBackground(new Color(70, 130, 180));
+        header.setForeground(Color.WHITE);
+        header.setFont(new Font("Segoe UI", Font.BOLD, 12));
+
+        JScrollPane scrollPane = new JScrollPane(metricsTable);
+        scrollPane.setBorder(BorderFactory.createLineBorder(Color.GRAY));
+        tablePanel.add(scrollPane, BorderLayout.CENTER);
+        return tablePanel;
+    }
+
+    private JPanel createSlowQueryPanel() {
+        JPanel slowPanel = new JPanel(new BorderLayout());
+        slowPanel.setBorder(BorderFactory.createTitledBorder(
+                "Recent Slow Queries (over " + QueryMetrics.getSlowQueryMillis() + " ms, parameter values hidden)"));
+        slowPanel.setBackground(Color.WHITE);
+
+        slowQueryArea = new JTextArea();
+        slowQueryArea.setEditable(false);
+        slowQueryArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        slowPanel.add(new JScrollPane(slowQueryArea), BorderLayout.CENTER);
+        return slowPanel;
+    }
+
+    private void refreshMetrics() {
+        if (!QueryMetrics.isRunning()) {
+            summaryLabel.setText("Query metrics are off. Start the application without -Dhms.metrics=false to record them.");
+        } else {
+            LatencyHistogram acquire = QueryMetrics.getAcquireLatency();
+            summaryLabel.setText(String.format(
+                    "Since %s.  Connections borrowed: %d, p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+                    new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(QueryMetrics.getSince()),
+                    acquire.count(), acquire.percentileMillis(50), acquire.percentileMillis(99),
+                    acquire.maxNanos() / 1e6));
+        }
+
+        tableModel.setRowCount(0);
+        for (QueryMetrics.MethodStats stats : QueryMetrics.getMethodStats()) {
+            LatencyHistogram execute = stats.getExecuteLatency();
+            tableModel.addRow(new Object[]{
+                    stats.getMethod(),
+                    stats.getExecutions(),
+                    stats.getErrors(),
+                    stats.getSlowCount(),
+                    round(stats.getRowsPerExecution(), 1),
+                    round(execute.percentileMillis(50), 2),
+                    round(execute.percentileMillis(99), 2),
+                    round(execute.maxNanos() / 1e6, 2),
+                    round(stats.getTotalSeconds(), 2),
+                    round(stats.getAcquireLatency().percentileMillis(99), 2)
+            });
+        }
+
+        StringBuilder slow = new StringBuilder();
+        for (QueryMetrics.SlowQuery query : QueryMetrics.getRecentSlowQueries()) {
+            slow.append(query).append('\n');
+        }
+        slowQueryArea.setText(slow.length() > 0 ? slow.toString() : "None yet.");
+        slowQueryArea.setCaretPosition(0);
+    }
+
+    private static double round(double value, int places) {
+        double scale = Math.pow(10, places);
+        return Math.round(value * scale) / scale;
+    }
+}
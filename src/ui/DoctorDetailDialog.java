@@ -1,17 +1,17 @@
 package ui;
 
+import dal.AsyncDataAccess;
 import dal.DataAccess;
 import model.Doctor;
 import model.Patient;
 
 import javax.swing.*;
 import java.awt.*;
-import java.sql.SQLException;
-import java.util.List;
 
 public class DoctorDetailDialog extends JDialog {
 
     private DataAccess dataAccess;
+    private final AsyncDataAccess async = new AsyncDataAccess();
 
     public DoctorDetailDialog(Frame owner, Doctor doctor, DataAccess dataAccess) {
         super(owner, "Doctor Details", true);
@@ -97,25 +97,32 @@ public class DoctorDetailDialog extends JDialog {
         DefaultListModel<String> listModel = new DefaultListModel<>();
         JList<String> patientList = new JList<>(listModel);
         patientList.setFont(new Font("Segoe UI", Font.PLAIN, 12));
-        try {
-            List<Patient> patients = dataAccess.getPatientsByDoctorId(doctor.getDoctorId());
-            if (patients.isEmpty()) {
-                listModel.addElement("No active patients assigned.");
-            } else {
-                for (Patient p : patients) {
-                    
-                    // [FIX] Use the new methods to get the correct illness name
-                    String illnessDisplay = (p.getOtherIllnessText() != null && !p.getOtherIllnessText().isEmpty()) 
-                                            ? p.getOtherIllnessText() 
-                                            : p.getIllnessName();
-                    
-                    listModel.addElement(p.getName() + " (ID: " + p.getPatientId() + ") - " + illnessDisplay);
+        listModel.addElement("Loading patients...");
+        AsyncUi.setLoading(panel, true);
+        AsyncUi.onEdt(async.call(() -> dataAccess.getPatientsByDoctorId(doctor.getDoctorId())),
+            patients -> {
+                listModel.clear();
+                if (patients.isEmpty()) {
+                    listModel.addElement("No active patients assigned.");
+                } else {
+                    for (Patient p : patients) {
+
+                        // [FIX] Use the new methods to get the correct illness name
+                        String illnessDisplay = (p.getOtherIllnessText() != null && !p.getOtherIllnessText().isEmpty())
+                                                ? p.getOtherIllnessText()
+                                                : p.getIllnessName();
+
+                        listModel.addElement(p.getName() + " (ID: " + p.getPatientId() + ") - " + illnessDisplay);
+                    }
                 }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            listModel.addElement("Error loading patients.");
-        }
+                AsyncUi.setLoading(panel, false);
+            },
+            error -> {
+                error.printStackTrace();
+                listModel.clear();
+                listModel.addElement("Error loading patients.");
+                AsyncUi.setLoading(panel, false);
+            });
         panel.add(new JScrollPane(patientList), BorderLayout.CENTER);
         return panel;
     }
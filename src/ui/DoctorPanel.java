@@ -1,5 +1,6 @@
 package ui;
 
+import dal.AsyncDataAccess;
 import dal.DataAccess;
 import model.Doctor;
 import javax.swing.*;
@@ -16,6 +17,7 @@ import java.util.List;
 
 public class DoctorPanel extends JPanel {
     private final DataAccess dataAccess = new DataAccess();
+    private final AsyncDataAccess async = new AsyncDataAccess();
     private JTextField nameField, specializationField, phoneField, emailField;
     
     // [START] NEW UI FIELDS
@@ -31,7 +33,8 @@ public class DoctorPanel extends JPanel {
     private JLabel countLabel;
     private int selectedDoctorId = -1;
     
-    private List<Doctor> doctorList;
+    private List<Doctor> doctorList = new ArrayList<>();
+    private int doctorsSeq = 0; // Only the newest load may fill the table
 
     public DoctorPanel(PatientPanel patientPanel) {
         this.patientPanel = patientPanel;
@@ -275,10 +278,15 @@ public class DoctorPanel extends JPanel {
 
     // [START] UPDATED METHOD: loadDoctors
     public void loadDoctors() {
-        try {
-            tableModel.setRowCount(0);
-            this.doctorList = dataAccess.getAllDoctors();
-            
+        int seq = ++doctorsSeq;
+        tableModel.setRowCount(0);
+        doctorList = new ArrayList<>(); // Kept in step with the table rows
+        countLabel.setText("Loading doctors...");
+        AsyncUi.setLoading(this, true);
+        AsyncUi.onEdt(async.call(dataAccess::getAllDoctors), doctors -> {
+            if (seq != doctorsSeq) return;
+            AsyncUi.setLoading(this, false);
+            this.doctorList = doctors;
             for (Doctor d : doctorList) {
                 Object[] row = {
                     d.getDoctorId(),
@@ -290,9 +298,12 @@ public class DoctorPanel extends JPanel {
                 tableModel.addRow(row);
             }
             countLabel.setText("Total Doctors: " + doctorList.size());
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading doctors: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+        }, error -> {
+            if (seq != doctorsSeq) return;
+            AsyncUi.setLoading(this, false);
+            countLabel.setText("Total Doctors: -");
+            JOptionPane.showMessageDialog(this, "Error loading doctors: " + error.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
+        });
     }
     // [END] UPDATED METHOD: loadDoctors
     
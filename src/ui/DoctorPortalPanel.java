@@ -1,5 +1,6 @@
 package ui;
 
+import dal.AsyncDataAccess;
 import dal.DataAccess;
 import model.Employee;
 import model.Patient;
@@ -12,14 +13,20 @@ import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
-import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class DoctorPortalPanel extends JPanel {
     private final DataAccess dataAccess = new DataAccess();
+    private final AsyncDataAccess async = new AsyncDataAccess();
     private final Employee currentDoctor;
+    private int detailsSeq = 0; // Only the latest selection may fill the details panel
+    private int patientsSeq = 0; // Only the latest list or search may fill the table
+
+    private static final int SEARCH_DELAY_MS = 250;
+    private static final int SEARCH_LIMIT = 100;
 
     private JTable patientTable;
     private DefaultTableModel tableModel;
@@ -123,14 +130,12 @@ public class DoctorPortalPanel extends JPanel {
         scrollPane.setBorder(BorderFactory.createLineBorder(Color.GRAY));
         tablePanel.add(scrollPane, BorderLayout.CENTER);
         
-        // ... (Search functionality is unchanged) ...
-        searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
-            public void changedUpdate(javax.swing.event.DocumentEvent e) { filter(); }
-            public void removeUpdate(javax.swing.event.DocumentEvent e) { filter(); }
-            public void insertUpdate(javax.swing.event.DocumentEvent e) { filter(); }
-            private void filter() {
-                String text = searchField.getText();
-                sorter.setRowFilter(text.trim().isEmpty() ? null : RowFilter.regexFilter("(?i)" + text));
+        // Searches run in the database once typing pauses; an empty box shows all my patients again
+        AsyncUi.onTextSettled(searchField, SEARCH_DELAY_MS, text -> {
+            if (text.trim().isEmpty()) {
+                loadMyPatients();
+            } else {
+                searchMyPatients(text);
             }
         });
 
@@ -229,71 +234,93 @@ public class DoctorPortalPanel extends JPanel {
 
     // [START] UPDATED METHOD: Now takes patientId as a parameter
     private void populateDetailsPanel(int patientId) {
-        try {
-            // 1. Get the full patient object
-            Patient patient = dataAccess.getPatientById(patientId);
-            if (patient == null) {
-                clearDetailsPanel();
-                return;
-            }
-            
-            // 2. Get their bed (if any)
-            Bed bed = dataAccess.getBedByPatientId(patientId);
+        // 1. Get the full patient object and their bed (if any) in parallel
+        CompletableFuture<Patient> patientFuture = async.call(() -> dataAccess.getPatientById(patientId));
+        CompletableFuture<Bed> bedFuture = async.call(() -> dataAccess.getBedByPatientId(patientId));
+        int seq = ++detailsSeq;
 
-            // 3. Populate all labels
-            detailNameLabel.setText(patient.getName());
-            detailAgeGenderLabel.setText(patient.getAge() + " years / " + patient.getGender());
-            
-            if (patient.getAdmittedDate() != null) {
-                 detailAdmittedLabel.setText(new SimpleDateFormat("yyyy-MM-dd").format(patient.getAdmittedDate()));
-            } else {
-                detailAdmittedLabel.setText("N/A (Outpatient)");
+        AsyncUi.onEdt(CompletableFuture.allOf(patientFuture, bedFuture), done -> {
+            if (seq == detailsSeq) {
+                showDetails(patientFuture.join(), bedFuture.join());
             }
-
-            // Show correct illness name
-            String illness = (patient.getOtherIllnessText() != null && !patient.getOtherIllnessText().isEmpty())
-                    ? patient.getOtherIllnessText()
-                    : patient.getIllnessName();
-            detailIllnessLabel.setText(illness);
-
-            // Set severity color
-            if (patient.getDiseaseSeverity() != null) {
-                detailSeverityLabel.setText(patient.getDiseaseSeverity());
-                switch (patient.getDiseaseSeverity()) {
-                    case "Severe":
-                        detailSeverityLabel.setForeground(new Color(220, 53, 69));
-                        break;
-                    case "Moderate":
-                        detailSeverityLabel.setForeground(new Color(255, 140, 0));
-                        break;
-                    default:
-                        detailSeverityLabel.setForeground(new Color(34, 139, 34));
-                        break;
-                }
-            } else {
-                detailSeverityLabel.setText("N/A");
-                detailSeverityLabel.setForeground(Color.BLACK);
+        }, error -> {
+            if (seq == detailsSeq) {
+                JOptionPane.showMessageDialog(this, "Error fetching patient details: " + error.getMessage(),
+                        "Database Error", JOptionPane.ERROR_MESSAGE);
             }
+        });
+    }
 
+    private void showDetails(Patient patient, Bed bed) {
+        if (patient == null) {
+            clearDetailsPanel();
+            return;
+        }
 
-            if (bed != null) {
-                detailBedLabel.setText("Bed " + bed.getBedId() + " (Floor " + bed.getFloor() + ", " + bed.getBedTypeName() + ")");
-            } else {
-                detailBedLabel.setText("Unassigned / Outpatient");
+        // 2. Populate all labels
+        detailNameLabel.setText(patient.getName());
+        detailAgeGenderLabel.setText(patient.getAge() + " years / " + patient.getGender());
+        
+        if (patient.getAdmittedDate() != null) {
+             detailAdmittedLabel.setText(new SimpleDateFormat("yyyy-MM-dd").format(patient.getAdmittedDate()));
+        } else {
+            detailAdmittedLabel.setText("N/A (Outpatient)");
+        }
+
+        // Show correct illness name
+        String illness = (patient.getOtherIllnessText() != null && !patient.getOtherIllnessText().isEmpty())
+                ? patient.getOtherIllnessText()
+                : patient.getIllnessName();
+        detailIllnessLabel.setText(illness);
+
+        // Set severity color
+        if (patient.getDiseaseSeverity() != null) {
+            detailSeverityLabel.setText(patient.getDiseaseSeverity());
+            switch (patient.getDiseaseSeverity()) {
+                case "Severe":
+                    detailSeverityLabel.setForeground(new Color(220, 53, 69));
+                    break;
+                case "Moderate":
+                    detailSeverityLabel.setForeground(new Color(255, 140, 0));
+                    break;
+                default:
+                    detailSeverityLabel.setForeground(new Color(34, 139, 34));
+                    break;
             }
+        } else {
+            detailSeverityLabel.setText("N/A");
+            detailSeverityLabel.setForeground(Color.BLACK);
+        }
 
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error fetching patient details: " + e.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
+
+        if (bed != null) {
+            detailBedLabel.setText("Bed " + bed.getBedId() + " (Floor " + bed.getFloor() + ", " + bed.getBedTypeName() + ")");
+        } else {
+            detailBedLabel.setText("Unassigned / Outpatient");
         }
     }
     // [END] UPDATED METHOD
 
     private void loadMyPatients() {
-        // ... (This method is unchanged)
-        try {
+        showMyPatients(async.call(() -> dataAccess.getPatientsByDoctorId(currentDoctor.getEmployeeId())), "My Patients: ");
+    }
+
+    /**
+     * Best matches first, as ranked by DataAccess.searchPatients.
+     */
+    private void searchMyPatients(String text) {
+        showMyPatients(async.call(() -> dataAccess.searchPatients(text, currentDoctor.getEmployeeId(), SEARCH_LIMIT)),
+                "Matching Patients: ");
+    }
+
+    private void showMyPatients(CompletableFuture<List<Patient>> request, String countPrefix) {
+        int seq = ++patientsSeq;
+        patientCountLabel.setText("Loading patients...");
+        AsyncUi.setLoading(this, true);
+        AsyncUi.onEdt(request, patients -> {
+            if (seq != patientsSeq) return;
+            AsyncUi.setLoading(this, false);
             tableModel.setRowCount(0);
-            List<Patient> patients = dataAccess.getPatientsByDoctorId(currentDoctor.getEmployeeId());
             for (Patient p : patients) {
                 Object[] row = {
                         p.getPatientId(), p.getName(), p.getAge(),
@@ -304,12 +331,15 @@ public class DoctorPortalPanel extends JPanel {
                 };
                 tableModel.addRow(row);
             }
-            patientCountLabel.setText("My Patients: " + patients.size());
+            patientCountLabel.setText(countPrefix + patients.size());
             clearDetailsPanel();
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading patients: " + e.getMessage(),
+        }, error -> {
+            if (seq != patientsSeq) return;
+            AsyncUi.setLoading(this, false);
+            patientCountLabel.setText("My Patients: -");
+            JOptionPane.showMessageDialog(this, "Error loading patients: " + error.getMessage(),
                     "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
     
     // [START] UPDATED METHOD: createAppointmentListPanel
@@ -356,10 +386,9 @@ public class DoctorPortalPanel extends JPanel {
     
     // [START] UPDATED METHOD: loadAppointmentsForToday
     private void loadAppointmentsForToday() {
-        try {
+        AsyncUi.onEdt(async.call(() -> dataAccess.getAppointmentsByDoctorAndDate(currentDoctor.getEmployeeId(), new Date())), appointments -> {
             appointmentListModel.clear();
-            List<Appointment> appointments = dataAccess.getAppointmentsByDoctorAndDate(currentDoctor.getEmployeeId(), new Date());
-            
+
             if (appointments.isEmpty()) {
                 // To show a message, we add a dummy Appointment object
                 Appointment empty = new Appointment();
@@ -371,12 +400,13 @@ public class DoctorPortalPanel extends JPanel {
                     appointmentListModel.addElement(appt);
                 }
             }
-        } catch (SQLException e) {
-            Appointment error = new Appointment();
-            error.setPatientName("Error loading appointments.");
-            appointmentListModel.addElement(error);
-            e.printStackTrace();
-        }
+        }, error -> {
+            appointmentListModel.clear();
+            Appointment errorRow = new Appointment();
+            errorRow.setPatientName("Error loading appointments.");
+            appointmentListModel.addElement(errorRow);
+            error.printStackTrace();
+        });
     }
     // [END] UPDATED METHOD
     
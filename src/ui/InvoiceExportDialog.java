@@ -0,0 +1,193 @@
+package ui;
+
+import dal.AsyncDataAccess;
+import dal.DataAccess;
+import model.BillRange;
+import util.InvoiceBatchExporter;
+import util.PdfGenerator;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Exports the invoices for a date range (last month by default) as PDFs, to
+ * generated_bills or to one ZIP file, with a progress bar. The export runs in
+ * the background and can be cancelled.
+ */
+public class InvoiceExportDialog extends JDialog {
+    private final InvoiceBatchExporter exporter;
+
+    private JSpinner fromDateSpinner, toDateSpinner;
+    private JRadioButton folderOption, zipOption;
+    private JProgressBar progressBar;
+    private JLabel statusLabel;
+    private JButton startButton, closeButton;
+    private boolean running;
+
+    public InvoiceExportDialog(Frame owner, DataAccess dataAccess) {
+        super(owner, "Export Invoices", true);
+        this.exporter = new InvoiceBatchExporter(dataAccess);
+
+        setSize(480, 280);
+        setLocationRelativeTo(owner);
+        setLayout(new BorderLayout(10, 10));
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                close();
+            }
+        });
+
+        add(createOptionsPanel(), BorderLayout.CENTER);
+        add(createButtonPanel(), BorderLayout.SOUTH);
+    }
+
+    private JPanel createOptionsPanel() {
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.setBorder(BorderFactory.createEmptyBorder(15, 15, 5, 15));
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weightx = 1.0;
+
+        // Default to the previous calendar month
+        Calendar cal = Calendar.getInstance();
+        cal.set(Calendar.DAY_OF_MONTH, 1);
+        cal.add(Calendar.DAY_OF_MONTH, -1);
+        Date lastMonthEnd = cal.getTime();
+        cal.set(Calendar.DAY_OF_MONTH, 1);
+        Date lastMonthStart = cal.getTime();
+
+        gbc.gridx = 0; gbc.gridy = 0;
+        panel.add(new JLabel("Bills From:"), gbc);
+        gbc.gridx = 1;
+        fromDateSpinner = createDateSpinner(lastMonthStart);
+        panel.add(fromDateSpinner, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 1;
+        panel.add(new JLabel("Bills To:"), gbc);
+        gbc.gridx = 1;
+        toDateSpinner = createDateSpinner(lastMonthEnd);
+        panel.add(toDateSpinner, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 2;
+        panel.add(new JLabel("Save As:"), gbc);
+        gbc.gridx = 1;
+        JPanel outputPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        folderOption = new JRadioButton("PDF files in generated_bills", true);
+        zipOption = new JRadioButton("One ZIP file");
+        ButtonGroup group = new ButtonGroup();
+        group.add(folderOption);
+        group.add(zipOption);
+        outputPanel.add(folderOption);
+        outputPanel.add(zipOption);
+        panel.add(outputPanel, gbc);
+
+        gbc.gridx = 0; gbc.gridy = 3; gbc.gridwidth = 2;
+        progressBar = new JProgressBar();
+        progressBar.setStringPainted(true);
+        panel.add(progressBar, gbc);
+
+        gbc.gridy = 4;
+        statusLabel = new JLabel(" ");
+        panel.add(statusLabel, gbc);
+        return panel;
+    }
+
+    private JSpinner createDateSpinner(Date value) {
+        JSpinner spinner = new JSpinner(new SpinnerDateModel(value, null, null, Calendar.DAY_OF_MONTH));
+        spinner.setEditor(new JSpinner.DateEditor(spinner, "yyyy-MM-dd"));
+        return spinner;
+    }
+
+    private JPanel createButtonPanel() {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        startButton = new JButton("Export");
+        startButton.setBackground(new Color(34, 139, 34));
+        startButton.setForeground(Color.WHITE);
+        startButton.addActionListener(e -> startExport());
+        panel.add(startButton);
+
+        closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> close());
+        panel.add(closeButton);
+        return panel;
+    }
+
+    private void startExport() {
+        BillRange range = BillRange.byDate((Date) fromDateSpinner.getValue(), (Date) toDateSpinner.getValue());
+        File zipFile = null;
+        if (zipOption.isSelected()) {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setSelectedFile(new File("Invoices-" + new java.sql.Date(range.getFromDate().getTime()) + ".zip"));
+            if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            zipFile = chooser.getSelectedFile();
+        }
+        File target = zipFile;
+
+        running = true;
+        startButton.setEnabled(false);
+        closeButton.setText("Cancel");
+        progressBar.setValue(0);
+        statusLabel.setText("Counting bills...");
+
+        InvoiceBatchExporter.ProgressListener listener = (done, total, rate) -> SwingUtilities.invokeLater(() -> {
+            progressBar.setMaximum(Math.max(total, 1));
+            progressBar.setValue(done);
+            statusLabel.setText(String.format("%d of %d invoices, %.1f per second", done, total, rate));
+        });
+
+        CompletableFuture<InvoiceBatchExporter.Result> export = CompletableFuture.supplyAsync(() -> {
+            try {
+                if (target == null) {
+                    return exporter.exportToDirectory(range, new File(PdfGenerator.PDF_DIRECTORY), listener);
+                }
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(target))) {
+                    return exporter.exportToZip(range, out, listener);
+                }
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, AsyncDataAccess.executor());
+
+        AsyncUi.onEdt(export, result -> {
+            finished();
+            statusLabel.setText(result.toString());
+            if (result.getFailed() > 0) {
+                JOptionPane.showMessageDialog(this, result.getFailed() + " invoices could not be exported. First error: "
+                        + result.getFirstError().getMessage(), "Export Incomplete", JOptionPane.WARNING_MESSAGE);
+            }
+        }, error -> {
+            finished();
+            statusLabel.setText("Export failed.");
+            JOptionPane.showMessageDialog(this, "Error exporting invoices: " + error.getMessage(),
+                    "Export Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private void finished() {
+        running = false;
+        startButton.setEnabled(true);
+        closeButton.setText("Close");
+    }
+
+    private void close() {
+        if (running) {
+            exporter.cancel(); // The result callback re-enables the dialog
+            statusLabel.setText("Cancelling...");
+        } else {
+            setVisible(false);
+            dispose();
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package ui;
 
 import model.Employee;
+import util.PdfGenerator;
+import util.PdfJobQueue;
 import javax.swing.*;
 import java.awt.*;
+import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
@@ -11,6 +14,7 @@ public class MainFrame extends JFrame implements LoginPanel.LoginListener {
     private Employee currentEmployee;
     private JLabel userInfoLabel;
     private JLabel dateTimeLabel;
+    private JLabel statusLabel;
 
     public MainFrame() {
         setTitle("Hospital Management System - Login");
@@ -18,9 +22,41 @@ public class MainFrame extends JFrame implements LoginPanel.LoginListener {
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
         
+        PdfJobQueue.addListener(new PdfNotifier());
         showLoginPanel();
     }
 
+    /**
+     * Reports background invoice PDFs in the status bar, opens the ones a user
+     * is waiting for, and shows an error once a PDF has finally failed.
+     */
+    private class PdfNotifier implements PdfJobQueue.Listener {
+        public void pdfReady(int billId, File file, boolean requested) {
+            if (requested) {
+                PdfGenerator.openPdf(file); // Off the EDT; the viewer can take a moment to launch
+            }
+            SwingUtilities.invokeLater(() -> showStatus("Invoice #" + billId + " saved to " + file.getAbsolutePath()));
+        }
+
+        public void pdfFailed(int billId, Exception error, boolean willRetry) {
+            SwingUtilities.invokeLater(() -> {
+                if (willRetry) {
+                    showStatus("Invoice #" + billId + " PDF failed, retrying: " + error.getMessage());
+                } else {
+                    showStatus("Invoice #" + billId + " PDF failed");
+                    JOptionPane.showMessageDialog(MainFrame.this, "Could not generate the PDF for invoice #" + billId
+                            + ": " + error.getMessage(), "PDF Error", JOptionPane.ERROR_MESSAGE);
+                }
+            });
+        }
+    }
+
+    private void showStatus(String text) {
+        if (statusLabel != null) {
+            statusLabel.setText(" " + text);
+        }
+    }
+
     private void showLoginPanel() {
         if (currentPanel != null) {
             remove(currentPanel);
@@ -168,11 +204,9 @@ public class MainFrame extends JFrame implements LoginPanel.LoginListener {
         
         ConfigPanel configPanel = new ConfigPanel();
         AppointmentPanel appointmentPanel = new AppointmentPanel();
+        DiagnosticsPanel diagnosticsPanel = new DiagnosticsPanel();
         
 
-        // Load initial dashboard stats
-        dashboardPanel.refreshStats();
-
         // --- ROLE-BASED TAB LOGIC ---
         switch (role) {
             case "Administrator":
@@ -184,6 +218,7 @@ public class MainFrame extends JFrame implements LoginPanel.LoginListener {
                 tabbedPane.addTab("  Bed Management  ", bedPanel);
                 tabbedPane.addTab("  Billing & Discharge  ", billingPanel);
                 tabbedPane.addTab("  Configuration  ", configPanel);
+                tabbedPane.addTab("  Diagnostics  ", diagnosticsPanel);
                 break;
 
             case "Receptionist":
@@ -217,24 +252,18 @@ public class MainFrame extends JFrame implements LoginPanel.LoginListener {
             Component selectedComponent = tabbedPane.getSelectedComponent();
 
             if (selectedComponent instanceof PatientPanel) {
-                ((PatientPanel) selectedComponent).loadDoctors();
-                ((PatientPanel) selectedComponent).loadBedTypes();
-                ((PatientPanel) selectedComponent).loadIllnesses();
-                ((PatientPanel) selectedComponent).loadPatients();
+                ((PatientPanel) selectedComponent).refreshAll();
             } else if (selectedComponent instanceof DoctorPanel) {
                 ((DoctorPanel) selectedComponent).loadDoctors();
             } else if (selectedComponent instanceof BedManagementPanel) {
                 ((BedManagementPanel) selectedComponent).refreshBedLayout();
             } else if (selectedComponent instanceof BillingPanel) {
-                ((BillingPanel) selectedComponent).loadAdmittedPatients();
-                ((BillingPanel) selectedComponent).loadBillingHistory();
-            } else if (selectedComponent instanceof DashboardPanel) {
-                ((DashboardPanel) selectedComponent).refreshStats();
+                ((BillingPanel) selectedComponent).refreshAll();
             } else if (selectedComponent instanceof AppointmentPanel) {
                 ((AppointmentPanel) selectedComponent).loadAllDoctors();
                 ((AppointmentPanel) selectedComponent).loadAllPatients();
             }
-            // ConfigPanel handles its own refreshes internally
+            // ConfigPanel handles its own refreshes internally; DashboardPanel is kept live by DB events
         });
 
         return tabbedPane;
@@ -249,7 +278,7 @@ public class MainFrame extends JFrame implements LoginPanel.LoginListener {
         statusPanel.setBackground(new Color(240, 240, 240));
         statusPanel.setPreferredSize(new Dimension(getWidth(), 25));
 
-        JLabel statusLabel = new JLabel(" System Ready - Hospital Management System v3.0");
+        statusLabel = new JLabel(" System Ready - Hospital Management System v3.0");
         statusLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
         statusPanel.add(statusLabel, BorderLayout.WEST);
 
@@ -1,6 +1,8 @@
 package ui;
 
+import dal.AsyncDataAccess;
 import dal.DataAccess;
+import dal.PatientSort;
 import model.ConfigBedType;
 import model.ConfigIllness;
 import model.Doctor;
@@ -8,7 +10,6 @@ import model.Patient;
 import javax.swing.*;
 // import javax.swing.event.ListSelectionEvent;
 // import javax.swing.event.ListSelectionListener;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import java.awt.*;
 import java.awt.event.ItemEvent;
@@ -20,6 +21,7 @@ import java.util.List;
 
 public class PatientPanel extends JPanel {
     private final DataAccess dataAccess = new DataAccess();
+    private final AsyncDataAccess async = new AsyncDataAccess();
     private JTextField nameField, ageField;
     private JComboBox<String> genderComboBox;
     private JComboBox<Doctor> doctorComboBox;
@@ -34,12 +36,16 @@ public class PatientPanel extends JPanel {
     
     private JButton registerButton, updateButton, deleteButton, clearButton;
     private JTable patientTable;
-    private DefaultTableModel tableModel;
+    private PatientTableModel tableModel;
+    private JTextField searchField;
     private JLabel countLabel;
     
     private int selectedPatientId = -1;
-    private List<Patient> patientList;
     private ConfigIllness otherIllnessOption; // To store the "Other..." object
+    private int patientCount = -1; // Admitted patients matching the current filter, -1 while counting
+    private int countSeq = 0; // Only the newest count may update the label
+
+    private static final int SEARCH_DELAY_MS = 250;
 
     public PatientPanel() {
         setLayout(new BorderLayout(15, 15));
@@ -52,13 +58,10 @@ public class PatientPanel extends JPanel {
         JSplitPane splitPane = createSplitPane();
         add(splitPane, BorderLayout.CENTER);
 
-        // Load all dropdown data
-        loadDoctors();
-        loadBedTypes();
-        loadIllnesses(); // This sets otherIllnessOption
-        loadPatients();  // This USES otherIllnessOption
-        
         clearForm();
+
+        // Load all dropdown data and the patient list in the background
+        refreshAll();
     }
 
     private JPanel createHeaderPanel() {
@@ -199,10 +202,15 @@ public class PatientPanel extends JPanel {
         tablePanel.setBorder(BorderFactory.createTitledBorder("Admitted Patients (Double-click for details)"));
         tablePanel.setBackground(Color.WHITE);
 
-        String[] columnNames = {"ID", "Name", "Age", "Gender", "Illness", "Severity", "Bed Request", "Admitted Date", "Assigned Doctor", "Bed ID"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override public boolean isCellEditable(int row, int column) { return false; }
-        };
+        // Rows are paged in from the database as the user scrolls; see PatientTableModel
+        tableModel = new PatientTableModel(dataAccess, error -> {
+            AsyncUi.setLoading(this, false);
+            showError("Error loading patients: " + error.getMessage());
+        });
+        tableModel.setOnPageLoaded(() -> {
+            AsyncUi.setLoading(this, false);
+            updateCountLabel();
+        });
         
         patientTable = new JTable(tableModel);
         patientTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -213,10 +221,28 @@ public class PatientPanel extends JPanel {
         header.setBackground(new Color(60, 179, 113));
         header.setForeground(Color.WHITE);
         header.setFont(new Font("Segoe UI", Font.BOLD, 12));
+        header.setToolTipText("Click ID or Name to sort");
+        header.addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                int column = patientTable.convertColumnIndexToModel(header.columnAtPoint(e.getPoint()));
+                PatientSort sort = PatientTableModel.sortForColumn(column);
+                if (sort == null) return;
+                // Clicking the current sort column again reverses it
+                boolean descending = sort == tableModel.getSort() && !tableModel.isDescending();
+                startPatientLoad();
+                if (!searchField.getText().trim().equals(tableModel.getNameFilter())) {
+                    recountPatients(); // The search box was edited without pressing Enter
+                }
+                tableModel.reload(sort, descending, searchField.getText());
+            }
+        });
         
         JScrollPane scrollPane = new JScrollPane(patientTable);
         scrollPane.setBorder(BorderFactory.createLineBorder(Color.GRAY));
         tablePanel.add(scrollPane, BorderLayout.CENTER);
+
+        // Fetch the next page as the user scrolls near the end of what is loaded
+        AsyncUi.onRowsShown(patientTable, scrollPane, (first, last) -> tableModel.prefetchAfter(last));
         
         patientTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting() && patientTable.getSelectedRow() != -1) {
@@ -232,14 +258,19 @@ public class PatientPanel extends JPanel {
 
         JButton refreshButton = createStyledButton("REFRESH LIST", new Color(60, 179, 113));
         refreshButton.addActionListener(e -> {
-            loadDoctors();
-            loadBedTypes();
-            loadIllnesses();
-            loadPatients();
+            refreshAll();
             clearForm();
         });
+        searchField = new JTextField(15);
+        searchField.setToolTipText("Type part of a name");
+        // The filter runs in SQL (trigram-indexed) once typing pauses
+        AsyncUi.onTextSettled(searchField, SEARCH_DELAY_MS, text -> {
+            if (!text.trim().equals(tableModel.getNameFilter())) loadPatients();
+        });
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         buttonPanel.setBackground(Color.WHITE);
+        buttonPanel.add(createStyledLabel("Search Name:"));
+        buttonPanel.add(searchField);
         buttonPanel.add(refreshButton);
         tablePanel.add(buttonPanel, BorderLayout.SOUTH);
 
@@ -251,7 +282,7 @@ public class PatientPanel extends JPanel {
         int selectedRow = patientTable.convertRowIndexToModel(patientTable.getSelectedRow());
         if (selectedRow == -1) return;
 
-        Patient patient = patientList.get(selectedRow);
+        Patient patient = tableModel.getPatientAt(selectedRow);
         selectedPatientId = patient.getPatientId();
 
         nameField.setText(patient.getName());
@@ -336,80 +367,122 @@ public class PatientPanel extends JPanel {
         return button;
     }
 
+    /**
+     * Loads the dropdowns, the first page of patients and the patient count in a
+     * single round trip, then fills them in together on the EDT (illnesses first,
+     * since the table uses otherIllnessOption). Clears any search and sort.
+     */
+    public void refreshAll() {
+        startPatientLoad();
+        int seq = ++countSeq;
+        AsyncUi.onEdt(async.call(() -> dataAccess.getPatientPanelSnapshot(PatientTableModel.PAGE_SIZE)),
+                snapshot -> {
+                    showDoctors(snapshot.getDoctors());
+                    showBedTypes(snapshot.getBedTypes());
+                    showIllnesses(snapshot.getIllnesses());
+                    searchField.setText("");
+                    if (seq == countSeq) {
+                        patientCount = snapshot.getPatientCount();
+                    }
+                    tableModel.showFirstPage(snapshot.getPatients());
+                },
+                error -> {
+                    AsyncUi.setLoading(this, false);
+                    showError("Could not load patient data: " + error.getMessage());
+                });
+    }
+
     public void loadDoctors() {
-        try {
-            Object selected = doctorComboBox.getSelectedItem();
-            doctorComboBox.removeAllItems();
-            dataAccess.getAllDoctors().forEach(doctorComboBox::addItem);
-            if (selected != null) doctorComboBox.setSelectedItem(selected);
-        } catch (SQLException e) {
-            showError("Could not load Doctors: " + e.getMessage());
-        }
+        AsyncUi.onEdt(async.call(dataAccess::getAllDoctors), this::showDoctors,
+                error -> showError("Could not load Doctors: " + error.getMessage()));
+    }
+
+    private void showDoctors(List<Doctor> doctors) {
+        Object selected = doctorComboBox.getSelectedItem();
+        doctorComboBox.removeAllItems();
+        doctors.forEach(doctorComboBox::addItem);
+        if (selected != null) doctorComboBox.setSelectedItem(selected);
     }
     
     public void loadBedTypes() {
-        try {
-            Object selected = bedTypeComboBox.getSelectedItem();
-            bedTypeComboBox.removeAllItems();
-            dataAccess.getAllBedTypes().forEach(bedTypeComboBox::addItem);
-            if (selected != null) bedTypeComboBox.setSelectedItem(selected);
-        } catch (SQLException e) {
-            showError("Could not load Bed Types: " + e.getMessage());
-        }
+        AsyncUi.onEdt(async.call(dataAccess::getAllBedTypes), this::showBedTypes,
+                error -> showError("Could not load Bed Types: " + error.getMessage()));
+    }
+
+    private void showBedTypes(List<ConfigBedType> bedTypes) {
+        Object selected = bedTypeComboBox.getSelectedItem();
+        bedTypeComboBox.removeAllItems();
+        bedTypes.forEach(bedTypeComboBox::addItem);
+        if (selected != null) bedTypeComboBox.setSelectedItem(selected);
     }
     
     public void loadIllnesses() {
-        try {
-            Object selected = illnessComboBox.getSelectedItem();
-            illnessComboBox.removeAllItems();
-            List<ConfigIllness> illnesses = dataAccess.getAllIllnesses();
-            for (ConfigIllness illness : illnesses) {
-                illnessComboBox.addItem(illness);
-                if ("Other...".equals(illness.getIllnessName())) {
-                    otherIllnessOption = illness; // Store this special object
-                }
+        AsyncUi.onEdt(async.call(dataAccess::getAllIllnesses), this::showIllnesses,
+                error -> showError("Could not load Illnesses: " + error.getMessage()));
+    }
+
+    private void showIllnesses(List<ConfigIllness> illnesses) {
+        Object selected = illnessComboBox.getSelectedItem();
+        illnessComboBox.removeAllItems();
+        for (ConfigIllness illness : illnesses) {
+            illnessComboBox.addItem(illness);
+            if ("Other...".equals(illness.getIllnessName())) {
+                otherIllnessOption = illness; // Store this special object
             }
-            if (selected != null) illnessComboBox.setSelectedItem(selected);
-        } catch (SQLException e) {
-            showError("Could not load Illnesses: " + e.getMessage());
         }
+        if (selected != null) illnessComboBox.setSelectedItem(selected);
+        showIllnessesInTable();
     }
     
     // [START] UPDATED METHOD
+    /**
+     * Reloads the table from the first page, keeping the current sort and applying the search box.
+     */
     public void loadPatients() {
-        try {
-            tableModel.setRowCount(0);
-            this.patientList = dataAccess.getAllPatients();
-            
-            for (Patient p : patientList) {
-                Object[] row = {
-                    p.getPatientId(), p.getName(), p.getAge(), p.getGender(),
-                    
-                    // [FIX #2] Added a null check for otherIllnessOption
-                    (otherIllnessOption != null && p.getIllnessId() == otherIllnessOption.getIllnessId()) 
-                        ? p.getOtherIllnessText() 
-                        : p.getIllnessName(),
-                        
-                    p.getDiseaseSeverity(),
-                    p.getRequestedBedTypeName() != null ? p.getRequestedBedTypeName() : "N/A",
-                    p.getAdmittedDate().toString(),
-                    p.getAssignedDoctorName() != null ? p.getAssignedDoctorName() : "N/A",
-                    p.getBedId() == 0 ? "Unassigned" : p.getBedId()
-                };
-                tableModel.addRow(row);
+        startPatientLoad();
+        recountPatients();
+        tableModel.reload(tableModel.getSort(), tableModel.isDescending(), searchField.getText());
+    }
+
+    private void startPatientLoad() {
+        countLabel.setText("Loading patients...");
+        AsyncUi.setLoading(this, true);
+    }
+
+    private void recountPatients() {
+        patientCount = -1;
+        int seq = ++countSeq;
+        String filter = searchField.getText();
+        AsyncUi.onEdt(async.call(() -> dataAccess.countAdmittedPatients(filter)), count -> {
+            if (seq == countSeq) {
+                patientCount = count;
+                updateCountLabel();
             }
-            countLabel.setText("Admitted Patients: " + patientList.size());
-        } catch (SQLException e) {
-            showError("Error loading patients: " + e.getMessage());
+        }, error -> error.printStackTrace());
+    }
+
+    private void updateCountLabel() {
+        if (tableModel.isLoading() && tableModel.getRowCount() == 0) {
+            return; // Still waiting for the first page
+        }
+        String count = patientCount < 0 ? "..." : String.valueOf(patientCount);
+        if (tableModel.getNameFilter().isEmpty()) {
+            countLabel.setText("Admitted Patients: " + count);
+        } else {
+            countLabel.setText("Matching Patients: " + count);
         }
     }
+
+    private void showIllnessesInTable() {
+        tableModel.setOtherIllnessId(otherIllnessOption != null ? otherIllnessOption.getIllnessId() : -1);
+    }
     // [END] UPDATED METHOD
     
     private void openPatientDetails() {
         int selectedViewRow = patientTable.getSelectedRow();
         if (selectedViewRow == -1) return;
         int modelRow = patientTable.convertRowIndexToModel(selectedViewRow);
-        Patient selectedPatient = patientList.get(modelRow);
+        Patient selectedPatient = tableModel.getPatientAt(modelRow);
         PatientDetailDialog dialog = new PatientDetailDialog((Frame) SwingUtilities.getWindowAncestor(this), selectedPatient);
         dialog.setVisible(true);
     }
@@ -418,7 +491,7 @@ public class PatientPanel extends JPanel {
         nameField.setText("");
         ageField.setText("");
         genderComboBox.setSelectedIndex(0);
-        illnessComboBox.setSelectedIndex(0);
+        if (illnessComboBox.getItemCount() > 0) illnessComboBox.setSelectedIndex(0);
         severityComboBox.setSelectedIndex(0);
         otherIllnessField.setText("");
         otherIllnessField.setVisible(false);
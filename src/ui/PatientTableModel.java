@@ -0,0 +1,200 @@
+package ui;
+
+import dal.AsyncDataAccess;
+import dal.DataAccess;
+import dal.PatientSort;
+import model.Patient;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Table model for PatientPanel that loads admitted patients a page at a time.
+ *
+ * Only the rows the user has scrolled to are held in memory. When the panel
+ * reports that the table has scrolled near the end of what is loaded, the next
+ * page is fetched in the background with a keyset cursor and appended. Sorting and filtering are
+ * done in SQL; changing either starts again from the first page.
+ */
+class PatientTableModel extends AbstractTableModel {
+
+    static final int PAGE_SIZE = 200;
+    private static final int PREFETCH_ROWS = 50; // Fetch the next page this many rows before the end
+
+    private static final String[] COLUMNS = {"ID", "Name", "Age", "Gender", "Illness", "Severity",
+            "Bed Request", "Admitted Date", "Assigned Doctor", "Bed ID"};
+
+    private final DataAccess dataAccess;
+    private final AsyncDataAccess async = new AsyncDataAccess();
+    private final Consumer<Throwable> onError;
+    private Runnable onPageLoaded = () -> {};
+
+    private final List<Patient> rows = new ArrayList<>();
+    private PatientSort sort = PatientSort.ID;
+    private boolean descending;
+    private String nameFilter = "";
+    private int otherIllnessId = -1;
+    private boolean hasMore;
+    private boolean loading;
+    private int generation; // Bumped on reload so pages from an older query are dropped
+
+    PatientTableModel(DataAccess dataAccess, Consumer<Throwable> onError) {
+        this.dataAccess = dataAccess;
+        this.onError = onError;
+    }
+
+    /**
+     * Called on the EDT after every page (including an empty first page) has been applied.
+     */
+    void setOnPageLoaded(Runnable onPageLoaded) {
+        this.onPageLoaded = onPageLoaded;
+    }
+
+    /**
+     * The "Other..." illness shows the patient's own text instead of the illness name.
+     */
+    void setOtherIllnessId(int otherIllnessId) {
+        this.otherIllnessId = otherIllnessId;
+        if (!rows.isEmpty()) {
+            fireTableRowsUpdated(0, rows.size() - 1);
+        }
+    }
+
+    /**
+     * Drops all loaded rows and loads the first page for the given sort and filter.
+     */
+    void reload(PatientSort sort, boolean descending, String nameFilter) {
+        this.sort = sort;
+        this.descending = descending;
+        this.nameFilter = nameFilter == null ? "" : nameFilter.trim();
+        reload();
+    }
+
+    /**
+     * Replaces the rows with a first page in ID order and without a filter that
+     * was fetched elsewhere (the panel snapshot), and continues paging from it.
+     */
+    void showFirstPage(List<Patient> firstPage) {
+        generation++;
+        sort = PatientSort.ID;
+        descending = false;
+        nameFilter = "";
+        rows.clear();
+        rows.addAll(firstPage);
+        hasMore = firstPage.size() == PAGE_SIZE;
+        loading = false;
+        fireTableDataChanged();
+        onPageLoaded.run();
+    }
+
+    void reload() {
+        generation++;
+        rows.clear();
+        hasMore = true;
+        loading = false;
+        fireTableDataChanged();
+        loadNextPage();
+    }
+
+    private void loadNextPage() {
+        if (loading || !hasMore) {
+            return;
+        }
+        loading = true;
+        int requestGeneration = generation;
+        Patient after = rows.isEmpty() ? null : rows.get(rows.size() - 1);
+        PatientSort pageSort = sort;
+        boolean pageDescending = descending;
+        String pageFilter = nameFilter;
+
+        AsyncUi.onEdt(async.call(() -> dataAccess.getPatientsPage(pageSort, pageDescending, pageFilter, after, PAGE_SIZE)),
+                page -> {
+                    if (requestGeneration != generation) {
+                        return;
+                    }
+                    loading = false;
+                    hasMore = page.size() == PAGE_SIZE;
+                    if (!page.isEmpty()) {
+                        int first = rows.size();
+                        rows.addAll(page);
+                        fireTableRowsInserted(first, rows.size() - 1);
+                    }
+                    onPageLoaded.run();
+                },
+                error -> {
+                    if (requestGeneration != generation) {
+                        return;
+                    }
+                    loading = false;
+                    hasMore = false;
+                    onError.accept(error);
+                });
+    }
+
+    /**
+     * Fetches the next page if the last row the table shows is near the end of
+     * what is loaded. Called from the scroll pane's viewport listener, so that
+     * painting cells never starts a query.
+     */
+    void prefetchAfter(int lastVisibleRow) {
+        if (lastVisibleRow >= rows.size() - PREFETCH_ROWS) {
+            loadNextPage();
+        }
+    }
+
+    Patient getPatientAt(int row) {
+        return rows.get(row);
+    }
+
+    PatientSort getSort() { return sort; }
+    boolean isDescending() { return descending; }
+    String getNameFilter() { return nameFilter; }
+    boolean isLoading() { return loading; }
+    boolean hasMore() { return hasMore; }
+
+    /**
+     * The sort a click on this column's header selects, or null if the column cannot be sorted in SQL.
+     */
+    static PatientSort sortForColumn(int column) {
+        switch (column) {
+            case 0: return PatientSort.ID;
+            case 1: return PatientSort.NAME;
+            default: return null;
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Patient p = rows.get(rowIndex);
+        switch (columnIndex) {
+            case 0: return p.getPatientId();
+            case 1: return p.getName();
+            case 2: return p.getAge();
+            case 3: return p.getGender();
+            case 4: return p.getIllnessId() == otherIllnessId ? p.getOtherIllnessText() : p.getIllnessName();
+            case 5: return p.getDiseaseSeverity();
+            case 6: return p.getRequestedBedTypeName() != null ? p.getRequestedBedTypeName() : "N/A";
+            case 7: return p.getAdmittedDate() != null ? p.getAdmittedDate().toString() : "N/A";
+            case 8: return p.getAssignedDoctorName() != null ? p.getAssignedDoctorName() : "N/A";
+            case 9: return p.getBedId() == 0 ? "Unassigned" : p.getBedId();
+            default: return null;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package util;
+
+import dal.DataAccess;
+import model.Bill;
+import model.BillRange;
+import model.Patient;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Renders the invoices for a range of bills, e.g. a month for finance, in
+ * parallel.
+ *
+ * Bills are streamed from a database cursor and rendered by one worker per
+ * core, through the InvoiceStore, so invoices exported before are not
+ * rendered again. At most two invoices per worker are read ahead or waiting to be
+ * written, so memory stays flat however many bills the range holds. Output
+ * goes either to a directory (one file per invoice, as BillDialog names them)
+ * or to a single ZIP stream.
+ *
+ * A failed invoice is counted and the rest carry on; an export can be
+ * cancelled from another thread.
+ *
+ * Usage: java -cp out:lib/* util.InvoiceBatchExporter yyyy-mm-dd yyyy-mm-dd [output.zip | directory]
+ */
+public class InvoiceBatchExporter {
+
+    private static final int THREADS = Integer.getInteger("hms.pdfExport.threads",
+            Runtime.getRuntime().availableProcessors());
+    private static final long PROGRESS_INTERVAL_MS = 250;
+
+    /**
+     * Progress callback, called from the export threads (not the EDT).
+     */
+    public interface ProgressListener {
+        void progress(int done, int total, double invoicesPerSecond);
+    }
+
+    /**
+     * Outcome of one export.
+     */
+    public static class Result {
+        private final int exported;
+        private final int failed;
+        private final long elapsedMillis;
+        private final boolean cancelled;
+        private final Exception firstError;
+
+        Result(int exported, int failed, long elapsedMillis, boolean cancelled, Exception firstError) {
+            this.exported = exported;
+            this.failed = failed;
+            this.elapsedMillis = elapsedMillis;
+            this.cancelled = cancelled;
+            this.firstError = firstError;
+        }
+
+        public int getExported() { return exported; }
+        public int getFailed() { return failed; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        public boolean isCancelled() { return cancelled; }
+        public Exception getFirstError() { return firstError; }
+
+        public double getInvoicesPerSecond() {
+            return elapsedMillis == 0 ? 0 : exported * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d invoices exported, %d failed in %.1f s (%.1f per second)%s",
+                    exported, failed, elapsedMillis / 1000.0, getInvoicesPerSecond(), cancelled ? ", cancelled" : "");
+        }
+    }
+
+    /**
+     * Where a rendered invoice goes. Called from several workers at once.
+     */
+    private interface Sink {
+        void write(Bill bill, Patient patient) throws IOException;
+    }
+
+    private final DataAccess dataAccess;
+    private volatile boolean cancelled;
+
+    public InvoiceBatchExporter(DataAccess dataAccess) {
+        this.dataAccess = dataAccess;
+    }
+
+    /**
+     * Writes one PDF per bill into the directory.
+     */
+    public Result exportToDirectory(BillRange range, File directory, ProgressListener listener) throws SQLException {
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        return export(range, (bill, patient) -> InvoiceStore.exportTo(bill, patient, directory), listener);
+    }
+
+    /**
+     * Writes every PDF as an entry of one ZIP stream. Entries are rendered into
+     * the InvoiceStore in parallel, then copied into the ZIP one at a time in
+     * the order they finish. The stream is finished but not closed.
+     */
+    public Result exportToZip(BillRange range, OutputStream out, ProgressListener listener) throws SQLException, IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        zip.setLevel(1); // PDF content streams are already compressed
+        Result result = export(range, (bill, patient) -> {
+            InvoiceStore.fetch(bill, patient);
+            synchronized (zip) {
+                zip.putNextEntry(new ZipEntry(PdfGenerator.fileName(bill, patient)));
+                InvoiceStore.transferTo(bill, patient, zip);
+                zip.closeEntry();
+            }
+        }, listener);
+        zip.finish();
+        return result;
+    }
+
+    /**
+     * Stops a running export after the invoices already being rendered.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private Result export(BillRange range, Sink sink, ProgressListener listener) throws SQLException {
+        cancelled = false;
+        int total = dataAccess.countBills(range);
+        long start = System.currentTimeMillis();
+
+        int maxInFlight = THREADS * 2;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicInteger exported = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicReference<Exception> firstError = new AtomicReference<>();
+        long[] lastReport = {0};
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(THREADS, r -> {
+            Thread t = new Thread(r, "hms-pdf-export-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            dataAccess.streamInvoices(range, (bill, patient) -> {
+                if (cancelled) {
+                    return false;
+                }
+                // Holds the cursor until a worker frees a slot
+                inFlight.acquireUninterruptibly();
+                workers.execute(() -> {
+                    try {
+                        sink.write(bill, patient);
+                        exported.incrementAndGet();
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        firstError.compareAndSet(null, e);
+                        System.err.println("Invoice export failed for bill " + bill.getBillId() + ": " + e.getMessage());
+                    } finally {
+                        reportProgress(listener, exported.get() + failed.get(), total, start, lastReport);
+                        inFlight.release();
+                    }
+                });
+                return true;
+            });
+        } finally {
+            // Wait for the invoices already handed to workers
+            inFlight.acquireUninterruptibly(maxInFlight);
+            workers.shutdown();
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        if (listener != null) {
+            listener.progress(exported.get() + failed.get(), total, elapsed == 0 ? 0 : exported.get() * 1000.0 / elapsed);
+        }
+        return new Result(exported.get(), failed.get(), elapsed, cancelled, firstError.get());
+    }
+
+    private static void reportProgress(ProgressListener listener, int done, int total, long start, long[] lastReport) {
+        if (listener == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (lastReport) {
+            if (now - lastReport[0] < PROGRESS_INTERVAL_MS) {
+                return;
+            }
+            lastReport[0] = now;
+        }
+        long elapsed = Math.max(1, now - start);
+        listener.progress(done, total, done * 1000.0 / elapsed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: util.InvoiceBatchExporter fromDate toDate [output.zip | directory]");
+            System.exit(2);
+        }
+        BillRange range = BillRange.byDate(java.sql.Date.valueOf(args[0]), java.sql.Date.valueOf(args[1]));
+        String target = args.length > 2 ? args[2] : PdfGenerator.PDF_DIRECTORY;
+        InvoiceBatchExporter exporter = new InvoiceBatchExporter(new DataAccess());
+        ProgressListener listener = (done, total, rate) ->
+                System.out.printf("\r%d / %d invoices, %.1f per second", done, total, rate);
+
+        Result result;
+        if (target.endsWith(".zip")) {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(target))) {
+                result = exporter.exportToZip(range, out, listener);
+            }
+        } else {
+            result = exporter.exportToDirectory(range, new File(target), listener);
+        }
+        System.out.println();
+        System.out.println(range + ": " + result);
+        System.exit(result.getFailed() == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,129 @@
+package util;
+
+import model.Bill;
+import model.Patient;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+
+/**
+ * Rendered invoice PDFs on disk, addressed by bill_id plus a SHA-256 of
+ * everything the invoice prints (and the layout version):
+ * hms.pdfStore.dir/&lt;bill_id&gt;/&lt;hash&gt;.pdf, default under generated_bills/store.
+ *
+ * The hash is computed from the bill before rendering, so asking again for an
+ * unchanged bill is a plain file read with no PDFBox work, and the file is
+ * sent with FileChannel.transferTo. A different bill that reuses the id
+ * (e.g. after a database reset) has a different hash and never overwrites
+ * the old PDF.
+ */
+public class InvoiceStore {
+
+    private static final File STORE_DIR = new File(System.getProperty("hms.pdfStore.dir",
+            PdfGenerator.PDF_DIRECTORY + File.separator + "store"));
+
+    /**
+     * The stored PDF for this bill, rendering and storing it first if needed.
+     */
+    public static File fetch(Bill bill, Patient patient) throws IOException {
+        File file = storedFile(bill, patient);
+        if (file.isFile()) {
+            return file;
+        }
+
+        // Rendered beside the final name and moved into place, so a reader never sees half a file
+        Files.createDirectories(file.getParentFile().toPath());
+        Path temp = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                PdfGenerator.writeBillPdf(bill, patient, out);
+            }
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return file;
+    }
+
+    /**
+     * Sends the invoice to the channel, rendering it only if it is not stored yet.
+     * Returns the number of bytes sent.
+     */
+    public static long transferTo(Bill bill, Patient patient, WritableByteChannel target) throws IOException {
+        try (FileChannel in = FileChannel.open(fetch(bill, patient).toPath(), StandardOpenOption.READ)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, target);
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Sends the invoice to the stream, which is left open. See {@link #transferTo(Bill, Patient, WritableByteChannel)}.
+     */
+    public static long transferTo(Bill bill, Patient patient, OutputStream out) throws IOException {
+        return transferTo(bill, patient, Channels.newChannel(out));
+    }
+
+    /**
+     * Copies the invoice into the directory under its usual Invoice-&lt;id&gt;-&lt;name&gt;.pdf
+     * name, for opening or sending on.
+     */
+    public static File exportTo(Bill bill, Patient patient, File directory) throws IOException {
+        Files.createDirectories(directory.toPath());
+        File target = new File(directory, PdfGenerator.fileName(bill, patient));
+        try (FileChannel out = FileChannel.open(target.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            transferTo(bill, patient, out);
+        }
+        return target;
+    }
+
+    private static File storedFile(Bill bill, Patient patient) {
+        File billDir = new File(STORE_DIR, String.valueOf(bill.getBillId()));
+        return new File(billDir, contentHash(bill, patient) + ".pdf");
+    }
+
+    /**
+     * SHA-256 over the values the invoice prints, formatted as printed.
+     */
+    static String contentHash(Bill bill, Patient patient) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        String illness = patient.getOtherIllnessText() != null && !patient.getOtherIllnessText().isEmpty()
+                ? patient.getOtherIllnessText() : patient.getIllnessName();
+        String content = String.join("\n",
+                "layout=" + PdfGenerator.LAYOUT_VERSION,
+                "bill_id=" + bill.getBillId(),
+                "bill_date=" + dateFormat.format(bill.getBillDate()),
+                "patient_id=" + patient.getPatientId(),
+                "name=" + patient.getName(),
+                "admitted=" + (patient.getAdmittedDate() != null ? dateFormat.format(patient.getAdmittedDate()) : ""),
+                "illness=" + illness,
+                String.format("charges=%.2f|%.2f|%.2f|%.2f",
+                        bill.getBedCharge(), bill.getServiceCharge(), bill.getDoctorFee(), bill.getTotal()));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Every JVM is required to have it
+        }
+    }
+}
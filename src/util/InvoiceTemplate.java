@@ -0,0 +1,117 @@
+package util;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The static part of an invoice page (header, card boxes and labels, table
+ * header, footer text), drawn once and kept as the finished bytes of a PDF
+ * form XObject content stream.
+ *
+ * Each invoice gets a new form in its own document holding a copy of those
+ * bytes, drawn with a single "Do" operator, so the static drawing and its
+ * text encoding are not repeated per bill. Immutable once recorded, so one
+ * template is shared by every rendering thread; fonts are supplied per
+ * document because PDFBox fonts are not thread safe.
+ */
+final class InvoiceTemplate {
+
+    /**
+     * Draws the static content.
+     */
+    interface Painter {
+        void paint(PDPageContentStream stream) throws IOException;
+    }
+
+    private final float width;
+    private final float height;
+    private final byte[] content; // As stored, i.e. still encoded with filter
+    private final COSBase filter;
+    private final Map<COSName, String> fonts; // Resource name -> base font name, e.g. F1 -> Helvetica-Bold
+
+    private InvoiceTemplate(float width, float height, byte[] content, COSBase filter, Map<COSName, String> fonts) {
+        this.width = width;
+        this.height = height;
+        this.content = content;
+        this.filter = filter;
+        this.fonts = fonts;
+    }
+
+    /**
+     * Runs the painter once against a scratch page and keeps the result.
+     * Drawing onto a page rather than straight into a form means the painter
+     * is the same PDPageContentStream code as when the template is off, and
+     * numbers are written with the same precision, so both render alike.
+     */
+    static InvoiceTemplate record(PDRectangle pageSize, Painter painter) throws IOException {
+        try (PDDocument scratch = new PDDocument()) {
+            PDPage page = new PDPage(pageSize);
+            scratch.addPage(page);
+            try (PDPageContentStream stream = new PDPageContentStream(scratch, page)) {
+                painter.paint(stream);
+            }
+
+            COSStream cos = page.getCOSObject().getCOSStream(COSName.CONTENTS); // One stream, Flate-compressed
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (InputStream in = cos.createRawInputStream()) {
+                in.transferTo(bytes);
+            }
+
+            Map<COSName, String> fonts = new LinkedHashMap<>();
+            PDResources resources = page.getResources();
+            for (COSName name : resources.getFontNames()) {
+                fonts.put(name, resources.getFont(name).getName());
+            }
+            return new InvoiceTemplate(pageSize.getWidth(), pageSize.getHeight(), bytes.toByteArray(),
+                    cos.getItem(COSName.FILTER), fonts);
+        }
+    }
+
+    /**
+     * A form for the given document with the template's content. The fonts
+     * must include every font the painter used (matched by base font name).
+     */
+    PDFormXObject newForm(PDDocument document, PDFont... available) throws IOException {
+        PDFormXObject form = new PDFormXObject(document);
+        form.setBBox(new PDRectangle(0, 0, width, height));
+
+        PDResources resources = new PDResources();
+        for (Map.Entry<COSName, String> font : fonts.entrySet()) {
+            resources.put(font.getKey(), findFont(available, font.getValue()));
+        }
+        form.setResources(resources);
+
+        COSStream cos = form.getCOSObject();
+        try (OutputStream out = cos.createRawOutputStream()) {
+            out.write(content);
+        }
+        if (filter != null) {
+            cos.setItem(COSName.FILTER, filter);
+        }
+        return form;
+    }
+
+    private static PDFont findFont(PDFont[] available, String baseName) throws IOException {
+        for (PDFont font : available) {
+            if (baseName.equals(font.getName())) {
+                return font;
+            }
+        }
+        throw new IOException("Invoice template needs font " + baseName);
+    }
+}
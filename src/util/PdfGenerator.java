@@ -13,14 +13,19 @@ import java.awt.Desktop;
 import java.awt.Color;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 
 public class PdfGenerator {
 
-    private static final String PDF_DIRECTORY = "generated_bills";
-    private static final PDType1Font FONT_BOLD = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
-    private static final PDType1Font FONT_REGULAR = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
-    private static final PDType1Font FONT_MONO = new PDType1Font(Standard14Fonts.FontName.COURIER);
+    public static final String PDF_DIRECTORY = "generated_bills";
+    // Part of every InvoiceStore key; bump it when the invoice layout changes so stored PDFs are re-rendered
+    static final int LAYOUT_VERSION = 1;
+    // PDType1Font caches widths and encodings in plain HashMaps, so each thread rendering invoices gets its own
+    private static final ThreadLocal<PDType1Font> FONT_BOLD =
+            ThreadLocal.withInitial(() -> new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD));
+    private static final ThreadLocal<PDType1Font> FONT_REGULAR =
+            ThreadLocal.withInitial(() -> new PDType1Font(Standard14Fonts.FontName.HELVETICA));
 
     // Modern color scheme
     private static final Color COLOR_PRIMARY = new Color(37, 99, 235);      // Modern Blue
@@ -28,169 +33,241 @@ public class PdfGenerator {
     private static final Color COLOR_SUCCESS = new Color(34, 197, 94);      // Green
     private static final Color COLOR_BG_LIGHT = new Color(248, 250, 252);   // Very Light Gray
     private static final Color COLOR_TABLE_HEADER = new Color(241, 245, 249); // Light Gray
+    private static final Color COLOR_TABLE_ROW_ALT = new Color(249, 250, 251); // Alternate row
     private static final Color COLOR_BORDER = new Color(226, 232, 240);     // Border Gray
     private static final Color COLOR_TEXT_PRIMARY = new Color(15, 23, 42);  // Almost Black
     private static final Color COLOR_TEXT_SECONDARY = new Color(100, 116, 139); // Medium Gray
+    private static final Color COLOR_NOTICE_BG = new Color(254, 249, 195);  // Pale Yellow
+    private static final Color COLOR_NOTICE_BORDER = new Color(234, 179, 8); // Amber
+    private static final Color COLOR_NOTICE_TEXT = new Color(133, 77, 14);  // Brown
+
+    // Layout, shared by the static template and the per-bill fields so they line up
+    private static final float PAGE_WIDTH = PDRectangle.A4.getWidth();
+    private static final float PAGE_HEIGHT = PDRectangle.A4.getHeight();
+    private static final float MARGIN = 50;
+    private static final float WIDTH = PAGE_WIDTH - 2 * MARGIN;
+    private static final float CARD_TOP = PAGE_HEIGHT - 150;
+    private static final float CARD_HEIGHT = 110;
+    private static final float CARD_WIDTH = (WIDTH - 15) / 2;
+    private static final float CARD1_X = MARGIN + 15;
+    private static final float CARD2_X = MARGIN + CARD_WIDTH + 15 + 15;
+    private static final float CARD_FIRST_ROW_Y = CARD_TOP - 45;
+    private static final float CARD_ROW_STEP = 16;
+    private static final float CARD_VALUE_OFFSET = 80;
+    private static final float TABLE_TOP = CARD_TOP - CARD_HEIGHT - 55;
+    private static final float ROW_HEIGHT = 35;
+    private static final float COL1_X = MARGIN + 20;
+    private static final float COL2_X = MARGIN + WIDTH - 150;
+    private static final float TOTAL_TOP = TABLE_TOP - 4 * ROW_HEIGHT - 25;
+    private static final float TOTAL_HEIGHT = 50;
+    private static final float INFO_TOP = TOTAL_TOP - TOTAL_HEIGHT - 30;
+    private static final float FOOTER_Y = 70;
+
+    // Widths at 1pt of printable ASCII, measured once; what varies per bill is names and numbers
+    private static final float[] BOLD_WIDTHS = measureWidths(Standard14Fonts.FontName.HELVETICA_BOLD);
+    private static final float[] REGULAR_WIDTHS = measureWidths(Standard14Fonts.FontName.HELVETICA);
+
+    // Recorded once, without and with the "Admitted" row; see InvoiceTemplate
+    private static final InvoiceTemplate[] TEMPLATES = new InvoiceTemplate[2];
+    private static volatile boolean templateEnabled =
+            Boolean.parseBoolean(System.getProperty("hms.pdf.template", "true"));
+
+    /**
+     * Renders the invoice straight into the stream, which is left open.
+     * Safe to call from several threads at once. Invoices to keep or hand out
+     * go through {@link InvoiceStore}, which renders each one only once.
+     */
+    public static void writeBillPdf(Bill bill, Patient patient, OutputStream out) throws IOException {
+        try (PDDocument document = buildDocument(bill, patient)) {
+            document.save(out);
+        }
+    }
+
+    public static String fileName(Bill bill, Patient patient) {
+        return "Invoice-" + bill.getBillId() + "-" + patient.getName().replaceAll("\\s+", "_") + ".pdf";
+    }
 
-    public static File generateBillPdf(Bill bill, Patient patient) throws IOException {
+    /**
+     * Turns the cached template off (every element drawn per invoice, as
+     * before) or back on. For benchmarks and for ruling the template out when
+     * an invoice looks wrong; also settable with -Dhms.pdf.template=false.
+     */
+    public static void setTemplateEnabled(boolean enabled) {
+        templateEnabled = enabled;
+    }
+
+    private static PDDocument buildDocument(Bill bill, Patient patient) throws IOException {
         PDDocument document = new PDDocument();
         PDPage page = new PDPage(PDRectangle.A4);
         document.addPage(page);
-
-        PDRectangle mediaBox = page.getMediaBox();
-        float margin = 50;
-        float width = mediaBox.getWidth() - 2 * margin;
-        float y = mediaBox.getHeight() - 60;
+        boolean withAdmittedRow = patient.getAdmittedDate() != null;
 
         try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-
-            // === 1. Modern Header with Colored Bar ===
-            drawBox(contentStream, 0, mediaBox.getHeight() - 8, mediaBox.getWidth(), 8, COLOR_PRIMARY);
-
-            y -= 30;
-            drawText(contentStream, FONT_BOLD, 24, margin, y, "MEDICAL INVOICE", COLOR_PRIMARY);
-            y -= 30;
-            drawText(contentStream, FONT_REGULAR, 11, margin, y, 
-                "Hospital Management System • Patient Billing Statement", COLOR_TEXT_SECONDARY);
-            y -= 30;
-
-            // === 2. Patient & Bill Info Cards ===
-            float cardHeight = 110;
-            float cardSpacing = 15;
-            float cardWidth = (width - cardSpacing) / 2;
-
-            float cardY = y;
-            drawRoundedCard(contentStream, margin, cardY - cardHeight, cardWidth, cardHeight);
-
-            float textY = cardY - 25;
-            drawText(contentStream, FONT_BOLD, 10, margin + 15, textY, "PATIENT DETAILS", COLOR_PRIMARY);
-            textY -= 20;
-
-            drawCardRow(contentStream, margin + 15, textY, "Name", patient.getName());
-            textY -= 16;
-            drawCardRow(contentStream, margin + 15, textY, "Patient ID", String.valueOf(patient.getPatientId()));
-            textY -= 16;
-            if (patient.getAdmittedDate() != null) {
-                drawCardRow(contentStream, margin + 15, textY, "Admitted",
-                        new SimpleDateFormat("dd MMM yyyy").format(patient.getAdmittedDate()));
-                textY -= 16;
+            if (templateEnabled) {
+                contentStream.drawForm(template(withAdmittedRow).newForm(document, FONT_BOLD.get(), FONT_REGULAR.get()));
+            } else {
+                drawTemplate(contentStream, withAdmittedRow);
             }
+            drawFields(contentStream, bill, patient, withAdmittedRow);
+        } catch (IOException | RuntimeException e) {
+            document.close(); // The caller never receives it
+            throw e;
+        }
+
+        return document;
+    }
 
-            // ✅ UPDATED SECTION — Correct Illness Name
-            String illnessDisplay = patient.getIllnessName();
-            if (patient.getOtherIllnessText() != null && !patient.getOtherIllnessText().isEmpty()) {
-                illnessDisplay = patient.getOtherIllnessText();
+    private static InvoiceTemplate template(boolean withAdmittedRow) throws IOException {
+        int variant = withAdmittedRow ? 1 : 0;
+        synchronized (TEMPLATES) {
+            if (TEMPLATES[variant] == null) {
+                TEMPLATES[variant] = InvoiceTemplate.record(PDRectangle.A4,
+                        stream -> drawTemplate(stream, withAdmittedRow));
             }
-            drawCardRow(contentStream, margin + 15, textY, "Diagnosis",
-                    (illnessDisplay != null ? illnessDisplay : "N/A"));
-
-            // --- Bill Info Card (Right) ---
-            float card2X = margin + cardWidth + cardSpacing;
-            drawRoundedCard(contentStream, card2X, cardY - cardHeight, cardWidth, cardHeight);
-
-            textY = cardY - 25;
-            drawText(contentStream, FONT_BOLD, 10, card2X + 15, textY, "INVOICE DETAILS", COLOR_PRIMARY);
-            textY -= 20;
-
-            drawCardRow(contentStream, card2X + 15, textY, "Invoice No",
-                    String.format("#INV-%04d", bill.getBillId()));
-            textY -= 16;
-            drawCardRow(contentStream, card2X + 15, textY, "Invoice Date",
-                    new SimpleDateFormat("dd MMM yyyy").format(bill.getBillDate()));
-            textY -= 16;
-            drawCardRow(contentStream, card2X + 15, textY, "Status", "Due");
-
-            y = cardY - cardHeight - 30;
-
-            // === 3. Charges Breakdown Table ===
-            drawText(contentStream, FONT_BOLD, 12, margin, y, "CHARGES BREAKDOWN", COLOR_TEXT_PRIMARY);
-            y -= 25;
-
-            float rowHeight = 35;
-            float tableStartY = y;
-
-            drawBox(contentStream, margin, y - rowHeight, width, rowHeight, COLOR_TABLE_HEADER);
-            drawBox(contentStream, margin, y - rowHeight, width, rowHeight, null, COLOR_BORDER, 1);
-
-            float col1X = margin + 20;
-            float col2X = margin + width - 150;
-
-            drawText(contentStream, FONT_BOLD, 10, col1X, y - 21, "DESCRIPTION", COLOR_TEXT_PRIMARY);
-            drawText(contentStream, FONT_BOLD, 10, col2X, y - 21, "AMOUNT (INR)", COLOR_TEXT_PRIMARY);
-
-            y -= rowHeight;
-
-            y = drawModernTableRow(contentStream, y, "Hospital Bed Charges", bill.getBedCharge(),
-                    rowHeight, margin, width, col1X, col2X, true);
-            y = drawModernTableRow(contentStream, y, "Base Service Charges", bill.getServiceCharge(),
-                    rowHeight, margin, width, col1X, col2X, false);
-            y = drawModernTableRow(contentStream, y, "Doctor Consultation Fee", bill.getDoctorFee(),
-                    rowHeight, margin, width, col1X, col2X, true);
-
-            drawLine(contentStream, margin, y, margin + width, 1.5f, COLOR_BORDER);
-            y -= 25;
-
-            // === 4. Total Section ===
-            float totalBoxHeight = 50;
-            drawBox(contentStream, margin, y - totalBoxHeight, width, totalBoxHeight, COLOR_BG_LIGHT);
-            drawBox(contentStream, margin, y - totalBoxHeight, width, totalBoxHeight, null, COLOR_PRIMARY, 2);
-
-            float totalY = y - 30;
-            drawText(contentStream, FONT_BOLD, 14, margin + 20, totalY, "TOTAL AMOUNT DUE", COLOR_TEXT_PRIMARY);
-
-            String totalText = String.format("Rs. %.2f", bill.getTotal());
-            float totalTextWidth = (FONT_BOLD.getStringWidth(totalText) / 1000f) * 20;
-            drawText(contentStream, FONT_BOLD, 20, margin + width - totalTextWidth - 20, totalY,
-                    totalText, COLOR_PRIMARY);
-
-            y -= totalBoxHeight + 30;
-
-            // === 5. Payment Info ===
-            float infoBoxHeight = 45;
-            drawBox(contentStream, margin, y - infoBoxHeight, width, infoBoxHeight, new Color(254, 249, 195));
-            drawBox(contentStream, margin, y - infoBoxHeight, width, infoBoxHeight, null, new Color(234, 179, 8), 1);
-
-            float infoY = y - 18;
-            drawText(contentStream, FONT_BOLD, 9, margin + 15, infoY,
-                    "(!) Payment Information", new Color(133, 77, 14));
-            infoY -= 14;
-            drawText(contentStream, FONT_REGULAR, 8, margin + 15, infoY,
-                    "Please settle this invoice within 7 days. For queries, contact our billing department.",
-                    new Color(133, 77, 14));
-
-            y -= infoBoxHeight + 40;
-
-            // === 6. Footer ===
-            float footerY = 70;
-            drawLine(contentStream, margin, footerY + 15, margin + width, 0.5f, COLOR_BORDER);
-            drawText(contentStream, FONT_REGULAR, 8, margin, footerY,
-                    "Thank you for choosing our healthcare services. We wish you a speedy recovery.",
-                    COLOR_TEXT_SECONDARY);
-            footerY -= 12;
-            drawText(contentStream, FONT_REGULAR, 8, margin, footerY,
-                    "This is a computer-generated invoice. No signature required.",
-                    COLOR_TEXT_SECONDARY);
-
-            String footerRight = String.format("Invoice #%04d", bill.getBillId());
-            float footerRightWidth = (FONT_REGULAR.getStringWidth(footerRight) / 1000f) * 8;
-            drawText(contentStream, FONT_REGULAR, 8, margin + width - footerRightWidth, footerY + 12,
-                    footerRight, COLOR_TEXT_SECONDARY);
+            return TEMPLATES[variant];
         }
+    }
+
+    // === Static Content (identical on every invoice) ===
+    private static void drawTemplate(PDPageContentStream contentStream, boolean withAdmittedRow) throws IOException {
+        PDType1Font bold = FONT_BOLD.get();
+        PDType1Font regular = FONT_REGULAR.get();
+
+        // === 1. Modern Header with Colored Bar ===
+        drawBox(contentStream, 0, PAGE_HEIGHT - 8, PAGE_WIDTH, 8, COLOR_PRIMARY);
+        drawText(contentStream, bold, 24, MARGIN, PAGE_HEIGHT - 90, "MEDICAL INVOICE", COLOR_PRIMARY);
+        drawText(contentStream, regular, 11, MARGIN, PAGE_HEIGHT - 120,
+            "Hospital Management System • Patient Billing Statement", COLOR_TEXT_SECONDARY);
+
+        // === 2. Patient & Bill Info Cards ===
+        drawRoundedCard(contentStream, MARGIN, CARD_TOP - CARD_HEIGHT, CARD_WIDTH, CARD_HEIGHT);
+        drawText(contentStream, bold, 10, CARD1_X, CARD_TOP - 25, "PATIENT DETAILS", COLOR_PRIMARY);
+        float textY = CARD_FIRST_ROW_Y;
+        drawCardLabel(contentStream, CARD1_X, textY, "Name");
+        textY -= CARD_ROW_STEP;
+        drawCardLabel(contentStream, CARD1_X, textY, "Patient ID");
+        textY -= CARD_ROW_STEP;
+        if (withAdmittedRow) {
+            drawCardLabel(contentStream, CARD1_X, textY, "Admitted");
+            textY -= CARD_ROW_STEP;
+        }
+        drawCardLabel(contentStream, CARD1_X, textY, "Diagnosis");
+
+        drawRoundedCard(contentStream, CARD2_X - 15, CARD_TOP - CARD_HEIGHT, CARD_WIDTH, CARD_HEIGHT);
+        drawText(contentStream, bold, 10, CARD2_X, CARD_TOP - 25, "INVOICE DETAILS", COLOR_PRIMARY);
+        drawCardLabel(contentStream, CARD2_X, CARD_FIRST_ROW_Y, "Invoice No");
+        drawCardLabel(contentStream, CARD2_X, CARD_FIRST_ROW_Y - CARD_ROW_STEP, "Invoice Date");
+        drawCardLabel(contentStream, CARD2_X, CARD_FIRST_ROW_Y - 2 * CARD_ROW_STEP, "Status");
+        drawCardValue(contentStream, CARD2_X, CARD_FIRST_ROW_Y - 2 * CARD_ROW_STEP, "Due");
+
+        // === 3. Charges Breakdown Table ===
+        drawText(contentStream, bold, 12, MARGIN, TABLE_TOP + 25, "CHARGES BREAKDOWN", COLOR_TEXT_PRIMARY);
+        drawBox(contentStream, MARGIN, TABLE_TOP - ROW_HEIGHT, WIDTH, ROW_HEIGHT, COLOR_TABLE_HEADER);
+        drawBox(contentStream, MARGIN, TABLE_TOP - ROW_HEIGHT, WIDTH, ROW_HEIGHT, null, COLOR_BORDER, 1);
+        drawText(contentStream, bold, 10, COL1_X, TABLE_TOP - 21, "DESCRIPTION", COLOR_TEXT_PRIMARY);
+        drawText(contentStream, bold, 10, COL2_X, TABLE_TOP - 21, "AMOUNT (INR)", COLOR_TEXT_PRIMARY);
+
+        drawTableRow(contentStream, 1, "Hospital Bed Charges", true);
+        drawTableRow(contentStream, 2, "Base Service Charges", false);
+        drawTableRow(contentStream, 3, "Doctor Consultation Fee", true);
+        drawLine(contentStream, MARGIN, TABLE_TOP - 4 * ROW_HEIGHT, MARGIN + WIDTH, 1.5f, COLOR_BORDER);
+
+        // === 4. Total Section ===
+        drawBox(contentStream, MARGIN, TOTAL_TOP - TOTAL_HEIGHT, WIDTH, TOTAL_HEIGHT, COLOR_BG_LIGHT);
+        drawBox(contentStream, MARGIN, TOTAL_TOP - TOTAL_HEIGHT, WIDTH, TOTAL_HEIGHT, null, COLOR_PRIMARY, 2);
+        drawText(contentStream, bold, 14, MARGIN + 20, TOTAL_TOP - 30, "TOTAL AMOUNT DUE", COLOR_TEXT_PRIMARY);
+
+        // === 5. Payment Info ===
+        float infoBoxHeight = 45;
+        drawBox(contentStream, MARGIN, INFO_TOP - infoBoxHeight, WIDTH, infoBoxHeight, COLOR_NOTICE_BG);
+        drawBox(contentStream, MARGIN, INFO_TOP - infoBoxHeight, WIDTH, infoBoxHeight, null, COLOR_NOTICE_BORDER, 1);
+        drawText(contentStream, bold, 9, MARGIN + 15, INFO_TOP - 18,
+                "(!) Payment Information", COLOR_NOTICE_TEXT);
+        drawText(contentStream, regular, 8, MARGIN + 15, INFO_TOP - 32,
+                "Please settle this invoice within 7 days. For queries, contact our billing department.",
+                COLOR_NOTICE_TEXT);
+
+        // === 6. Footer ===
+        drawLine(contentStream, MARGIN, FOOTER_Y + 15, MARGIN + WIDTH, 0.5f, COLOR_BORDER);
+        drawText(contentStream, regular, 8, MARGIN, FOOTER_Y,
+                "Thank you for choosing our healthcare services. We wish you a speedy recovery.",
+                COLOR_TEXT_SECONDARY);
+        drawText(contentStream, regular, 8, MARGIN, FOOTER_Y - 12,
+                "This is a computer-generated invoice. No signature required.",
+                COLOR_TEXT_SECONDARY);
+    }
 
-        // Save the file
-        File pdfDir = new File(PDF_DIRECTORY);
-        if (!pdfDir.exists()) {
-            pdfDir.mkdirs();
+    // === Per-Bill Fields ===
+    private static void drawFields(PDPageContentStream contentStream, Bill bill, Patient patient,
+                                   boolean withAdmittedRow) throws IOException {
+        PDType1Font bold = FONT_BOLD.get();
+        PDType1Font regular = FONT_REGULAR.get();
+        SimpleDateFormat dateFormat = new SimpleDateFormat("dd MMM yyyy");
+
+        // Patient card
+        float textY = CARD_FIRST_ROW_Y;
+        drawCardValue(contentStream, CARD1_X, textY, patient.getName());
+        textY -= CARD_ROW_STEP;
+        drawCardValue(contentStream, CARD1_X, textY, String.valueOf(patient.getPatientId()));
+        textY -= CARD_ROW_STEP;
+        if (withAdmittedRow) {
+            drawCardValue(contentStream, CARD1_X, textY, dateFormat.format(patient.getAdmittedDate()));
+            textY -= CARD_ROW_STEP;
         }
-        String fileName = "Invoice-" + bill.getBillId() + "-" + patient.getName().replaceAll("\\s+", "_") + ".pdf";
-        File file = new File(pdfDir, fileName);
 
-        document.save(file);
-        document.close();
-        return file;
+        // ✅ UPDATED SECTION — Correct Illness Name
+        String illnessDisplay = patient.getIllnessName();
+        if (patient.getOtherIllnessText() != null && !patient.getOtherIllnessText().isEmpty()) {
+            illnessDisplay = patient.getOtherIllnessText();
+        }
+        drawCardValue(contentStream, CARD1_X, textY, (illnessDisplay != null ? illnessDisplay : "N/A"));
+
+        // Invoice card
+        drawCardValue(contentStream, CARD2_X, CARD_FIRST_ROW_Y, String.format("#INV-%04d", bill.getBillId()));
+        drawCardValue(contentStream, CARD2_X, CARD_FIRST_ROW_Y - CARD_ROW_STEP, dateFormat.format(bill.getBillDate()));
+
+        // Charges
+        drawAmount(contentStream, 1, bill.getBedCharge());
+        drawAmount(contentStream, 2, bill.getServiceCharge());
+        drawAmount(contentStream, 3, bill.getDoctorFee());
+
+        String totalText = String.format("Rs. %.2f", bill.getTotal());
+        float totalTextWidth = textWidth(BOLD_WIDTHS, bold, totalText, 20);
+        drawText(contentStream, bold, 20, MARGIN + WIDTH - totalTextWidth - 20, TOTAL_TOP - 30,
+                totalText, COLOR_PRIMARY);
+
+        String footerRight = String.format("Invoice #%04d", bill.getBillId());
+        float footerRightWidth = textWidth(REGULAR_WIDTHS, regular, footerRight, 8);
+        drawText(contentStream, regular, 8, MARGIN + WIDTH - footerRightWidth, FOOTER_Y,
+                footerRight, COLOR_TEXT_SECONDARY);
     }
 
     // === Helper Methods ===
+    private static float[] measureWidths(Standard14Fonts.FontName fontName) {
+        PDType1Font font = new PDType1Font(fontName);
+        float[] widths = new float[127];
+        try {
+            for (char c = ' '; c < widths.length; c++) {
+                widths[c] = font.getStringWidth(String.valueOf(c)) / 1000f;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not measure " + fontName, e);
+        }
+        return widths;
+    }
+
+    private static float textWidth(float[] widths, PDType1Font font, String text, int fontSize) throws IOException {
+        float width = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= widths.length || widths[c] == 0) {
+                return (font.getStringWidth(text) / 1000f) * fontSize; // Outside the cached range
+            }
+            width += widths[c];
+        }
+        return width * fontSize;
+    }
+
     private static void drawText(PDPageContentStream stream, PDType1Font font, int fontSize,
                                  float x, float y, String text) throws IOException {
         drawText(stream, font, fontSize, x, y, text, COLOR_TEXT_PRIMARY);
@@ -206,10 +283,12 @@ public class PdfGenerator {
         stream.endText();
     }
 
-    private static void drawCardRow(PDPageContentStream stream, float x, float y, String label, String value)
-            throws IOException {
-        drawText(stream, FONT_REGULAR, 9, x, y, label + ":", COLOR_TEXT_SECONDARY);
-        drawText(stream, FONT_BOLD, 9, x + 80, y, value, COLOR_TEXT_PRIMARY);
+    private static void drawCardLabel(PDPageContentStream stream, float x, float y, String label) throws IOException {
+        drawText(stream, FONT_REGULAR.get(), 9, x, y, label + ":", COLOR_TEXT_SECONDARY);
+    }
+
+    private static void drawCardValue(PDPageContentStream stream, float x, float y, String value) throws IOException {
+        drawText(stream, FONT_BOLD.get(), 9, x + CARD_VALUE_OFFSET, y, value, COLOR_TEXT_PRIMARY);
     }
 
     private static void drawLine(PDPageContentStream stream, float xStart, float y, float xEnd,
@@ -248,22 +327,25 @@ public class PdfGenerator {
         drawBox(stream, x, y, width, height, null, COLOR_BORDER, 1);
     }
 
-    private static float drawModernTableRow(PDPageContentStream stream, float y, String description, double amount,
-                                            float rowHeight, float margin, float width, float col1X, float col2X,
-                                            boolean alternateColor) throws IOException {
-        float rowY = y;
-        float rowBottomY = y - rowHeight;
+    /**
+     * Background, border and description of a charges row; row 1 is the first below the header.
+     */
+    private static void drawTableRow(PDPageContentStream stream, int row, String description,
+                                     boolean alternateColor) throws IOException {
+        float rowBottomY = TABLE_TOP - (row + 1) * ROW_HEIGHT;
 
         if (alternateColor) {
-            drawBox(stream, margin, rowBottomY, width, rowHeight, new Color(249, 250, 251));
+            drawBox(stream, MARGIN, rowBottomY, WIDTH, ROW_HEIGHT, COLOR_TABLE_ROW_ALT);
         }
 
-        drawBox(stream, margin, rowBottomY, width, rowHeight, null, COLOR_BORDER, 0.5f);
-        float textY = rowBottomY + (rowHeight - 10) / 2;
-        drawText(stream, FONT_REGULAR, 10, col1X, textY, description, COLOR_TEXT_PRIMARY);
+        drawBox(stream, MARGIN, rowBottomY, WIDTH, ROW_HEIGHT, null, COLOR_BORDER, 0.5f);
+        drawText(stream, FONT_REGULAR.get(), 10, COL1_X, rowBottomY + (ROW_HEIGHT - 10) / 2, description, COLOR_TEXT_PRIMARY);
+    }
+
+    private static void drawAmount(PDPageContentStream stream, int row, double amount) throws IOException {
+        float rowBottomY = TABLE_TOP - (row + 1) * ROW_HEIGHT;
         String amountStr = String.format("Rs. %.2f", amount);
-        drawText(stream, FONT_BOLD, 10, col2X, textY, amountStr, COLOR_TEXT_PRIMARY);
-        return rowBottomY;
+        drawText(stream, FONT_BOLD.get(), 10, COL2_X, rowBottomY + (ROW_HEIGHT - 10) / 2, amountStr, COLOR_TEXT_PRIMARY);
     }
 
     public static void openPdf(File file) {
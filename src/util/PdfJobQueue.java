@@ -0,0 +1,271 @@
+package util;
+
+import model.Bill;
+import model.Patient;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders invoice PDFs in the background, so the EDT never waits for PDFBox.
+ *
+ * - Persistent: every queued job is a small properties file in
+ *   hms.pdfQueue.dir (default generated_bills/.queue) holding everything the
+ *   invoice prints, written before the job runs and deleted once the PDF is
+ *   saved. Jobs left over from a previous run are picked up by {@link #start()}.
+ * - At most one pending job per bill_id; queueing a bill that is already
+ *   waiting or rendering just joins that job.
+ * - hms.pdfQueue.threads workers (default 2). A failed job is retried after
+ *   2 s, 4 s, 8 s... (at most 5 minutes) up to hms.pdfQueue.maxAttempts times
+ *   (default 5), then its file is renamed to .failed and left for inspection.
+ *
+ * Listeners are called on the worker threads; UI listeners must hand over to the EDT.
+ */
+public class PdfJobQueue {
+
+    private static final File QUEUE_DIR = new File(System.getProperty("hms.pdfQueue.dir",
+            PdfGenerator.PDF_DIRECTORY + File.separator + ".queue"));
+    private static final int THREADS = Integer.getInteger("hms.pdfQueue.threads", 2);
+    private static final int MAX_ATTEMPTS = Integer.getInteger("hms.pdfQueue.maxAttempts", 5);
+    private static final long FIRST_RETRY_MS = 2_000L;
+    private static final long MAX_RETRY_MS = 5 * 60_000L;
+
+    /**
+     * Told when a queued invoice is saved or fails.
+     */
+    public interface Listener {
+        /**
+         * @param requested true if a user of this session asked for the PDF and is waiting to see it
+         */
+        void pdfReady(int billId, File file, boolean requested);
+
+        /**
+         * @param willRetry false once the job has used all its attempts
+         */
+        void pdfFailed(int billId, Exception error, boolean willRetry);
+    }
+
+    private static class Job {
+        final Bill bill;
+        final Patient patient;
+        volatile boolean requested;
+        int attempts;
+
+        Job(Bill bill, Patient patient, boolean requested) {
+            this.bill = bill;
+            this.patient = patient;
+            this.requested = requested;
+        }
+    }
+
+    private static final Map<Integer, Job> pending = new ConcurrentHashMap<>(); // bill_id -> job
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private static ScheduledExecutorService workers;
+
+    /**
+     * Starts the workers and re-queues jobs saved by a previous run.
+     */
+    public static synchronized void start() {
+        if (workers != null) {
+            return;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        workers = Executors.newScheduledThreadPool(THREADS, r -> {
+            Thread t = new Thread(r, "hms-pdf-queue-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        File[] saved = QUEUE_DIR.listFiles((dir, name) -> name.endsWith(".job"));
+        if (saved != null) {
+            for (File file : saved) {
+                try {
+                    Job job = readJob(file);
+                    if (pending.putIfAbsent(job.bill.getBillId(), job) == null) {
+                        workers.execute(() -> run(job));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Skipping unreadable PDF job " + file + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    public static synchronized void stop() {
+        if (workers != null) {
+            workers.shutdownNow(); // Unfinished jobs stay on disk for the next start
+            workers = null;
+        }
+    }
+
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Queues the invoice for rendering. Returns false if the bill was already
+     * queued, in which case that job is kept (and marked as requested if this is).
+     *
+     * @param requested true if a user is waiting to see the PDF
+     * @throws IOException if the job could not be saved to the queue directory
+     */
+    public static boolean submit(Bill bill, Patient patient, boolean requested) throws IOException {
+        start();
+        Job job = new Job(bill, patient, requested);
+        Job existing = pending.putIfAbsent(bill.getBillId(), job);
+        if (existing != null) {
+            if (requested) {
+                existing.requested = true;
+            }
+            return false;
+        }
+        try {
+            writeJob(job);
+        } catch (IOException e) {
+            pending.remove(bill.getBillId());
+            throw e;
+        }
+        schedule(job, 0);
+        return true;
+    }
+
+    /**
+     * Bills waiting to be rendered or being rendered now.
+     */
+    public static int pendingCount() {
+        return pending.size();
+    }
+
+    private static synchronized void schedule(Job job, long delayMillis) {
+        if (workers != null) {
+            workers.schedule(() -> run(job), delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void run(Job job) {
+        int billId = job.bill.getBillId();
+        try {
+            // Rendered only if this exact invoice is not in the store yet
+            File pdf = InvoiceStore.exportTo(job.bill, job.patient, new File(PdfGenerator.PDF_DIRECTORY));
+            Files.deleteIfExists(jobFile(billId, ".job").toPath());
+            pending.remove(billId); // Only now, so a new job for the bill cannot have its file deleted
+            for (Listener listener : listeners) {
+                listener.pdfReady(billId, pdf, job.requested);
+            }
+        } catch (Exception e) {
+            job.attempts++;
+            boolean willRetry = job.attempts < MAX_ATTEMPTS;
+            System.err.println("Invoice PDF for bill " + billId + " failed (attempt " + job.attempts + " of "
+                    + MAX_ATTEMPTS + "): " + e.getMessage());
+            try {
+                if (willRetry) {
+                    writeJob(job);
+                } else {
+                    Files.move(jobFile(billId, ".job").toPath(), jobFile(billId, ".failed").toPath(),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+            if (willRetry) {
+                schedule(job, Math.min(MAX_RETRY_MS, FIRST_RETRY_MS << (job.attempts - 1)));
+            } else {
+                pending.remove(billId);
+            }
+            for (Listener listener : listeners) {
+                listener.pdfFailed(billId, e, willRetry);
+            }
+        }
+    }
+
+    // ========== JOB FILES ==========
+
+    private static File jobFile(int billId, String suffix) {
+        return new File(QUEUE_DIR, billId + suffix);
+    }
+
+    /**
+     * Saves the job through a temporary file, so a crash never leaves half a job behind.
+     */
+    private static void writeJob(Job job) throws IOException {
+        Files.createDirectories(QUEUE_DIR.toPath());
+        Bill bill = job.bill;
+        Patient patient = job.patient;
+        Properties props = new Properties();
+        props.setProperty("bill_id", String.valueOf(bill.getBillId()));
+        props.setProperty("patient_id", String.valueOf(bill.getPatientId()));
+        props.setProperty("patient_name", String.valueOf(bill.getPatientName()));
+        props.setProperty("bed_charge", String.valueOf(bill.getBedCharge()));
+        props.setProperty("service_charge", String.valueOf(bill.getServiceCharge()));
+        props.setProperty("doctor_fee", String.valueOf(bill.getDoctorFee()));
+        props.setProperty("total", String.valueOf(bill.getTotal()));
+        props.setProperty("bill_date", String.valueOf(bill.getBillDate().getTime()));
+        props.setProperty("name", patient.getName() != null ? patient.getName() : "");
+        if (patient.getAdmittedDate() != null) {
+            props.setProperty("admitted_date", String.valueOf(patient.getAdmittedDate().getTime()));
+        }
+        if (patient.getIllnessName() != null) {
+            props.setProperty("illness_name", patient.getIllnessName());
+        }
+        if (patient.getOtherIllnessText() != null) {
+            props.setProperty("other_illness_text", patient.getOtherIllnessText());
+        }
+        props.setProperty("attempts", String.valueOf(job.attempts));
+
+        Path target = jobFile(bill.getBillId(), ".job").toPath();
+        Path temp = jobFile(bill.getBillId(), ".tmp").toPath();
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            props.store(out, "Invoice PDF job");
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Job readJob(File file) throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            props.load(in);
+        }
+        Bill bill = new Bill();
+        bill.setBillId(Integer.parseInt(props.getProperty("bill_id")));
+        bill.setPatientId(Integer.parseInt(props.getProperty("patient_id")));
+        bill.setPatientName(props.getProperty("patient_name"));
+        bill.setBedCharge(Double.parseDouble(props.getProperty("bed_charge")));
+        bill.setServiceCharge(Double.parseDouble(props.getProperty("service_charge")));
+        bill.setDoctorFee(Double.parseDouble(props.getProperty("doctor_fee")));
+        bill.setTotal(Double.parseDouble(props.getProperty("total")));
+        bill.setBillDate(new Date(Long.parseLong(props.getProperty("bill_date"))));
+
+        Patient patient = new Patient();
+        patient.setPatientId(bill.getPatientId());
+        patient.setName(props.getProperty("name"));
+        String admitted = props.getProperty("admitted_date");
+        if (admitted != null) {
+            patient.setAdmittedDate(new Date(Long.parseLong(admitted)));
+        }
+        patient.setIllnessName(props.getProperty("illness_name"));
+        patient.setOtherIllnessText(props.getProperty("other_illness_text"));
+
+        Job job = new Job(bill, patient, false); // Whoever asked for it was in an earlier session
+        job.attempts = Integer.parseInt(props.getProperty("attempts", "0"));
+        return job;
+    }
+}